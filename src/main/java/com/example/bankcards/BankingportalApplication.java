@@ -3,12 +3,14 @@ package com.example.bankcards;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * The type Bankingportal application.
  */
 @SpringBootApplication
 @EnableAsync
+@EnableScheduling
 public class BankingportalApplication {
 
 	/**
@@ -1,14 +1,32 @@
 package com.example.bankcards.config;
 
+import com.example.bankcards.repository.RevokedTokenRepository;
+import com.example.bankcards.repository.RevokedUserRepository;
+import com.example.bankcards.repository.TokenRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.BoundedPasswordEncoder;
 import com.example.bankcards.security.JwtAuthenticationEntryPoint;
 import com.example.bankcards.security.JwtAuthenticationFilter;
+import com.example.bankcards.security.JwtTokenCodec;
+import com.example.bankcards.security.RateLimitFilter;
+import com.example.bankcards.service.RateLimitStore;
+import com.example.bankcards.service.TokenRegistry;
 import com.example.bankcards.service.TokenService;
+import com.example.bankcards.service.implementation.InMemoryRateLimitStore;
+import com.example.bankcards.service.implementation.RevocationListTokenRegistry;
+import com.example.bankcards.service.implementation.WhitelistTokenRegistry;
 import com.example.bankcards.util.ApiError;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -20,12 +38,13 @@ import org.springframework.security.web.access.AccessDeniedHandler;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.ObjectPostProcessor;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.header.HeaderWriterFilter;
 
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 
 import lombok.RequiredArgsConstructor;
@@ -43,23 +62,88 @@ public class WebSecurityConfig {
     private static final String[] PUBLIC_URLS = {
             "/api/auth/sign-up",
             "/api/auth/sign-in",
+            "/api/auth/refresh",
             "swagger-ui.html",
             "/v3/api-docs/**",
             "/swagger-ui/**",
-            "/actuator/**"
+            "/actuator/health"
     };
 
     private final JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final RateLimitFilter rateLimitFilter;
 
     /**
-     * Password encoder.
+     * Token registry that accepts only tokens stored in the token table.
+     * Static, as the registry is needed to build the filter this
+     * configuration depends on.
      *
-     * @return the password encoder
+     * @param tokenRepository the token repository
+     * @param userRepository  the user repository
+     * @return the token registry
+     */
+    @Bean
+    @ConditionalOnProperty(name = "jwt.validation-mode", havingValue = "whitelist", matchIfMissing = true)
+    static TokenRegistry whitelistTokenRegistry(TokenRepository tokenRepository, UserRepository userRepository) {
+        return new WhitelistTokenRegistry(tokenRepository, userRepository);
+    }
+
+    /**
+     * Token registry that accepts every validly signed token except the
+     * revoked ones, checked against an in-memory list.
+     *
+     * @param revokedTokenRepository the revoked token repository
+     * @param revokedUserRepository  the revoked user repository
+     * @param jwtTokenCodec          the jwt token codec
+     * @param tokenLifetimeMs        the lifetime of an access token
+     * @param expectedRevocations    the number of revocations the filter is sized for
+     * @param falsePositiveRate      the false positive rate of the filter
+     * @param refreshOverlapMs       the overlap between consecutive refreshes
+     * @return the token registry
      */
     @Bean
-    PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @ConditionalOnProperty(name = "jwt.validation-mode", havingValue = "revocation-list")
+    static TokenRegistry revocationListTokenRegistry(
+            RevokedTokenRepository revokedTokenRepository,
+            RevokedUserRepository revokedUserRepository,
+            JwtTokenCodec jwtTokenCodec,
+            @Value("${jwt.expiration}") long tokenLifetimeMs,
+            @Value("${jwt.revocation-list.expected-revocations:100000}") int expectedRevocations,
+            @Value("${jwt.revocation-list.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${jwt.revocation-list.refresh-overlap-ms:5000}") long refreshOverlapMs) {
+        return new RevocationListTokenRegistry(revokedTokenRepository, revokedUserRepository, jwtTokenCodec,
+                tokenLifetimeMs, expectedRevocations, falsePositiveRate, refreshOverlapMs);
+    }
+
+    /**
+     * Rate limit store that counts requests on this instance only.
+     *
+     * @param maxKeys the maximum number of keys tracked at once
+     * @return the rate limit store
+     */
+    @Bean
+    @ConditionalOnProperty(name = "rate-limit.store", havingValue = "memory", matchIfMissing = true)
+    static RateLimitStore inMemoryRateLimitStore(@Value("${rate-limit.max-keys:100000}") int maxKeys) {
+        return new InMemoryRateLimitStore(maxKeys);
+    }
+
+    /**
+     * Password encoder. BCrypt runs on a bounded pool of its own; sign-ins
+     * beyond its queue are rejected with 429.
+     *
+     * @param strength      the BCrypt cost
+     * @param threads       the number of hashing threads
+     * @param queueCapacity the number of hashes allowed to wait
+     * @param meterRegistry the meter registry, if metrics are enabled
+     * @return the password encoder
+     */
+    @Bean(destroyMethod = "shutdown")
+    BoundedPasswordEncoder passwordEncoder(@Value("${password.bcrypt-strength:10}") int strength,
+                                           @Value("${password.threads:4}") int threads,
+                                           @Value("${password.queue-capacity:64}") int queueCapacity,
+                                           ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BoundedPasswordEncoder(strength, threads, queueCapacity,
+                meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
     }
 
     /**
@@ -101,15 +185,19 @@ public class WebSecurityConfig {
     /**
      * Security filter chain.
      *
-     * @param http the http
+     * @param http         the http
+     * @param tokenService the token service
      * @return the security filter chain
      * @throws Exception the exception
      */
     @Bean
-    SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    SecurityFilterChain securityFilterChain(HttpSecurity http, TokenService tokenService) throws Exception {
         http.csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(requests -> requests
+                        // Асинхронное продолжение и страница ошибки относятся к уже проверенному запросу
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                         .requestMatchers(PUBLIC_URLS).permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                         .anyRequest().authenticated())
                 .exceptionHandling(handling -> {
@@ -119,14 +207,31 @@ public class WebSecurityConfig {
                 .sessionManagement(management -> {
                     management.sessionCreationPolicy(SessionCreationPolicy.STATELESS);
                 })
+                // Заголовки пишутся до обработки запроса: иначе поток потоковой выгрузки
+                // и поток запроса пишут их одновременно при первом сбросе ответа
+                .headers(headers -> headers.withObjectPostProcessor(new ObjectPostProcessor<HeaderWriterFilter>() {
+                    @Override
+                    public <O extends HeaderWriterFilter> O postProcess(O filter) {
+                        filter.setShouldWriteHeadersEagerly(true);
+                        return filter;
+                    }
+                }))
 
                 .logout(logout -> logout
+                        // Выход отзывает предъявленный токен доступа
+                        .addLogoutHandler((request, response, authentication) -> {
+                            String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+                            if (header != null && header.startsWith("Bearer ")) {
+                                tokenService.invalidateToken(header.substring(7));
+                            }
+                        })
                         .logoutSuccessHandler((request, response, authentication) -> {
                             response.setStatus(HttpServletResponse.SC_OK);
                         }));
 
         http.addFilterBefore(jwtAuthenticationFilter,
                 UsernamePasswordAuthenticationFilter.class);
+        http.addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
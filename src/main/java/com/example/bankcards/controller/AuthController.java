@@ -1,5 +1,6 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.request.RefreshTokenRequest;
 import com.example.bankcards.dto.request.SignInRequest;
 import com.example.bankcards.dto.request.UserRequest;
 import com.example.bankcards.dto.response.JwtAuthenticationResponse;
@@ -49,4 +50,18 @@ public class AuthController {
     public JwtAuthenticationResponse signIn(@RequestBody @Valid SignInRequest request) throws InvalidTokenException {
         return authenticationService.signIn(request);
     }
-}
\ No newline at end of file
+
+    /**
+     * Refresh jwt authentication response.
+     *
+     * @param request the request
+     * @return the jwt authentication response
+     * @throws InvalidTokenException the invalid token exception
+     */
+    @Operation(summary = "Обновление токена доступа",
+            description = "Обмен refresh-токена на новый токен доступа и новый refresh-токен")
+    @PostMapping("/refresh")
+    public JwtAuthenticationResponse refresh(@RequestBody @Valid RefreshTokenRequest request) throws InvalidTokenException {
+        return authenticationService.refresh(request);
+    }
+}
@@ -1,14 +1,25 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.request.BatchTransferRequest;
 import com.example.bankcards.dto.request.CardRequest;
 import com.example.bankcards.dto.request.TransactionRequest;
+import com.example.bankcards.dto.response.BatchTransferItemResult;
 import com.example.bankcards.dto.response.CardResponse;
 import com.example.bankcards.dto.response.TransactionResponse;
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleEnum;
+import com.example.bankcards.exception.CardAccessDeniedException;
+import com.example.bankcards.exception.UserNotFoundException;
+import com.example.bankcards.security.JwtPrincipal;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.IdempotencyService;
+import com.example.bankcards.service.LedgerService;
 import com.example.bankcards.service.TransactionService;
 import com.example.bankcards.service.UserService;
+import com.example.bankcards.util.ApiMessages;
 import com.example.bankcards.util.PaginationUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -16,16 +27,28 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The type Card controller.
@@ -36,65 +59,130 @@ import java.util.Map;
 @SecurityRequirement(name = "Bearer Authentication")
 @RequiredArgsConstructor(onConstructor = @__(@Autowired))
 public class CardController {
+
+    private static final byte[] NEWLINE = {'\n'};
+    private static final byte[] COMMA = {','};
+
     private final CardService cardService;
     private final UserService userService;
     private final TransactionService transactionService;
+    private final IdempotencyService idempotencyService;
+    private final LedgerService ledgerService;
     private final PaginationUtils paginationUtils;
+    private final ObjectMapper objectMapper;
+
+    @Value("${card.export.flush-every:1000}")
+    private int exportFlushEvery;
 
 
     /**
-     * Gets user cards.
+     * Gets user cards. With {@code pagination=keyset} or a cursor the cards
+     * are paged in id order by cursor, and with {@code pagination=slice} the
+     * page reports only whether a next one exists; neither runs a count. A
+     * search by card number stays on offset pages.
      *
-     * @param authentication the authentication
-     * @param page           the page
-     * @param size           the size
-     * @param sortBy         the sort by
-     * @param direction      the direction
-     * @param search         the search
+     * @param principal  the principal
+     * @param page       the page
+     * @param size       the size
+     * @param sortBy     the sort by
+     * @param direction  the direction
+     * @param search     the search
+     * @param pagination the pagination mode
+     * @param cursor     the cursor of the previous page
      * @return the user cards
      */
     @GetMapping("/my-cards")
     @PreAuthorize("isAuthenticated()")
     @Operation(summary = "Получить мои карты", description = "Возвращает список карт текущего пользователя")
-    public ResponseEntity<Map<String, Object>> getUserCards(Authentication authentication,
+    public ResponseEntity<Map<String, Object>> getUserCards(@AuthenticationPrincipal JwtPrincipal principal,
                                                             @RequestParam(required = false) Integer page,
                                                             @RequestParam(required = false) Integer size,
                                                             @RequestParam(required = false) String sortBy,
                                                             @RequestParam(required = false) String direction,
-                                                            @RequestParam(required = false) String search) {
+                                                            @RequestParam(required = false) String search,
+                                                            @Parameter(description = "offset, slice или keyset")
+                                                            @RequestParam(required = false) String pagination,
+                                                            @Parameter(description = "Курсор из nextCursor предыдущей страницы")
+                                                            @RequestParam(required = false) String cursor) {
+        if (paginationUtils.isKeyset(pagination, cursor) && (search == null || search.isEmpty())) {
+            return ResponseEntity.ok(paginationUtils.buildCursorResponse(cardService.getUserCardsByCursor(
+                    principal.getUserId(), cursor, paginationUtils.resolveSize(size))));
+        }
         Pageable pageable = paginationUtils.createPageable(page, size, sortBy, direction);
+        if (paginationUtils.isSlice(pagination) && (search == null || search.isEmpty())) {
+            return ResponseEntity.ok(paginationUtils.buildSliceResponse(
+                    cardService.getUserCardsSlice(principal.getUserId(), pageable)));
+        }
         Page<CardResponse> cardsPage = cardService.getUserCardsPaginated(
-                userService.getUserByUsername(authentication.getName()), search, pageable);
+                principal.getUserId(), search, pageable);
 
         return ResponseEntity.ok(paginationUtils.buildPaginationResponse(cardsPage));
     }
 
+    /**
+     * Gets user transactions. With {@code pagination=keyset} or a cursor the
+     * transactions are paged newest first by cursor, without a total count.
+     *
+     * @param principal  the principal
+     * @param page       the page
+     * @param size       the size
+     * @param sortBy     the sort by
+     * @param direction  the direction
+     * @param pagination the pagination mode
+     * @param cursor     the cursor of the previous page
+     * @return the user transactions
+     */
+    @GetMapping("/my-transactions")
+    @PreAuthorize("isAuthenticated()")
+    @Operation(summary = "Получить мои переводы", description = "Возвращает переводы с карт и на карты текущего пользователя")
+    public ResponseEntity<Map<String, Object>> getUserTransactions(@AuthenticationPrincipal JwtPrincipal principal,
+                                                                   @RequestParam(required = false) Integer page,
+                                                                   @RequestParam(required = false) Integer size,
+                                                                   @RequestParam(required = false) String sortBy,
+                                                                   @RequestParam(required = false) String direction,
+                                                                   @Parameter(description = "offset или keyset")
+                                                                   @RequestParam(required = false) String pagination,
+                                                                   @Parameter(description = "Курсор из nextCursor предыдущей страницы")
+                                                                   @RequestParam(required = false) String cursor) {
+        if (paginationUtils.isKeyset(pagination, cursor)) {
+            return ResponseEntity.ok(paginationUtils.buildCursorResponse(transactionService.getUserTransactionsByCursor(
+                    principal.getUserId(), cursor, paginationUtils.resolveSize(size))));
+        }
+        Pageable pageable = paginationUtils.createPageable(page, size, sortBy, direction);
+        Page<TransactionResponse> transactionsPage = transactionService.getUserTransactionsPaginated(
+                principal.getUserId(), pageable);
+
+        return ResponseEntity.ok(paginationUtils.buildPaginationResponse(transactionsPage));
+    }
+
     /**
      * Gets user cards active.
      *
-     * @param authentication the authentication
+     * @param principal the principal
      * @return the user cards active
      */
     @GetMapping("/my-cards/active")
     @PreAuthorize("isAuthenticated()")
     @Operation(summary = "Получить мои активные карты", description = "Возвращает список активных карт текущего пользователя")
-    public ResponseEntity<List<CardResponse>> getUserCardsActive(Authentication authentication) {
-        List<CardResponse> cards = cardService.getCardsByUserAndStatus(userService.getUserByUsername(authentication.getName()), CardStatus.ACTIVE);
+    public ResponseEntity<List<CardResponse>> getUserCardsActive(@AuthenticationPrincipal JwtPrincipal principal) {
+        List<CardResponse> cards = cardService.getCardsByUserAndStatus(principal.getUserId(), CardStatus.ACTIVE);
         return ResponseEntity.ok(cards);
     }
 
     /**
      * Create card.
      *
-     * @param authentication the authentication
-     * @param cardRequest    the card request
+     * @param principal   the principal
+     * @param cardRequest the card request
      * @return the response entity
      */
     @PostMapping("/create")
     @PreAuthorize("isAuthenticated()")
     @Operation(summary = "Создать карту", description = "Создает новую карту для текущего пользователя")
-    public ResponseEntity<CardResponse> createCard(Authentication authentication, @Valid @RequestBody CardRequest cardRequest) {
-        CardResponse cardResponse = cardService.createCard(userService.getUserByUsername(authentication.getName()), cardRequest.getCurrency());
+    public ResponseEntity<CardResponse> createCard(@AuthenticationPrincipal JwtPrincipal principal, @Valid @RequestBody CardRequest cardRequest) {
+        CardResponse cardResponse = cardService.createCard(userService.getUserById(principal.getUserId())
+                .orElseThrow(() -> new UserNotFoundException(ApiMessages.USER_NOT_FOUND.getMessage())),
+                cardRequest.getCurrency());
         return ResponseEntity.ok(cardResponse);
     }
 
@@ -116,23 +204,50 @@ public class CardController {
     }
 
     /**
-     * Transfer card.
+     * Transfer card. A request repeated with the same Idempotency-Key returns
+     * the response of the first one instead of moving the money again.
      *
+     * @param authentication     the authentication
+     * @param idempotencyKey     the idempotency key
      * @param transactionRequest the transaction request
      * @return the response entity
      */
     @PostMapping("/transfer")
     @PreAuthorize("isAuthenticated()")
     @Operation(summary = "Перевод", description = "Перевод между своими картами")
-    public ResponseEntity<TransactionResponse> transferCard(@Valid @RequestBody TransactionRequest transactionRequest) {
+    public ResponseEntity<TransactionResponse> transferCard(
+            Authentication authentication,
+            @Parameter(description = "Ключ идемпотентности для безопасного повтора запроса")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Valid @RequestBody TransactionRequest transactionRequest) {
         try {
-            TransactionResponse transaction = transactionService.transferBetweenCards(transactionRequest);
+            TransactionResponse transaction = idempotencyKey == null
+                    ? transactionService.transferBetweenCards(transactionRequest)
+                    : idempotencyService.execute(authentication.getName(), idempotencyKey, transactionRequest,
+                    TransactionResponse.class,
+                    completion -> transactionService.transferBetweenCards(transactionRequest, completion));
             return ResponseEntity.ok(transaction);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(null);
         }
     }
 
+    /**
+     * Transfer batch. The source card must belong to the current user.
+     *
+     * @param principal            the principal
+     * @param batchTransferRequest the batch transfer request
+     * @return the per-item results
+     */
+    @PostMapping("/transfers/batch")
+    @PreAuthorize("isAuthenticated()")
+    @Operation(summary = "Пакетный перевод", description = "Переводы со своей карты на несколько карт одной транзакцией")
+    public ResponseEntity<List<BatchTransferItemResult>> transferBatch(
+            @AuthenticationPrincipal JwtPrincipal principal,
+            @Valid @RequestBody BatchTransferRequest batchTransferRequest) {
+        return ResponseEntity.ok(transactionService.transferBatch(principal.getUserId(), batchTransferRequest));
+    }
+
     /**
      * Gets balance.
      *
@@ -149,18 +264,84 @@ public class CardController {
     }
 
     /**
-     * Gets all cards.
+     * Gets balance as of a moment. Only the owner of the card and
+     * administrators may read its history.
+     *
+     * @param principal  the current user
+     * @param cardNumber the card number
+     * @param at         the moment
+     * @return the balance
+     */
+    @GetMapping("/balance/as-of")
+    @PreAuthorize("isAuthenticated()")
+    @Operation(summary = "Баланс на момент времени", description = "Баланс карты на указанный момент по журналу операций")
+    public ResponseEntity<BigDecimal> getBalanceAsOf(
+            @AuthenticationPrincipal JwtPrincipal principal,
+            @Valid @RequestParam String cardNumber,
+            @Parameter(description = "Момент времени, ISO-8601") @RequestParam
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return cardService.getCardByNumber(cardNumber)
+                .map(card -> {
+                    if (!card.getUser().getId().equals(principal.getUserId()) && !isAdmin(principal)) {
+                        throw new CardAccessDeniedException(ApiMessages.CARD_ACCESS_DENIED.getMessage());
+                    }
+                    return ResponseEntity.ok(ledgerService.getBalanceAsOf(card.getId(), at));
+                })
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    private static boolean isAdmin(JwtPrincipal principal) {
+        return principal.getAuthorities().stream()
+                .anyMatch(authority -> RoleEnum.ROLE_ADMIN.name().equals(authority.getAuthority()));
+    }
+
+    /**
+     * Gets all cards. The cards are written to the response as they are
+     * read: a JSON array by default, or one JSON object per line when the
+     * client accepts {@code application/x-ndjson}. The output is flushed
+     * every {@code card.export.flush-every} cards, so neither the node nor
+     * the client has to hold the whole table. The stream runs until
+     * {@code spring.mvc.async.request-timeout} rather than the container's
+     * default async timeout. Requests with {@code pagination=keyset} or a
+     * cursor are served by {@link #getAllCardsByCursor}.
      *
+     * @param accept the accept header
      * @return the all cards
      */
-    @GetMapping("/admin/all-cards")
-    @Operation(summary = "Посмотреть все карты пользователей", description = "Показывает список всех карт пользователей")
+    @GetMapping(value = "/admin/all-cards", params = {"!cursor", "pagination!=keyset"})
+    @Operation(summary = "Посмотреть все карты пользователей", description = "Показывает список всех карт пользователей; " +
+            "выдается потоком: JSON-массив или NDJSON при Accept: application/x-ndjson")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
-    public ResponseEntity<List<CardResponse>> getAllCards() {
-        List<CardResponse> cardResponses = cardService.getAllCards();
-        return ResponseEntity.ok(cardResponses);
+    public ResponseEntity<StreamingResponseBody> getAllCards(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        boolean ndjson = accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(out -> writeAllCards(out, ndjson));
     }
 
+    /**
+     * Gets all cards paged in id order by cursor, for requests with
+     * {@code pagination=keyset} or a cursor.
+     *
+     * @param pagination the pagination mode
+     * @param cursor     the cursor of the previous page
+     * @param size       the size
+     * @return the page of cards
+     */
+    @GetMapping("/admin/all-cards")
+    @Operation(summary = "Посмотреть все карты пользователей постранично", description = "Показывает карты всех " +
+            "пользователей постранично по курсору")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<Map<String, Object>> getAllCardsByCursor(
+            @Parameter(description = "keyset — постранично по курсору")
+            @RequestParam(required = false) String pagination,
+            @Parameter(description = "Курсор из nextCursor предыдущей страницы")
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(paginationUtils.buildCursorResponse(
+                cardService.getAllCardsByCursor(cursor, paginationUtils.resolveSize(size))));
+    }
 
     /**
      * Create card for user response entity.
@@ -215,4 +396,39 @@ public class CardController {
         }
         return ResponseEntity.notFound().build();
     }
+
+    private void writeAllCards(OutputStream out, boolean ndjson) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(CardResponse.class);
+        OutputStream buffered = new BufferedOutputStream(out);
+        byte[] separator = ndjson ? NEWLINE : COMMA;
+        AtomicLong written = new AtomicLong();
+        if (!ndjson) {
+            buffered.write('[');
+        }
+        try {
+            cardService.forEachCard(card -> {
+                try {
+                    long count = written.getAndIncrement();
+                    if (count > 0) {
+                        buffered.write(separator);
+                    }
+                    buffered.write(writer.writeValueAsBytes(card));
+                    if ((count + 1) % exportFlushEvery == 0) {
+                        buffered.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (ndjson && written.get() > 0) {
+            buffered.write(NEWLINE);
+        }
+        if (!ndjson) {
+            buffered.write(']');
+        }
+        buffered.flush();
+    }
 }
@@ -0,0 +1,22 @@
+package com.example.bankcards.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * The type Batch transfer item.
+ */
+@Data
+public class BatchTransferItem {
+    @NotNull
+    private Long toCardId;
+
+    @NotNull
+    @Positive
+    private BigDecimal amount;
+
+    private String description;
+}
@@ -0,0 +1,22 @@
+package com.example.bankcards.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * The type Batch transfer request.
+ */
+@Data
+public class BatchTransferRequest {
+    @NotNull
+    private Long fromCardId;
+
+    @NotEmpty
+    @Size(max = 1000)
+    private List<@Valid @NotNull BatchTransferItem> transfers;
+}
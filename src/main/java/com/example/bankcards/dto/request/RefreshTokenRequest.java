@@ -0,0 +1,21 @@
+package com.example.bankcards.dto.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The type Refresh token request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Запрос на обновление токена доступа")
+public class RefreshTokenRequest {
+
+    @Schema(description = "Refresh-токен, полученный при входе или прошлом обновлении")
+    @NotBlank(message = "Refresh-токен не может быть пустым")
+    private String refreshToken;
+}
@@ -0,0 +1,40 @@
+package com.example.bankcards.dto.response;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * The type Batch transfer item result.
+ */
+@Data
+@NoArgsConstructor
+public class BatchTransferItemResult {
+    private int index;
+    private Long toCardId;
+    private BigDecimal amount;
+    private String status;
+    private String error;
+    private TransactionResponse transaction;
+
+    /**
+     * Instantiates a new Batch transfer item result.
+     *
+     * @param index       the position of the item in the request
+     * @param toCardId    the to card id
+     * @param amount      the amount
+     * @param status      the status
+     * @param error       the rejection reason, null for a completed item
+     * @param transaction the transaction, null for a rejected item
+     */
+    public BatchTransferItemResult(int index, Long toCardId, BigDecimal amount, String status,
+                                   String error, TransactionResponse transaction) {
+        this.index = index;
+        this.toCardId = toCardId;
+        this.amount = amount;
+        this.status = status;
+        this.error = error;
+        this.transaction = transaction;
+    }
+}
@@ -10,6 +10,7 @@ import java.time.LocalDate;
  */
 @Data
 public class CardResponse {
+    private Long id;
     private String maskedNumber;
     private String userFullName;
     private LocalDate expiryDate;
@@ -33,6 +34,25 @@ public class CardResponse {
      */
     public CardResponse(String maskedNumber, String userFullName,String currency,
                         LocalDate expiryDate, String status, BigDecimal balance, boolean active, boolean expired) {
+        this(null, maskedNumber, userFullName, currency, expiryDate, status, balance, active, expired);
+    }
+
+    /**
+     * Instantiates a new Card response.
+     *
+     * @param id           the id
+     * @param maskedNumber the masked number
+     * @param userFullName the user full name
+     * @param currency     the currency
+     * @param expiryDate   the expiry date
+     * @param status       the status
+     * @param balance      the balance
+     * @param active       the active
+     * @param expired      the expired
+     */
+    public CardResponse(Long id, String maskedNumber, String userFullName, String currency,
+                        LocalDate expiryDate, String status, BigDecimal balance, boolean active, boolean expired) {
+        this.id = id;
         this.maskedNumber = maskedNumber;
         this.userFullName = userFullName;
         this.expiryDate = expiryDate;
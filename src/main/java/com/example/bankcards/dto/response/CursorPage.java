@@ -0,0 +1,58 @@
+package com.example.bankcards.dto.response;
+
+import com.example.bankcards.util.PageCursor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The type Cursor page. A keyset page carries no total count; the cursor of
+ * its last row is the position the next page starts after.
+ *
+ * @param <T> the row type
+ */
+@Getter
+public class CursorPage<T> {
+
+    private final List<T> content;
+    private final String nextCursor;
+
+    /**
+     * Instantiates a new Cursor page.
+     *
+     * @param content    the content
+     * @param nextCursor the cursor of the next page, or null on the last page
+     */
+    public CursorPage(List<T> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Builds a page from rows fetched with a limit of one more than the page
+     * size: the extra row only tells that a next page exists.
+     *
+     * @param <T>      the row type
+     * @param rows     the fetched rows
+     * @param size     the page size
+     * @param cursorOf the cursor of a row
+     * @return the page
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int size, Function<T, PageCursor> cursorOf) {
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> content = rows.subList(0, size);
+        return new CursorPage<>(content, cursorOf.apply(content.get(size - 1)).encode());
+    }
+
+    /**
+     * Has next boolean.
+     *
+     * @return the boolean
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
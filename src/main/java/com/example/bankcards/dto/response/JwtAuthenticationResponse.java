@@ -17,4 +17,16 @@ import lombok.NoArgsConstructor;
 public class JwtAuthenticationResponse {
     @Schema(description = "Токен доступа", example = "eyJhbGciOiJIUzUxMiJ9.eyJzdWIiOiJhZG1pbiIsImV4cCI6MTYyMjUwNj...")
     private String token;
+
+    @Schema(description = "Refresh-токен для получения нового токена доступа, действует один раз")
+    private String refreshToken;
+
+    /**
+     * Instantiates a new Jwt authentication response without a refresh token.
+     *
+     * @param token the access token
+     */
+    public JwtAuthenticationResponse(String token) {
+        this.token = token;
+    }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.example.bankcards.dto.response;
 
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
@@ -8,6 +9,7 @@ import java.time.LocalDateTime;
  * The type Transaction response.
  */
 @Data
+@NoArgsConstructor
 public class TransactionResponse {
     private Long id;
     private BigDecimal amount;
@@ -0,0 +1,22 @@
+package com.example.bankcards.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * The type Transfer event. Payload of a transfer completed outbox event.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferEvent {
+    private Long transactionId;
+    private Long fromCardId;
+    private Long toCardId;
+    private BigDecimal amount;
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,96 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * The type Balance snapshot. The balance of a card including every ledger
+ * entry created up to the snapshot time.
+ */
+@Entity
+@Table(name = "balance_snapshot", indexes = {
+        @Index(name = "idx_balance_snapshot_card_taken", columnList = "card_id, taken_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor(access = AccessLevel.PUBLIC)
+public class BalanceSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "card_id", nullable = false, updatable = false)
+    private Long cardId;
+
+    @Column(name = "balance", nullable = false, updatable = false)
+    private BigDecimal balance;
+
+    @Column(name = "taken_at", nullable = false, updatable = false)
+    private LocalDateTime takenAt;
+
+    /**
+     * Instantiates a new Balance snapshot.
+     *
+     * @param cardId  the card id
+     * @param balance the balance
+     * @param takenAt the time up to which ledger entries are included
+     */
+    public BalanceSnapshot(Long cardId, BigDecimal balance, LocalDateTime takenAt) {
+        this.cardId = cardId;
+        this.balance = balance;
+        this.takenAt = takenAt;
+    }
+
+    /**
+     * Equals boolean.
+     *
+     * @param o the o
+     * @return the boolean
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        BalanceSnapshot that = (BalanceSnapshot) o;
+
+        if (id != null && that.id != null) {
+            return Objects.equals(id, that.id);
+        }
+
+        return false;
+    }
+
+    /**
+     * Hash code int.
+     *
+     * @return the int
+     */
+    @Override
+    public int hashCode() {
+        if (id != null) {
+            return id.hashCode();
+        }
+        return super.hashCode();
+    }
+
+    /**
+     * To string string.
+     *
+     * @return the string
+     */
+    @Override
+    public String toString() {
+        return "BalanceSnapshot{" +
+                "id=" + id +
+                ", cardId=" + cardId +
+                ", balance=" + balance +
+                ", takenAt=" + takenAt +
+                '}';
+    }
+}
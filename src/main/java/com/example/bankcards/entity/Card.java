@@ -1,25 +1,32 @@
 package com.example.bankcards.entity;
 
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.util.PooledLoSequence;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Objects;
 
 /**
- * The type Card.
+ * The type Card. Updates write only the changed columns, so a status change
+ * never overwrites a balance moved by the balance engine.
  */
 @Entity
-@Table(name = "card")
+@Table(name = "card", indexes = {
+        @Index(name = "idx_card_user_status", columnList = "user_id, status, id"),
+        @Index(name = "idx_card_user_keyset", columnList = "user_id, id")
+})
+@DynamicUpdate
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PUBLIC)
 public class Card {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledLoSequence(name = "card_seq")
     private Long id;
 
     @Column(unique = true, nullable = false)
@@ -41,6 +48,9 @@ public class Card {
 
     private BigDecimal balance = BigDecimal.ZERO;
 
+    @Version
+    private Long version;
+
     /**
      * Equals boolean.
      *
@@ -92,6 +102,7 @@ public class Card {
                 ", isActive=" + isActive +
                 ", status=" + status +
                 ", balance=" + balance +
+                ", version=" + version +
                 '}';
     }
 
@@ -0,0 +1,136 @@
+package com.example.bankcards.entity;
+
+import com.example.bankcards.entity.enums.IdempotencyStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * The type Idempotency record. A record in progress is claimed by the
+ * request holding its claim token until the lease expires; after that a
+ * retry with the same key may take it over.
+ */
+@Entity
+@Table(name = "idempotency_key",
+        uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_key_username_key",
+                columnNames = {"username", "idempotency_key"}),
+        indexes = @Index(name = "idx_idempotency_key_created_at", columnList = "created_at"))
+@Getter
+@Setter
+@NoArgsConstructor(access = AccessLevel.PUBLIC)
+public class IdempotencyRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "username", nullable = false)
+    private String username;
+
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private IdempotencyStatus status = IdempotencyStatus.IN_PROGRESS;
+
+    @Column(name = "response", columnDefinition = "TEXT")
+    private String response;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
+    /**
+     * Instantiates a new Idempotency record.
+     *
+     * @param username       the username
+     * @param idempotencyKey the idempotency key
+     * @param requestHash    the request hash
+     */
+    public IdempotencyRecord(String username, String idempotencyKey, String requestHash) {
+        this.username = username;
+        this.idempotencyKey = idempotencyKey;
+        this.requestHash = requestHash;
+    }
+
+    /**
+     * Instantiates a new Idempotency record claimed until the lease expires.
+     *
+     * @param username       the username
+     * @param idempotencyKey the idempotency key
+     * @param requestHash    the request hash
+     * @param claimToken     the claim token
+     * @param leaseExpiresAt the lease expires at
+     */
+    public IdempotencyRecord(String username, String idempotencyKey, String requestHash,
+                             String claimToken, LocalDateTime leaseExpiresAt) {
+        this(username, idempotencyKey, requestHash);
+        this.claimToken = claimToken;
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
+    /**
+     * Equals boolean.
+     *
+     * @param o the o
+     * @return the boolean
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        IdempotencyRecord that = (IdempotencyRecord) o;
+
+        if (username != null && idempotencyKey != null) {
+            return Objects.equals(username, that.username)
+                    && Objects.equals(idempotencyKey, that.idempotencyKey);
+        }
+
+        return false;
+    }
+
+    /**
+     * Hash code int.
+     *
+     * @return the int
+     */
+    @Override
+    public int hashCode() {
+        if (username != null && idempotencyKey != null) {
+            return Objects.hash(username, idempotencyKey);
+        }
+        return super.hashCode();
+    }
+
+    /**
+     * To string string.
+     *
+     * @return the string
+     */
+    @Override
+    public String toString() {
+        return "IdempotencyRecord{" +
+                "id=" + id +
+                ", username='" + username + '\'' +
+                ", idempotencyKey='" + idempotencyKey + '\'' +
+                ", status=" + status +
+                ", createdAt=" + createdAt +
+                ", completedAt=" + completedAt +
+                '}';
+    }
+}
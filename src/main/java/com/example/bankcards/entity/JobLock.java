@@ -0,0 +1,73 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * The type Job lock. A row names a scheduled job that must run on one
+ * instance at a time; the instance that last took the lock holds it until
+ * {@code lockedUntil}.
+ */
+@Entity
+@Table(name = "job_lock")
+@Getter
+@Setter
+@NoArgsConstructor(access = AccessLevel.PUBLIC)
+public class JobLock {
+
+    @Id
+    @Column(name = "name", length = 64, nullable = false, updatable = false)
+    private String name;
+
+    @Column(name = "locked_until", nullable = false)
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "locked_by", nullable = false)
+    private String lockedBy;
+
+    /**
+     * Equals boolean.
+     *
+     * @param o the o
+     * @return the boolean
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        JobLock that = (JobLock) o;
+
+        return name != null && Objects.equals(name, that.name);
+    }
+
+    /**
+     * Hash code int.
+     *
+     * @return the int
+     */
+    @Override
+    public int hashCode() {
+        if (name != null) {
+            return name.hashCode();
+        }
+        return super.hashCode();
+    }
+
+    /**
+     * To string string.
+     *
+     * @return the string
+     */
+    @Override
+    public String toString() {
+        return "JobLock{" +
+                "name='" + name + '\'' +
+                ", lockedUntil=" + lockedUntil +
+                ", lockedBy='" + lockedBy + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.bankcards.entity;
+
+import com.example.bankcards.util.PooledLoSequence;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * The type Ledger entry. One append-only row per balance change of a card:
+ * a transfer writes a negative entry for the source and a positive one for
+ * the destination in the same database transaction. The balance of a card
+ * at any moment is the sum of its entries up to that moment.
+ */
+@Entity
+@Table(name = "ledger_entry", indexes = {
+        @Index(name = "idx_ledger_entry_card_created", columnList = "card_id, created_at"),
+        @Index(name = "idx_ledger_entry_transaction", columnList = "transaction_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor(access = AccessLevel.PUBLIC)
+public class LedgerEntry {
+
+    @Id
+    @PooledLoSequence(name = "ledger_entry_seq")
+    private Long id;
+
+    @Column(name = "card_id", nullable = false, updatable = false)
+    private Long cardId;
+
+    @Column(name = "transaction_id", updatable = false)
+    private Long transactionId;
+
+    @Column(name = "delta", nullable = false, updatable = false)
+    private BigDecimal delta;
+
+    @Column(name = "running_balance", nullable = false, updatable = false)
+    private BigDecimal runningBalance;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    /**
+     * Instantiates a new Ledger entry.
+     *
+     * @param cardId         the card id
+     * @param transactionId  the transaction id, null for deposits and withdrawals
+     * @param delta          the signed balance change
+     * @param runningBalance the card balance after the change
+     */
+    public LedgerEntry(Long cardId, Long transactionId, BigDecimal delta, BigDecimal runningBalance) {
+        this.cardId = cardId;
+        this.transactionId = transactionId;
+        this.delta = delta;
+        this.runningBalance = runningBalance;
+    }
+
+    /**
+     * Equals boolean.
+     *
+     * @param o the o
+     * @return the boolean
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        LedgerEntry that = (LedgerEntry) o;
+
+        if (id != null && that.id != null) {
+            return Objects.equals(id, that.id);
+        }
+
+        return false;
+    }
+
+    /**
+     * Hash code int.
+     *
+     * @return the int
+     */
+    @Override
+    public int hashCode() {
+        if (id != null) {
+            return id.hashCode();
+        }
+        return super.hashCode();
+    }
+
+    /**
+     * To string string.
+     *
+     * @return the string
+     */
+    @Override
+    public String toString() {
+        return "LedgerEntry{" +
+                "id=" + id +
+                ", cardId=" + cardId +
+                ", transactionId=" + transactionId +
+                ", delta=" + delta +
+                ", runningBalance=" + runningBalance +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
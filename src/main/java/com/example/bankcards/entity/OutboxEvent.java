@@ -0,0 +1,100 @@
+package com.example.bankcards.entity;
+
+import com.example.bankcards.entity.enums.OutboxEventType;
+import com.example.bankcards.util.PooledLoSequence;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * The type Outbox event. Written in the same database transaction as the
+ * change it describes and deleted once the relay has handed it to the sink,
+ * so the table only holds events not yet published.
+ */
+@Entity
+@Table(name = "outbox_event")
+@Getter
+@Setter
+@NoArgsConstructor(access = AccessLevel.PUBLIC)
+public class OutboxEvent {
+
+    @Id
+    @PooledLoSequence(name = "outbox_event_seq")
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, updatable = false)
+    private OutboxEventType eventType;
+
+    @Column(name = "aggregate_id", nullable = false, updatable = false)
+    private Long aggregateId;
+
+    @Column(name = "payload", nullable = false, updatable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    /**
+     * Instantiates a new Outbox event.
+     *
+     * @param eventType   the event type
+     * @param aggregateId the id of the changed entity
+     * @param payload     the event as JSON
+     */
+    public OutboxEvent(OutboxEventType eventType, Long aggregateId, String payload) {
+        this.eventType = eventType;
+        this.aggregateId = aggregateId;
+        this.payload = payload;
+    }
+
+    /**
+     * Equals boolean.
+     *
+     * @param o the o
+     * @return the boolean
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        OutboxEvent that = (OutboxEvent) o;
+
+        if (id != null && that.id != null) {
+            return Objects.equals(id, that.id);
+        }
+
+        return false;
+    }
+
+    /**
+     * Hash code int.
+     *
+     * @return the int
+     */
+    @Override
+    public int hashCode() {
+        if (id != null) {
+            return id.hashCode();
+        }
+        return super.hashCode();
+    }
+
+    /**
+     * To string string.
+     *
+     * @return the string
+     */
+    @Override
+    public String toString() {
+        return "OutboxEvent{" +
+                "id=" + id +
+                ", eventType=" + eventType +
+                ", aggregateId=" + aggregateId +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
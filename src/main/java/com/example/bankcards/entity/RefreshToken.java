@@ -0,0 +1,93 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * The type Refresh token. A refresh token is an opaque random value handed
+ * to the client once; only its SHA-256 digest is stored. Each use replaces
+ * the token with a new one of the same family and marks the old row as
+ * used, so a second use of the same token reveals that it leaked.
+ */
+@Entity
+@NoArgsConstructor(access = AccessLevel.PUBLIC)
+@Getter
+@Setter
+@Table(name = "refresh_token", indexes = {
+        @Index(name = "idx_refresh_token_user_id", columnList = "user_id"),
+        @Index(name = "idx_refresh_token_family_id", columnList = "family_id"),
+        @Index(name = "idx_refresh_token_expiry_at", columnList = "expiry_at")
+})
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @Column(name = "token_hash", unique = true, length = 32, nullable = false, updatable = false)
+    private byte[] tokenHash;
+
+    @NotNull
+    @Column(name = "family_id", length = 36, nullable = false, updatable = false)
+    private String familyId;
+
+    @NotNull
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false, updatable = false)
+    private User user;
+
+    @NotNull
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Date createdAt = new Date();
+
+    @NotNull
+    @Column(name = "expiry_at", nullable = false, updatable = false)
+    private Date expiryAt;
+
+    @Column(name = "used_at")
+    private Date usedAt;
+
+    /**
+     * Instantiates a new Refresh token.
+     *
+     * @param tokenHash the SHA-256 digest of the token
+     * @param familyId  the id shared by the tokens rotated from one sign-in
+     * @param user      the user
+     * @param expiryAt  the expiry at
+     */
+    public RefreshToken(byte[] tokenHash, String familyId, User user, Date expiryAt) {
+        this.tokenHash = tokenHash;
+        this.familyId = familyId;
+        this.user = user;
+        this.expiryAt = expiryAt;
+    }
+
+    /**
+     * Equals boolean.
+     *
+     * @param o the o
+     * @return the boolean
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RefreshToken that = (RefreshToken) o;
+        return tokenHash != null && Arrays.equals(tokenHash, that.tokenHash);
+    }
+
+    /**
+     * Hash code int.
+     *
+     * @return the int
+     */
+    @Override
+    public int hashCode() {
+        return tokenHash != null ? Arrays.hashCode(tokenHash) : super.hashCode();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * The type Revoked token. Used when tokens are validated by signature and
+ * expiry alone: a row lists a token that must no longer be accepted and is
+ * kept until the token would have expired anyway.
+ */
+@Entity
+@Table(name = "revoked_token", indexes = {
+        @Index(name = "idx_revoked_token_revoked_at", columnList = "revoked_at"),
+        @Index(name = "idx_revoked_token_expiry_at", columnList = "expiry_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor(access = AccessLevel.PUBLIC)
+public class RevokedToken {
+
+    @Id
+    @Column(name = "token_hash", length = 64, nullable = false, updatable = false)
+    private String tokenHash;
+
+    @Column(name = "expiry_at", nullable = false, updatable = false)
+    private Date expiryAt;
+
+    @Column(name = "revoked_at", nullable = false, updatable = false)
+    private Date revokedAt = new Date();
+
+    /**
+     * Instantiates a new Revoked token.
+     *
+     * @param tokenHash the SHA-256 of the token as hex
+     * @param expiryAt  the expiry of the token
+     */
+    public RevokedToken(String tokenHash, Date expiryAt) {
+        this.tokenHash = tokenHash;
+        this.expiryAt = expiryAt;
+    }
+
+    /**
+     * Equals boolean.
+     *
+     * @param o the o
+     * @return the boolean
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        RevokedToken that = (RevokedToken) o;
+
+        return tokenHash != null && Objects.equals(tokenHash, that.tokenHash);
+    }
+
+    /**
+     * Hash code int.
+     *
+     * @return the int
+     */
+    @Override
+    public int hashCode() {
+        if (tokenHash != null) {
+            return tokenHash.hashCode();
+        }
+        return super.hashCode();
+    }
+
+    /**
+     * To string string.
+     *
+     * @return the string
+     */
+    @Override
+    public String toString() {
+        return "RevokedToken{" +
+                "tokenHash='" + tokenHash + '\'' +
+                ", expiryAt=" + expiryAt +
+                ", revokedAt=" + revokedAt +
+                '}';
+    }
+}
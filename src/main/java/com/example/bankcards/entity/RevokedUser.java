@@ -0,0 +1,90 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * The type Revoked user. Used when tokens are validated by signature and
+ * expiry alone: a row rejects every token of the user issued before the
+ * revocation and is kept until the last of those tokens would have expired.
+ */
+@Entity
+@Table(name = "revoked_user", indexes = {
+        @Index(name = "idx_revoked_user_revoked_at", columnList = "revoked_at"),
+        @Index(name = "idx_revoked_user_expiry_at", columnList = "expiry_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor(access = AccessLevel.PUBLIC)
+public class RevokedUser {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "username", nullable = false, updatable = false)
+    private String username;
+
+    @Column(name = "revoked_at", nullable = false, updatable = false)
+    private Date revokedAt;
+
+    @Column(name = "expiry_at", nullable = false, updatable = false)
+    private Date expiryAt;
+
+    /**
+     * Instantiates a new Revoked user.
+     *
+     * @param username  the username
+     * @param revokedAt the time of the revocation
+     * @param expiryAt  the time the last token issued before it expires
+     */
+    public RevokedUser(String username, Date revokedAt, Date expiryAt) {
+        this.username = username;
+        this.revokedAt = revokedAt;
+        this.expiryAt = expiryAt;
+    }
+
+    /**
+     * Equals boolean.
+     *
+     * @param o the o
+     * @return the boolean
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        RevokedUser that = (RevokedUser) o;
+
+        return id != null && Objects.equals(id, that.id);
+    }
+
+    /**
+     * Hash code int.
+     *
+     * @return the int
+     */
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
+    /**
+     * To string string.
+     *
+     * @return the string
+     */
+    @Override
+    public String toString() {
+        return "RevokedUser{" +
+                "id=" + id +
+                ", username='" + username + '\'' +
+                ", revokedAt=" + revokedAt +
+                ", expiryAt=" + expiryAt +
+                '}';
+    }
+}
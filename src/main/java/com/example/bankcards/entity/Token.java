@@ -1,15 +1,17 @@
 package com.example.bankcards.entity;
 
 import jakarta.persistence.*;
-import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
 
+import java.util.Arrays;
 import java.util.Date;
-import java.util.Objects;
+import java.util.HexFormat;
 
 /**
- * The type Token.
+ * The type Token. Only the SHA-256 digest of the issued JWT is stored, so the
+ * unique index holds fixed 32 byte keys and the bearer token itself is not
+ * kept in the database.
  */
 @Entity
 @NoArgsConstructor(access = AccessLevel.PUBLIC)
@@ -22,9 +24,9 @@ public class Token {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @NotEmpty
-    @Column(unique = true)
-    private String token;
+    @NotNull
+    @Column(name = "token_hash", unique = true, length = 32)
+    private byte[] tokenHash;
 
     @NotNull
     private Date createdAt = new Date();
@@ -40,12 +42,12 @@ public class Token {
     /**
      * Instantiates a new Token.
      *
-     * @param token    the token
-     * @param expiryAt the expiry at
-     * @param user     the user
+     * @param tokenHash the SHA-256 digest of the token
+     * @param expiryAt  the expiry at
+     * @param user      the user
      */
-    public Token(String token, Date expiryAt, User user) {
-        this.token = token;
+    public Token(byte[] tokenHash, Date expiryAt, User user) {
+        this.tokenHash = tokenHash;
         this.expiryAt = expiryAt;
         this.user = user;
     }
@@ -63,8 +65,8 @@ public class Token {
 
         Token otherToken = (Token) o;
 
-        if (token != null && otherToken.token != null) {
-            return Objects.equals(token, otherToken.token);
+        if (tokenHash != null && otherToken.tokenHash != null) {
+            return Arrays.equals(tokenHash, otherToken.tokenHash);
         }
 
         return false;
@@ -77,8 +79,8 @@ public class Token {
      */
     @Override
     public int hashCode() {
-        if (token != null) {
-            return token.hashCode();
+        if (tokenHash != null) {
+            return Arrays.hashCode(tokenHash);
         }
         return super.hashCode();
     }
@@ -92,7 +94,7 @@ public class Token {
     public String toString() {
         return "Token{" +
                 "id=" + id +
-                ", token='" + token + '\'' +
+                ", tokenHash=" + (tokenHash != null ? HexFormat.of().formatHex(tokenHash) : "null") +
                 ", createdAt=" + createdAt +
                 ", expiryAt=" + expiryAt +
                 ", userId=" + (user != null ? user.getId() : "null") + // Только ID пользователя
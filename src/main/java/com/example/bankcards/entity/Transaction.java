@@ -1,6 +1,7 @@
 package com.example.bankcards.entity;
 
 import com.example.bankcards.entity.enums.TransactionStatus;
+import com.example.bankcards.util.PooledLoSequence;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Positive;
 import lombok.*;
@@ -21,7 +22,7 @@ import java.util.Objects;
 public class Transaction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledLoSequence(name = "transaction_seq")
     private Long id;
 
     @Positive
@@ -0,0 +1,15 @@
+package com.example.bankcards.entity.enums;
+
+/**
+ * The enum Idempotency status.
+ */
+public enum IdempotencyStatus {
+    /**
+     * The first request with the key is still running.
+     */
+    IN_PROGRESS,
+    /**
+     * The response is stored and is replayed for the key.
+     */
+    COMPLETED,
+}
@@ -0,0 +1,11 @@
+package com.example.bankcards.entity.enums;
+
+/**
+ * The enum Outbox event type.
+ */
+public enum OutboxEventType {
+    /**
+     * Transfer completed outbox event type.
+     */
+    TRANSFER_COMPLETED,
+}
@@ -0,0 +1,16 @@
+package com.example.bankcards.exception;
+
+/**
+ * The type Card access denied exception. Thrown when a user operates on a
+ * card of another user.
+ */
+public class CardAccessDeniedException extends RuntimeException {
+    /**
+     * Instantiates a new Card access denied exception.
+     *
+     * @param message the message
+     */
+    public CardAccessDeniedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.bankcards.exception;
+
+/**
+ * The type Idempotency conflict exception.
+ */
+public class IdempotencyConflictException extends RuntimeException {
+    /**
+     * Instantiates a new Idempotency conflict exception.
+     *
+     * @param message the message
+     */
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
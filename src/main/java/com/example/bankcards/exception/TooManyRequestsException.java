@@ -0,0 +1,23 @@
+package com.example.bankcards.exception;
+
+import lombok.Getter;
+
+/**
+ * The type Too many requests exception.
+ */
+@Getter
+public class TooManyRequestsException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    /**
+     * Instantiates a new Too many requests exception.
+     *
+     * @param message           the message
+     * @param retryAfterSeconds the seconds after which the client may retry
+     */
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -24,6 +24,7 @@ public class Mapper {
      */
     public CardResponse dtoToResponse(Card card) {
         return new CardResponse(
+                card.getId(),
                 card.getMaskedNumber(),
                 card.getUser().getFirstName() + " " + card.getUser().getLastName(),
                 card.getCurrency(),
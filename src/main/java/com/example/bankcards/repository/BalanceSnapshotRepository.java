@@ -0,0 +1,73 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.BalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * The interface Balance snapshot repository.
+ */
+@Repository
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+
+    /**
+     * Finds the newest snapshot of the card taken up to a moment.
+     *
+     * @param cardId the card id
+     * @param upTo   the inclusive upper bound
+     * @return the optional
+     */
+    Optional<BalanceSnapshot> findFirstByCardIdAndTakenAtLessThanEqualOrderByTakenAtDesc(Long cardId,
+                                                                                       LocalDateTime upTo);
+
+    /**
+     * Finds the time of the newest snapshot of any card.
+     *
+     * @return the time, null if there are no snapshots
+     */
+    @Query("SELECT MAX(s.takenAt) FROM BalanceSnapshot s")
+    LocalDateTime findLatestTakenAt();
+
+    /**
+     * Snapshots, in one statement and a transaction of its own, every card
+     * with ledger entries created after one moment up to another: the
+     * balance of its newest snapshot plus the deltas created since.
+     *
+     * @param after the exclusive lower bound, the time of the previous snapshots
+     * @param upTo  the inclusive upper bound and the time of the new snapshots
+     * @return the number of snapshots taken
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO balance_snapshot (card_id, balance, taken_at) " +
+            "SELECT e.card_id, COALESCE(s.balance, 0) + SUM(e.delta), :upTo FROM ledger_entry e " +
+            "LEFT JOIN balance_snapshot s ON s.card_id = e.card_id AND s.taken_at = " +
+            "(SELECT MAX(p.taken_at) FROM balance_snapshot p WHERE p.card_id = e.card_id AND p.taken_at <= :upTo) " +
+            "WHERE e.card_id IN (SELECT c.card_id FROM ledger_entry c " +
+            "WHERE c.created_at > :after AND c.created_at <= :upTo) " +
+            "AND e.created_at <= :upTo AND (s.taken_at IS NULL OR e.created_at > s.taken_at) " +
+            "GROUP BY e.card_id, s.balance", nativeQuery = true)
+    int insertSnapshotsBetween(@Param("after") LocalDateTime after, @Param("upTo") LocalDateTime upTo);
+
+    /**
+     * Snapshots, in one statement and a transaction of its own, every card
+     * with ledger entries created up to a moment, as the sum of those
+     * entries. Only for the first run, when there are no snapshots yet.
+     *
+     * @param upTo the inclusive upper bound and the time of the new snapshots
+     * @return the number of snapshots taken
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO balance_snapshot (card_id, balance, taken_at) " +
+            "SELECT card_id, SUM(delta), :upTo FROM ledger_entry WHERE created_at <= :upTo " +
+            "GROUP BY card_id", nativeQuery = true)
+    int insertSnapshotsUpTo(@Param("upTo") LocalDateTime upTo);
+}
@@ -1,21 +1,44 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.response.CardResponse;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * The interface Card repository.
  */
 @Repository
 public interface CardRepository extends JpaRepository<Card, Long> {
+
+    /**
+     * Selects cards as {@link CardResponse} rows joined to their owner in
+     * the same statement; queries append their conditions on {@code c} and
+     * {@code u}.
+     */
+    String CARD_RESPONSE = "SELECT new com.example.bankcards.dto.response.CardResponse(" +
+            "c.id, c.maskedNumber, CONCAT(u.firstName, ' ', u.lastName), c.currency, c.expiryDate, " +
+            "CAST(c.status AS String), c.balance, c.isActive, c.isExpired) " +
+            "FROM Card c JOIN c.user u ";
+
     /**
      * Find by card number optional.
      *
@@ -24,6 +47,17 @@ public interface CardRepository extends JpaRepository<Card, Long> {
      */
     Optional<Card> findByCardNumber(String cardNumber);
 
+    /**
+     * Find all by id and lock the rows in id order, the same order the
+     * single transfer takes its row locks in.
+     *
+     * @param ids the ids
+     * @return the list ordered by id
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.id IN :ids ORDER BY c.id")
+    List<Card> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
     /**
      * Find by user list.
      *
@@ -40,6 +74,135 @@ public interface CardRepository extends JpaRepository<Card, Long> {
      */
     List<Card> findByUserId(Long userId);
 
+    /**
+     * Find all responses list.
+     *
+     * @return the list
+     */
+    @Query(CARD_RESPONSE + "ORDER BY c.id")
+    List<CardResponse> findAllResponses();
+
+    /**
+     * Find responses by user id list.
+     *
+     * @param userId the user id
+     * @return the list
+     */
+    @Query(CARD_RESPONSE + "WHERE u.id = :userId ORDER BY c.id")
+    List<CardResponse> findResponsesByUserId(@Param("userId") Long userId);
+
+    /**
+     * Find responses by user id page.
+     *
+     * @param userId   the user id
+     * @param pageable the pageable
+     * @return the page
+     */
+    @Query(value = CARD_RESPONSE + "WHERE u.id = :userId",
+            countQuery = "SELECT COUNT(c) FROM Card c WHERE c.user.id = :userId")
+    Page<CardResponse> findResponsesByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Find slice of responses by user id. The slice reads one row more than
+     * the page size to tell whether a next page exists and runs no count.
+     *
+     * @param userId   the user id
+     * @param pageable the pageable
+     * @return the slice
+     */
+    @Query(CARD_RESPONSE + "WHERE u.id = :userId")
+    Slice<CardResponse> findSliceByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Count by user id long.
+     *
+     * @param userId the user id
+     * @return the number of cards of the user
+     */
+    @Query("SELECT COUNT(c) FROM Card c WHERE c.user.id = :userId")
+    long countByUserId(@Param("userId") Long userId);
+
+    /**
+     * Find user id by id.
+     *
+     * @param id the id
+     * @return the id of the owner
+     */
+    @Query("SELECT c.user.id FROM Card c WHERE c.id = :id")
+    Optional<Long> findUserIdById(@Param("id") Long id);
+
+    /**
+     * Find responses by card number page.
+     *
+     * @param cardNumber the card number
+     * @param pageable   the pageable
+     * @return the page
+     */
+    @Query(value = CARD_RESPONSE + "WHERE c.cardNumber = :cardNumber",
+            countQuery = "SELECT COUNT(c) FROM Card c WHERE c.cardNumber = :cardNumber")
+    Page<CardResponse> findResponsesByCardNumber(@Param("cardNumber") String cardNumber, Pageable pageable);
+
+    /**
+     * Finds the first keyset page of all cards in id order.
+     *
+     * @param limit the page size
+     * @return the list
+     */
+    @Query(CARD_RESPONSE + "ORDER BY c.id")
+    List<CardResponse> findAllResponses(Limit limit);
+
+    /**
+     * Finds the next keyset page of all cards, starting after the last id of
+     * the previous page.
+     *
+     * @param afterId the id of the last card of the previous page
+     * @param limit   the page size
+     * @return the list
+     */
+    @Query(CARD_RESPONSE + "WHERE c.id > :afterId ORDER BY c.id")
+    List<CardResponse> findAllResponsesAfter(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Finds the first keyset page of the cards of a user in id order.
+     *
+     * @param userId the user id
+     * @param limit  the page size
+     * @return the list
+     */
+    @Query(CARD_RESPONSE + "WHERE u.id = :userId ORDER BY c.id")
+    List<CardResponse> findResponsesByUserId(@Param("userId") Long userId, Limit limit);
+
+    /**
+     * Finds the next keyset page of the cards of a user, starting after the
+     * last id of the previous page.
+     *
+     * @param userId  the user id
+     * @param afterId the id of the last card of the previous page
+     * @param limit   the page size
+     * @return the list
+     */
+    @Query(CARD_RESPONSE + "WHERE u.id = :userId AND c.id > :afterId ORDER BY c.id")
+    List<CardResponse> findResponsesByUserIdAfter(@Param("userId") Long userId,
+                                                  @Param("afterId") Long afterId,
+                                                  Limit limit);
+
+    /**
+     * Streams the cards of a user with a status as responses, read through
+     * the {@code (user_id, status, id)} index without loading card or user
+     * entities. The stream must be consumed and closed inside a transaction.
+     *
+     * @param userId the user id
+     * @param status the status
+     * @return the stream ordered by id
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(CARD_RESPONSE + "WHERE u.id = :userId AND c.status = :status ORDER BY c.id")
+    Stream<CardResponse> streamResponsesByUserIdAndStatus(@Param("userId") Long userId,
+                                                         @Param("status") CardStatus status);
+
     /**
      * Find by status list.
      *
@@ -57,6 +220,15 @@ public interface CardRepository extends JpaRepository<Card, Long> {
      */
     Page<Card> findByUser(User user, Pageable pageable);
 
+    /**
+     * Find by user id page.
+     *
+     * @param userId   the user id
+     * @param pageable the pageable
+     * @return the page
+     */
+    Page<Card> findByUserId(Long userId, Pageable pageable);
+
     /**
      * Find by card number page.
      *
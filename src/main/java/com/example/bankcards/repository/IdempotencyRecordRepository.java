@@ -0,0 +1,107 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.IdempotencyRecord;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The interface Idempotency record repository.
+ */
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+    /**
+     * Find by username and idempotency key optional.
+     *
+     * @param username       the username
+     * @param idempotencyKey the idempotency key
+     * @return the optional
+     */
+    Optional<IdempotencyRecord> findByUsernameAndIdempotencyKey(String username, String idempotencyKey);
+
+    /**
+     * Stores the response of a claimed record. Runs in the caller's
+     * transaction, so the response commits together with the work it
+     * describes.
+     *
+     * @param id          the id
+     * @param claimToken  the claim token of the caller
+     * @param response    the response
+     * @param completedAt the completed at
+     * @return the number of updated rows, 0 if the claim was taken over
+     */
+    @Modifying(flushAutomatically = true)
+    @Transactional
+    @Query("update IdempotencyRecord r set r.status = com.example.bankcards.entity.enums.IdempotencyStatus.COMPLETED, " +
+            "r.response = :response, r.completedAt = :completedAt, r.leaseExpiresAt = null " +
+            "where r.id = :id and r.claimToken = :claimToken " +
+            "and r.status = com.example.bankcards.entity.enums.IdempotencyStatus.IN_PROGRESS")
+    int complete(@Param("id") Long id, @Param("claimToken") String claimToken,
+                 @Param("response") String response, @Param("completedAt") LocalDateTime completedAt);
+
+    /**
+     * Takes over a record in progress whose lease has expired, in a
+     * transaction of its own.
+     *
+     * @param id             the id
+     * @param claimToken     the new claim token
+     * @param leaseExpiresAt the new lease expiry
+     * @param now            the current time
+     * @return the number of updated rows, 0 if the record completed or is still leased
+     */
+    @Modifying
+    @Transactional
+    @Query("update IdempotencyRecord r set r.claimToken = :claimToken, r.leaseExpiresAt = :leaseExpiresAt " +
+            "where r.id = :id and r.status = com.example.bankcards.entity.enums.IdempotencyStatus.IN_PROGRESS " +
+            "and (r.leaseExpiresAt is null or r.leaseExpiresAt < :now)")
+    int takeOver(@Param("id") Long id, @Param("claimToken") String claimToken,
+                 @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt, @Param("now") LocalDateTime now);
+
+    /**
+     * Deletes a claimed record that is still in progress, in a transaction
+     * of its own.
+     *
+     * @param id         the id
+     * @param claimToken the claim token of the caller
+     * @return the number of deleted rows, 0 if the record completed or was taken over
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyRecord r where r.id = :id and r.claimToken = :claimToken " +
+            "and r.status = com.example.bankcards.entity.enums.IdempotencyStatus.IN_PROGRESS")
+    int release(@Param("id") Long id, @Param("claimToken") String claimToken);
+
+    /**
+     * Finds the ids of records created before the cut-off that are completed
+     * or no longer leased, oldest first, through the index on
+     * {@code created_at}.
+     *
+     * @param cutoff   the cut-off
+     * @param now      the current time
+     * @param pageable the chunk to read
+     * @return the record ids
+     */
+    @Query("select r.id from IdempotencyRecord r where r.createdAt < :cutoff " +
+            "and (r.leaseExpiresAt is null or r.leaseExpiresAt < :now) order by r.createdAt")
+    List<Long> findExpiredIds(@Param("cutoff") LocalDateTime cutoff, @Param("now") LocalDateTime now,
+                              Pageable pageable);
+
+    /**
+     * Deletes records by id in a transaction of its own.
+     *
+     * @param ids the record ids
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyRecord r where r.id in :ids")
+    int deleteByIdIn(@Param("ids") List<Long> ids);
+}
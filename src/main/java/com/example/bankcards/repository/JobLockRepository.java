@@ -0,0 +1,50 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.JobLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * The interface Job lock repository.
+ */
+@Repository
+public interface JobLockRepository extends JpaRepository<JobLock, String> {
+
+    /**
+     * Takes a lock whose hold has ended, in a transaction of its own.
+     *
+     * @param name        the job name
+     * @param lockedUntil the end of the new hold
+     * @param lockedBy    the instance taking the lock
+     * @param now         the current time
+     * @return the number of updated rows, 0 if the lock is held or missing
+     */
+    @Modifying
+    @Transactional
+    @Query("update JobLock l set l.lockedUntil = :lockedUntil, l.lockedBy = :lockedBy " +
+            "where l.name = :name and l.lockedUntil <= :now")
+    int acquire(@Param("name") String name, @Param("lockedUntil") LocalDateTime lockedUntil,
+                @Param("lockedBy") String lockedBy, @Param("now") LocalDateTime now);
+
+    /**
+     * Creates a lock held by the caller unless another instance created it
+     * first, in a transaction of its own.
+     *
+     * @param name        the job name
+     * @param lockedUntil the end of the hold
+     * @param lockedBy    the instance taking the lock
+     * @return the number of inserted rows
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO job_lock (name, locked_until, locked_by) " +
+            "VALUES (:name, :lockedUntil, :lockedBy) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("name") String name, @Param("lockedUntil") LocalDateTime lockedUntil,
+                       @Param("lockedBy") String lockedBy);
+}
@@ -0,0 +1,61 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.LedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The interface Ledger entry repository.
+ */
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+    /**
+     * Sums the deltas of the card created after one moment up to another.
+     *
+     * @param cardId the card id
+     * @param after  the exclusive lower bound
+     * @param upTo   the inclusive upper bound
+     * @return the sum, zero if there are no entries
+     */
+    @Query("SELECT COALESCE(SUM(e.delta), 0) FROM LedgerEntry e " +
+            "WHERE e.cardId = :cardId AND e.createdAt > :after AND e.createdAt <= :upTo")
+    BigDecimal sumDeltasBetween(@Param("cardId") Long cardId,
+                                @Param("after") LocalDateTime after,
+                                @Param("upTo") LocalDateTime upTo);
+
+    /**
+     * Sums the deltas of the card created up to a moment.
+     *
+     * @param cardId the card id
+     * @param upTo   the inclusive upper bound
+     * @return the sum, zero if there are no entries
+     */
+    @Query("SELECT COALESCE(SUM(e.delta), 0) FROM LedgerEntry e " +
+            "WHERE e.cardId = :cardId AND e.createdAt <= :upTo")
+    BigDecimal sumDeltasUpTo(@Param("cardId") Long cardId, @Param("upTo") LocalDateTime upTo);
+
+    /**
+     * Finds which of the transactions have ledger entries.
+     *
+     * @param transactionIds the transaction ids
+     * @return the ids of the transactions with entries
+     */
+    @Query("SELECT DISTINCT e.transactionId FROM LedgerEntry e WHERE e.transactionId IN :transactionIds")
+    List<Long> findRecordedTransactionIds(@Param("transactionIds") Collection<Long> transactionIds);
+
+    /**
+     * Find by card id order by id list.
+     *
+     * @param cardId the card id
+     * @return the list
+     */
+    List<LedgerEntry> findByCardIdOrderById(Long cardId);
+}
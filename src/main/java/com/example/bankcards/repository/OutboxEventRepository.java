@@ -0,0 +1,36 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The interface Outbox event repository.
+ */
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Claims the oldest unpublished events, locking them until the end of the
+     * transaction. Rows already claimed by another relay are skipped instead
+     * of waited for, so several instances can relay in parallel.
+     *
+     * @param limit the maximum number of events
+     * @return the events in id order
+     */
+    @Query(value = "SELECT * FROM outbox_event ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<OutboxEvent> claimBatch(@Param("limit") int limit);
+
+    /**
+     * Finds the oldest event left in the outbox.
+     *
+     * @return the event
+     */
+    Optional<OutboxEvent> findFirstByOrderByIdAsc();
+}
@@ -0,0 +1,80 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.entity.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The interface Refresh token repository.
+ */
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    /**
+     * Finds a refresh token with its user and locks the row, so concurrent
+     * uses of the same token are serialized and only one of them rotates it.
+     *
+     * @param tokenHash the SHA-256 digest of the token
+     * @return the refresh token
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @EntityGraph(attributePaths = "user")
+    Optional<RefreshToken> findByTokenHash(byte[] tokenHash);
+
+    /**
+     * Deletes every token of a family.
+     *
+     * @param familyId the family id
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from RefreshToken r where r.familyId = :familyId")
+    int deleteByFamilyId(@Param("familyId") String familyId);
+
+    /**
+     * Deletes every refresh token of a user.
+     *
+     * @param user the user
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from RefreshToken r where r.user = :user")
+    int deleteByUser(@Param("user") User user);
+
+    /**
+     * Finds the ids of expired refresh tokens, oldest first, through the
+     * index on {@code expiry_at}.
+     *
+     * @param now      the current time
+     * @param pageable the chunk to read
+     * @return the refresh token ids
+     */
+    @Query("select r.id from RefreshToken r where r.expiryAt < :now order by r.expiryAt")
+    List<Long> findExpiredIds(@Param("now") Date now, Pageable pageable);
+
+    /**
+     * Deletes refresh tokens by id in a transaction of its own.
+     *
+     * @param ids the refresh token ids
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from RefreshToken r where r.id in :ids")
+    int deleteByIdIn(@Param("ids") List<Long> ids);
+}
@@ -0,0 +1,77 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.RevokedToken;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The interface Revoked token repository.
+ */
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    /**
+     * Finds revocations of tokens that have not expired yet.
+     *
+     * @param now the current time
+     * @return the revoked tokens
+     */
+    List<RevokedToken> findByExpiryAtAfter(Date now);
+
+    /**
+     * Finds revocations made after the given time for tokens that have not
+     * expired yet.
+     *
+     * @param since the time of the previous read
+     * @param now   the current time
+     * @return the revoked tokens
+     */
+    List<RevokedToken> findByRevokedAtAfterAndExpiryAtAfter(Date since, Date now);
+
+    /**
+     * Records a revocation unless the token is already revoked, in a
+     * transaction of its own.
+     *
+     * @param tokenHash the SHA-256 of the token as hex
+     * @param expiryAt  the expiry of the token
+     * @param revokedAt the time of the revocation
+     * @return the number of inserted rows, 0 if the token was already revoked
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO revoked_token (token_hash, expiry_at, revoked_at) " +
+            "VALUES (:tokenHash, :expiryAt, :revokedAt) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("tokenHash") String tokenHash, @Param("expiryAt") Date expiryAt,
+                       @Param("revokedAt") Date revokedAt);
+
+    /**
+     * Finds the hashes of revoked tokens that have expired, which would be
+     * rejected by their expiry anyway, oldest first, through the index on
+     * {@code expiry_at}.
+     *
+     * @param now      the current time
+     * @param pageable the chunk to read
+     * @return the token hashes
+     */
+    @Query("select r.tokenHash from RevokedToken r where r.expiryAt < :now order by r.expiryAt")
+    List<String> findExpiredHashes(@Param("now") Date now, Pageable pageable);
+
+    /**
+     * Deletes revocations by token hash in a transaction of its own.
+     *
+     * @param tokenHashes the token hashes
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from RevokedToken r where r.tokenHash in :tokenHashes")
+    int deleteByTokenHashIn(@Param("tokenHashes") List<String> tokenHashes);
+}
@@ -0,0 +1,60 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.RevokedUser;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The interface Revoked user repository.
+ */
+@Repository
+public interface RevokedUserRepository extends JpaRepository<RevokedUser, Long> {
+
+    /**
+     * Finds revocations of users whose revoked tokens have not all expired yet.
+     *
+     * @param now the current time
+     * @return the revoked users
+     */
+    List<RevokedUser> findByExpiryAtAfter(Date now);
+
+    /**
+     * Finds revocations made after the given time whose revoked tokens have
+     * not all expired yet.
+     *
+     * @param since the time of the previous read
+     * @param now   the current time
+     * @return the revoked users
+     */
+    List<RevokedUser> findByRevokedAtAfterAndExpiryAtAfter(Date since, Date now);
+
+    /**
+     * Finds the ids of revocations whose revoked tokens have all expired,
+     * oldest first, through the index on {@code expiry_at}.
+     *
+     * @param now      the current time
+     * @param pageable the chunk to read
+     * @return the revocation ids
+     */
+    @Query("select r.id from RevokedUser r where r.expiryAt < :now order by r.expiryAt")
+    List<Long> findExpiredIds(@Param("now") Date now, Pageable pageable);
+
+    /**
+     * Deletes revocations by id in a transaction of its own.
+     *
+     * @param ids the revocation ids
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from RevokedUser r where r.id in :ids")
+    int deleteByIdIn(@Param("ids") List<Long> ids);
+}
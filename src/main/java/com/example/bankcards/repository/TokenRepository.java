@@ -2,8 +2,16 @@ package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.Token;
 import com.example.bankcards.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
 
 /**
  * The interface Token repository.
@@ -12,25 +20,50 @@ import org.springframework.stereotype.Repository;
 public interface TokenRepository extends JpaRepository<Token, Long> {
 
     /**
-     * Find by token token.
+     * Exists by token hash boolean.
+     *
+     * @param tokenHash the SHA-256 digest of the token
+     * @return whether the token is stored
+     */
+    boolean existsByTokenHash(byte[] tokenHash);
+
+    /**
+     * Delete by token hash.
      *
-     * @param token the token
-     * @return the token
+     * @param tokenHash the SHA-256 digest of the token
+     * @return the number of deleted rows
      */
-    Token findByToken(String token);
+    @Modifying
+    @Transactional
+    @Query("delete from Token t where t.tokenHash = :tokenHash")
+    int deleteByTokenHash(@Param("tokenHash") byte[] tokenHash);
 
     /**
-     * Find by user token.
+     * Delete by user.
      *
      * @param user the user
-     * @return the token
      */
-    Token findByUser(User user);
+    void deleteByUser(User user);
+
+    /**
+     * Finds the ids of expired tokens, oldest first, through the index on
+     * {@code expiry_at}.
+     *
+     * @param now      the current time
+     * @param pageable the chunk to read
+     * @return the token ids
+     */
+    @Query("select t.id from Token t where t.expiryAt < :now order by t.expiryAt")
+    List<Long> findExpiredIds(@Param("now") Date now, Pageable pageable);
 
     /**
-     * Delete by token.
+     * Deletes tokens by id in a transaction of its own.
      *
-     * @param token the token
+     * @param ids the token ids
+     * @return the number of deleted rows
      */
-    void deleteByToken(String token);
-}
\ No newline at end of file
+    @Modifying
+    @Transactional
+    @Query("delete from Token t where t.id in :ids")
+    int deleteByIdIn(@Param("ids") List<Long> ids);
+}
@@ -1,16 +1,40 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.response.TransactionResponse;
 import com.example.bankcards.entity.Transaction;
 import com.example.bankcards.entity.enums.TransactionStatus;
+import com.example.bankcards.repository.projection.TransactionKey;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+
+    /**
+     * Selects transactions as {@link TransactionResponse} rows with both
+     * cards outer joined in the same statement; queries append their
+     * conditions on {@code t}, {@code f} and {@code tc}.
+     */
+    String TRANSACTION_RESPONSE = "SELECT new com.example.bankcards.dto.response.TransactionResponse(" +
+            "t.id, t.amount, f.maskedNumber, tc.maskedNumber, t.description, CAST(t.status AS String), t.createdAt) " +
+            "FROM Transaction t LEFT JOIN t.fromCard f LEFT JOIN t.toCard tc ";
+
+    /**
+     * Matches the transactions from or to the cards of {@code :userId} on the
+     * card's {@code user_id} column, without joining users.
+     */
+    String OF_USER = "(f.user.id = :userId OR tc.user.id = :userId)";
+
     @Query("SELECT t FROM Transaction t WHERE t.fromCard.user.id = :userId")
     List<Transaction> findByFromCardUserId(@Param("userId") Long userId);
 
@@ -22,4 +46,96 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
 
     @Query("SELECT t FROM Transaction t WHERE t.status = :status")
     List<Transaction> findByStatus(@Param("status") TransactionStatus status);
-}
\ No newline at end of file
+
+    /**
+     * Finds the transactions from or to the cards of a user as responses.
+     *
+     * @param userId   the user id
+     * @param pageable the pageable
+     * @return the page
+     */
+    @Query(value = TRANSACTION_RESPONSE + "WHERE " + OF_USER,
+            countQuery = "SELECT COUNT(t) FROM Transaction t LEFT JOIN t.fromCard f LEFT JOIN t.toCard tc " +
+                    "WHERE " + OF_USER)
+    Page<TransactionResponse> findResponsesByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Finds the first keyset page of the transactions of a user, newest
+     * first.
+     *
+     * @param userId the user id
+     * @param limit  the page size
+     * @return the list
+     */
+    @Query(TRANSACTION_RESPONSE + "WHERE " + OF_USER + " ORDER BY t.createdAt DESC, t.id DESC")
+    List<TransactionResponse> findResponsesByUserId(@Param("userId") Long userId, Limit limit);
+
+    /**
+     * Finds the next keyset page of the transactions of a user, starting
+     * before the last key of the previous page.
+     *
+     * @param userId          the user id
+     * @param beforeCreatedAt the created at of the last transaction of the previous page
+     * @param beforeId        the id of the last transaction of the previous page
+     * @param limit           the page size
+     * @return the list
+     */
+    @Query(TRANSACTION_RESPONSE + "WHERE " + OF_USER + " " +
+            "AND (t.createdAt < :beforeCreatedAt OR (t.createdAt = :beforeCreatedAt AND t.id < :beforeId)) " +
+            "ORDER BY t.createdAt DESC, t.id DESC")
+    List<TransactionResponse> findResponsesByUserIdBefore(@Param("userId") Long userId,
+                                                          @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+                                                          @Param("beforeId") Long beforeId,
+                                                          Limit limit);
+
+    /**
+     * Finds the first page of transactions in a status created before a
+     * moment, in (created_at, id) order.
+     *
+     * @param status  the status
+     * @param before  the exclusive upper bound of created_at
+     * @param limit   the page size
+     * @return the keys of the page
+     */
+    @Query("SELECT t.id AS id, t.createdAt AS createdAt FROM Transaction t " +
+            "WHERE t.status = :status AND t.createdAt < :before " +
+            "ORDER BY t.createdAt, t.id")
+    List<TransactionKey> findKeysByStatus(@Param("status") TransactionStatus status,
+                                          @Param("before") LocalDateTime before,
+                                          Limit limit);
+
+    /**
+     * Finds the next page of transactions in a status created before a
+     * moment, starting after the last key of the previous page.
+     *
+     * @param status         the status
+     * @param before         the exclusive upper bound of created_at
+     * @param afterCreatedAt the created at of the last key of the previous page
+     * @param afterId        the id of the last key of the previous page
+     * @param limit          the page size
+     * @return the keys of the page
+     */
+    @Query("SELECT t.id AS id, t.createdAt AS createdAt FROM Transaction t " +
+            "WHERE t.status = :status AND t.createdAt < :before " +
+            "AND (t.createdAt > :afterCreatedAt OR (t.createdAt = :afterCreatedAt AND t.id > :afterId)) " +
+            "ORDER BY t.createdAt, t.id")
+    List<TransactionKey> findKeysByStatusAfter(@Param("status") TransactionStatus status,
+                                               @Param("before") LocalDateTime before,
+                                               @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                               @Param("afterId") Long afterId,
+                                               Limit limit);
+
+    /**
+     * Moves the transactions that are still in one status to another.
+     *
+     * @param ids  the transaction ids
+     * @param from the expected current status
+     * @param to   the new status
+     * @return the number of updated transactions
+     */
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = :to WHERE t.id IN :ids AND t.status = :from")
+    int updateStatus(@Param("ids") Collection<Long> ids,
+                     @Param("from") TransactionStatus from,
+                     @Param("to") TransactionStatus to);
+}
@@ -0,0 +1,23 @@
+package com.example.bankcards.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Keyset position of a transaction: the columns it is ordered by in scans.
+ */
+public interface TransactionKey {
+
+    /**
+     * Gets id.
+     *
+     * @return the id
+     */
+    Long getId();
+
+    /**
+     * Gets created at.
+     *
+     * @return the created at
+     */
+    LocalDateTime getCreatedAt();
+}
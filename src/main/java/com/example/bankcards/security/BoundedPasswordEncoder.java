@@ -0,0 +1,148 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.TooManyRequestsException;
+import com.example.bankcards.util.ApiMessages;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * BCrypt password encoder that hashes and verifies on a dedicated bounded
+ * pool instead of the request thread. At most {@code threads} hashes run at
+ * once and at most {@code queueCapacity} wait; anything beyond that fails at
+ * once with {@link TooManyRequestsException}, so a burst of sign-ins cannot
+ * take every CPU and request thread away from the other endpoints.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejected;
+
+    /**
+     * Instantiates a new Bounded password encoder.
+     *
+     * @param strength      the BCrypt cost
+     * @param threads       the number of hashing threads
+     * @param queueCapacity the number of hashes allowed to wait for a thread
+     * @param meterRegistry the meter registry
+     */
+    public BoundedPasswordEncoder(int strength, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        this(new BCryptPasswordEncoder(strength), threads, queueCapacity, meterRegistry);
+    }
+
+    /**
+     * Instantiates a new Bounded password encoder.
+     *
+     * @param delegate      the encoder doing the hashing
+     * @param threads       the number of hashing threads
+     * @param queueCapacity the number of hashes allowed to wait for a thread
+     * @param meterRegistry the meter registry
+     */
+    BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "bcrypt-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.encodeTimer = Timer.builder("bank.password.hash")
+                .description("Time spent computing BCrypt hashes")
+                .tag("operation", "encode")
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder("bank.password.hash")
+                .description("Time spent computing BCrypt hashes")
+                .tag("operation", "matches")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("bank.password.rejected")
+                .description("Password hashes rejected because the hashing pool was full")
+                .register(meterRegistry);
+        Gauge.builder("bank.password.queue", executor, pool -> pool.getQueue().size())
+                .description("Password hashes waiting for a hashing thread")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Encode string.
+     *
+     * @param rawPassword the raw password
+     * @return the BCrypt hash
+     */
+    @Override
+    public String encode(CharSequence rawPassword) {
+        Supplier<String> hash = () -> delegate.encode(rawPassword);
+        return submit(() -> encodeTimer.record(hash));
+    }
+
+    /**
+     * Matches boolean.
+     *
+     * @param rawPassword     the raw password
+     * @param encodedPassword the encoded password
+     * @return whether the password matches
+     */
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        Supplier<Boolean> verify = () -> delegate.matches(rawPassword, encodedPassword);
+        return submit(() -> matchesTimer.record(verify));
+    }
+
+    /**
+     * Upgrade encoding boolean.
+     *
+     * @param encodedPassword the encoded password
+     * @return the boolean
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Stops the hashing threads.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new TooManyRequestsException(ApiMessages.PASSWORD_HASHING_BUSY.getMessage(), 1);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+}
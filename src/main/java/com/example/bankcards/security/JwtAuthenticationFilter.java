@@ -4,6 +4,7 @@ import com.example.bankcards.exception.InvalidTokenException;
 import com.example.bankcards.service.TokenService;
 import com.example.bankcards.util.ApiError;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -27,20 +28,30 @@ import java.io.IOException;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    /**
+     * Request attribute holding the claims of the verified token, so later
+     * code reads them without parsing the token again.
+     */
+    public static final String CLAIMS_ATTRIBUTE = JwtAuthenticationFilter.class.getName() + ".claims";
+
     private final UserDetailsService userDetailsService;
     private final TokenService tokenService;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TokenValidationCache tokenValidationCache;
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
 
     /**
      * Instantiates a new Jwt authentication filter.
      *
-     * @param userDetailsService the user details service
-     * @param tokenService       the token service
+     * @param userDetailsService   the user details service
+     * @param tokenService         the token service
+     * @param tokenValidationCache the token validation cache
      */
     @Autowired
-    public JwtAuthenticationFilter(UserDetailsService userDetailsService, TokenService tokenService) {
+    public JwtAuthenticationFilter(UserDetailsService userDetailsService, TokenService tokenService,
+                                   TokenValidationCache tokenValidationCache) {
         this.userDetailsService = userDetailsService;
         this.tokenService = tokenService;
+        this.tokenValidationCache = tokenValidationCache;
     }
 
     /**
@@ -78,12 +89,26 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
             val token = requestTokenHeader.substring(7);
 
-            tokenService.validateToken(token);
-            String username = tokenService.getUsernameFromToken(token);
+            Claims claims;
+            JwtPrincipal principal;
+            val cached = tokenValidationCache.get(token);
+            if (cached != null) {
+                claims = cached.getClaims();
+                principal = cached.getPrincipal();
+            } else {
+                claims = tokenService.verifyToken(token);
+                principal = JwtPrincipal.fromClaims(claims);
+                if (principal == null) {
+                    // Выдан до появления claim uid: пользователь загружается из БД
+                    principal = JwtPrincipal.fromUserDetails(
+                            userDetailsService.loadUserByUsername(claims.getSubject()));
+                }
+                tokenValidationCache.put(token, claims, principal);
+            }
+            request.setAttribute(CLAIMS_ATTRIBUTE, claims);
 
-            val userDetails = userDetailsService.loadUserByUsername(username);
             val authToken = new UsernamePasswordAuthenticationToken(
-                    userDetails, null, userDetails.getAuthorities());
+                    principal, null, principal.getAuthorities());
 
             authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
             SecurityContextHolder.getContext().setAuthentication(authToken);
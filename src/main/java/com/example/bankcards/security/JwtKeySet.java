@@ -0,0 +1,182 @@
+package com.example.bankcards.security;
+
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.ECPublicKey;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable set of JWT keys indexed by {@code kid}: the key new tokens
+ * are signed with and the keys tokens are verified with. A set without a
+ * signing key belongs to a node that only verifies tokens.
+ */
+public final class JwtKeySet {
+
+    /**
+     * HMAC with a shared secret.
+     */
+    public static final String HS256 = "HS256";
+
+    /**
+     * ECDSA on the P-256 curve.
+     */
+    public static final String ES256 = "ES256";
+
+    /**
+     * EdDSA on Ed25519.
+     */
+    public static final String EDDSA = "EdDSA";
+
+    private final String signingKeyId;
+    private final Key signingKey;
+    private final Map<String, Key> verificationKeys;
+
+    /**
+     * Instantiates a new Jwt key set.
+     *
+     * @param signingKeyId     the id of the signing key, or null if this node only verifies
+     * @param signingKey       the signing key, or null if this node only verifies
+     * @param verificationKeys the verification keys by id, including the one of the signing key
+     */
+    public JwtKeySet(String signingKeyId, Key signingKey, Map<String, Key> verificationKeys) {
+        if (signingKeyId != null && !verificationKeys.containsKey(signingKeyId)) {
+            throw new IllegalArgumentException("No verification key for kid " + signingKeyId);
+        }
+        this.signingKeyId = signingKeyId;
+        this.signingKey = signingKey;
+        this.verificationKeys = Map.copyOf(verificationKeys);
+    }
+
+    /**
+     * Builds the set of HMAC keys.
+     *
+     * @param secret       the Base64 encoded current key
+     * @param keyId        the id of the current key
+     * @param previousKeys the previous keys as {@code kid:base64-secret} entries
+     * @return the key set
+     */
+    public static JwtKeySet hmac(String secret, String keyId, List<String> previousKeys) {
+        Key signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        Map<String, Key> keys = new HashMap<>();
+        for (String entry : previousKeys) {
+            int separator = entry.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Previous JWT key must be given as kid:secret");
+            }
+            keys.put(entry.substring(0, separator).trim(),
+                    Keys.hmacShaKeyFor(Decoders.BASE64.decode(entry.substring(separator + 1).trim())));
+        }
+        keys.put(keyId, signingKey);
+        return new JwtKeySet(keyId, signingKey, keys);
+    }
+
+    /**
+     * Loads asymmetric keys from a PKCS12 keystore. Every entry is a key
+     * whose alias is its {@code kid}: the public key of each certificate
+     * verifies tokens, and the private key of {@code signingAlias} signs
+     * them. Without a signing alias the private key with the most recent
+     * certificate signs, so a new key can be put into service by adding it
+     * to the keystore. A keystore of certificates only gives a set that
+     * verifies but does not sign.
+     *
+     * @param path         the keystore file
+     * @param password     the keystore and key password
+     * @param signingAlias the alias of the signing key, or blank for the newest private key
+     * @param algorithm    {@link #ES256} or {@link #EDDSA}
+     * @return the key set
+     * @throws IOException              if the file cannot be read
+     * @throws GeneralSecurityException if the keystore cannot be loaded
+     */
+    public static JwtKeySet load(Path path, char[] password, String signingAlias, String algorithm)
+            throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(path)) {
+            keyStore.load(in, password);
+        }
+
+        Map<String, Key> keys = new HashMap<>();
+        String newestAlias = null;
+        Date newestNotBefore = null;
+        for (String alias : Collections.list(keyStore.aliases())) {
+            Certificate certificate = keyStore.getCertificate(alias);
+            if (certificate == null) {
+                continue;
+            }
+            checkAlgorithm(alias, certificate.getPublicKey(), algorithm);
+            keys.put(alias, certificate.getPublicKey());
+            if (keyStore.isKeyEntry(alias) && certificate instanceof X509Certificate x509
+                    && (newestNotBefore == null || x509.getNotBefore().after(newestNotBefore))) {
+                newestAlias = alias;
+                newestNotBefore = x509.getNotBefore();
+            }
+        }
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("Keystore " + path + " holds no certificates");
+        }
+
+        String signingKeyId = signingAlias == null || signingAlias.isBlank() ? newestAlias : signingAlias;
+        if (signingKeyId == null) {
+            // Только сертификаты: узел проверяет токены, но не выпускает их
+            return new JwtKeySet(null, null, keys);
+        }
+        Key signingKey = keyStore.getKey(signingKeyId, password);
+        if (!(signingKey instanceof PrivateKey)) {
+            throw new IllegalArgumentException("Keystore " + path + " has no private key " + signingKeyId);
+        }
+        return new JwtKeySet(signingKeyId, signingKey, keys);
+    }
+
+    /**
+     * Gets the id of the signing key.
+     *
+     * @return the key id, or null if this node only verifies
+     */
+    public String getSigningKeyId() {
+        return signingKeyId;
+    }
+
+    /**
+     * Gets the signing key.
+     *
+     * @return the key, or null if this node only verifies
+     */
+    public Key getSigningKey() {
+        return signingKey;
+    }
+
+    /**
+     * Gets the verification key of a kid.
+     *
+     * @param keyId the key id
+     * @return the key, or null if unknown
+     */
+    public Key getVerificationKey(String keyId) {
+        return verificationKeys.get(keyId);
+    }
+
+    private static void checkAlgorithm(String alias, Key key, String algorithm) {
+        boolean matches = switch (algorithm) {
+            case ES256 -> key instanceof ECPublicKey ec && ec.getParams().getCurve().getField().getFieldSize() == 256;
+            case EDDSA -> "EdDSA".equals(key.getAlgorithm()) || "Ed25519".equals(key.getAlgorithm());
+            default -> throw new IllegalArgumentException("Unsupported JWT algorithm " + algorithm);
+        };
+        if (!matches) {
+            throw new IllegalArgumentException("Key " + alias + " is " + key.getAlgorithm() + ", not " + algorithm);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.User;
+import io.jsonwebtoken.Claims;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The authenticated user of a request, built from the claims of its token so
+ * that no user lookup is needed. Controllers receive it with
+ * {@code @AuthenticationPrincipal} and use the user id directly.
+ */
+@Getter
+@AllArgsConstructor
+public class JwtPrincipal implements AuthenticatedPrincipal, Serializable {
+
+    /**
+     * Claim holding the user id.
+     */
+    public static final String USER_ID_CLAIM = "uid";
+
+    /**
+     * Claim holding the granted authorities.
+     */
+    public static final String AUTHORITIES_CLAIM = "authorities";
+
+    private final Long userId;
+    private final String username;
+    private final List<GrantedAuthority> authorities;
+
+    /**
+     * Builds the principal from token claims.
+     *
+     * @param claims the verified claims
+     * @return the principal, or null if the token was issued without a user id claim
+     */
+    public static JwtPrincipal fromClaims(Claims claims) {
+        Long userId = claims.get(USER_ID_CLAIM, Long.class);
+        List<?> authorities = claims.get(AUTHORITIES_CLAIM, List.class);
+        if (userId == null || authorities == null) {
+            return null;
+        }
+        return new JwtPrincipal(userId, claims.getSubject(), authorities.stream()
+                .<GrantedAuthority>map(authority -> new SimpleGrantedAuthority(String.valueOf(authority)))
+                .toList());
+    }
+
+    /**
+     * Builds the principal from loaded user details.
+     *
+     * @param userDetails the user details
+     * @return the principal
+     */
+    public static JwtPrincipal fromUserDetails(UserDetails userDetails) {
+        return new JwtPrincipal(userDetails instanceof User user ? user.getId() : null,
+                userDetails.getUsername(), List.copyOf(userDetails.getAuthorities()));
+    }
+
+    /**
+     * Gets name.
+     *
+     * @return the username
+     */
+    @Override
+    public String getName() {
+        return username;
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.bankcards.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.SignatureException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Signs and parses JWTs. The keys are decoded and the parser is built
+ * once; both are immutable and shared by all threads.
+ * <p>
+ * Tokens are signed with the current key and carry its id in the
+ * {@code kid} header. Previous keys are kept for verification only, so a
+ * key can be rotated without invalidating tokens issued before. Tokens
+ * without a {@code kid} are verified with the current key.
+ * <p>
+ * With {@code jwt.algorithm} {@code ES256} or {@code EdDSA} the keys come
+ * from a PKCS12 keystore instead of the shared secret, so nodes that only
+ * verify tokens hold public keys only. The keystore is checked for changes
+ * every {@code jwt.keystore.reload-interval-ms} and the key set is swapped
+ * without a restart.
+ */
+@Slf4j
+@Component
+public class JwtTokenCodec {
+
+    private final String algorithm;
+    private final Path keyStorePath;
+    private final char[] keyStorePassword;
+    private final String signingAlias;
+    private final JwtParser parser;
+    private volatile JwtKeySet keySet;
+    private volatile FileTime keyStoreModified;
+
+    /**
+     * Instantiates a new Jwt token codec configured by the {@code jwt.*}
+     * properties.
+     *
+     * @param algorithm        HS256, ES256 or EdDSA
+     * @param secret           the Base64 encoded current HMAC key
+     * @param keyId            the id of the current HMAC key
+     * @param previousKeys     the previous HMAC keys as {@code kid:base64-secret} entries
+     * @param keyStorePath     the PKCS12 keystore holding the ES256 or EdDSA keys
+     * @param keyStorePassword the keystore password
+     * @param signingAlias     the alias of the signing key, or blank for the newest private key
+     */
+    @Autowired
+    public JwtTokenCodec(@Value("${jwt.algorithm:HS256}") String algorithm,
+                         @Value("${jwt.secret:}") String secret,
+                         @Value("${jwt.key-id:primary}") String keyId,
+                         @Value("${jwt.previous-keys:}") List<String> previousKeys,
+                         @Value("${jwt.keystore.path:}") String keyStorePath,
+                         @Value("${jwt.keystore.password:}") String keyStorePassword,
+                         @Value("${jwt.keystore.signing-alias:}") String signingAlias) {
+        this.algorithm = algorithm;
+        this.signingAlias = signingAlias;
+        this.keyStorePassword = keyStorePassword.toCharArray();
+        if (JwtKeySet.HS256.equals(algorithm)) {
+            this.keyStorePath = null;
+            this.keySet = JwtKeySet.hmac(secret, keyId, previousKeys);
+        } else {
+            if (keyStorePath.isBlank()) {
+                throw new IllegalArgumentException("jwt.keystore.path is required for " + algorithm);
+            }
+            this.keyStorePath = Path.of(keyStorePath);
+            this.keyStoreModified = lastModified(this.keyStorePath);
+            this.keySet = loadKeyStore();
+        }
+        this.parser = buildParser();
+    }
+
+    /**
+     * Instantiates a new Jwt token codec with HMAC keys.
+     *
+     * @param secret       the Base64 encoded current key
+     * @param keyId        the id of the current key
+     * @param previousKeys the previous keys as {@code kid:base64-secret} entries
+     */
+    public JwtTokenCodec(String secret, String keyId, List<String> previousKeys) {
+        this(JwtKeySet.hmac(secret, keyId, previousKeys));
+    }
+
+    /**
+     * Instantiates a new Jwt token codec with a fixed key set.
+     *
+     * @param keySet the key set
+     */
+    public JwtTokenCodec(JwtKeySet keySet) {
+        this.algorithm = null;
+        this.keyStorePath = null;
+        this.keyStorePassword = new char[0];
+        this.signingAlias = null;
+        this.keySet = keySet;
+        this.parser = buildParser();
+    }
+
+    /**
+     * Signs a token with the current key.
+     *
+     * @param subject the subject
+     * @param claims  the additional claims
+     * @param expiry  the expiry
+     * @return the compact token
+     * @throws IllegalStateException if this node holds no signing key
+     */
+    public String sign(String subject, Map<String, ?> claims, Date expiry) {
+        JwtKeySet keys = keySet;
+        if (keys.getSigningKey() == null) {
+            throw new IllegalStateException("No JWT signing key is configured on this node");
+        }
+        return Jwts.builder()
+                .header().keyId(keys.getSigningKeyId()).and()
+                .subject(subject)
+                .issuedAt(new Date())
+                .claims(claims)
+                .expiration(expiry)
+                .signWith(keys.getSigningKey())
+                .compact();
+    }
+
+    /**
+     * Verifies a token and returns its claims.
+     *
+     * @param token the compact token
+     * @return the claims
+     * @throws io.jsonwebtoken.JwtException if the token is invalid or expired
+     * @throws IllegalArgumentException     if the token is null or empty
+     */
+    public Claims parse(String token) {
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
+    /**
+     * Rereads the keystore if the file changed since it was last loaded. A
+     * keystore that fails to load leaves the current keys in place and is
+     * read again on the next run.
+     */
+    @Scheduled(fixedDelayString = "${jwt.keystore.reload-interval-ms:10000}",
+            initialDelayString = "${jwt.keystore.reload-interval-ms:10000}")
+    public void reloadKeys() {
+        if (keyStorePath == null) {
+            return;
+        }
+        try {
+            FileTime modified = lastModified(keyStorePath);
+            if (modified.equals(keyStoreModified)) {
+                return;
+            }
+            keySet = loadKeyStore();
+            keyStoreModified = modified;
+            log.info("Ключи JWT перечитаны из {}, подпись ключом {}", keyStorePath, keySet.getSigningKeyId());
+        } catch (RuntimeException e) {
+            log.warn("Не удалось перечитать ключи JWT из {}: {}", keyStorePath, e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the id of the current signing key.
+     *
+     * @return the key id
+     */
+    public String getKeyId() {
+        return keySet.getSigningKeyId();
+    }
+
+    /**
+     * Gets the current signing key.
+     *
+     * @return the key
+     */
+    public Key getSigningKey() {
+        return keySet.getSigningKey();
+    }
+
+    private JwtParser buildParser() {
+        return Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        JwtKeySet keys = keySet;
+                        String kid = header.getKeyId() != null ? header.getKeyId() : keys.getSigningKeyId();
+                        Key key = kid != null ? keys.getVerificationKey(kid) : null;
+                        if (key == null) {
+                            throw new SignatureException("Unknown signing key id: " + kid);
+                        }
+                        return key;
+                    }
+                })
+                .build();
+    }
+
+    private JwtKeySet loadKeyStore() {
+        try {
+            return JwtKeySet.load(keyStorePath, keyStorePassword, signingAlias, algorithm);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot load JWT keystore " + keyStorePath, e);
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
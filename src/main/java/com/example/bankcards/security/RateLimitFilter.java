@@ -0,0 +1,163 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.service.RateLimitStore;
+import com.example.bankcards.util.ApiError;
+import com.example.bankcards.util.ApiMessages;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.val;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * The type Rate limit filter. Counts requests to the sign-in, sign-up and
+ * transfer endpoints in a sliding window and answers 429 with
+ * {@code Retry-After} once a client is over its limit, before the request
+ * reaches BCrypt or the database. Sign-in and sign-up are counted per client
+ * address; transfers are counted per authenticated user, so it runs after
+ * {@link JwtAuthenticationFilter}.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimitStore rateLimitStore;
+    private final boolean enabled;
+    private final Map<String, Rule> rules;
+    private final Map<String, Counter> rejected;
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    /**
+     * Instantiates a new Rate limit filter.
+     *
+     * @param rateLimitStore   the rate limit store
+     * @param enabled          whether requests are limited
+     * @param signInLimit      the sign-in requests allowed per window and address
+     * @param signInWindowMs   the sign-in window
+     * @param signUpLimit      the sign-up requests allowed per window and address
+     * @param signUpWindowMs   the sign-up window
+     * @param transferLimit    the transfer requests allowed per window and user
+     * @param transferWindowMs the transfer window
+     * @param meterRegistry    the meter registry, if metrics are enabled
+     */
+    @Autowired
+    public RateLimitFilter(RateLimitStore rateLimitStore,
+                           @Value("${rate-limit.enabled:true}") boolean enabled,
+                           @Value("${rate-limit.sign-in.limit:10}") int signInLimit,
+                           @Value("${rate-limit.sign-in.window-ms:60000}") long signInWindowMs,
+                           @Value("${rate-limit.sign-up.limit:5}") int signUpLimit,
+                           @Value("${rate-limit.sign-up.window-ms:60000}") long signUpWindowMs,
+                           @Value("${rate-limit.transfer.limit:30}") int transferLimit,
+                           @Value("${rate-limit.transfer.window-ms:60000}") long transferWindowMs,
+                           ObjectProvider<MeterRegistry> meterRegistry) {
+        this.rateLimitStore = rateLimitStore;
+        this.enabled = enabled;
+        Rule transfer = new Rule("transfer", transferLimit, transferWindowMs, true);
+        this.rules = Map.of(
+                "/api/auth/sign-in", new Rule("sign-in", signInLimit, signInWindowMs, false),
+                "/api/auth/sign-up", new Rule("sign-up", signUpLimit, signUpWindowMs, false),
+                "/api/cards/transfer", transfer,
+                "/api/cards/transfers/batch", transfer);
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        this.rejected = Map.of(
+                "sign-in", rejectedCounter(registry, "sign-in"),
+                "sign-up", rejectedCounter(registry, "sign-up"),
+                "transfer", rejectedCounter(registry, "transfer"));
+    }
+
+    /**
+     * Do filter internal.
+     *
+     * @param request     the request
+     * @param response    the response
+     * @param filterChain the filter chain
+     * @throws ServletException the servlet exception
+     * @throws IOException      the io exception
+     */
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        Rule rule = rules.get(request.getRequestURI());
+        if (rule == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long waitMillis = rateLimitStore.tryAcquire(rule.name() + ":" + clientKey(request, rule),
+                rule.limit(), rule.windowMillis());
+        if (waitMillis > 0) {
+            rejected.get(rule.name()).increment();
+            sendTooManyRequests(response, request, waitMillis);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Should not filter boolean.
+     *
+     * @param request the request
+     * @return whether the request bypasses the limiter
+     */
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled || !HttpMethod.POST.matches(request.getMethod());
+    }
+
+    private String clientKey(HttpServletRequest request, Rule rule) {
+        if (rule.perUser()) {
+            val authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof JwtPrincipal principal
+                    && principal.getUserId() != null) {
+                return "user:" + principal.getUserId();
+            }
+        }
+        // За обратным прокси адрес клиента берется из X-Forwarded-For при server.forward-headers-strategy
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private void sendTooManyRequests(HttpServletResponse response, HttpServletRequest request,
+                                     long waitMillis) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf((waitMillis + 999) / 1000));
+
+        ApiError apiError = new ApiError(
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase(),
+                ApiMessages.RATE_LIMIT_EXCEEDED.getMessage(),
+                request.getRequestURI()
+        );
+
+        objectMapper.writeValue(response.getWriter(), apiError);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry registry, String rule) {
+        return Counter.builder("bank.ratelimit.rejected")
+                .description("Requests rejected by the rate limiter")
+                .tag("rule", rule)
+                .register(registry);
+    }
+
+    private record Rule(String name, int limit, long windowMillis, boolean perUser) {
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.InvalidTokenException;
+import com.example.bankcards.service.TokenRegistry;
+import com.example.bankcards.util.HashUtils;
+import io.jsonwebtoken.Claims;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded local cache of tokens that passed validation, with the claims and
+ * principal resolved for them, so repeated requests with the same token
+ * skip signature verification and the token lookup. Tokens are keyed by
+ * their SHA-256 hash. Reads and writes take no lock; once the cache is
+ * full, expired entries are dropped first and then arbitrary ones.
+ * <p>
+ * An entry lives until its token expires, but never longer than the
+ * maximum TTL: invalidation on this instance evicts it at once, while a
+ * logout, role change or deletion on another instance is picked up within
+ * that bound. When the token registry checks tokens in memory, the check
+ * is repeated on every hit, so a revocation is seen as soon as the
+ * registry has it.
+ */
+@Component
+public class TokenValidationCache {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock trimLock = new ReentrantLock();
+    private final int size;
+    private final long maxTtlMs;
+    private final TokenRegistry tokenRegistry;
+
+    /**
+     * The type Entry.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Entry {
+        private final Claims claims;
+        private final JwtPrincipal principal;
+        private final long expiresAt;
+    }
+
+    /**
+     * Instantiates a new Token validation cache.
+     *
+     * @param size          the maximum number of tokens kept
+     * @param maxTtlMs      the longest an entry is trusted without a lookup
+     * @param tokenRegistry the token registry
+     */
+    @Autowired
+    public TokenValidationCache(@Value("${jwt.validation-cache.size:10000}") int size,
+                                @Value("${jwt.validation-cache.max-ttl-ms:300000}") long maxTtlMs,
+                                TokenRegistry tokenRegistry) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1");
+        }
+        this.size = size;
+        this.maxTtlMs = maxTtlMs;
+        this.tokenRegistry = tokenRegistry;
+    }
+
+    /**
+     * Gets the entry of a token, dropping it if it has expired or has been
+     * revoked.
+     *
+     * @param token the token
+     * @return the entry or null
+     */
+    public Entry get(String token) {
+        String key = HashUtils.sha256Hex(token);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.getExpiresAt() <= System.currentTimeMillis() || revoked(token, entry.getClaims())) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Caches a validated token until it expires or the maximum TTL passes.
+     *
+     * @param token     the token
+     * @param claims    the claims of the token
+     * @param principal the principal of its subject
+     */
+    public void put(String token, Claims claims, JwtPrincipal principal) {
+        long expiresAt = System.currentTimeMillis() + maxTtlMs;
+        if (claims.getExpiration() != null) {
+            expiresAt = Math.min(expiresAt, claims.getExpiration().getTime());
+        }
+        String key = HashUtils.sha256Hex(token);
+        entries.put(key, new Entry(claims, principal, expiresAt));
+        if (entries.size() > size) {
+            trim(key);
+        }
+    }
+
+    /**
+     * Evicts a token.
+     *
+     * @param token the token
+     */
+    public void evict(String token) {
+        entries.remove(HashUtils.sha256Hex(token));
+    }
+
+    /**
+     * Evicts every token of a user.
+     *
+     * @param username the username
+     */
+    public void evictUser(String username) {
+        entries.values().removeIf(entry -> username.equals(entry.getPrincipal().getUsername()));
+    }
+
+    private boolean revoked(String token, Claims claims) {
+        if (!tokenRegistry.isInMemory()) {
+            return false;
+        }
+        try {
+            tokenRegistry.check(token, claims);
+            return false;
+        } catch (InvalidTokenException e) {
+            return true;
+        }
+    }
+
+    private void trim(String added) {
+        // One thread trims while the others carry on; the cache may briefly
+        // hold a few entries more than its size.
+        if (!trimLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            entries.values().removeIf(entry -> entry.getExpiresAt() <= now);
+            Iterator<String> keys = entries.keySet().iterator();
+            while (entries.size() > size && keys.hasNext()) {
+                if (!keys.next().equals(added)) {
+                    keys.remove();
+                }
+            }
+        } finally {
+            trimLock.unlock();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.request.RefreshTokenRequest;
 import com.example.bankcards.dto.request.SignInRequest;
 import com.example.bankcards.dto.request.UserRequest;
 import com.example.bankcards.dto.response.JwtAuthenticationResponse;
@@ -27,4 +28,13 @@ public interface AuthService {
      */
     public JwtAuthenticationResponse signIn(SignInRequest request) throws InvalidTokenException;
 
+    /**
+     * Exchanges a refresh token for a new access token and refresh token.
+     *
+     * @param request the request
+     * @return the jwt authentication response
+     * @throws InvalidTokenException if the refresh token is not accepted
+     */
+    public JwtAuthenticationResponse refresh(RefreshTokenRequest request) throws InvalidTokenException;
+
 }
\ No newline at end of file
@@ -0,0 +1,143 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.enums.CardStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+/**
+ * The interface Balance engine. Applies balance changes to cards, either
+ * directly in the card table or in memory with write-behind persistence,
+ * depending on the {@code balance.engine} property.
+ */
+public interface BalanceEngine {
+
+    /**
+     * The enum Transfer outcome.
+     */
+    enum TransferOutcome {
+        /**
+         * Both cards were updated.
+         */
+        COMPLETED,
+        /**
+         * The source card is missing, not active or has insufficient funds.
+         */
+        DEBIT_REJECTED,
+        /**
+         * The destination card is missing or not active.
+         */
+        CREDIT_REJECTED
+    }
+
+    /**
+     * The type Transfer result. The masked card numbers are set when the
+     * engine read them together with the balances, and are null otherwise.
+     */
+    @Getter
+    @AllArgsConstructor
+    class TransferResult {
+        private final TransferOutcome outcome;
+        private final BigDecimal fromBalance;
+        private final BigDecimal toBalance;
+        private final String fromMaskedNumber;
+        private final String toMaskedNumber;
+
+        /**
+         * Instantiates a new Transfer result without masked card numbers.
+         *
+         * @param outcome     the outcome
+         * @param fromBalance the source card balance after the transfer
+         * @param toBalance   the destination card balance after the transfer
+         */
+        public TransferResult(TransferOutcome outcome, BigDecimal fromBalance, BigDecimal toBalance) {
+            this(outcome, fromBalance, toBalance, null, null);
+        }
+
+        /**
+         * Rejected transfer result.
+         *
+         * @param outcome the outcome
+         * @return the transfer result
+         */
+        public static TransferResult rejected(TransferOutcome outcome) {
+            return new TransferResult(outcome, null, null);
+        }
+    }
+
+    /**
+     * Debits the card if it is active and has sufficient funds.
+     *
+     * @param cardId the card id
+     * @param amount the amount
+     * @return the balance after the debit, or empty if the card was not debited
+     */
+    Optional<BigDecimal> debit(Long cardId, BigDecimal amount);
+
+    /**
+     * Credits the card if it is active. An engine that holds balances in
+     * memory does not let the amount be debited until it is settled.
+     *
+     * @param cardId the card id
+     * @param amount the amount
+     * @return the balance after the credit, or empty if the card was not credited
+     */
+    Optional<BigDecimal> credit(Long cardId, BigDecimal amount);
+
+    /**
+     * Moves the amount between two cards. Either both cards are updated or,
+     * once the outcome is returned, neither is. The amount credited to the
+     * destination is settled like that of {@link #credit}.
+     *
+     * @param fromCardId the from card id
+     * @param toCardId   the to card id
+     * @param amount     the amount
+     * @return the transfer result with the balances after the transfer
+     */
+    TransferResult transfer(Long fromCardId, Long toCardId, BigDecimal amount);
+
+    /**
+     * Undoes a change whose database transaction rolled back. The delta is
+     * applied whatever the card status and balance, since it restores the
+     * balance the card had before the change.
+     *
+     * @param cardId the card id
+     * @param delta  the amount to add, negative to take the amount away
+     */
+    void revert(Long cardId, BigDecimal delta);
+
+    /**
+     * Settles a credit whose database transaction committed, so that the
+     * amount can be debited. Until then a rollback may still take the
+     * amount away again.
+     *
+     * @param cardId the card id
+     * @param amount the credited amount
+     */
+    void settle(Long cardId, BigDecimal amount);
+
+    /**
+     * Whether balances are held outside the database transaction and cannot
+     * be rolled back together with it.
+     *
+     * @return the boolean
+     */
+    boolean isInMemory();
+
+    /**
+     * Notifies the engine that the card status was changed in the database.
+     *
+     * @param cardId the card id
+     * @param status the new status
+     */
+    void statusChanged(Long cardId, CardStatus status);
+
+    /**
+     * Notifies the engine that the card was deleted.
+     *
+     * @param cardId the card id
+     */
+    void evict(Long cardId);
+}
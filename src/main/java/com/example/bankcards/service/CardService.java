@@ -1,15 +1,19 @@
 package com.example.bankcards.service;
 
 import com.example.bankcards.dto.response.CardResponse;
+import com.example.bankcards.dto.response.CursorPage;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * The interface Card service.
@@ -22,6 +26,24 @@ public interface CardService {
      */
     List<CardResponse> getAllCards();
 
+    /**
+     * Passes every card to an action in id order, reading them in chunks of
+     * the fetch size instead of loading the table at once.
+     *
+     * @param action the action
+     * @return the number of cards
+     */
+    long forEachCard(Consumer<CardResponse> action);
+
+    /**
+     * Gets a keyset page of all cards in id order.
+     *
+     * @param cursor the cursor of the previous page, or null for the first page
+     * @param size   the page size
+     * @return the page
+     */
+    CursorPage<CardResponse> getAllCardsByCursor(String cursor, int size);
+
     /**
      * Gets card by id.
      *
@@ -30,6 +52,22 @@ public interface CardService {
      */
     Optional<Card> getCardById(Long id);
 
+    /**
+     * Gets a reference to the card without loading it, for use as a foreign key.
+     *
+     * @param id the id
+     * @return the card reference
+     */
+    Card getCardReference(Long id);
+
+    /**
+     * Gets cards by ids and locks them in id order until the transaction ends.
+     *
+     * @param ids the ids
+     * @return the cards ordered by id
+     */
+    List<Card> getCardsByIdsForUpdate(Collection<Long> ids);
+
     /**
      * Gets card by number.
      *
@@ -57,12 +95,31 @@ public interface CardService {
     /**
      * Gets user cards paginated.
      *
-     * @param user     the user
+     * @param userId   the user id
      * @param search   the search
      * @param pageable the pageable
      * @return the user cards paginated
      */
-    Page<CardResponse> getUserCardsPaginated(User user, String search, Pageable pageable);
+    Page<CardResponse> getUserCardsPaginated(Long userId, String search, Pageable pageable);
+
+    /**
+     * Gets a slice of the user cards: the page without a total count.
+     *
+     * @param userId   the user id
+     * @param pageable the pageable
+     * @return the slice
+     */
+    Slice<CardResponse> getUserCardsSlice(Long userId, Pageable pageable);
+
+    /**
+     * Gets a keyset page of the user cards in id order.
+     *
+     * @param userId the user id
+     * @param cursor the cursor of the previous page, or null for the first page
+     * @param size   the page size
+     * @return the page
+     */
+    CursorPage<CardResponse> getUserCardsByCursor(Long userId, String cursor, int size);
 
     /**
      * Gets cards by status.
@@ -75,11 +132,11 @@ public interface CardService {
     /**
      * Gets cards by user and status.
      *
-     * @param user   the user
+     * @param userId the user id
      * @param status the status
      * @return the cards by user and status
      */
-    List<CardResponse> getCardsByUserAndStatus(User user, CardStatus status);
+    List<CardResponse> getCardsByUserAndStatus(Long userId, CardStatus status);
 
     /**
      * Create card card response.
@@ -112,22 +169,56 @@ public interface CardService {
     void activateCard(Long cardId);
 
     /**
-     * Deposit to card card.
+     * Deposit to an active card.
      *
      * @param cardId the card id
      * @param amount the amount
-     * @return the card
      */
-    Card depositToCard(Long cardId, BigDecimal amount);
+    void depositToCard(Long cardId, BigDecimal amount);
 
     /**
-     * Withdraw from card card.
+     * Withdraw from an active card.
      *
      * @param cardId the card id
      * @param amount the amount
-     * @return the card
      */
-    Card withdrawFromCard(Long cardId, BigDecimal amount);
+    void withdrawFromCard(Long cardId, BigDecimal amount);
+
+    /**
+     * Debits the card through the balance engine and records it in the ledger.
+     *
+     * @param cardId the card id
+     * @param amount the amount
+     * @return true if the card was active, had enough funds and was debited
+     */
+    boolean debitIfSufficient(Long cardId, BigDecimal amount);
+
+    /**
+     * Credits the card through the balance engine and records it in the ledger.
+     *
+     * @param cardId the card id
+     * @param amount the amount
+     * @return true if the card was active and was credited
+     */
+    boolean creditIfActive(Long cardId, BigDecimal amount);
+
+    /**
+     * Moves the amount between two cards through the balance engine.
+     *
+     * @param fromCardId the from card id
+     * @param toCardId   the to card id
+     * @param amount     the amount
+     * @return the transfer result
+     */
+    BalanceEngine.TransferResult transferBalance(Long fromCardId, Long toCardId, BigDecimal amount);
+
+    /**
+     * Whether balances are held in memory by the balance engine rather than
+     * in the caller's database transaction.
+     *
+     * @return the boolean
+     */
+    boolean balancesInMemory();
 
     /**
      * Card exists boolean.
@@ -0,0 +1,38 @@
+package com.example.bankcards.service;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The interface Idempotency service.
+ */
+public interface IdempotencyService {
+    /**
+     * Runs the action once per username and idempotency key. A repeated call
+     * with the same key replays the stored response without running the action,
+     * and a concurrent duplicate waits for the first call to finish.
+     * <p>
+     * The action is given a callback that stores its response. It must call
+     * the callback inside the transaction that applies its effects, so the
+     * response is stored if and only if those effects commit.
+     *
+     * @param <T>            the response type
+     * @param username       the username the key belongs to
+     * @param idempotencyKey the idempotency key
+     * @param request        the request body, used to reject a key reused for another request
+     * @param responseType   the response type
+     * @param action         the action, given the callback that stores its response
+     * @return the response of the first successful call
+     */
+    <T> T execute(String username, String idempotencyKey, Object request,
+                  Class<T> responseType, Function<Consumer<T>, T> action);
+
+    /**
+     * Deletes records older than the retention period in chunks, each chunk
+     * in a short transaction of its own. Records still leased to a running
+     * request are kept.
+     *
+     * @return the number of deleted records
+     */
+    int purgeExpired();
+}
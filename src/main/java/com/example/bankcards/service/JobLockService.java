@@ -0,0 +1,20 @@
+package com.example.bankcards.service;
+
+/**
+ * The interface Job lock service. Lets a scheduled job that runs on every
+ * instance do its work on one of them only.
+ */
+public interface JobLockService {
+
+    /**
+     * Takes the lock of a job unless another instance holds it. The lock is
+     * not released: it is held for the whole period, so the job runs at
+     * most once per period across all instances, and a crashed holder is
+     * replaced after it.
+     *
+     * @param name   the job name
+     * @param holdMs how long the lock is held
+     * @return whether this instance took the lock
+     */
+    boolean tryAcquire(String name, long holdMs);
+}
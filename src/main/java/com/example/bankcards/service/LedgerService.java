@@ -0,0 +1,47 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Transaction;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * The interface Ledger service.
+ */
+public interface LedgerService {
+    /**
+     * Records both sides of a completed transfer in the caller's transaction.
+     *
+     * @param transaction the saved transaction
+     * @param fromBalance the source card balance after the transfer
+     * @param toBalance   the destination card balance after the transfer
+     */
+    void recordTransfer(Transaction transaction, BigDecimal fromBalance, BigDecimal toBalance);
+
+    /**
+     * Records a deposit or withdrawal in the caller's transaction.
+     *
+     * @param cardId  the card id
+     * @param delta   the signed balance change
+     * @param balance the card balance after the change
+     */
+    void record(Long cardId, BigDecimal delta, BigDecimal balance);
+
+    /**
+     * Gets the balance of a card as of a moment from the newest snapshot
+     * taken up to it plus the ledger entries after the snapshot.
+     *
+     * @param cardId the card id
+     * @param asOf   the moment
+     * @return the balance
+     */
+    BigDecimal getBalanceAsOf(Long cardId, LocalDateTime asOf);
+
+    /**
+     * Takes a snapshot of every card with ledger entries since the previous
+     * snapshots.
+     *
+     * @return the number of snapshots taken
+     */
+    int takeSnapshots();
+}
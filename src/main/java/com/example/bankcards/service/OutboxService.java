@@ -0,0 +1,25 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Transaction;
+
+/**
+ * The interface Outbox service.
+ */
+public interface OutboxService {
+
+    /**
+     * Adds a transfer completed event to the outbox. Must run inside the
+     * transaction of the transfer so the event is committed with it.
+     *
+     * @param transaction the saved transaction
+     */
+    void transferCompleted(Transaction transaction);
+
+    /**
+     * Publishes pending events to the sink in batches until the outbox is
+     * drained or the sink fails.
+     *
+     * @return the number of events published
+     */
+    int relay();
+}
@@ -0,0 +1,21 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * Destination the outbox relay publishes events to. Delivery is at least
+ * once: a batch whose transaction fails after a successful publish is
+ * published again, so consumers deduplicate by event id.
+ */
+public interface OutboxSink {
+
+    /**
+     * Publishes a batch of events. An exception leaves the whole batch in the
+     * outbox to be retried.
+     *
+     * @param events the events in id order
+     */
+    void publish(List<OutboxEvent> events);
+}
@@ -0,0 +1,21 @@
+package com.example.bankcards.service;
+
+/**
+ * Holds the request counters behind the rate limiter. The implementation is
+ * chosen by {@code rate-limit.store}: {@code memory} counts on this instance
+ * only; a store shared between instances can be plugged in for a cluster,
+ * where each node would otherwise allow the full limit on its own.
+ */
+public interface RateLimitStore {
+
+    /**
+     * Counts a request against a key if the key is still under its limit in
+     * the sliding window ending now.
+     *
+     * @param key          the key, e.g. a rule name and a client address
+     * @param limit        the number of requests allowed per window
+     * @param windowMillis the window length
+     * @return 0 if the request is allowed, otherwise the milliseconds to wait before retrying
+     */
+    long tryAcquire(String key, int limit, long windowMillis);
+}
@@ -0,0 +1,16 @@
+package com.example.bankcards.service;
+
+/**
+ * The interface Reconciliation service.
+ */
+public interface ReconciliationService {
+
+    /**
+     * Resolves transactions left PENDING for longer than the threshold:
+     * those whose balances moved, as recorded in the ledger, become
+     * COMPLETED and the rest FAILED.
+     *
+     * @return the number of transactions resolved
+     */
+    int reconcilePending();
+}
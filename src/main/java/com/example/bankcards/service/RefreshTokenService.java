@@ -0,0 +1,45 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.InvalidTokenException;
+
+/**
+ * The interface Refresh token service.
+ */
+public interface RefreshTokenService {
+
+    /**
+     * Issues a refresh token starting a new family.
+     *
+     * @param user the user
+     * @return the refresh token to hand to the client
+     */
+    String issue(User user);
+
+    /**
+     * Exchanges a refresh token for a new one of the same family. A token
+     * that was already exchanged revokes its whole family, as it means the
+     * token was copied.
+     *
+     * @param refreshToken the refresh token presented by the client
+     * @return the user and the new refresh token
+     * @throws InvalidTokenException if the token is unknown, expired or already used
+     */
+    Rotation rotate(String refreshToken) throws InvalidTokenException;
+
+    /**
+     * Revokes every refresh token of a user.
+     *
+     * @param user the user
+     */
+    void revokeUser(User user);
+
+    /**
+     * The result of a rotation.
+     *
+     * @param user         the owner of the token
+     * @param refreshToken the new refresh token
+     */
+    record Rotation(User user, String refreshToken) {
+    }
+}
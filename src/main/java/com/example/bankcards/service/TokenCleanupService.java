@@ -0,0 +1,16 @@
+package com.example.bankcards.service;
+
+/**
+ * The interface Token cleanup service.
+ */
+public interface TokenCleanupService {
+
+    /**
+     * Deletes expired rows of the {@code token}, {@code refresh_token} and
+     * {@code revoked_token} tables in chunks, each chunk in a short
+     * transaction of its own.
+     *
+     * @return the number of deleted rows
+     */
+    int purgeExpired();
+}
@@ -0,0 +1,56 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.InvalidTokenException;
+import io.jsonwebtoken.Claims;
+
+/**
+ * Decides which validly signed, unexpired tokens are still accepted. The
+ * implementation is chosen by {@code jwt.validation-mode}: {@code whitelist}
+ * accepts only tokens stored at issue time, {@code revocation-list} accepts
+ * every token except the revoked ones.
+ */
+public interface TokenRegistry {
+
+    /**
+     * Records a newly issued token.
+     *
+     * @param token  the token
+     * @param claims the verified claims of the token
+     * @throws InvalidTokenException if the token is already recorded
+     */
+    void register(String token, Claims claims) throws InvalidTokenException;
+
+    /**
+     * Checks that a token whose signature and expiry are verified is still
+     * accepted.
+     *
+     * @param token  the token
+     * @param claims the verified claims of the token
+     * @throws InvalidTokenException if the token is not accepted
+     */
+    void check(String token, Claims claims) throws InvalidTokenException;
+
+    /**
+     * Whether {@link #check(String, Claims)} is answered from memory, so it is
+     * cheap enough to repeat for tokens served from the validation cache.
+     *
+     * @return the boolean
+     */
+    boolean isInMemory();
+
+    /**
+     * Stops accepting a token.
+     *
+     * @param token the token
+     */
+    void revoke(String token);
+
+    /**
+     * Stops accepting the tokens issued to a user so far, so that a change
+     * of role or a deletion is not outlived by those tokens.
+     *
+     * @param user the user
+     */
+    void revokeUser(User user);
+}
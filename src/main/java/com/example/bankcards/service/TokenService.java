@@ -60,6 +60,15 @@ public interface TokenService extends UserDetailsService {
     public <T> T getClaimFromToken(String token, Function<Claims, T> claimsResolver)
             throws InvalidTokenException;
 
+    /**
+     * Gets all claims from token.
+     *
+     * @param token the token
+     * @return the claims
+     * @throws InvalidTokenException the invalid token exception
+     */
+    public Claims getAllClaimsFromToken(String token) throws InvalidTokenException;
+
     /**
      * Save token.
      *
@@ -76,6 +85,15 @@ public interface TokenService extends UserDetailsService {
      */
     public void validateToken(String token) throws InvalidTokenException;
 
+    /**
+     * Verify token.
+     *
+     * @param token the token
+     * @return the claims of the token
+     * @throws InvalidTokenException the invalid token exception
+     */
+    public Claims verifyToken(String token) throws InvalidTokenException;
+
     /**
      * Invalidate token.
      *
@@ -1,9 +1,17 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.request.BatchTransferRequest;
 import com.example.bankcards.dto.request.TransactionRequest;
+import com.example.bankcards.dto.response.BatchTransferItemResult;
+import com.example.bankcards.dto.response.CursorPage;
 import com.example.bankcards.dto.response.TransactionResponse;
 import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.exception.CardAccessDeniedException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * The interface Transaction service.
@@ -24,6 +32,25 @@ public interface TransactionService {
      */
     List<Transaction> getUserTransactions(Long userId);
 
+    /**
+     * Gets user transactions paginated.
+     *
+     * @param userId   the user id
+     * @param pageable the pageable
+     * @return the user transactions paginated
+     */
+    Page<TransactionResponse> getUserTransactionsPaginated(Long userId, Pageable pageable);
+
+    /**
+     * Gets a keyset page of the user transactions, newest first.
+     *
+     * @param userId the user id
+     * @param cursor the cursor of the previous page, or null for the first page
+     * @param size   the page size
+     * @return the page
+     */
+    CursorPage<TransactionResponse> getUserTransactionsByCursor(Long userId, String cursor, int size);
+
     /**
      * Gets pending transactions.
      *
@@ -39,6 +66,29 @@ public interface TransactionService {
      */
     TransactionResponse transferBetweenCards(TransactionRequest transactionRequest);
 
+    /**
+     * Transfer between cards transaction response. The callback receives the
+     * response inside the transfer's transaction, so whatever it writes
+     * commits or rolls back together with the transfer.
+     *
+     * @param transactionRequest the transaction request
+     * @param onCompleted        the callback run before the commit
+     * @return the transaction response
+     */
+    TransactionResponse transferBetweenCards(TransactionRequest transactionRequest,
+                                             Consumer<TransactionResponse> onCompleted);
+
+    /**
+     * Transfers from one card of a user to many cards in a single database
+     * transaction.
+     *
+     * @param userId               the id of the user who owns the source card
+     * @param batchTransferRequest the batch transfer request
+     * @return the per-item results in request order
+     * @throws CardAccessDeniedException if the source card belongs to another user
+     */
+    List<BatchTransferItemResult> transferBatch(Long userId, BatchTransferRequest batchTransferRequest);
+
     /**
      * Gets transaction by id.
      *
@@ -1,12 +1,12 @@
 package com.example.bankcards.service.implementation;
 
+import com.example.bankcards.dto.request.RefreshTokenRequest;
 import com.example.bankcards.dto.request.SignInRequest;
 import com.example.bankcards.dto.request.UserRequest;
 import com.example.bankcards.dto.response.JwtAuthenticationResponse;
-import com.example.bankcards.entity.Token;
 import com.example.bankcards.exception.InvalidTokenException;
-import com.example.bankcards.repository.TokenRepository;
 import com.example.bankcards.service.AuthService;
+import com.example.bankcards.service.RefreshTokenService;
 import com.example.bankcards.service.TokenService;
 import com.example.bankcards.service.UserService;
 import com.example.bankcards.entity.User;
@@ -31,7 +31,7 @@ public class AuthServiceImpl implements AuthService {
     private final TokenService jwtService;
 //    private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
-    private final TokenRepository tokenRepository;
+    private final RefreshTokenService refreshTokenService;
 
     /**
      * Sign up jwt authentication response.
@@ -44,10 +44,7 @@ public class AuthServiceImpl implements AuthService {
 
         userService.createUser(userRequest);
 
-        var jwt = jwtService.generateToken(userService.getUserByUsername(userRequest.getUsername()));
-
-        jwtService.saveToken(jwt);
-        return new JwtAuthenticationResponse(jwt);
+        return issueTokens(userService.getUserByUsername(userRequest.getUsername()));
     }
 
     /**
@@ -65,21 +62,28 @@ public class AuthServiceImpl implements AuthService {
 
         User user = userService.getUserByUsername(request.getUsername());
 
-        Token jwt = tokenRepository.findByUser(user);
-        try {
-            jwtService.validateToken(jwt.getToken());
-        }
-        catch (Exception e) {
-            String newToken = jwtService.generateToken(user);
+        // В БД хранится только хэш токена, поэтому при каждом входе выдается новый токен
+        return issueTokens(user);
+    }
+
+    /**
+     * Refresh jwt authentication response.
+     *
+     * @param request the request
+     * @return the jwt authentication response
+     * @throws InvalidTokenException the invalid token exception
+     */
+    public JwtAuthenticationResponse refresh(RefreshTokenRequest request) throws InvalidTokenException {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(request.getRefreshToken());
 
-            try {
-                jwtService.saveToken(newToken);
-            } catch (InvalidTokenException ex) {
-                throw new InvalidTokenException(ex.getMessage());
-            }
-            return new JwtAuthenticationResponse(newToken);
-        }
+        String accessToken = jwtService.generateToken(rotation.user());
+        jwtService.saveToken(accessToken);
+        return new JwtAuthenticationResponse(accessToken, rotation.refreshToken());
+    }
 
-        return new JwtAuthenticationResponse(jwt.getToken());
+    private JwtAuthenticationResponse issueTokens(User user) throws InvalidTokenException {
+        String accessToken = jwtService.generateToken(user);
+        jwtService.saveToken(accessToken);
+        return new JwtAuthenticationResponse(accessToken, refreshTokenService.issue(user));
     }
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.example.bankcards.service.implementation;
+
+import com.example.bankcards.util.BoundedLruCache;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded local cache of the number of cards each user owns, so that
+ * paging through the cards of a user does not count them on every page.
+ * <p>
+ * Creating or deleting a card on this instance evicts the count of its
+ * owner once the transaction commits; a change made on another instance is
+ * picked up when the entry expires, so the count is approximate for at most
+ * the TTL.
+ */
+@Component
+public class CardCountCache {
+
+    private final boolean enabled;
+    private final long ttlMs;
+    private final BoundedLruCache<Long, Entry> entries;
+
+    @Getter
+    @AllArgsConstructor
+    private static class Entry {
+        private final long count;
+        private final long expiresAt;
+    }
+
+    /**
+     * Instantiates a new Card count cache.
+     *
+     * @param enabled whether counts are cached at all
+     * @param size    the maximum number of users kept
+     * @param ttlMs   the longest a count is trusted
+     */
+    @Autowired
+    public CardCountCache(@Value("${card.count-cache.enabled:true}") boolean enabled,
+                          @Value("${card.count-cache.size:10000}") int size,
+                          @Value("${card.count-cache.ttl-ms:60000}") long ttlMs) {
+        this.enabled = enabled;
+        this.ttlMs = ttlMs;
+        this.entries = new BoundedLruCache<>(size);
+    }
+
+    /**
+     * Is enabled boolean.
+     *
+     * @return the boolean
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gets the card count of a user, counting and caching it on a miss.
+     *
+     * @param userId the user id
+     * @param count  counts the cards of the user
+     * @return the count
+     */
+    public long get(Long userId, LongSupplier count) {
+        if (!enabled) {
+            return count.getAsLong();
+        }
+        Entry entry = entries.get(userId);
+        if (entry != null && entry.getExpiresAt() > System.currentTimeMillis()) {
+            return entry.getCount();
+        }
+        long loaded = count.getAsLong();
+        entries.put(userId, new Entry(loaded, System.currentTimeMillis() + ttlMs));
+        return loaded;
+    }
+
+    /**
+     * Evicts the count of a user.
+     *
+     * @param userId the user id
+     */
+    public void evict(Long userId) {
+        entries.remove(userId);
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.bankcards.service.implementation;
 
 import com.example.bankcards.dto.response.CardResponse;
+import com.example.bankcards.dto.response.CursorPage;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.entity.User;
@@ -8,34 +9,63 @@ import com.example.bankcards.exception.CardException;
 import com.example.bankcards.exception.InsufficientFundsException;
 import com.example.bankcards.mapper.Mapper;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.service.BalanceEngine;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.LedgerService;
 import com.example.bankcards.util.ApiMessages;
 import com.example.bankcards.util.CardNumberEncryptor;
+import com.example.bankcards.util.PageCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * The type Card service.
  */
+@Slf4j
 @Service
 @Transactional
 @RequiredArgsConstructor(onConstructor = @__(@Autowired))
 public class CardServiceImpl implements CardService {
-    
+
+    private static final String ALL_CARDS = "cards";
+    private static final String USER_CARDS = "user-cards";
+
     private final CardRepository cardRepository;
     private final CardNumberEncryptor cardNumberEncryptor;
     private  final Mapper mapper;
+    private final BalanceEngine balanceEngine;
+    private final LedgerService ledgerService;
+    private final CardCountCache cardCountCache;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${card.export.fetch-size:500}")
+    private int exportFetchSize;
 
     /**
      * Gets all cards.
@@ -43,12 +73,54 @@ public class CardServiceImpl implements CardService {
      * @return the all cards
      */
     @Override
+    @Transactional(readOnly = true)
     public List<CardResponse> getAllCards() {
-        List<Card> cards = cardRepository.findAll();
-        List<CardResponse> cardResponses = cards.stream()
-                .map(mapper::dtoToResponse)
-                .collect(Collectors.toList());;
-        return cardResponses;
+        return cardRepository.findAllResponses();
+    }
+
+    /**
+     * Passes every card to an action in id order. The rows are read through
+     * a JDBC cursor in chunks of {@code card.export.fetch-size} inside a
+     * read-only transaction, and the query builds responses without
+     * hydrating card or user entities, so the persistence context stays
+     * empty and memory does not grow with the table.
+     *
+     * @param action the action
+     * @return the number of cards
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long forEachCard(Consumer<CardResponse> action) {
+        long count = 0;
+        try (Stream<CardResponse> cards = entityManager
+                .createQuery(CardRepository.CARD_RESPONSE + "ORDER BY c.id", CardResponse.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, exportFetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            Iterator<CardResponse> iterator = cards.iterator();
+            while (iterator.hasNext()) {
+                action.accept(iterator.next());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets a keyset page of all cards in id order.
+     *
+     * @param cursor the cursor of the previous page, or null for the first page
+     * @param size   the page size
+     * @return the page
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<CardResponse> getAllCardsByCursor(String cursor, int size) {
+        Limit limit = Limit.of(size + 1);
+        List<CardResponse> rows = cursor == null
+                ? cardRepository.findAllResponses(limit)
+                : cardRepository.findAllResponsesAfter(PageCursor.decode(cursor, ALL_CARDS).getId(), limit);
+        return CursorPage.of(rows, size, card -> new PageCursor(ALL_CARDS, card.getId(), null));
     }
 
     /**
@@ -62,6 +134,28 @@ public class CardServiceImpl implements CardService {
         return cardRepository.findById(id);
     }
 
+    /**
+     * Gets card reference.
+     *
+     * @param id the id
+     * @return the card reference
+     */
+    @Override
+    public Card getCardReference(Long id) {
+        return cardRepository.getReferenceById(id);
+    }
+
+    /**
+     * Gets cards by ids for update.
+     *
+     * @param ids the ids
+     * @return the cards ordered by id
+     */
+    @Override
+    public List<Card> getCardsByIdsForUpdate(Collection<Long> ids) {
+        return cardRepository.findAllByIdForUpdate(ids);
+    }
+
     /**
      * Gets card by number.
      *
@@ -91,32 +185,68 @@ public class CardServiceImpl implements CardService {
      * @return the user cards
      */
     @Override
+    @Transactional(readOnly = true)
     public List<CardResponse> getUserCards(User user) {
-        List<Card> cards = cardRepository.findByUserId(user.getId());
-        List<CardResponse> cardResponses = cards.stream()
-                .map(mapper::dtoToResponse)
-                .collect(Collectors.toList());
-        return cardResponses;
+        return cardRepository.findResponsesByUserId(user.getId());
     }
 
     /**
-     * Gets user cards paginated.
+     * Gets user cards paginated. With the card count cache enabled the page
+     * is read as a slice and its total comes from the cache, so only a cache
+     * miss runs the count query.
      *
-     * @param user     the user
+     * @param userId   the user id
      * @param search   the search
      * @param pageable the pageable
      * @return the user cards paginated
      */
     @Override
-    public Page<CardResponse> getUserCardsPaginated(User user, String search, Pageable pageable) {
-        Page<Card> cardsPage;
-        if (search == null || search.isEmpty()) {
-            cardsPage = cardRepository.findByUser(user, pageable);
+    @Transactional(readOnly = true)
+    public Page<CardResponse> getUserCardsPaginated(Long userId, String search, Pageable pageable) {
+        if (search != null && !search.isEmpty()) {
+            return cardRepository.findResponsesByCardNumber(search, pageable);
         }
-        else {
-            cardsPage = cardRepository.findByCardNumber(search, pageable);
+        if (!cardCountCache.isEnabled()) {
+            return cardRepository.findResponsesByUserId(userId, pageable);
         }
-        return cardsPage.map(mapper::dtoToResponse);
+        Slice<CardResponse> slice = cardRepository.findSliceByUserId(userId, pageable);
+        long total = cardCountCache.get(userId, () -> cardRepository.countByUserId(userId));
+        // Кэшированное число может отставать от данных: не меньше, чем видно по самому срезу
+        long seen = pageable.getOffset() + slice.getNumberOfElements() + (slice.hasNext() ? 1 : 0);
+        return new PageImpl<>(slice.getContent(), pageable, Math.max(total, seen));
+    }
+
+    /**
+     * Gets a slice of the user cards: the page without a total count.
+     *
+     * @param userId   the user id
+     * @param pageable the pageable
+     * @return the slice
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<CardResponse> getUserCardsSlice(Long userId, Pageable pageable) {
+        return cardRepository.findSliceByUserId(userId, pageable);
+    }
+
+    /**
+     * Gets a keyset page of the user cards in id order. The cursor is the id
+     * of the last card of the previous page, so a page costs one range scan
+     * of the {@code (user_id, id)} index however deep it is.
+     *
+     * @param userId the user id
+     * @param cursor the cursor of the previous page, or null for the first page
+     * @param size   the page size
+     * @return the page
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<CardResponse> getUserCardsByCursor(Long userId, String cursor, int size) {
+        Limit limit = Limit.of(size + 1);
+        List<CardResponse> rows = cursor == null
+                ? cardRepository.findResponsesByUserId(userId, limit)
+                : cardRepository.findResponsesByUserIdAfter(userId, PageCursor.decode(cursor, USER_CARDS).getId(), limit);
+        return CursorPage.of(rows, size, card -> new PageCursor(USER_CARDS, card.getId(), null));
     }
 
     /**
@@ -131,22 +261,20 @@ public class CardServiceImpl implements CardService {
     }
 
     /**
-     * Gets cards by user and status.
+     * Gets cards by user and status. The database filters by status and
+     * builds the responses, so neither the other cards of the user nor any
+     * entity is loaded.
      *
-     * @param user   the user
+     * @param userId the user id
      * @param status the status
      * @return the cards by user and status
      */
     @Override
-    public List<CardResponse> getCardsByUserAndStatus(User user, CardStatus status) {
-        List<Card> cards = cardRepository.findByUser(user);
-        List<CardResponse> filteredCards = new ArrayList<>();
-        for (Card card : cards) {
-            if (card.getStatus().equals(status)) {
-                filteredCards.add(mapper.dtoToResponse(card));
-            }
+    @Transactional(readOnly = true)
+    public List<CardResponse> getCardsByUserAndStatus(Long userId, CardStatus status) {
+        try (Stream<CardResponse> cards = cardRepository.streamResponsesByUserIdAndStatus(userId, status)) {
+            return cards.collect(Collectors.toList());
         }
-        return filteredCards;
     }
 
     /**
@@ -167,6 +295,7 @@ public class CardServiceImpl implements CardService {
         card.setStatus(CardStatus.ACTIVE);
         card.setBalance(BigDecimal.ZERO);
         cardRepository.save(card);
+        afterCommit(() -> cardCountCache.evict(user.getId()));
         return mapper.dtoToResponse(card);
     }
 
@@ -178,7 +307,14 @@ public class CardServiceImpl implements CardService {
     @Override
     @Transactional
     public void deleteCard(Long cardId) {
+        Long userId = cardCountCache.isEnabled() ? cardRepository.findUserIdById(cardId).orElse(null) : null;
         cardRepository.deleteById(cardId);
+        afterCommit(() -> {
+            balanceEngine.evict(cardId);
+            if (userId != null) {
+                cardCountCache.evict(userId);
+            }
+        });
     }
 
     /**
@@ -195,6 +331,7 @@ public class CardServiceImpl implements CardService {
         card.setStatus(CardStatus.BLOCKED);
         card.setActive(false);
         cardRepository.save(card);
+        afterCommit(() -> balanceEngine.statusChanged(cardId, CardStatus.BLOCKED));
     }
 
     /**
@@ -211,6 +348,7 @@ public class CardServiceImpl implements CardService {
         card.setStatus(CardStatus.ACTIVE);
         card.setActive(true);
         cardRepository.save(card);
+        afterCommit(() -> balanceEngine.statusChanged(cardId, CardStatus.ACTIVE));
     }
 
     /**
@@ -218,16 +356,15 @@ public class CardServiceImpl implements CardService {
      *
      * @param cardId the card id
      * @param amount the amount
-     * @return the card
      */
     @Override
     @Transactional
-    public Card depositToCard(Long cardId, BigDecimal amount) {
-        Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new CardException(ApiMessages.CARD_NOT_FOUND.getMessage()));
-        
-        card.setBalance(card.getBalance().add(amount));
-        return cardRepository.save(card);
+    public void depositToCard(Long cardId, BigDecimal amount) {
+        if (!creditIfActive(cardId, amount)) {
+            Card card = cardRepository.findById(cardId)
+                    .orElseThrow(() -> new CardException(ApiMessages.CARD_NOT_FOUND.getMessage()));
+            throw new CardException(String.format(ApiMessages.CARD_NOT_ACTIVE.getMessage(), card.getStatus()));
+        }
     }
 
     /**
@@ -235,20 +372,88 @@ public class CardServiceImpl implements CardService {
      *
      * @param cardId the card id
      * @param amount the amount
-     * @return the card
      */
     @Override
     @Transactional
-    public Card withdrawFromCard(Long cardId, BigDecimal amount) {
-        Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new CardException(ApiMessages.CARD_NOT_FOUND.getMessage()));
-
-        if (card.getBalance().compareTo(amount) < 0) {
+    public void withdrawFromCard(Long cardId, BigDecimal amount) {
+        if (!debitIfSufficient(cardId, amount)) {
+            Card card = cardRepository.findById(cardId)
+                    .orElseThrow(() -> new CardException(ApiMessages.CARD_NOT_FOUND.getMessage()));
+            if (card.getStatus() != CardStatus.ACTIVE) {
+                throw new CardException(String.format(ApiMessages.CARD_NOT_ACTIVE.getMessage(), card.getStatus()));
+            }
             throw new InsufficientFundsException(card.getBalance(), amount);
         }
+    }
+
+    /**
+     * Debit if sufficient boolean. The debit is recorded in the ledger.
+     *
+     * @param cardId the card id
+     * @param amount the amount
+     * @return the boolean
+     */
+    @Override
+    @Transactional
+    public boolean debitIfSufficient(Long cardId, BigDecimal amount) {
+        Optional<BigDecimal> balance = balanceEngine.debit(cardId, amount);
+        balance.ifPresent(value -> {
+            revertOnRollback(cardId, amount);
+            ledgerService.record(cardId, amount.negate(), value);
+        });
+        return balance.isPresent();
+    }
 
-        card.setBalance(card.getBalance().subtract(amount));
-        return cardRepository.save(card);
+    /**
+     * Credit if active boolean. The credit is recorded in the ledger, and
+     * balances held in memory can spend it once the transaction commits.
+     *
+     * @param cardId the card id
+     * @param amount the amount
+     * @return the boolean
+     */
+    @Override
+    @Transactional
+    public boolean creditIfActive(Long cardId, BigDecimal amount) {
+        Optional<BigDecimal> balance = balanceEngine.credit(cardId, amount);
+        balance.ifPresent(value -> {
+            revertOnRollback(cardId, amount.negate());
+            settleOnCommit(cardId, amount);
+            ledgerService.record(cardId, amount, value);
+        });
+        return balance.isPresent();
+    }
+
+    /**
+     * Transfer balance. Balances held in memory are moved back if the
+     * transaction rolls back after the transfer, and the destination can
+     * spend the amount once it commits.
+     *
+     * @param fromCardId the from card id
+     * @param toCardId   the to card id
+     * @param amount     the amount
+     * @return the transfer result
+     */
+    @Override
+    @Transactional
+    public BalanceEngine.TransferResult transferBalance(Long fromCardId, Long toCardId, BigDecimal amount) {
+        BalanceEngine.TransferResult result = balanceEngine.transfer(fromCardId, toCardId, amount);
+        if (result.getOutcome() == BalanceEngine.TransferOutcome.COMPLETED) {
+            revertOnRollback(fromCardId, amount);
+            revertOnRollback(toCardId, amount.negate());
+            settleOnCommit(toCardId, amount);
+        }
+        return result;
+    }
+
+    /**
+     * Balances in memory boolean.
+     *
+     * @return the boolean
+     */
+    @Override
+    public boolean balancesInMemory() {
+        return balanceEngine.isInMemory();
     }
 
     /**
@@ -262,4 +467,51 @@ public class CardServiceImpl implements CardService {
         return cardRepository.existsById(cardId);
     }
 
-}
\ No newline at end of file
+    private void revertOnRollback(Long cardId, BigDecimal delta) {
+        // The database undoes its own updates, only balances held in memory need this.
+        if (!balanceEngine.isInMemory() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    try {
+                        balanceEngine.revert(cardId, delta);
+                    } catch (RuntimeException e) {
+                        log.error("Failed to revert {} on card {} after a rollback", delta, cardId, e);
+                    }
+                } else if (status == STATUS_UNKNOWN) {
+                    log.error("Transaction outcome unknown, balance of card {} may be off by {}",
+                            cardId, delta.negate());
+                }
+            }
+        });
+    }
+
+    private void settleOnCommit(Long cardId, BigDecimal amount) {
+        if (!balanceEngine.isInMemory()) {
+            return;
+        }
+        afterCommit(() -> {
+            try {
+                balanceEngine.settle(cardId, amount);
+            } catch (RuntimeException e) {
+                log.error("Failed to settle {} on card {} after a commit", amount, cardId, e);
+            }
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.bankcards.service.implementation;
+
+import com.example.bankcards.entity.OutboxEvent;
+import com.example.bankcards.service.OutboxSink;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Outbox sink that appends every event as one JSON line to a local file,
+ * for deployments without a message broker. A batch is written and flushed
+ * with one call.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.sink", havingValue = "file", matchIfMissing = true)
+public class FileOutboxSink implements OutboxSink {
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Instantiates a new File outbox sink.
+     *
+     * @param file         the file events are appended to
+     * @param objectMapper the object mapper
+     */
+    @Autowired
+    public FileOutboxSink(@Value("${outbox.file:outbox/events.ndjson}") Path file, ObjectMapper objectMapper) {
+        this.file = file;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Publish.
+     *
+     * @param events the events in id order
+     */
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (OutboxEvent event : events) {
+                    writer.write(toJson(event));
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Outbox events cannot be written to " + file, e);
+        }
+    }
+
+    private String toJson(OutboxEvent event) throws IOException {
+        ObjectNode line = objectMapper.createObjectNode();
+        line.put("id", event.getId());
+        line.put("type", event.getEventType().name());
+        line.put("aggregateId", event.getAggregateId());
+        line.put("createdAt", event.getCreatedAt().toString());
+        // The payload is already JSON and is embedded as a value, not as a string.
+        line.set("payload", objectMapper.readTree(event.getPayload()));
+        return objectMapper.writeValueAsString(line);
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.bankcards.service.implementation;
+
+import com.example.bankcards.entity.IdempotencyRecord;
+import com.example.bankcards.entity.enums.IdempotencyStatus;
+import com.example.bankcards.exception.IdempotencyConflictException;
+import com.example.bankcards.repository.IdempotencyRecordRepository;
+import com.example.bankcards.service.IdempotencyService;
+import com.example.bankcards.service.JobLockService;
+import com.example.bankcards.util.ApiMessages;
+import com.example.bankcards.util.BoundedLruCache;
+import com.example.bankcards.util.HashUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The type Idempotency service. Completed responses are kept in the
+ * idempotency_key table and in a bounded LRU cache in front of it, so a
+ * replay on the same node costs no query at all.
+ * <p>
+ * The first request claims the key for {@code idempotency.lease-ms} and
+ * stores its response in the transaction of the work itself. A record left
+ * in progress therefore always means the work did not commit, and once the
+ * lease expires a retry may take the key over.
+ */
+@Slf4j
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final String PURGE_JOB_NAME = "idempotency-purge";
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final JobLockService jobLockService;
+    private final ObjectMapper objectMapper;
+    private final long inFlightWaitMs;
+    private final long leaseMs;
+    private final long retentionMs;
+    private final long purgeIntervalMs;
+    private final int purgeChunkSize;
+    private final int purgeMaxChunks;
+    private final BoundedLruCache<String, StoredResponse> completed;
+    private final ConcurrentMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+    private final ReentrantLock purgeLock = new ReentrantLock();
+
+    /**
+     * Instantiates a new Idempotency service.
+     *
+     * @param idempotencyRecordRepository the idempotency record repository
+     * @param jobLockService              the job lock service
+     * @param objectMapper                the object mapper
+     * @param cacheSize                   the number of responses kept in memory
+     * @param inFlightWaitMs              how long a duplicate waits for the first request
+     * @param leaseMs                     how long a key stays claimed by a request that has not completed
+     * @param retentionMs                 how long records are kept
+     * @param purgeIntervalMs             the interval between purges, for which the job lock is held
+     * @param purgeChunkSize              the number of records deleted per transaction
+     * @param purgeMaxChunks              the number of chunks deleted per run
+     */
+    @Autowired
+    public IdempotencyServiceImpl(IdempotencyRecordRepository idempotencyRecordRepository,
+                                  JobLockService jobLockService,
+                                  ObjectMapper objectMapper,
+                                  @Value("${idempotency.cache-size:10000}") int cacheSize,
+                                  @Value("${idempotency.in-flight-wait-ms:30000}") long inFlightWaitMs,
+                                  @Value("${idempotency.lease-ms:60000}") long leaseMs,
+                                  @Value("${idempotency.retention-ms:86400000}") long retentionMs,
+                                  @Value("${idempotency.purge.interval-ms:600000}") long purgeIntervalMs,
+                                  @Value("${idempotency.purge.chunk-size:500}") int purgeChunkSize,
+                                  @Value("${idempotency.purge.max-chunks:100}") int purgeMaxChunks) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.jobLockService = jobLockService;
+        this.objectMapper = objectMapper;
+        this.inFlightWaitMs = inFlightWaitMs;
+        this.leaseMs = leaseMs;
+        this.retentionMs = retentionMs;
+        this.purgeIntervalMs = purgeIntervalMs;
+        this.purgeChunkSize = purgeChunkSize;
+        this.purgeMaxChunks = purgeMaxChunks;
+        this.completed = new BoundedLruCache<>(cacheSize);
+    }
+
+    /**
+     * Execute.
+     *
+     * @param <T>            the response type
+     * @param username       the username
+     * @param idempotencyKey the idempotency key
+     * @param request        the request
+     * @param responseType   the response type
+     * @param action         the action
+     * @return the response
+     */
+    @Override
+    public <T> T execute(String username, String idempotencyKey, Object request,
+                         Class<T> responseType, Function<Consumer<T>, T> action) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(ApiMessages.IDEMPOTENCY_KEY_INVALID.getMessage());
+        }
+        String cacheKey = username + ':' + idempotencyKey;
+        String requestHash = HashUtils.sha256Hex(write(request));
+
+        StoredResponse cached = completed.get(cacheKey);
+        if (cached != null) {
+            return replay(cached, requestHash, responseType);
+        }
+
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(cacheKey, mine);
+        if (running != null) {
+            return replay(awaitFirst(running), requestHash, responseType);
+        }
+
+        try {
+            StoredResponse response = executeFirst(username, idempotencyKey, requestHash, action);
+            completed.put(cacheKey, response);
+            mine.complete(response);
+            return replay(response, requestHash, responseType);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, mine);
+        }
+    }
+
+    /**
+     * Purge expired. Runs on a fixed delay on one instance per interval; a
+     * run already in progress on this instance makes a concurrent call
+     * return immediately.
+     *
+     * @return the number of deleted records
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${idempotency.purge.interval-ms:600000}",
+            initialDelayString = "${idempotency.purge.interval-ms:600000}")
+    public int purgeExpired() {
+        if (!purgeLock.tryLock()) {
+            return 0;
+        }
+        try {
+            if (!jobLockService.tryAcquire(PURGE_JOB_NAME, purgeIntervalMs)) {
+                return 0;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime cutoff = now.minusNanos(retentionMs * 1_000_000);
+            int total = 0;
+            for (int chunk = 0; chunk < purgeMaxChunks; chunk++) {
+                List<Long> ids = idempotencyRecordRepository.findExpiredIds(cutoff, now,
+                        PageRequest.of(0, purgeChunkSize));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                total += idempotencyRecordRepository.deleteByIdIn(ids);
+                if (ids.size() < purgeChunkSize) {
+                    break;
+                }
+            }
+            if (total > 0) {
+                log.info("Удалено старых ключей идемпотентности: {}", total);
+            }
+            return total;
+        } finally {
+            purgeLock.unlock();
+        }
+    }
+
+    private <T> StoredResponse executeFirst(String username, String idempotencyKey, String requestHash,
+                                            Function<Consumer<T>, T> action) {
+        LocalDateTime now = LocalDateTime.now();
+        String claimToken = UUID.randomUUID().toString();
+        LocalDateTime leaseExpiresAt = now.plusNanos(leaseMs * 1_000_000);
+
+        Optional<IdempotencyRecord> existing =
+                idempotencyRecordRepository.findByUsernameAndIdempotencyKey(username, idempotencyKey);
+        Long id;
+        if (existing.isPresent()) {
+            IdempotencyRecord record = existing.get();
+            if (record.getStatus() == IdempotencyStatus.COMPLETED) {
+                return new StoredResponse(record.getRequestHash(), record.getResponse());
+            }
+            // The request that claimed the key died or timed out without committing.
+            if (!record.getRequestHash().equals(requestHash)
+                    || idempotencyRecordRepository.takeOver(record.getId(), claimToken, leaseExpiresAt, now) != 1) {
+                throw new IdempotencyConflictException(ApiMessages.IDEMPOTENCY_REQUEST_IN_PROGRESS.getMessage());
+            }
+            id = record.getId();
+        } else {
+            try {
+                id = idempotencyRecordRepository.saveAndFlush(new IdempotencyRecord(username, idempotencyKey,
+                        requestHash, claimToken, leaseExpiresAt)).getId();
+            } catch (DataIntegrityViolationException e) {
+                // Another node claimed the key between our lookup and insert.
+                throw new IdempotencyConflictException(ApiMessages.IDEMPOTENCY_REQUEST_IN_PROGRESS.getMessage());
+            }
+        }
+
+        AtomicReference<String> body = new AtomicReference<>();
+        try {
+            action.apply(result -> {
+                String written = write(result);
+                if (idempotencyRecordRepository.complete(id, claimToken, written, LocalDateTime.now()) != 1) {
+                    // The lease ran out and a retry took the key over: failing
+                    // here rolls this request back so the work is done once.
+                    throw new IdempotencyConflictException(
+                            ApiMessages.IDEMPOTENCY_REQUEST_IN_PROGRESS.getMessage());
+                }
+                body.set(written);
+            });
+        } catch (RuntimeException e) {
+            return afterFailure(username, idempotencyKey, id, claimToken, e);
+        }
+        if (body.get() == null) {
+            throw new IllegalStateException("Idempotent action did not store its response");
+        }
+        return new StoredResponse(requestHash, body.get());
+    }
+
+    private StoredResponse afterFailure(String username, String idempotencyKey, Long id, String claimToken,
+                                        RuntimeException failure) {
+        // The response commits with the work, so a record still in progress
+        // means nothing was committed and the key may be used again.
+        try {
+            if (idempotencyRecordRepository.release(id, claimToken) == 1) {
+                throw failure;
+            }
+            Optional<IdempotencyRecord> record =
+                    idempotencyRecordRepository.findByUsernameAndIdempotencyKey(username, idempotencyKey);
+            if (record.isPresent() && record.get().getStatus() == IdempotencyStatus.COMPLETED
+                    && claimToken.equals(record.get().getClaimToken())) {
+                // The work committed and only the way back failed: answer with its response.
+                return new StoredResponse(record.get().getRequestHash(), record.get().getResponse());
+            }
+        } catch (DataAccessException e) {
+            // The lease expires and a retry takes the key over.
+            log.warn("Failed to release idempotency key {}: {}", idempotencyKey, e.getMessage());
+        }
+        throw failure;
+    }
+
+    private StoredResponse awaitFirst(CompletableFuture<StoredResponse> running) {
+        try {
+            return running.get(inFlightWaitMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IdempotencyConflictException(ApiMessages.IDEMPOTENCY_REQUEST_IN_PROGRESS.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyConflictException(ApiMessages.IDEMPOTENCY_REQUEST_IN_PROGRESS.getMessage());
+        }
+    }
+
+    private <T> T replay(StoredResponse response, String requestHash, Class<T> responseType) {
+        if (!response.requestHash.equals(requestHash)) {
+            throw new IdempotencyConflictException(ApiMessages.IDEMPOTENCY_KEY_REUSED.getMessage());
+        }
+        try {
+            return objectMapper.readValue(response.body, responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored idempotent response cannot be read", e);
+        }
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Value cannot be serialized for idempotency", e);
+        }
+    }
+
+    private static final class StoredResponse {
+        private final String requestHash;
+        private final String body;
+
+        private StoredResponse(String requestHash, String body) {
+            this.requestHash = requestHash;
+            this.body = body;
+        }
+    }
+}
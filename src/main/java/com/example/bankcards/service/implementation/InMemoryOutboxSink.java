@@ -0,0 +1,45 @@
+package com.example.bankcards.service.implementation;
+
+import com.example.bankcards.entity.OutboxEvent;
+import com.example.bankcards.service.OutboxSink;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Outbox sink that keeps published events in memory, for tests and local runs.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.sink", havingValue = "memory")
+public class InMemoryOutboxSink implements OutboxSink {
+
+    private final List<OutboxEvent> events = new CopyOnWriteArrayList<>();
+
+    /**
+     * Publish.
+     *
+     * @param events the events in id order
+     */
+    @Override
+    public void publish(List<OutboxEvent> events) {
+        this.events.addAll(events);
+    }
+
+    /**
+     * Gets the events published so far.
+     *
+     * @return the events
+     */
+    public List<OutboxEvent> getEvents() {
+        return List.copyOf(events);
+    }
+
+    /**
+     * Forgets the events published so far.
+     */
+    public void clear() {
+        events.clear();
+    }
+}
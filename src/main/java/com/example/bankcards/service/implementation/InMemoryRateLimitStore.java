@@ -0,0 +1,156 @@
+package com.example.bankcards.service.implementation;
+
+import com.example.bankcards.service.RateLimitStore;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * The type In memory rate limit store. Each key has a sliding-window counter
+ * approximated from two fixed windows: the count of the current window plus
+ * the count of the previous one weighted by how much of it still overlaps
+ * the sliding window. Counting is lock-free: the current window is a
+ * {@link LongAdder} and a new window is swapped in with a compare-and-set.
+ * <p>
+ * The check and the increment are not one atomic step, so concurrent
+ * requests on the same key may overshoot the limit by the number of threads
+ * racing on it. The map holds at most {@code maxKeys} keys; a key untouched
+ * for two windows has nothing left to count and is evicted by the scheduled
+ * pass. While the map is full, requests under new keys are rejected for a
+ * window, so flooding the store with keys cannot switch limiting off.
+ */
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    private final Map<String, SlidingWindow> windows = new ConcurrentHashMap<>();
+    private final int maxKeys;
+    private final LongSupplier clock;
+
+    /**
+     * Instantiates a new In memory rate limit store.
+     *
+     * @param maxKeys the maximum number of keys tracked at once
+     */
+    public InMemoryRateLimitStore(int maxKeys) {
+        this(maxKeys, System::currentTimeMillis);
+    }
+
+    /**
+     * Instantiates a new In memory rate limit store.
+     *
+     * @param maxKeys the maximum number of keys tracked at once
+     * @param clock   the clock in milliseconds
+     */
+    public InMemoryRateLimitStore(int maxKeys, LongSupplier clock) {
+        if (maxKeys < 1) {
+            throw new IllegalArgumentException("Rate limit store must hold at least 1 key");
+        }
+        this.maxKeys = maxKeys;
+        this.clock = clock;
+    }
+
+    /**
+     * Try acquire.
+     *
+     * @param key          the key
+     * @param limit        the number of requests allowed per window
+     * @param windowMillis the window length
+     * @return 0 if allowed, otherwise the milliseconds to wait
+     */
+    @Override
+    public long tryAcquire(String key, int limit, long windowMillis) {
+        long now = clock.getAsLong();
+        SlidingWindow window = windows.get(key);
+        if (window == null) {
+            if (windows.size() >= maxKeys) {
+                return windowMillis;
+            }
+            window = windows.computeIfAbsent(key, k -> new SlidingWindow(windowMillis, now));
+        }
+        return window.tryAcquire(limit, now);
+    }
+
+    /**
+     * Drops the keys idle for two windows.
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.eviction-interval-ms:60000}",
+            initialDelayString = "${rate-limit.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        long now = clock.getAsLong();
+        windows.values().removeIf(window -> window.isIdle(now));
+    }
+
+    /**
+     * Gets the number of tracked keys.
+     *
+     * @return the number of keys
+     */
+    public int size() {
+        return windows.size();
+    }
+
+    private static final class SlidingWindow {
+
+        private final long windowMillis;
+        private final AtomicReference<Bucket> current;
+        private volatile long lastSeen;
+
+        SlidingWindow(long windowMillis, long now) {
+            this.windowMillis = windowMillis;
+            this.current = new AtomicReference<>(new Bucket(now, 0));
+            this.lastSeen = now;
+        }
+
+        long tryAcquire(int limit, long now) {
+            lastSeen = now;
+            Bucket bucket = bucketAt(now);
+            long elapsed = now - bucket.start;
+            long count = bucket.count.sum();
+            double previousWeight = (double) (windowMillis - elapsed) / windowMillis;
+            if (bucket.previous * previousWeight + count + 1 <= limit) {
+                bucket.count.increment();
+                return 0;
+            }
+            if (count + 1 > limit || bucket.previous == 0) {
+                return windowMillis - elapsed;
+            }
+            // Ждать, пока вес предыдущего окна не опустится настолько, чтобы запрос поместился
+            double allowedWeight = (double) (limit - count - 1) / bucket.previous;
+            long wait = (long) Math.ceil(windowMillis * (1 - allowedWeight)) - elapsed;
+            return Math.max(1, wait);
+        }
+
+        boolean isIdle(long now) {
+            return now - lastSeen >= 2 * windowMillis;
+        }
+
+        private Bucket bucketAt(long now) {
+            Bucket bucket = current.get();
+            while (now - bucket.start >= windowMillis) {
+                long periods = (now - bucket.start) / windowMillis;
+                long previous = periods == 1 ? bucket.count.sum() : 0;
+                Bucket next = new Bucket(bucket.start + periods * windowMillis, previous);
+                if (current.compareAndSet(bucket, next)) {
+                    return next;
+                }
+                bucket = current.get();
+            }
+            return bucket;
+        }
+    }
+
+    private static final class Bucket {
+
+        private final long start;
+        private final long previous;
+        private final LongAdder count = new LongAdder();
+
+        Bucket(long start, long previous) {
+            this.start = start;
+            this.previous = previous;
+        }
+    }
+}
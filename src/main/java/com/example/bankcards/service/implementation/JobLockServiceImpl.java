@@ -0,0 +1,39 @@
+package com.example.bankcards.service.implementation;
+
+import com.example.bankcards.repository.JobLockRepository;
+import com.example.bankcards.service.JobLockService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+
+/**
+ * The type Job lock service. Locks are rows of the {@code job_lock} table
+ * taken with a conditional update, or created on first use.
+ */
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class JobLockServiceImpl implements JobLockService {
+
+    // pid@host, to tell in the table which instance holds a lock.
+    private static final String INSTANCE = ManagementFactory.getRuntimeMXBean().getName();
+
+    private final JobLockRepository jobLockRepository;
+
+    /**
+     * Try acquire boolean.
+     *
+     * @param name   the job name
+     * @param holdMs how long the lock is held
+     * @return the boolean
+     */
+    @Override
+    public boolean tryAcquire(String name, long holdMs) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime lockedUntil = now.plusNanos(holdMs * 1_000_000);
+        return jobLockRepository.acquire(name, lockedUntil, INSTANCE, now) == 1
+                || jobLockRepository.insertIfAbsent(name, lockedUntil, INSTANCE) == 1;
+    }
+}
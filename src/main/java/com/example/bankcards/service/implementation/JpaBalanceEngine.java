@@ -0,0 +1,193 @@
+package com.example.bankcards.service.implementation;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.service.BalanceEngine;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The type Jpa balance engine. Every change is a conditional UPDATE of the
+ * card row in the caller's transaction that returns the new balance, so a
+ * change costs one round trip.
+ */
+@Service
+@Transactional
+@ConditionalOnProperty(name = "balance.engine", havingValue = "jpa", matchIfMissing = true)
+public class JpaBalanceEngine implements BalanceEngine {
+
+    // The version is bumped so that stale entity writes fail instead of
+    // overwriting the new balance.
+    private static final String DEBIT = "UPDATE card SET balance = balance - :amount, version = version + 1 " +
+            "WHERE id = :id AND balance >= :amount AND status = 'ACTIVE'";
+    private static final String CREDIT = "UPDATE card SET balance = balance + :amount, version = version + 1 " +
+            "WHERE id = :id AND status = 'ACTIVE'";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final String debitReturning;
+    private final String creditReturning;
+
+    /**
+     * Instantiates a new Jpa balance engine. PostgreSQL returns the updated
+     * row with {@code RETURNING}; H2, used by the tests, reads it from the
+     * {@code FINAL TABLE} of the update instead.
+     *
+     * @param entityManagerFactory the entity manager factory
+     */
+    @Autowired
+    public JpaBalanceEngine(EntityManagerFactory entityManagerFactory) {
+        boolean h2 = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof H2Dialect;
+        this.debitReturning = returning(DEBIT, h2);
+        this.creditReturning = returning(CREDIT, h2);
+    }
+
+    /**
+     * Debit.
+     *
+     * @param cardId the card id
+     * @param amount the amount
+     * @return the balance after the debit
+     */
+    @Override
+    public Optional<BigDecimal> debit(Long cardId, BigDecimal amount) {
+        return update(debitReturning, cardId, amount).map(row -> (BigDecimal) row[0]);
+    }
+
+    /**
+     * Credit.
+     *
+     * @param cardId the card id
+     * @param amount the amount
+     * @return the balance after the credit
+     */
+    @Override
+    public Optional<BigDecimal> credit(Long cardId, BigDecimal amount) {
+        return update(creditReturning, cardId, amount).map(row -> (BigDecimal) row[0]);
+    }
+
+    /**
+     * Transfer result. A rejected second update marks the transaction
+     * rollback-only so the first one is undone.
+     *
+     * @param fromCardId the from card id
+     * @param toCardId   the to card id
+     * @param amount     the amount
+     * @return the transfer result
+     */
+    @Override
+    public TransferResult transfer(Long fromCardId, Long toCardId, BigDecimal amount) {
+        // Each UPDATE takes the row lock, so rows are touched lowest id first
+        // and two opposite transfers queue up instead of deadlocking.
+        Optional<Object[]> from;
+        Optional<Object[]> to;
+        if (fromCardId < toCardId) {
+            from = update(debitReturning, fromCardId, amount);
+            if (from.isEmpty()) {
+                return TransferResult.rejected(TransferOutcome.DEBIT_REJECTED);
+            }
+            to = update(creditReturning, toCardId, amount);
+            if (to.isEmpty()) {
+                return rollback(TransferOutcome.CREDIT_REJECTED);
+            }
+        } else {
+            to = update(creditReturning, toCardId, amount);
+            if (to.isEmpty()) {
+                return TransferResult.rejected(TransferOutcome.CREDIT_REJECTED);
+            }
+            from = update(debitReturning, fromCardId, amount);
+            if (from.isEmpty()) {
+                return rollback(TransferOutcome.DEBIT_REJECTED);
+            }
+        }
+        return new TransferResult(TransferOutcome.COMPLETED, (BigDecimal) from.get()[0], (BigDecimal) to.get()[0],
+                (String) from.get()[1], (String) to.get()[1]);
+    }
+
+    private Optional<Object[]> update(String sql, Long cardId, BigDecimal amount) {
+        // Pending card changes are flushed before the statement, and the
+        // updated card, if loaded, is detached so nobody reads its stale
+        // balance. Other entities of the persistence context are left alone.
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(Card.class)
+                .setParameter("id", cardId)
+                .setParameter("amount", amount)
+                .getResultList();
+        detach(cardId);
+        return rows.stream().findFirst();
+    }
+
+    private void detach(Long cardId) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(Card.class);
+        Object card = session.getPersistenceContextInternal().getEntity(session.generateEntityKey(cardId, persister));
+        if (card != null) {
+            entityManager.detach(card);
+        }
+    }
+
+    private TransferResult rollback(TransferOutcome outcome) {
+        TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        return TransferResult.rejected(outcome);
+    }
+
+    private static String returning(String update, boolean h2) {
+        return h2
+                ? "SELECT balance, masked_number FROM FINAL TABLE (" + update + ")"
+                : update + " RETURNING balance, masked_number";
+    }
+
+    /**
+     * Revert. The updates roll back together with the transaction, so there
+     * is nothing to undo.
+     *
+     * @param cardId the card id
+     * @param delta  the delta
+     */
+    @Override
+    public void revert(Long cardId, BigDecimal delta) {
+    }
+
+    /**
+     * Settle. The credit is visible to other transactions only once it
+     * commits, so there is nothing to release.
+     *
+     * @param cardId the card id
+     * @param amount the amount
+     */
+    @Override
+    public void settle(Long cardId, BigDecimal amount) {
+    }
+
+    @Override
+    public boolean isInMemory() {
+        return false;
+    }
+
+    @Override
+    public void statusChanged(Long cardId, CardStatus status) {
+    }
+
+    @Override
+    public void evict(Long cardId) {
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.bankcards.service.implementation;
+
+import com.example.bankcards.entity.LedgerEntry;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.repository.BalanceSnapshotRepository;
+import com.example.bankcards.repository.LedgerEntryRepository;
+import com.example.bankcards.service.JobLockService;
+import com.example.bankcards.service.LedgerService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * The type Ledger service.
+ */
+@Slf4j
+@Service
+@Transactional
+public class LedgerServiceImpl implements LedgerService {
+
+    private static final String SNAPSHOT_JOB_NAME = "ledger-snapshot";
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final JobLockService jobLockService;
+    private final long snapshotIntervalMs;
+    private final long snapshotLagMs;
+
+    /**
+     * Instantiates a new Ledger service.
+     *
+     * @param ledgerEntryRepository     the ledger entry repository
+     * @param balanceSnapshotRepository the balance snapshot repository
+     * @param jobLockService            the job lock service
+     * @param snapshotIntervalMs        the interval between snapshot runs, for which the job lock is held
+     * @param snapshotLagMs             how far snapshots lag behind the current time, longer than any transfer transaction
+     */
+    @Autowired
+    public LedgerServiceImpl(LedgerEntryRepository ledgerEntryRepository,
+                             BalanceSnapshotRepository balanceSnapshotRepository,
+                             JobLockService jobLockService,
+                             @Value("${ledger.snapshot.interval-ms:3600000}") long snapshotIntervalMs,
+                             @Value("${ledger.snapshot.lag-ms:60000}") long snapshotLagMs) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.jobLockService = jobLockService;
+        this.snapshotIntervalMs = snapshotIntervalMs;
+        this.snapshotLagMs = snapshotLagMs;
+    }
+
+    /**
+     * Record transfer.
+     *
+     * @param transaction the saved transaction
+     * @param fromBalance the source card balance after the transfer
+     * @param toBalance   the destination card balance after the transfer
+     */
+    @Override
+    public void recordTransfer(Transaction transaction, BigDecimal fromBalance, BigDecimal toBalance) {
+        ledgerEntryRepository.saveAll(List.of(
+                new LedgerEntry(transaction.getFromCard().getId(), transaction.getId(),
+                        transaction.getAmount().negate(), fromBalance),
+                new LedgerEntry(transaction.getToCard().getId(), transaction.getId(),
+                        transaction.getAmount(), toBalance)));
+    }
+
+    /**
+     * Record.
+     *
+     * @param cardId  the card id
+     * @param delta   the signed balance change
+     * @param balance the card balance after the change
+     */
+    @Override
+    public void record(Long cardId, BigDecimal delta, BigDecimal balance) {
+        ledgerEntryRepository.save(new LedgerEntry(cardId, null, delta, balance));
+    }
+
+    /**
+     * Gets balance as of.
+     *
+     * @param cardId the card id
+     * @param asOf   the moment
+     * @return the balance
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public BigDecimal getBalanceAsOf(Long cardId, LocalDateTime asOf) {
+        return balanceSnapshotRepository.findFirstByCardIdAndTakenAtLessThanEqualOrderByTakenAtDesc(cardId, asOf)
+                .map(snapshot -> snapshot.getBalance()
+                        .add(ledgerEntryRepository.sumDeltasBetween(cardId, snapshot.getTakenAt(), asOf)))
+                .orElseGet(() -> ledgerEntryRepository.sumDeltasUpTo(cardId, asOf));
+    }
+
+    /**
+     * Take snapshots. Snapshots lag behind the current time so that entries
+     * of transactions still open at the cut-off are not left out of them.
+     * The job runs on one instance per interval, the one that takes its lock
+     * in the {@code job_lock} table, and takes the snapshots of all changed
+     * cards with a single {@code INSERT ... SELECT}, so no balance is read
+     * into memory.
+     *
+     * @return the number of snapshots taken
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Scheduled(fixedDelayString = "${ledger.snapshot.interval-ms:3600000}",
+            initialDelayString = "${ledger.snapshot.interval-ms:3600000}")
+    public int takeSnapshots() {
+        if (!jobLockService.tryAcquire(SNAPSHOT_JOB_NAME, snapshotIntervalMs)) {
+            return 0;
+        }
+        // Столбец taken_at хранит микросекунды
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(snapshotLagMs * 1_000_000)
+                .truncatedTo(ChronoUnit.MICROS);
+        LocalDateTime previous = balanceSnapshotRepository.findLatestTakenAt();
+        if (previous != null && !cutoff.isAfter(previous)) {
+            return 0;
+        }
+        int taken = previous == null
+                ? balanceSnapshotRepository.insertSnapshotsUpTo(cutoff)
+                : balanceSnapshotRepository.insertSnapshotsBetween(previous, cutoff);
+        log.info("Took {} balance snapshots as of {}", taken, cutoff);
+        return taken;
+    }
+}
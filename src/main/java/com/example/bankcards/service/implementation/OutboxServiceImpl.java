@@ -0,0 +1,163 @@
+package com.example.bankcards.service.implementation;
+
+import com.example.bankcards.dto.response.TransferEvent;
+import com.example.bankcards.entity.OutboxEvent;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.enums.OutboxEventType;
+import com.example.bankcards.repository.OutboxEventRepository;
+import com.example.bankcards.service.OutboxService;
+import com.example.bankcards.service.OutboxSink;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The type Outbox service. Events are inserted by the transfer transaction
+ * and relayed by a background job that claims them in batches with
+ * {@code FOR UPDATE SKIP LOCKED}, publishes them to the {@link OutboxSink}
+ * and deletes them in the same transaction.
+ */
+@Slf4j
+@Service
+public class OutboxServiceImpl implements OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxSink outboxSink;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Counter published;
+    private final Counter failures;
+    private final Timer lag;
+    private final AtomicLong oldestPendingMs = new AtomicLong();
+    private final ReentrantLock relayLock = new ReentrantLock();
+
+    /**
+     * Instantiates a new Outbox service.
+     *
+     * @param outboxEventRepository the outbox event repository
+     * @param outboxSink            the sink events are published to
+     * @param objectMapper          the object mapper
+     * @param transactionTemplate   the transaction template
+     * @param meterRegistry         the meter registry
+     * @param batchSize             the number of events claimed per transaction
+     */
+    @Autowired
+    public OutboxServiceImpl(OutboxEventRepository outboxEventRepository,
+                             OutboxSink outboxSink,
+                             ObjectMapper objectMapper,
+                             TransactionTemplate transactionTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${outbox.relay.batch-size:100}") int batchSize) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxSink = outboxSink;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.published = Counter.builder("bank.outbox.published")
+                .description("Outbox events handed to the sink")
+                .register(meterRegistry);
+        this.failures = Counter.builder("bank.outbox.failures")
+                .description("Outbox batches the sink failed to publish")
+                .register(meterRegistry);
+        this.lag = Timer.builder("bank.outbox.lag")
+                .description("Time from an outbox event being written to it being published")
+                .register(meterRegistry);
+        Gauge.builder("bank.outbox.oldest.pending", oldestPendingMs, AtomicLong::get)
+                .description("Age in milliseconds of the oldest event left in the outbox after the last relay run")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Transfer completed.
+     *
+     * @param transaction the saved transaction
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void transferCompleted(Transaction transaction) {
+        TransferEvent event = new TransferEvent(transaction.getId(), transaction.getFromCard().getId(),
+                transaction.getToCard().getId(), transaction.getAmount(), transaction.getCreatedAt());
+        outboxEventRepository.save(new OutboxEvent(OutboxEventType.TRANSFER_COMPLETED,
+                transaction.getId(), serialize(event)));
+    }
+
+    /**
+     * Relay. Runs on a fixed delay; a run already in progress on this
+     * instance makes a concurrent call return immediately.
+     *
+     * @return the number of events published
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:200}",
+            initialDelayString = "${outbox.relay.interval-ms:200}")
+    public int relay() {
+        if (!relayLock.tryLock()) {
+            return 0;
+        }
+        try {
+            int total = relayPending();
+            oldestPendingMs.set(outboxEventRepository.findFirstByOrderByIdAsc()
+                    .map(event -> Duration.between(event.getCreatedAt(), LocalDateTime.now()).toMillis())
+                    .orElse(0L));
+            return total;
+        } finally {
+            relayLock.unlock();
+        }
+    }
+
+    private int relayPending() {
+        int total = 0;
+        while (true) {
+            List<OutboxEvent> events;
+            try {
+                events = transactionTemplate.execute(status -> relayBatch());
+            } catch (RuntimeException e) {
+                failures.increment();
+                log.warn("Outbox relay failed, events stay queued: {}", e.getMessage());
+                return total;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            events.forEach(event -> lag.record(Duration.between(event.getCreatedAt(), now)));
+            published.increment(events.size());
+            total += events.size();
+            if (events.size() < batchSize) {
+                return total;
+            }
+        }
+    }
+
+    private List<OutboxEvent> relayBatch() {
+        List<OutboxEvent> events = outboxEventRepository.claimBatch(batchSize);
+        if (!events.isEmpty()) {
+            outboxSink.publish(events);
+            outboxEventRepository.deleteAllInBatch(events);
+        }
+        return events;
+    }
+
+    private String serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Value cannot be serialized for the outbox", e);
+        }
+    }
+}
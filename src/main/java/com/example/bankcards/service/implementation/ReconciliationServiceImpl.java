@@ -0,0 +1,163 @@
+package com.example.bankcards.service.implementation;
+
+import com.example.bankcards.entity.enums.TransactionStatus;
+import com.example.bankcards.repository.LedgerEntryRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.projection.TransactionKey;
+import com.example.bankcards.service.ReconciliationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The type Reconciliation service. Pending transactions older than the
+ * threshold are read page by page with keyset pagination on
+ * (created_at, id), served by a partial index over PENDING rows, and every
+ * page is split into chunks resolved in parallel, each in its own
+ * transaction, on a bounded executor.
+ */
+@Slf4j
+@Service
+public class ReconciliationServiceImpl implements ReconciliationService {
+
+    private final TransactionRepository transactionRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long pendingThresholdMs;
+    private final int pageSize;
+    private final int chunkSize;
+    private final ExecutorService executor;
+    private final Counter completed;
+    private final Counter failed;
+
+    /**
+     * Instantiates a new Reconciliation service.
+     *
+     * @param transactionRepository the transaction repository
+     * @param ledgerEntryRepository the ledger entry repository
+     * @param transactionTemplate   the transaction template
+     * @param meterRegistry         the meter registry
+     * @param pendingThresholdMs    how long a transaction stays PENDING before it is resolved
+     * @param pageSize              the number of transactions read per query
+     * @param chunkSize             the number of transactions resolved per transaction
+     * @param threads               the number of chunks resolved in parallel
+     */
+    @Autowired
+    public ReconciliationServiceImpl(TransactionRepository transactionRepository,
+                                     LedgerEntryRepository ledgerEntryRepository,
+                                     TransactionTemplate transactionTemplate,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${reconciler.pending-threshold-ms:600000}") long pendingThresholdMs,
+                                     @Value("${reconciler.page-size:1000}") int pageSize,
+                                     @Value("${reconciler.chunk-size:100}") int chunkSize,
+                                     @Value("${reconciler.threads:4}") int threads) {
+        this.transactionRepository = transactionRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.pendingThresholdMs = pendingThresholdMs;
+        this.pageSize = pageSize;
+        this.chunkSize = chunkSize;
+        AtomicInteger threadNumber = new AtomicInteger();
+        // A full queue makes the scanning thread resolve the chunk itself,
+        // which holds the scan back instead of buffering the whole backlog.
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 2),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "reconciler-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.completed = Counter.builder("bank.reconciler.resolved")
+                .tag("status", TransactionStatus.COMPLETED.name())
+                .description("Stuck pending transactions resolved by the reconciler")
+                .register(meterRegistry);
+        this.failed = Counter.builder("bank.reconciler.resolved")
+                .tag("status", TransactionStatus.FAILED.name())
+                .description("Stuck pending transactions resolved by the reconciler")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reconcile pending.
+     *
+     * @return the number of transactions resolved
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${reconciler.interval-ms:300000}",
+            initialDelayString = "${reconciler.interval-ms:300000}")
+    public int reconcilePending() {
+        LocalDateTime before = LocalDateTime.now().minusNanos(pendingThresholdMs * 1_000_000);
+        AtomicInteger completedCount = new AtomicInteger();
+        AtomicInteger failedCount = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        List<TransactionKey> page = transactionRepository.findKeysByStatus(
+                TransactionStatus.PENDING, before, Limit.of(pageSize));
+        while (!page.isEmpty()) {
+            for (int from = 0; from < page.size(); from += chunkSize) {
+                List<Long> ids = page.subList(from, Math.min(from + chunkSize, page.size())).stream()
+                        .map(TransactionKey::getId)
+                        .toList();
+                futures.add(CompletableFuture.runAsync(() -> resolve(ids, completedCount, failedCount), executor));
+            }
+            if (page.size() < pageSize) {
+                break;
+            }
+            TransactionKey last = page.get(page.size() - 1);
+            page = transactionRepository.findKeysByStatusAfter(TransactionStatus.PENDING, before,
+                    last.getCreatedAt(), last.getId(), Limit.of(pageSize));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        int resolved = completedCount.get() + failedCount.get();
+        if (resolved > 0) {
+            log.info("Reconciled {} pending transactions created before {}: {} completed, {} failed",
+                    resolved, before, completedCount.get(), failedCount.get());
+        }
+        return resolved;
+    }
+
+    private void resolve(List<Long> ids, AtomicInteger completedCount, AtomicInteger failedCount) {
+        int[] resolved = transactionTemplate.execute(status -> {
+            Set<Long> recorded = new HashSet<>(ledgerEntryRepository.findRecordedTransactionIds(ids));
+            List<Long> unrecorded = ids.stream().filter(id -> !recorded.contains(id)).toList();
+            return new int[]{
+                    recorded.isEmpty() ? 0 : transactionRepository.updateStatus(
+                            recorded, TransactionStatus.PENDING, TransactionStatus.COMPLETED),
+                    unrecorded.isEmpty() ? 0 : transactionRepository.updateStatus(
+                            unrecorded, TransactionStatus.PENDING, TransactionStatus.FAILED)};
+        });
+        completedCount.addAndGet(resolved[0]);
+        failedCount.addAndGet(resolved[1]);
+        completed.increment(resolved[0]);
+        failed.increment(resolved[1]);
+    }
+
+    /**
+     * Stops the chunk executor.
+     */
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.bankcards.service.implementation;
+
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.InvalidTokenException;
+import com.example.bankcards.repository.RefreshTokenRepository;
+import com.example.bankcards.service.RefreshTokenService;
+import com.example.bankcards.util.ApiMessages;
+import com.example.bankcards.util.HashUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * The type Refresh token service. Refresh tokens are 256 bit random values;
+ * the table holds their SHA-256 digests only.
+ */
+@Slf4j
+@Service
+public class RefreshTokenServiceImpl implements RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final long refreshExpiration;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Instantiates a new Refresh token service.
+     *
+     * @param refreshTokenRepository the refresh token repository
+     * @param refreshExpiration      the lifetime of a refresh token in milliseconds
+     */
+    @Autowired
+    public RefreshTokenServiceImpl(RefreshTokenRepository refreshTokenRepository,
+                                   @Value("${jwt.refresh-expiration:1209600000}") long refreshExpiration) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.refreshExpiration = refreshExpiration;
+    }
+
+    /**
+     * Issue string.
+     *
+     * @param user the user
+     * @return the refresh token
+     */
+    @Override
+    @Transactional
+    public String issue(User user) {
+        return save(user, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Rotate rotation. The presented row is locked, so of two concurrent
+     * uses of the same token one rotates it and the other sees it used.
+     * {@link InvalidTokenException} is checked and does not roll back, so
+     * the revocation of a reused family is committed.
+     *
+     * @param refreshToken the refresh token
+     * @return the rotation
+     * @throws InvalidTokenException the invalid token exception
+     */
+    @Override
+    @Transactional
+    public Rotation rotate(String refreshToken) throws InvalidTokenException {
+        RefreshToken current = refreshTokenRepository.findByTokenHash(HashUtils.sha256(refreshToken))
+                .orElseThrow(() -> new InvalidTokenException(ApiMessages.REFRESH_TOKEN_INVALID.getMessage()));
+
+        if (current.getUsedAt() != null) {
+            log.warn("Повторное использование refresh-токена, семейство {} отозвано", current.getFamilyId());
+            refreshTokenRepository.deleteByFamilyId(current.getFamilyId());
+            throw new InvalidTokenException(ApiMessages.REFRESH_TOKEN_REUSED.getMessage());
+        }
+        if (!current.getExpiryAt().after(new Date())) {
+            throw new InvalidTokenException(ApiMessages.REFRESH_TOKEN_INVALID.getMessage());
+        }
+
+        current.setUsedAt(new Date());
+        return new Rotation(current.getUser(), save(current.getUser(), current.getFamilyId()));
+    }
+
+    /**
+     * Revoke user.
+     *
+     * @param user the user
+     */
+    @Override
+    public void revokeUser(User user) {
+        refreshTokenRepository.deleteByUser(user);
+    }
+
+    private String save(User user, String familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        refreshTokenRepository.save(new RefreshToken(HashUtils.sha256(token), familyId, user,
+                new Date(System.currentTimeMillis() + refreshExpiration)));
+        return token;
+    }
+}
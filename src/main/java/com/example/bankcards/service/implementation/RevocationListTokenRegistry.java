@@ -0,0 +1,235 @@
+package com.example.bankcards.service.implementation;
+
+import com.example.bankcards.entity.RevokedToken;
+import com.example.bankcards.entity.RevokedUser;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.InvalidTokenException;
+import com.example.bankcards.repository.RevokedTokenRepository;
+import com.example.bankcards.repository.RevokedUserRepository;
+import com.example.bankcards.security.JwtTokenCodec;
+import com.example.bankcards.service.TokenRegistry;
+import com.example.bankcards.util.ApiMessages;
+import com.example.bankcards.util.BloomFilter;
+import com.example.bankcards.util.HashUtils;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The type Revocation list token registry. Any token with a valid signature
+ * and expiry is accepted unless it has been revoked. Revoked tokens are kept
+ * in the {@code revoked_token} table and mirrored in memory, so
+ * {@link #check(String)} does no I/O.
+ * <p>
+ * The in-memory list is a Bloom filter in front of an exact set of token
+ * hashes. Almost every token is not revoked and is rejected by the filter
+ * alone; a filter hit is confirmed against the set. The list is loaded at
+ * startup and then refreshed with the rows revoked since the previous
+ * refresh, so a revocation made on another instance is seen within
+ * {@code jwt.revocation-list.refresh-interval-ms}.
+ * <p>
+ * Revoking a user records the time in the {@code revoked_user} table, and
+ * every token of the user issued before it is rejected until the last of
+ * them expires. Token issue times have a precision of one second, so a
+ * token issued in the same second right after the revocation is rejected
+ * too.
+ */
+@Slf4j
+public class RevocationListTokenRegistry implements TokenRegistry {
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final RevokedUserRepository revokedUserRepository;
+    private final JwtTokenCodec jwtTokenCodec;
+    private final long tokenLifetimeMs;
+    private final int expectedRevocations;
+    private final double falsePositiveRate;
+    private final long refreshOverlapMs;
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private final Map<String, UserRevocation> revokedUsers = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+    private int filterCapacity;
+    private int expiredSinceRebuild;
+    private long lastRefreshAt;
+
+    /**
+     * Instantiates a new Revocation list token registry.
+     *
+     * @param revokedTokenRepository the revoked token repository
+     * @param revokedUserRepository  the revoked user repository
+     * @param jwtTokenCodec          the jwt token codec
+     * @param tokenLifetimeMs        the lifetime of an access token
+     * @param expectedRevocations    the number of live revocations the filter is sized for
+     * @param falsePositiveRate      the false positive rate of the filter at that size
+     * @param refreshOverlapMs       how far before the previous refresh rows are read again,
+     *                               to cover clock skew and late commits
+     */
+    public RevocationListTokenRegistry(RevokedTokenRepository revokedTokenRepository,
+                                       RevokedUserRepository revokedUserRepository,
+                                       JwtTokenCodec jwtTokenCodec,
+                                       long tokenLifetimeMs,
+                                       int expectedRevocations,
+                                       double falsePositiveRate,
+                                       long refreshOverlapMs) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.revokedUserRepository = revokedUserRepository;
+        this.jwtTokenCodec = jwtTokenCodec;
+        this.tokenLifetimeMs = tokenLifetimeMs;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.refreshOverlapMs = refreshOverlapMs;
+        this.filterCapacity = expectedRevocations;
+        this.filter = BloomFilter.create(expectedRevocations, falsePositiveRate);
+    }
+
+    /**
+     * Loads every revocation of an unexpired token and of a user whose
+     * tokens have not all expired.
+     */
+    @PostConstruct
+    public synchronized void load() {
+        long startedAt = System.currentTimeMillis();
+        List<RevokedToken> rows = revokedTokenRepository.findByExpiryAtAfter(new Date(startedAt));
+        revoked.clear();
+        rows.forEach(row -> revoked.put(row.getTokenHash(), row.getExpiryAt().getTime()));
+        rebuild();
+        List<RevokedUser> users = revokedUserRepository.findByExpiryAtAfter(new Date(startedAt));
+        revokedUsers.clear();
+        users.forEach(this::addUser);
+        lastRefreshAt = startedAt;
+        log.info("Loaded {} revoked tokens and {} revoked users", rows.size(), users.size());
+    }
+
+    /**
+     * Reads the revocations made since the previous refresh and drops the
+     * ones whose tokens have expired from memory. Their rows are deleted by
+     * the token cleanup job.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation-list.refresh-interval-ms:5000}",
+            initialDelayString = "${jwt.revocation-list.refresh-interval-ms:5000}")
+    public synchronized void refresh() {
+        long startedAt = System.currentTimeMillis();
+        Date since = new Date(lastRefreshAt - refreshOverlapMs);
+        revokedTokenRepository.findByRevokedAtAfterAndExpiryAtAfter(since, new Date(startedAt))
+                .forEach(row -> add(row.getTokenHash(), row.getExpiryAt().getTime()));
+        revokedUserRepository.findByRevokedAtAfterAndExpiryAtAfter(since, new Date(startedAt))
+                .forEach(this::addUser);
+        lastRefreshAt = startedAt;
+        revokedUsers.values().removeIf(user -> user.expiryAt() <= startedAt);
+
+        int before = revoked.size();
+        revoked.values().removeIf(expiry -> expiry <= startedAt);
+        expiredSinceRebuild += before - revoked.size();
+        if (expiredSinceRebuild > revoked.size() || revoked.size() > filterCapacity) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Register. Issued tokens are not recorded in this mode.
+     *
+     * @param token  the token
+     * @param claims the verified claims of the token
+     */
+    @Override
+    public void register(String token, Claims claims) {
+    }
+
+    /**
+     * Check.
+     *
+     * @param token  the token
+     * @param claims the verified claims of the token
+     * @throws InvalidTokenException the invalid token exception
+     */
+    @Override
+    public void check(String token, Claims claims) throws InvalidTokenException {
+        byte[] digest = HashUtils.sha256(token);
+        if (filter.mightContain(digest) && revoked.containsKey(HexFormat.of().formatHex(digest))) {
+            throw new InvalidTokenException(ApiMessages.TOKEN_REVOKED_ERROR.getMessage());
+        }
+        UserRevocation user = revokedUsers.get(claims.getSubject());
+        if (user != null && (claims.getIssuedAt() == null || claims.getIssuedAt().getTime() < user.revokedAt())) {
+            throw new InvalidTokenException(ApiMessages.TOKEN_REVOKED_ERROR.getMessage());
+        }
+    }
+
+    /**
+     * Is in memory.
+     *
+     * @return the boolean
+     */
+    @Override
+    public boolean isInMemory() {
+        return true;
+    }
+
+    /**
+     * Revoke. Tokens that are expired or not validly signed are rejected
+     * anyway and are not recorded.
+     *
+     * @param token the token
+     */
+    @Override
+    public void revoke(String token) {
+        Date expiry;
+        try {
+            expiry = jwtTokenCodec.parse(token).getExpiration();
+        } catch (JwtException | IllegalArgumentException e) {
+            return;
+        }
+        String hash = HashUtils.sha256Hex(token);
+        if (revokedTokenRepository.insertIfAbsent(hash, expiry, new Date()) == 0) {
+            log.debug("Token already revoked by another instance");
+        }
+        synchronized (this) {
+            add(hash, expiry.getTime());
+        }
+    }
+
+    /**
+     * Revoke user. Issued tokens are not recorded in this mode, so the
+     * revocation covers every token of the user issued before now, until the
+     * last of them expires.
+     *
+     * @param user the user
+     */
+    @Override
+    public void revokeUser(User user) {
+        long now = System.currentTimeMillis();
+        RevokedUser row = revokedUserRepository.save(
+                new RevokedUser(user.getUsername(), new Date(now), new Date(now + tokenLifetimeMs)));
+        addUser(row);
+    }
+
+    private void add(String hash, long expiry) {
+        if (revoked.put(hash, expiry) == null) {
+            filter.put(HexFormat.of().parseHex(hash));
+        }
+    }
+
+    private void addUser(RevokedUser row) {
+        revokedUsers.merge(row.getUsername(),
+                new UserRevocation(row.getRevokedAt().getTime(), row.getExpiryAt().getTime()),
+                (current, added) -> new UserRevocation(Math.max(current.revokedAt(), added.revokedAt()),
+                        Math.max(current.expiryAt(), added.expiryAt())));
+    }
+
+    private void rebuild() {
+        filterCapacity = Math.max(expectedRevocations, revoked.size() * 2);
+        BloomFilter rebuilt = BloomFilter.create(filterCapacity, falsePositiveRate);
+        revoked.keySet().forEach(hash -> rebuilt.put(HexFormat.of().parseHex(hash)));
+        filter = rebuilt;
+        expiredSinceRebuild = 0;
+    }
+
+    private record UserRevocation(long revokedAt, long expiryAt) {
+    }
+}
@@ -0,0 +1,731 @@
+package com.example.bankcards.service.implementation;
+
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.service.BalanceEngine;
+import com.example.bankcards.util.BalanceJournal;
+import com.example.bankcards.util.BalanceJournal.Entry;
+import com.example.bankcards.util.BalanceJournal.Operation;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * The type Sharded balance engine. Cards are partitioned by id across
+ * single-threaded shards that own the balances in memory, so changes to
+ * one card never contend for a lock. Every change is appended to the
+ * shard journal before it is acknowledged, and changed balances are
+ * written to the card table in batches every flush interval.
+ * <p>
+ * The engine assumes it is the only writer of card balances: it must
+ * run on a single application instance, and the balance column of the
+ * card table lags behind it by up to one flush interval.
+ * <p>
+ * A credit is applied before its database transaction commits, so it is
+ * held as pending until it is settled: a debit may not spend it, since a
+ * rollback would then drive the card below zero.
+ * <p>
+ * Cards are read from the card table by a pool of loader threads, never by
+ * a shard, so a slow query holds up only the changes to the card it reads.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "balance.engine", havingValue = "sharded")
+public class ShardedBalanceEngine implements BalanceEngine {
+
+    private static final int MAX_GROUP_SIZE = 256;
+    // The version is left alone so that status changes made through the
+    // entity do not lose their optimistic check to every flush.
+    private static final String UPDATE_BALANCE = "UPDATE card SET balance = ? WHERE id = ?";
+    private static final String SELECT_CARD = "SELECT balance, status FROM card WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Path journalDirectory;
+    private final long flushIntervalMs;
+    private final boolean fsync;
+    private final Shard[] shards;
+    private final AtomicLong references = new AtomicLong(System.currentTimeMillis() << 20);
+    private final List<Path> pendingSegments = new ArrayList<>();
+    private ScheduledExecutorService flusher;
+    private ExecutorService loader;
+    private volatile boolean running;
+
+    /**
+     * Instantiates a new Sharded balance engine.
+     *
+     * @param jdbcTemplate       the jdbc template
+     * @param transactionManager the transaction manager
+     * @param meterRegistry      the meter registry
+     * @param shardCount         the number of shards
+     * @param journalDirectory   the journal directory
+     * @param flushIntervalMs    the interval between writes to the card table
+     * @param fsync              whether every journal flush is forced to the disk
+     */
+    @Autowired
+    public ShardedBalanceEngine(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${balance.sharded.shards:4}") int shardCount,
+                                @Value("${balance.sharded.journal-dir:journal}") String journalDirectory,
+                                @Value("${balance.sharded.flush-interval-ms:200}") long flushIntervalMs,
+                                @Value("${balance.sharded.fsync:false}") boolean fsync) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("balance.sharded.shards must be at least 1");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.journalDirectory = Paths.get(journalDirectory);
+        this.flushIntervalMs = flushIntervalMs;
+        this.fsync = fsync;
+        this.shards = new Shard[shardCount];
+    }
+
+    /**
+     * Applies the journal left by the previous run, then starts the shards
+     * and the flusher.
+     */
+    @PostConstruct
+    public void start() {
+        try {
+            recover();
+            for (int i = 0; i < shards.length; i++) {
+                shards[i] = new Shard(i, new BalanceJournal(journalDirectory, "shard-" + i + "-", fsync));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the balance journal in " + journalDirectory, e);
+        }
+        AtomicLong loaders = new AtomicLong();
+        loader = Executors.newFixedThreadPool(shards.length, runnable -> {
+            Thread thread = new Thread(runnable, "balance-loader-" + loaders.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+        Gauge.builder("bank.balance.queue", this, engine -> {
+                    int size = 0;
+                    for (Shard shard : engine.shards) {
+                        size += shard.queue.size();
+                    }
+                    return size;
+                })
+                .description("Balance changes waiting for a shard")
+                .register(meterRegistry);
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "balance-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Sharded balance engine started with {} shards, journal in {}", shards.length,
+                journalDirectory.toAbsolutePath());
+    }
+
+    /**
+     * Stops accepting changes, lets the shards finish their queues and
+     * writes the remaining balances to the card table.
+     */
+    @PreDestroy
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        flusher.shutdown();
+        loader.shutdown();
+        running = false;
+        try {
+            flusher.awaitTermination(30, TimeUnit.SECONDS);
+            for (Shard shard : shards) {
+                shard.thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while stopping the balance shards, the journal will be replayed on start");
+            return;
+        }
+        List<FlushBatch> batches = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            // The shard thread is gone, so its state can be used here.
+            shard.runRemaining();
+            batches.add(shard.drain());
+            try {
+                shard.journal.close();
+            } catch (IOException e) {
+                log.warn("Failed to close the journal of shard {}", shard.index, e);
+            }
+        }
+        write(batches);
+    }
+
+    @Override
+    public Optional<BigDecimal> debit(Long cardId, BigDecimal amount) {
+        checkRunning();
+        long reference = references.incrementAndGet();
+        return Optional.ofNullable(callLoaded(shardOf(cardId),
+                shard -> shard.debit(cardId, amount, Operation.DEBIT, reference), cardId));
+    }
+
+    @Override
+    public Optional<BigDecimal> credit(Long cardId, BigDecimal amount) {
+        checkRunning();
+        long reference = references.incrementAndGet();
+        return Optional.ofNullable(callLoaded(shardOf(cardId),
+                shard -> shard.credit(cardId, amount, Operation.CREDIT, reference), cardId));
+    }
+
+    /**
+     * Transfer result. Cards on the same shard are updated in one step.
+     * Otherwise the amount is reserved on the source shard, credited on the
+     * destination shard, and the reservation is then committed or released.
+     *
+     * @param fromCardId the from card id
+     * @param toCardId   the to card id
+     * @param amount     the amount
+     * @return the transfer result
+     */
+    @Override
+    public TransferResult transfer(Long fromCardId, Long toCardId, BigDecimal amount) {
+        checkRunning();
+        long reference = references.incrementAndGet();
+        Shard source = shardOf(fromCardId);
+        Shard destination = shardOf(toCardId);
+        if (source == destination) {
+            return callLoaded(source, shard -> shard.transfer(fromCardId, toCardId, amount, reference),
+                    fromCardId, toCardId);
+        }
+        BigDecimal fromBalance = callLoaded(source,
+                shard -> shard.debit(fromCardId, amount, Operation.RESERVE, reference), fromCardId);
+        if (fromBalance == null) {
+            return TransferResult.rejected(TransferOutcome.DEBIT_REJECTED);
+        }
+        BigDecimal toBalance;
+        try {
+            toBalance = callLoaded(destination,
+                    shard -> shard.credit(toCardId, amount, Operation.CREDIT, reference), toCardId);
+        } catch (RuntimeException e) {
+            source.submit(shard -> shard.release(fromCardId, amount, reference));
+            throw e;
+        }
+        if (toBalance == null) {
+            source.call(shard -> shard.release(fromCardId, amount, reference));
+            return TransferResult.rejected(TransferOutcome.CREDIT_REJECTED);
+        }
+        // The commit only closes the reservation in the journal, nobody waits for it.
+        source.submit(shard -> shard.commit(fromCardId, amount, reference));
+        return new TransferResult(TransferOutcome.COMPLETED, fromBalance, toBalance);
+    }
+
+    @Override
+    public void revert(Long cardId, BigDecimal delta) {
+        checkRunning();
+        long reference = references.incrementAndGet();
+        callLoaded(shardOf(cardId), shard -> shard.revert(cardId, delta, reference), cardId);
+    }
+
+    @Override
+    public void settle(Long cardId, BigDecimal amount) {
+        checkRunning();
+        // Nothing is journaled, so nobody waits for it.
+        shardOf(cardId).submit(shard -> shard.settle(cardId, amount));
+    }
+
+    @Override
+    public boolean isInMemory() {
+        return true;
+    }
+
+    @Override
+    public void statusChanged(Long cardId, CardStatus status) {
+        checkRunning();
+        shardOf(cardId).call(shard -> shard.statusChanged(cardId, status));
+    }
+
+    @Override
+    public void evict(Long cardId) {
+        checkRunning();
+        shardOf(cardId).call(shard -> shard.evict(cardId));
+    }
+
+    /**
+     * Writes the balances changed since the last flush to the card table and
+     * deletes the journal segments that covered them.
+     */
+    public synchronized void flush() {
+        if (!running) {
+            return;
+        }
+        List<FlushBatch> batches = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            batches.add(shard.call(Shard::drain));
+        }
+        try {
+            write(batches);
+        } catch (RuntimeException e) {
+            // The segments stay on disk until a later flush writes these cards.
+            for (int i = 0; i < shards.length; i++) {
+                Map<Long, BigDecimal> balances = batches.get(i).balances;
+                shards[i].submit(shard -> shard.restore(balances));
+            }
+            throw e;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Failed to write balances to the card table, will retry: {}", e.getMessage());
+        }
+    }
+
+    private void write(List<FlushBatch> batches) {
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        for (FlushBatch batch : batches) {
+            balances.putAll(batch.balances);
+            if (batch.segment != null) {
+                pendingSegments.add(batch.segment);
+            }
+        }
+        if (!balances.isEmpty()) {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            writeBalances(balances);
+            sample.stop(Timer.builder("bank.balance.flush")
+                    .description("Writes of in-memory balances to the card table")
+                    .register(meterRegistry));
+        }
+        for (Path segment : pendingSegments) {
+            try {
+                Files.deleteIfExists(segment);
+            } catch (IOException e) {
+                log.warn("Failed to delete journal segment {}", segment, e);
+            }
+        }
+        pendingSegments.clear();
+    }
+
+    private void writeBalances(Map<Long, BigDecimal> balances) {
+        List<Object[]> arguments = new ArrayList<>(balances.size());
+        balances.forEach((cardId, balance) -> arguments.add(new Object[]{balance, cardId}));
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPDATE_BALANCE, arguments));
+    }
+
+    private void recover() throws IOException {
+        List<Path> segments = BalanceJournal.segments(journalDirectory);
+        if (segments.isEmpty()) {
+            return;
+        }
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        Map<Long, Entry> reservations = new LinkedHashMap<>();
+        for (Path segment : segments) {
+            BalanceJournal.replay(segment, entry -> {
+                switch (entry.getOperation()) {
+                    case RESERVE -> reservations.put(entry.getReference(), entry);
+                    case COMMIT, RELEASE -> reservations.remove(entry.getReference());
+                    default -> {
+                    }
+                }
+                if (entry.getOperation() != Operation.COMMIT) {
+                    balances.put(entry.getCardId(), entry.getBalance());
+                }
+            });
+        }
+        writeBalances(balances);
+        for (Entry reservation : reservations.values()) {
+            log.warn("Transfer {} reserved {} on card {} but was not committed before shutdown",
+                    reservation.getReference(), reservation.getAmount(), reservation.getCardId());
+        }
+        for (Path segment : segments) {
+            Files.delete(segment);
+        }
+        log.info("Recovered {} card balances from {} journal segments", balances.size(), segments.size());
+    }
+
+    private void checkRunning() {
+        if (!running) {
+            throw new IllegalStateException("Balance engine is not running");
+        }
+    }
+
+    private Shard shardOf(Long cardId) {
+        return shards[Math.floorMod(Long.hashCode(cardId), shards.length)];
+    }
+
+    /**
+     * Runs an operation on the shard once the cards it needs are in memory.
+     * Cards the shard does not hold are read by the loader and handed to it
+     * with the next attempt; if a card was evicted or changed its status
+     * meanwhile, what was read may be stale and is read again.
+     */
+    private <T> T callLoaded(Shard shard, Function<Shard, T> operation, Long... cardIds) {
+        Map<Long, CardState> loaded = Map.of();
+        long loadedAt = -1;
+        while (true) {
+            Map<Long, CardState> supplied = loaded;
+            long suppliedAt = loadedAt;
+            Loading<T> loading = shard.call(s -> s.runLoaded(supplied, suppliedAt, cardIds, operation));
+            if (loading.missing.isEmpty()) {
+                return loading.result;
+            }
+            loaded = load(loading.missing);
+            loadedAt = loading.invalidations;
+        }
+    }
+
+    private Map<Long, CardState> load(List<Long> cardIds) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                // A card missing from the table is loaded as null and rejected by the shard.
+                Map<Long, CardState> cards = new HashMap<>();
+                for (Long cardId : cardIds) {
+                    cards.put(cardId, jdbcTemplate.query(SELECT_CARD, rs -> rs.next()
+                            ? new CardState(rs.getBigDecimal(1), parseStatus(rs.getString(2)))
+                            : null, cardId));
+                }
+                return cards;
+            }, loader).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static CardStatus parseStatus(String status) {
+        return status == null ? null : CardStatus.valueOf(status);
+    }
+
+    private static final class CardState {
+        private BigDecimal balance;
+        private CardStatus status;
+        // Credited but not yet settled, part of the balance but not spendable.
+        private BigDecimal pending = BigDecimal.ZERO;
+
+        private CardState(BigDecimal balance, CardStatus status) {
+            this.balance = balance;
+            this.status = status;
+        }
+    }
+
+    private static final class Loading<T> {
+        private final T result;
+        private final List<Long> missing;
+        private final long invalidations;
+
+        private Loading(T result, List<Long> missing, long invalidations) {
+            this.result = result;
+            this.missing = missing;
+            this.invalidations = invalidations;
+        }
+    }
+
+    private static final class FlushBatch {
+        private final Map<Long, BigDecimal> balances;
+        private final Path segment;
+
+        private FlushBatch(Map<Long, BigDecimal> balances, Path segment) {
+            this.balances = balances;
+            this.segment = segment;
+        }
+    }
+
+    private static final class Command<T> {
+        private final Function<Shard, T> operation;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+        private RuntimeException error;
+
+        private Command(Function<Shard, T> operation) {
+            this.operation = operation;
+        }
+
+        private void run(Shard shard) {
+            try {
+                result = operation.apply(shard);
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+
+        private void complete() {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+
+    /**
+     * A shard owns the cards mapped to it. All fields are confined to the
+     * shard thread.
+     */
+    private final class Shard implements Runnable {
+        private final int index;
+        private final BalanceJournal journal;
+        private final BlockingQueue<Command<?>> queue = new LinkedBlockingQueue<>();
+        private final Map<Long, CardState> cards = new HashMap<>();
+        private final Thread thread;
+        private Map<Long, BigDecimal> dirty = new HashMap<>();
+        // Evictions and status changes, after which cards read before them may be stale.
+        private long invalidations;
+        private volatile boolean failed;
+
+        private Shard(int index, BalanceJournal journal) {
+            this.index = index;
+            this.journal = journal;
+            this.thread = new Thread(this, "balance-shard-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        private <T> CompletableFuture<T> submit(Function<Shard, T> operation) {
+            if (failed || !thread.isAlive()) {
+                throw new IllegalStateException("Balance shard " + index + " is not accepting changes");
+            }
+            Command<T> command = new Command<>(operation);
+            queue.add(command);
+            return command.future;
+        }
+
+        private <T> T call(Function<Shard, T> operation) {
+            try {
+                return submit(operation).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * Runs queued commands in groups: the journal is flushed once per
+         * group and the callers are answered only after that.
+         */
+        @Override
+        public void run() {
+            List<Command<?>> group = new ArrayList<>(MAX_GROUP_SIZE);
+            while (running || !queue.isEmpty()) {
+                Command<?> first;
+                try {
+                    first = queue.poll(50, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, MAX_GROUP_SIZE - 1);
+                execute(group);
+                group.clear();
+            }
+        }
+
+        private void execute(List<Command<?>> group) {
+            for (Command<?> command : group) {
+                command.run(this);
+            }
+            try {
+                journal.flush();
+                group.forEach(Command::complete);
+            } catch (IOException e) {
+                // Changes already applied in memory are no longer durable,
+                // so the shard stops rather than acknowledge any more.
+                failed = true;
+                log.error("Balance shard {} failed to write its journal and stopped", index, e);
+                group.forEach(command -> command.future.completeExceptionally(new UncheckedIOException(e)));
+            }
+        }
+
+        private void runRemaining() {
+            List<Command<?>> group = new ArrayList<>();
+            queue.drainTo(group);
+            if (!group.isEmpty()) {
+                execute(group);
+            }
+        }
+
+        private <T> Loading<T> runLoaded(Map<Long, CardState> supplied, long suppliedAt, Long[] cardIds,
+                                         Function<Shard, T> operation) {
+            boolean current = suppliedAt == invalidations;
+            if (current) {
+                // Cards loaded meanwhile by another caller are newer and win.
+                supplied.forEach((cardId, card) -> {
+                    if (card != null) {
+                        cards.putIfAbsent(cardId, card);
+                    }
+                });
+            }
+            List<Long> missing = new ArrayList<>();
+            for (Long cardId : cardIds) {
+                if (!cards.containsKey(cardId) && !(current && supplied.containsKey(cardId))) {
+                    missing.add(cardId);
+                }
+            }
+            if (!missing.isEmpty()) {
+                return new Loading<>(null, missing, invalidations);
+            }
+            return new Loading<>(operation.apply(this), missing, invalidations);
+        }
+
+        private BigDecimal debit(Long cardId, BigDecimal amount, Operation operation, long reference) {
+            CardState card = cards.get(cardId);
+            if (card == null || card.status != CardStatus.ACTIVE
+                    || card.balance.subtract(card.pending).compareTo(amount) < 0) {
+                return null;
+            }
+            return apply(operation, cardId, card, card.balance.subtract(amount), amount, reference);
+        }
+
+        private BigDecimal credit(Long cardId, BigDecimal amount, Operation operation, long reference) {
+            CardState card = cards.get(cardId);
+            if (card == null || card.status != CardStatus.ACTIVE) {
+                return null;
+            }
+            BigDecimal balance = apply(operation, cardId, card, card.balance.add(amount), amount, reference);
+            card.pending = card.pending.add(amount);
+            return balance;
+        }
+
+        private TransferResult transfer(Long fromCardId, Long toCardId, BigDecimal amount, long reference) {
+            CardState to = cards.get(toCardId);
+            if (to == null || to.status != CardStatus.ACTIVE) {
+                return TransferResult.rejected(TransferOutcome.CREDIT_REJECTED);
+            }
+            BigDecimal fromBalance = debit(fromCardId, amount, Operation.DEBIT, reference);
+            if (fromBalance == null) {
+                return TransferResult.rejected(TransferOutcome.DEBIT_REJECTED);
+            }
+            BigDecimal toBalance = credit(toCardId, amount, Operation.CREDIT, reference);
+            return new TransferResult(TransferOutcome.COMPLETED, fromBalance, toBalance);
+        }
+
+        private Void release(Long cardId, BigDecimal amount, long reference) {
+            // A refund ignores the status, the card may have been blocked meanwhile.
+            CardState card = cards.get(cardId);
+            if (card == null) {
+                log.warn("Card {} was deleted before transfer {} released {}", cardId, reference, amount);
+                return null;
+            }
+            apply(Operation.RELEASE, cardId, card, card.balance.add(amount), amount, reference);
+            return null;
+        }
+
+        private Void revert(Long cardId, BigDecimal delta, long reference) {
+            // Like a refund, the revert ignores the status and the balance.
+            CardState card = cards.get(cardId);
+            if (card == null) {
+                log.warn("Card {} was deleted before {} could be reverted", cardId, delta);
+                return null;
+            }
+            Operation operation = delta.signum() < 0 ? Operation.DEBIT : Operation.CREDIT;
+            apply(operation, cardId, card, card.balance.add(delta), delta.abs(), reference);
+            if (delta.signum() < 0) {
+                // A credit rolled back, so it will never be settled.
+                card.pending = card.pending.add(delta).max(BigDecimal.ZERO);
+            }
+            return null;
+        }
+
+        private Void settle(Long cardId, BigDecimal amount) {
+            CardState card = cards.get(cardId);
+            if (card != null) {
+                card.pending = card.pending.subtract(amount).max(BigDecimal.ZERO);
+            }
+            return null;
+        }
+
+        private Void commit(Long cardId, BigDecimal amount, long reference) {
+            append(new Entry(Operation.COMMIT, cardId, amount, BigDecimal.ZERO, reference));
+            return null;
+        }
+
+        private Void statusChanged(Long cardId, CardStatus status) {
+            CardState card = cards.get(cardId);
+            if (card != null) {
+                card.status = status;
+            }
+            invalidations++;
+            return null;
+        }
+
+        private Void evict(Long cardId) {
+            cards.remove(cardId);
+            dirty.remove(cardId);
+            invalidations++;
+            return null;
+        }
+
+        private FlushBatch drain() {
+            Map<Long, BigDecimal> balances = dirty;
+            dirty = new HashMap<>();
+            try {
+                return new FlushBatch(balances, journal.rotate());
+            } catch (IOException e) {
+                dirty = balances;
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private Void restore(Map<Long, BigDecimal> balances) {
+            // Balances changed after the failed flush are newer and win.
+            balances.forEach(dirty::putIfAbsent);
+            return null;
+        }
+
+        private BigDecimal apply(Operation operation, Long cardId, CardState card, BigDecimal balance,
+                                 BigDecimal amount, long reference) {
+            append(new Entry(operation, cardId, amount, balance, reference));
+            card.balance = balance;
+            dirty.put(cardId, balance);
+            return balance;
+        }
+
+        private void append(Entry entry) {
+            try {
+                journal.append(entry);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.bankcards.service.implementation;
+
+import com.example.bankcards.repository.RefreshTokenRepository;
+import com.example.bankcards.repository.RevokedTokenRepository;
+import com.example.bankcards.repository.RevokedUserRepository;
+import com.example.bankcards.repository.TokenRepository;
+import com.example.bankcards.service.JobLockService;
+import com.example.bankcards.service.TokenCleanupService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * The type Token cleanup service. Expired tokens are rejected by their
+ * expiry and otherwise left in the {@code token}, {@code refresh_token},
+ * {@code revoked_token} and {@code revoked_user} tables only until a caller presents them again, so
+ * a background job deletes them. The job runs on one instance per interval,
+ * the one that takes its lock in the {@code job_lock} table. Each chunk of
+ * {@code chunkSize} rows is read through the index on {@code expiry_at} and
+ * deleted by id in its own transaction, so a sweep never holds locks on more
+ * than one chunk; a run stops after {@code maxChunks} chunks per table and
+ * the next run continues.
+ */
+@Slf4j
+@Service
+public class TokenCleanupServiceImpl implements TokenCleanupService {
+
+    private static final String JOB_NAME = "token-cleanup";
+
+    private final TokenRepository tokenRepository;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final RevokedUserRepository revokedUserRepository;
+    private final JobLockService jobLockService;
+    private final long intervalMs;
+    private final int chunkSize;
+    private final int maxChunks;
+    private final Counter purgedTokens;
+    private final Counter purgedRefreshTokens;
+    private final Counter purgedRevokedTokens;
+    private final Counter purgedRevokedUsers;
+    private final Timer sweep;
+    private final ReentrantLock sweepLock = new ReentrantLock();
+
+    /**
+     * Instantiates a new Token cleanup service.
+     *
+     * @param tokenRepository        the token repository
+     * @param refreshTokenRepository the refresh token repository
+     * @param revokedTokenRepository the revoked token repository
+     * @param revokedUserRepository  the revoked user repository
+     * @param jobLockService         the job lock service
+     * @param meterRegistry          the meter registry
+     * @param intervalMs             the interval between runs, for which the job lock is held
+     * @param chunkSize              the number of rows deleted per transaction
+     * @param maxChunks              the number of chunks deleted per table and run
+     */
+    @Autowired
+    public TokenCleanupServiceImpl(TokenRepository tokenRepository,
+                                   RefreshTokenRepository refreshTokenRepository,
+                                   RevokedTokenRepository revokedTokenRepository,
+                                   RevokedUserRepository revokedUserRepository,
+                                   JobLockService jobLockService,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${token.cleanup.interval-ms:600000}") long intervalMs,
+                                   @Value("${token.cleanup.chunk-size:500}") int chunkSize,
+                                   @Value("${token.cleanup.max-chunks:100}") int maxChunks) {
+        this.tokenRepository = tokenRepository;
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.revokedUserRepository = revokedUserRepository;
+        this.jobLockService = jobLockService;
+        this.intervalMs = intervalMs;
+        this.chunkSize = chunkSize;
+        this.maxChunks = maxChunks;
+        this.purgedTokens = purgedCounter(meterRegistry, "token");
+        this.purgedRefreshTokens = purgedCounter(meterRegistry, "refresh_token");
+        this.purgedRevokedTokens = purgedCounter(meterRegistry, "revoked_token");
+        this.purgedRevokedUsers = purgedCounter(meterRegistry, "revoked_user");
+        this.sweep = Timer.builder("bank.token.sweep")
+                .description("Duration of an expired token sweep")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Purge expired. Runs on a fixed delay; a run already in progress on
+     * this instance, or a run on another instance within the interval, makes
+     * a call return immediately.
+     *
+     * @return the number of deleted rows
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${token.cleanup.interval-ms:600000}",
+            initialDelayString = "${token.cleanup.interval-ms:600000}")
+    public int purgeExpired() {
+        if (!sweepLock.tryLock()) {
+            return 0;
+        }
+        try {
+            if (!jobLockService.tryAcquire(JOB_NAME, intervalMs)) {
+                return 0;
+            }
+            Date now = new Date();
+            Supplier<Integer> purge = () ->
+                    purgeChunks(now, tokenRepository::findExpiredIds, tokenRepository::deleteByIdIn, purgedTokens)
+                            + purgeChunks(now, refreshTokenRepository::findExpiredIds,
+                            refreshTokenRepository::deleteByIdIn, purgedRefreshTokens)
+                            + purgeChunks(now, revokedTokenRepository::findExpiredHashes,
+                            revokedTokenRepository::deleteByTokenHashIn, purgedRevokedTokens)
+                            + purgeChunks(now, revokedUserRepository::findExpiredIds,
+                            revokedUserRepository::deleteByIdIn, purgedRevokedUsers);
+            int total = sweep.record(purge);
+            if (total > 0) {
+                log.info("Удалено истекших токенов: {}", total);
+            }
+            return total;
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    private <K> int purgeChunks(Date now, BiFunction<Date, Pageable, List<K>> findExpiredIds,
+                                ToIntFunction<List<K>> deleteByIdIn, Counter purged) {
+        int total = 0;
+        for (int chunk = 0; chunk < maxChunks; chunk++) {
+            List<K> ids = findExpiredIds.apply(now, PageRequest.of(0, chunkSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            int deleted = deleteByIdIn.applyAsInt(ids);
+            purged.increment(deleted);
+            total += deleted;
+            if (ids.size() < chunkSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private static Counter purgedCounter(MeterRegistry meterRegistry, String table) {
+        return Counter.builder("bank.token.purged")
+                .description("Expired tokens deleted by the sweeper")
+                .tag("table", table)
+                .register(meterRegistry);
+    }
+}
@@ -1,29 +1,28 @@
 package com.example.bankcards.service.implementation;
 
-import com.example.bankcards.entity.Token;
+import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.InvalidTokenException;
-import com.example.bankcards.repository.TokenRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.TokenRegistry;
 import com.example.bankcards.service.TokenService;
 
-import static org.springframework.security.core.userdetails.User.withUsername;
-
-import java.security.Key;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import com.example.bankcards.security.JwtPrincipal;
+import com.example.bankcards.security.JwtTokenCodec;
+import com.example.bankcards.security.TokenValidationCache;
 import com.example.bankcards.util.ApiMessages;
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
@@ -36,14 +35,13 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class TokenServiceImpl implements TokenService {
 
-    @Value("${jwt.secret}")
-    private String secret;
-
     @Value("${jwt.expiration}")
     private long expiration;
 
     private final UserRepository userRepository;
-    private final TokenRepository tokenRepository;
+    private final TokenRegistry tokenRegistry;
+    private final JwtTokenCodec jwtTokenCodec;
+    private final TokenValidationCache tokenValidationCache;
 
 
     /**
@@ -83,18 +81,15 @@ public class TokenServiceImpl implements TokenService {
         log.info("Generating token for user: " + userDetails.getUsername());
         return doGenerateToken(userDetails, expiry);
     }
-    private Key key() {
-        byte[] keyBytes = Decoders.BASE64.decode(secret);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
     private String doGenerateToken(UserDetails userDetails, Date expiry) {
-        return Jwts.builder().subject(userDetails.getUsername())
-                .issuedAt(new Date())
-                .claim("authorities", userDetails.getAuthorities().stream()
-                        .map(GrantedAuthority::getAuthority)
-                        .collect(Collectors.toList()))
-                .expiration(expiry)
-                .signWith(key()).compact();
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(JwtPrincipal.AUTHORITIES_CLAIM, userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toList()));
+        if (userDetails instanceof User user && user.getId() != null) {
+            claims.put(JwtPrincipal.USER_ID_CLAIM, user.getId());
+        }
+        return jwtTokenCodec.sign(userDetails.getUsername(), claims, expiry);
     }
 
     /**
@@ -106,14 +101,9 @@ public class TokenServiceImpl implements TokenService {
      */
     @Override
     public UserDetails loadUserByUsername(String accountNumber) throws UsernameNotFoundException {
-        val user = userRepository.findByUsername(accountNumber)
+        return userRepository.findByUsername(accountNumber)
                 .orElseThrow(() -> new UsernameNotFoundException(
                         String.format(ApiMessages.USER_NOT_FOUND_BY_ACCOUNT.getMessage(), accountNumber)));
-
-        return withUsername(accountNumber)
-                .password(user.getPassword())
-                .authorities(String.valueOf(user.getRole()))
-                .build();
     }
 
     /**
@@ -144,13 +134,19 @@ public class TokenServiceImpl implements TokenService {
         val claims = getAllClaimsFromToken(token);
         return claimsResolver.apply(claims);
     }
-    private Claims getAllClaimsFromToken(String token) throws InvalidTokenException {
+
+    /**
+     * Gets all claims from token. The token is verified once; callers that
+     * need several claims read them from the result.
+     *
+     * @param token the token
+     * @return the claims
+     * @throws InvalidTokenException the invalid token exception
+     */
+    @Override
+    public Claims getAllClaimsFromToken(String token) throws InvalidTokenException {
         try {
-            return Jwts.parser()
-                    .setSigningKey(key())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            return jwtTokenCodec.parse(token);
         } catch (ExpiredJwtException e) {
             invalidateToken(token);
 
@@ -178,24 +174,7 @@ public class TokenServiceImpl implements TokenService {
      */
     @Override
     public void saveToken(String token) throws InvalidTokenException {
-        if (tokenRepository.findByToken(token) != null) {
-            throw new InvalidTokenException(ApiMessages.TOKEN_ALREADY_EXISTS_ERROR.getMessage());
-        }
-        if (userRepository.findByUsername(
-                getUsernameFromToken(token)).isPresent()) {
-
-            val user = userRepository.findByUsername(
-                    getUsernameFromToken(token)).get();
-
-            log.info("Сохранение токена для юзера: " + user.getUsername());
-
-            val tokenObj = new Token(
-                    token,
-                    getExpirationDateFromToken(token),
-                    user);
-
-            tokenRepository.save(tokenObj);
-        }
+        tokenRegistry.register(token, getAllClaimsFromToken(token));
     }
 
     /**
@@ -206,22 +185,34 @@ public class TokenServiceImpl implements TokenService {
      */
     @Override
     public void validateToken(String token) throws InvalidTokenException {
-        if (tokenRepository.findByToken(token) == null) {
-            throw new InvalidTokenException(ApiMessages.TOKEN_NOT_FOUND_ERROR.getMessage());
-        }
+        verifyToken(token);
+    }
+
+    /**
+     * Verifies the signature and expiry of a token, checks that the token
+     * registry still accepts it and returns its claims.
+     *
+     * @param token the token
+     * @return the claims
+     * @throws InvalidTokenException the invalid token exception
+     */
+    @Override
+    public Claims verifyToken(String token) throws InvalidTokenException {
+        val claims = getAllClaimsFromToken(token);
+        tokenRegistry.check(token, claims);
+        return claims;
     }
 
     /**
-     * Invalidate token.
+     * Invalidate token. The token is revoked before it is evicted, so a
+     * request validating it in between cannot cache it again.
      *
      * @param token the token
      */
     @Override
-    @Transactional
     public void invalidateToken(String token) {
-        if (tokenRepository.findByToken(token) != null) {
-            tokenRepository.deleteByToken(token);
-        }
+        tokenRegistry.revoke(token);
+        tokenValidationCache.evict(token);
     }
 
 }
\ No newline at end of file
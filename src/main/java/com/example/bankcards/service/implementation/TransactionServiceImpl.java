@@ -1,25 +1,54 @@
 package com.example.bankcards.service.implementation;
 
+import com.example.bankcards.dto.request.BatchTransferItem;
+import com.example.bankcards.dto.request.BatchTransferRequest;
 import com.example.bankcards.dto.request.TransactionRequest;
+import com.example.bankcards.dto.response.BatchTransferItemResult;
+import com.example.bankcards.dto.response.CursorPage;
 import com.example.bankcards.dto.response.TransactionResponse;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.Transaction;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.entity.enums.TransactionStatus;
 import com.example.bankcards.exception.ActiveCardsException;
+import com.example.bankcards.exception.CardAccessDeniedException;
+import com.example.bankcards.exception.CardException;
 import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.exception.InvalidCursorException;
 import com.example.bankcards.exception.TransferException;
 import com.example.bankcards.mapper.Mapper;
 import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.service.BalanceEngine;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.LedgerService;
+import com.example.bankcards.service.OutboxService;
 import com.example.bankcards.service.TransactionService;
 import com.example.bankcards.util.ApiMessages;
+import com.example.bankcards.util.PageCursor;
+import com.example.bankcards.util.RetryPolicy;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * The type Transaction service.
@@ -29,9 +58,15 @@ import java.util.List;
 @RequiredArgsConstructor(onConstructor = @__(@Autowired))
 public class TransactionServiceImpl implements TransactionService {
 
+    private static final String USER_TRANSACTIONS = "user-transactions";
+
     private final TransactionRepository transactionRepository;
     private final CardService cardService;
+    private final LedgerService ledgerService;
+    private final OutboxService outboxService;
     private final Mapper mapper;
+    private final RetryPolicy retryPolicy;
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * Gets all transactions.
@@ -56,6 +91,44 @@ public class TransactionServiceImpl implements TransactionService {
         return transactionRepository.findByFromAccountUserIdOrToAccountUserId(userId, userId);
     }
 
+    /**
+     * Gets user transactions paginated.
+     *
+     * @param userId   the user id
+     * @param pageable the pageable
+     * @return the user transactions paginated
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Page<TransactionResponse> getUserTransactionsPaginated(Long userId, Pageable pageable) {
+        return transactionRepository.findResponsesByUserId(userId, pageable);
+    }
+
+    /**
+     * Gets a keyset page of the user transactions, newest first. The cursor
+     * holds the (created at, id) of the last transaction of the previous
+     * page, and the next page starts strictly before it.
+     *
+     * @param userId the user id
+     * @param cursor the cursor of the previous page, or null for the first page
+     * @param size   the page size
+     * @return the page
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<TransactionResponse> getUserTransactionsByCursor(Long userId, String cursor, int size) {
+        Limit limit = Limit.of(size + 1);
+        List<TransactionResponse> rows;
+        if (cursor == null) {
+            rows = transactionRepository.findResponsesByUserId(userId, limit);
+        } else {
+            PageCursor last = PageCursor.decode(cursor, USER_TRANSACTIONS);
+            rows = transactionRepository.findResponsesByUserIdBefore(userId, parseCreatedAt(last), last.getId(), limit);
+        }
+        return CursorPage.of(rows, size, transaction ->
+                new PageCursor(USER_TRANSACTIONS, transaction.getId(), transaction.getCreatedAt().toString()));
+    }
+
     /**
      * Gets pending transactions.
      *
@@ -68,53 +141,233 @@ public class TransactionServiceImpl implements TransactionService {
     }
 
     /**
-     * Transfer between cards transaction response.
+     * Transfer between cards transaction response. Each attempt runs in its
+     * own transaction and is retried when it loses a concurrent update.
      *
      * @param transactionRequest the transaction request
      * @return the transaction response
      */
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public TransactionResponse transferBetweenCards(TransactionRequest transactionRequest) {
-        Card fromCard = cardService.getCardById(transactionRequest.getFromCardId())
-                .orElseThrow(() -> new TransferException(ApiMessages.SOURCE_ACCOUNT_NOT_FOUND.getMessage()));
+        return transferBetweenCards(transactionRequest, response -> { });
+    }
 
-        Card toCard = cardService.getCardById(transactionRequest.getToCardId())
-                .orElseThrow(() -> new TransferException(ApiMessages.DESTINATION_ACCOUNT_NOT_FOUND.getMessage()));
+    /**
+     * Transfer between cards transaction response. The callback runs at the
+     * end of every attempt, inside its transaction.
+     *
+     * @param transactionRequest the transaction request
+     * @param onCompleted        the callback run before the commit
+     * @return the transaction response
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public TransactionResponse transferBetweenCards(TransactionRequest transactionRequest,
+                                                    Consumer<TransactionResponse> onCompleted) {
+        return retryPolicy.execute("transfer", () -> transactionTemplate.execute(status -> {
+            TransactionResponse response = transfer(transactionRequest);
+            onCompleted.accept(response);
+            return response;
+        }));
+    }
 
+    private TransactionResponse transfer(TransactionRequest transactionRequest) {
+        Long fromCardId = transactionRequest.getFromCardId();
+        Long toCardId = transactionRequest.getToCardId();
+        BigDecimal amount = transactionRequest.getAmount();
 
-        if (fromCard.getId().equals(toCard.getId())) {
-            throw new TransferException("Cannot transfer to the same card");
+        if (fromCardId.equals(toCardId)) {
+            throw new TransferException(ApiMessages.SAME_CARD_TRANSFER.getMessage());
         }
 
-        if (fromCard.getBalance().compareTo(transactionRequest.getAmount()) < 0) {
-            throw new InsufficientFundsException(fromCard.getBalance(), transactionRequest.getAmount());
+        // The balances move first: the conditional updates also check that
+        // both cards exist and are active, so the cards are never loaded.
+        // The inserts below and the commit can still fail; the database
+        // then undoes the updates, and balances held in memory are moved
+        // back by the card service once the rollback completes.
+        BalanceEngine.TransferResult result = cardService.transferBalance(fromCardId, toCardId, amount);
+        BalanceEngine.TransferOutcome outcome = result.getOutcome();
+        if (outcome == BalanceEngine.TransferOutcome.DEBIT_REJECTED) {
+            Card source = findSourceCard(fromCardId);
+            if (source.getStatus() != CardStatus.ACTIVE) {
+                throw new ActiveCardsException(source.getStatus(), findDestinationCard(toCardId).getStatus());
+            }
+            throw new InsufficientFundsException(source.getBalance(), amount);
         }
-        if (fromCard.getStatus() != CardStatus.ACTIVE || toCard.getStatus() != CardStatus.ACTIVE) {
-            throw new ActiveCardsException(fromCard.getStatus(), toCard.getStatus());
+        if (outcome == BalanceEngine.TransferOutcome.CREDIT_REJECTED) {
+            throw new ActiveCardsException(findSourceCard(fromCardId).getStatus(),
+                    findDestinationCard(toCardId).getStatus());
         }
 
         Transaction transaction = new Transaction();
-        transaction.setAmount(transactionRequest.getAmount());
-        transaction.setFromCard(fromCard);
-        transaction.setToCard(toCard);
+        transaction.setAmount(amount);
+        transaction.setFromCard(cardService.getCardReference(fromCardId));
+        transaction.setToCard(cardService.getCardReference(toCardId));
         transaction.setDescription(transactionRequest.getDescription());
-        transaction.setStatus(TransactionStatus.PENDING);
+        transaction.setStatus(TransactionStatus.COMPLETED);
+        Transaction saved = transactionRepository.save(transaction);
+        outboxService.transferCompleted(saved);
+        ledgerService.recordTransfer(saved, result.getFromBalance(), result.getToBalance());
 
-        Transaction savedTransaction = transactionRepository.save(transaction);
+        if (result.getFromMaskedNumber() == null || result.getToMaskedNumber() == null) {
+            return mapper.dtoToResponse(saved);
+        }
+        return new TransactionResponse(saved.getId(), saved.getAmount(), result.getFromMaskedNumber(),
+                result.getToMaskedNumber(), saved.getDescription(), saved.getStatus().name(), saved.getCreatedAt());
+    }
 
-        try {
-            cardService.withdrawFromCard(transactionRequest.getFromCardId(), transactionRequest.getAmount());
-            cardService.depositToCard(transactionRequest.getToCardId(), transactionRequest.getAmount());
+    /**
+     * Transfer batch. All cards of the batch are locked with one query in id
+     * order, balances are moved in memory and the transactions with their
+     * ledger entries and outbox events are inserted in JDBC batches, all
+     * within one database transaction. Items that cannot be applied are
+     * rejected one by one without failing the rest. When the balances are held in memory, every
+     * item is transferred on its own.
+     *
+     * @param userId               the id of the user who owns the source card
+     * @param batchTransferRequest the batch transfer request
+     * @return the results in request order
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<BatchTransferItemResult> transferBatch(Long userId, BatchTransferRequest batchTransferRequest) {
+        if (cardService.balancesInMemory()) {
+            return transferEach(userId, batchTransferRequest);
+        }
+        return retryPolicy.execute("transfer-batch",
+                () -> transactionTemplate.execute(status -> transferAll(userId, batchTransferRequest)));
+    }
+
+    private List<BatchTransferItemResult> transferAll(Long userId, BatchTransferRequest batchTransferRequest) {
+        Long fromCardId = batchTransferRequest.getFromCardId();
+        List<BatchTransferItem> items = batchTransferRequest.getTransfers();
+
+        Set<Long> cardIds = new HashSet<>();
+        cardIds.add(fromCardId);
+        items.forEach(item -> cardIds.add(item.getToCardId()));
+        Map<Long, Card> cards = cardService.getCardsByIdsForUpdate(cardIds).stream()
+                .collect(Collectors.toMap(Card::getId, Function.identity()));
+
+        Card fromCard = cards.get(fromCardId);
+        if (fromCard == null) {
+            throw new TransferException(ApiMessages.SOURCE_ACCOUNT_NOT_FOUND.getMessage());
+        }
+        checkSource(userId, fromCard);
+
+        Transaction[] transactions = new Transaction[items.size()];
+        BigDecimal[][] balances = new BigDecimal[items.size()][];
+        String[] errors = new String[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            BatchTransferItem item = items.get(i);
+            Card toCard = cards.get(item.getToCardId());
+            errors[i] = rejectionReason(fromCard, toCard, item.getAmount());
+            if (errors[i] != null) {
+                continue;
+            }
+            fromCard.setBalance(fromCard.getBalance().subtract(item.getAmount()));
+            toCard.setBalance(toCard.getBalance().add(item.getAmount()));
+            balances[i] = new BigDecimal[]{fromCard.getBalance(), toCard.getBalance()};
+
+            Transaction transaction = new Transaction();
+            transaction.setAmount(item.getAmount());
+            transaction.setFromCard(fromCard);
+            transaction.setToCard(toCard);
+            transaction.setDescription(item.getDescription());
+            transaction.setStatus(TransactionStatus.COMPLETED);
+            transactions[i] = transaction;
+        }
+
+        transactionRepository.saveAll(Arrays.stream(transactions).filter(Objects::nonNull).toList());
+        for (int i = 0; i < transactions.length; i++) {
+            if (transactions[i] != null) {
+                ledgerService.recordTransfer(transactions[i], balances[i][0], balances[i][1]);
+                outboxService.transferCompleted(transactions[i]);
+            }
+        }
 
-            savedTransaction.setStatus(TransactionStatus.COMPLETED);
-            Transaction transactionResp = transactionRepository.save(savedTransaction);
-            return mapper.dtoToResponse(transactionResp);
+        List<BatchTransferItemResult> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            BatchTransferItem item = items.get(i);
+            results.add(transactions[i] != null
+                    ? new BatchTransferItemResult(i, item.getToCardId(), item.getAmount(),
+                    TransactionStatus.COMPLETED.name(), null, mapper.dtoToResponse(transactions[i]))
+                    : new BatchTransferItemResult(i, item.getToCardId(), item.getAmount(),
+                    TransactionStatus.FAILED.name(), errors[i], null));
+        }
+        return results;
+    }
+
+    private List<BatchTransferItemResult> transferEach(Long userId, BatchTransferRequest batchTransferRequest) {
+        Long fromCardId = batchTransferRequest.getFromCardId();
+        Card fromCard = cardService.getCardById(fromCardId)
+                .orElseThrow(() -> new TransferException(ApiMessages.SOURCE_ACCOUNT_NOT_FOUND.getMessage()));
+        checkSource(userId, fromCard);
 
-        } catch (Exception e) {
-            savedTransaction.setStatus(TransactionStatus.FAILED);
-            transactionRepository.save(savedTransaction);
-            throw new TransferException(ApiMessages.TRANSACTION_FAILED.getMessage());
+        List<BatchTransferItem> items = batchTransferRequest.getTransfers();
+        List<BatchTransferItemResult> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            BatchTransferItem item = items.get(i);
+            TransactionRequest request = new TransactionRequest();
+            request.setFromCardId(fromCardId);
+            request.setToCardId(item.getToCardId());
+            request.setAmount(item.getAmount());
+            request.setDescription(item.getDescription());
+            try {
+                TransactionResponse response = transactionTemplate.execute(status -> transfer(request));
+                results.add(new BatchTransferItemResult(i, item.getToCardId(), item.getAmount(),
+                        TransactionStatus.COMPLETED.name(), null, response));
+            } catch (TransferException | ActiveCardsException | InsufficientFundsException e) {
+                results.add(new BatchTransferItemResult(i, item.getToCardId(), item.getAmount(),
+                        TransactionStatus.FAILED.name(), e.getMessage(), null));
+            }
+        }
+        return results;
+    }
+
+    private void checkSource(Long userId, Card fromCard) {
+        if (fromCard.getUser() == null || !fromCard.getUser().getId().equals(userId)) {
+            throw new CardAccessDeniedException(ApiMessages.CARD_ACCESS_DENIED.getMessage());
+        }
+        if (fromCard.getStatus() != CardStatus.ACTIVE) {
+            throw new CardException(String.format(ApiMessages.CARD_NOT_ACTIVE.getMessage(), fromCard.getStatus()));
+        }
+    }
+
+    private String rejectionReason(Card fromCard, Card toCard, BigDecimal amount) {
+        if (toCard == null) {
+            return ApiMessages.DESTINATION_ACCOUNT_NOT_FOUND.getMessage();
+        }
+        if (toCard == fromCard) {
+            return ApiMessages.SAME_CARD_TRANSFER.getMessage();
+        }
+        if (toCard.getStatus() != CardStatus.ACTIVE) {
+            return String.format(ApiMessages.CARD_NOT_ACTIVE.getMessage(), toCard.getStatus());
+        }
+        if (fromCard.getBalance().compareTo(amount) < 0) {
+            return String.format(ApiMessages.INSUFFICIENT_FUNDS.getMessage(), fromCard.getBalance(), amount);
+        }
+        return null;
+    }
+
+    private Card findSourceCard(Long cardId) {
+        return cardService.getCardById(cardId)
+                .orElseThrow(() -> new TransferException(ApiMessages.SOURCE_ACCOUNT_NOT_FOUND.getMessage()));
+    }
+
+    private Card findDestinationCard(Long cardId) {
+        return cardService.getCardById(cardId)
+                .orElseThrow(() -> new TransferException(ApiMessages.DESTINATION_ACCOUNT_NOT_FOUND.getMessage()));
+    }
+
+    private static LocalDateTime parseCreatedAt(PageCursor cursor) {
+        if (cursor.getSortValue() == null) {
+            throw new InvalidCursorException(ApiMessages.INVALID_CURSOR.getMessage());
+        }
+        try {
+            return LocalDateTime.parse(cursor.getSortValue());
+        } catch (DateTimeParseException e) {
+            throw new InvalidCursorException(ApiMessages.INVALID_CURSOR.getMessage());
         }
     }
 
@@ -7,6 +7,9 @@ import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.UserNotFoundException;
 import com.example.bankcards.mapper.Mapper;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.TokenValidationCache;
+import com.example.bankcards.service.RefreshTokenService;
+import com.example.bankcards.service.TokenRegistry;
 import com.example.bankcards.service.UserService;
 import com.example.bankcards.util.ApiMessages;
 import lombok.RequiredArgsConstructor;
@@ -31,6 +34,9 @@ public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final Mapper mapper;
+    private final TokenValidationCache tokenValidationCache;
+    private final TokenRegistry tokenRegistry;
+    private final RefreshTokenService refreshTokenService;
 
     /**
      * Gets all users.
@@ -104,19 +110,30 @@ public class UserServiceImpl implements UserService {
                     user.setFirstName(userDetails.getFirstName());
                     user.setLastName(userDetails.getLastName());
                     user.setEmail(userDetails.getEmail());
+                    if (user.getRole() != userDetails.getRole()) {
+                        tokenRegistry.revokeUser(user);
+                        refreshTokenService.revokeUser(user);
+                    }
                     user.setRole(userDetails.getRole());
+                    tokenValidationCache.evictUser(user.getUsername());
                     return userRepository.save(user);
                 })
                 .orElseThrow(() -> new UserNotFoundException(ApiMessages.USER_NOT_FOUND.getMessage()));
     }
 
     /**
-     * Delete user.
+     * Delete user. The tokens of the user are revoked first, so they are not
+     * accepted until they expire.
      *
      * @param id the id
      */
     @Override
     public void deleteUser(Long id) {
+        userRepository.findById(id).ifPresent(user -> {
+            tokenRegistry.revokeUser(user);
+            refreshTokenService.revokeUser(user);
+            tokenValidationCache.evictUser(user.getUsername());
+        });
         userRepository.deleteById(id);
     }
 
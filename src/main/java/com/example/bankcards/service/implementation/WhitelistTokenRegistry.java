@@ -0,0 +1,98 @@
+package com.example.bankcards.service.implementation;
+
+import com.example.bankcards.entity.Token;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.InvalidTokenException;
+import com.example.bankcards.repository.TokenRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.TokenRegistry;
+import com.example.bankcards.util.ApiMessages;
+import com.example.bankcards.util.HashUtils;
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * The type Whitelist token registry. Every issued token is stored in the
+ * {@code token} table, keyed by its SHA-256 digest, and a token is accepted
+ * only while its row exists, which costs a database lookup per validation.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class WhitelistTokenRegistry implements TokenRegistry {
+
+    private final TokenRepository tokenRepository;
+    private final UserRepository userRepository;
+
+    /**
+     * Register.
+     *
+     * @param token  the token
+     * @param claims the verified claims of the token
+     * @throws InvalidTokenException the invalid token exception
+     */
+    @Override
+    public void register(String token, Claims claims) throws InvalidTokenException {
+        val tokenHash = HashUtils.sha256(token);
+        if (tokenRepository.existsByTokenHash(tokenHash)) {
+            throw new InvalidTokenException(ApiMessages.TOKEN_ALREADY_EXISTS_ERROR.getMessage());
+        }
+        userRepository.findByUsername(claims.getSubject()).ifPresent(user -> {
+            log.info("Сохранение токена для юзера: " + user.getUsername());
+
+            val tokenObj = new Token(
+                    tokenHash,
+                    claims.getExpiration(),
+                    user);
+
+            tokenRepository.save(tokenObj);
+        });
+    }
+
+    /**
+     * Check.
+     *
+     * @param token  the token
+     * @param claims the verified claims of the token
+     * @throws InvalidTokenException the invalid token exception
+     */
+    @Override
+    public void check(String token, Claims claims) throws InvalidTokenException {
+        if (!tokenRepository.existsByTokenHash(HashUtils.sha256(token))) {
+            throw new InvalidTokenException(ApiMessages.TOKEN_NOT_FOUND_ERROR.getMessage());
+        }
+    }
+
+    /**
+     * Is in memory. Every check reads the token table.
+     *
+     * @return the boolean
+     */
+    @Override
+    public boolean isInMemory() {
+        return false;
+    }
+
+    /**
+     * Revoke.
+     *
+     * @param token the token
+     */
+    @Override
+    public void revoke(String token) {
+        tokenRepository.deleteByTokenHash(HashUtils.sha256(token));
+    }
+
+    /**
+     * Revoke user.
+     *
+     * @param user the user
+     */
+    @Override
+    @Transactional
+    public void revokeUser(User user) {
+        tokenRepository.deleteByUser(user);
+    }
+}
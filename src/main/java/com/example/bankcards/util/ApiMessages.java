@@ -32,6 +32,10 @@ public enum ApiMessages {
      * The Token not found error.
      */
     TOKEN_NOT_FOUND_ERROR("Token not found"),
+    /**
+     * The Token revoked error.
+     */
+    TOKEN_REVOKED_ERROR("Token has been revoked"),
     /**
      * The Token signature invalid error.
      */
@@ -67,7 +71,55 @@ public enum ApiMessages {
     /**
      * The Card not found.
      */
-    CARD_NOT_FOUND("Card not found");
+    CARD_NOT_FOUND("Card not found"),
+    /**
+     * The Card not active.
+     */
+    CARD_NOT_ACTIVE("Card is not active. Card status: %s"),
+    /**
+     * The Card access denied.
+     */
+    CARD_ACCESS_DENIED("Card does not belong to the current user"),
+    /**
+     * The Idempotency key invalid.
+     */
+    IDEMPOTENCY_KEY_INVALID("Idempotency-Key must be between 1 and 255 characters"),
+    /**
+     * The Idempotency key reused.
+     */
+    IDEMPOTENCY_KEY_REUSED("Idempotency-Key was already used for a different request"),
+    /**
+     * The Idempotency request in progress.
+     */
+    IDEMPOTENCY_REQUEST_IN_PROGRESS("A request with this Idempotency-Key is still being processed"),
+    /**
+     * The Same card transfer.
+     */
+    SAME_CARD_TRANSFER("Cannot transfer to the same card"),
+    /**
+     * The Insufficient funds.
+     */
+    INSUFFICIENT_FUNDS("Insufficient funds. Available: %s, Requested: %s"),
+    /**
+     * The Password hashing busy.
+     */
+    PASSWORD_HASHING_BUSY("Too many sign-in requests, please retry later"),
+    /**
+     * The Rate limit exceeded.
+     */
+    RATE_LIMIT_EXCEEDED("Too many requests, please retry later"),
+    /**
+     * The Refresh token invalid.
+     */
+    REFRESH_TOKEN_INVALID("Refresh token is invalid or expired"),
+    /**
+     * The Refresh token reused.
+     */
+    REFRESH_TOKEN_REUSED("Refresh token has already been used"),
+    /**
+     * The Invalid cursor.
+     */
+    INVALID_CURSOR("Cursor is malformed or belongs to another listing");
 
 
     @Getter
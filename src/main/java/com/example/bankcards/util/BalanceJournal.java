@@ -0,0 +1,214 @@
+package com.example.bankcards.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Append-only journal of balance changes made by one shard of the in-memory
+ * balance engine. The journal is split into segments: a segment is rotated
+ * out before its balances are written to the card table and may be deleted
+ * once they are, so only changes not yet persisted stay on disk.
+ * Not thread-safe, every instance is used by a single shard thread.
+ */
+@Slf4j
+public class BalanceJournal implements Closeable {
+
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final String prefix;
+    private final boolean fsync;
+    private long segment;
+    private Path current;
+    private FileOutputStream stream;
+    private BufferedWriter writer;
+    private boolean empty;
+
+    /**
+     * The enum Operation.
+     */
+    public enum Operation {
+        /**
+         * Debit operation.
+         */
+        DEBIT,
+        /**
+         * Credit operation.
+         */
+        CREDIT,
+        /**
+         * Debit of the source card that opens a cross-shard transfer.
+         */
+        RESERVE,
+        /**
+         * Refund of a reservation whose credit was rejected.
+         */
+        RELEASE,
+        /**
+         * Closes a reservation whose credit was applied.
+         */
+        COMMIT
+    }
+
+    /**
+     * The type Entry.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Entry {
+        private final Operation operation;
+        private final Long cardId;
+        private final BigDecimal amount;
+        private final BigDecimal balance;
+        private final long reference;
+
+        private String format() {
+            return operation + "," + cardId + "," + amount.toPlainString() + ","
+                    + balance.toPlainString() + "," + reference;
+        }
+
+        private static Entry parse(String line) {
+            String[] fields = line.split(",");
+            if (fields.length != 5) {
+                throw new IllegalArgumentException("Malformed journal line: " + line);
+            }
+            return new Entry(Operation.valueOf(fields[0]), Long.valueOf(fields[1]),
+                    new BigDecimal(fields[2]), new BigDecimal(fields[3]), Long.parseLong(fields[4]));
+        }
+    }
+
+    /**
+     * Instantiates a new Balance journal and opens its first segment.
+     *
+     * @param directory the journal directory
+     * @param prefix    the segment file prefix, unique per shard
+     * @param fsync     whether every flush forces the segment to the disk
+     * @throws IOException the io exception
+     */
+    public BalanceJournal(Path directory, String prefix, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.fsync = fsync;
+        this.segment = System.currentTimeMillis();
+        Files.createDirectories(directory);
+        open();
+    }
+
+    /**
+     * Appends an entry to the current segment. The entry is durable only
+     * after the next {@link #flush()}.
+     *
+     * @param entry the entry
+     * @throws IOException the io exception
+     */
+    public void append(Entry entry) throws IOException {
+        writer.write(entry.format());
+        writer.newLine();
+        empty = false;
+    }
+
+    /**
+     * Flushes appended entries to the file.
+     *
+     * @throws IOException the io exception
+     */
+    public void flush() throws IOException {
+        writer.flush();
+        if (fsync) {
+            stream.getChannel().force(false);
+        }
+    }
+
+    /**
+     * Closes the current segment and opens a new one.
+     *
+     * @return the closed segment, or null if it had no entries
+     * @throws IOException the io exception
+     */
+    public Path rotate() throws IOException {
+        if (empty) {
+            return null;
+        }
+        Path closed = current;
+        close();
+        segment++;
+        open();
+        return closed;
+    }
+
+    /**
+     * Closes the current segment, deleting it if it has no entries.
+     *
+     * @throws IOException the io exception
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        writer.close();
+        if (empty) {
+            Files.deleteIfExists(current);
+        }
+    }
+
+    private void open() throws IOException {
+        current = directory.resolve(String.format("%s%020d%s", prefix, segment, SUFFIX));
+        stream = new FileOutputStream(current.toFile(), true);
+        writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+        empty = true;
+    }
+
+    /**
+     * Lists the segments left in the directory, oldest first within a prefix.
+     *
+     * @param directory the journal directory
+     * @return the segments
+     * @throws IOException the io exception
+     */
+    public static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Replays the entries of a segment in the order they were written. A line
+     * torn by a crash in the middle of a write is skipped.
+     *
+     * @param segment  the segment
+     * @param consumer the consumer
+     * @throws IOException the io exception
+     */
+    public static void replay(Path segment, Consumer<Entry> consumer) throws IOException {
+        try (Stream<String> lines = Files.lines(segment, StandardCharsets.UTF_8)) {
+            lines.filter(line -> !line.isBlank()).forEach(line -> {
+                Entry entry;
+                try {
+                    entry = Entry.parse(line);
+                } catch (IllegalArgumentException e) {
+                    log.warn("Skipping unreadable line in {}: {}", segment, line);
+                    return;
+                }
+                consumer.accept(entry);
+            });
+        }
+    }
+}
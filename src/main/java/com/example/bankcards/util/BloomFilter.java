@@ -0,0 +1,82 @@
+package com.example.bankcards.util;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over values that are already uniformly distributed digests,
+ * such as SHA-256 hashes. The bit positions are derived from the first 16
+ * bytes of the digest by double hashing, so no further hashing is done.
+ * <p>
+ * Reads and writes are lock free; a value put by one thread is seen by
+ * {@link #mightContain(byte[])} on any thread once {@code put} returns.
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    private BloomFilter(long bitCount, int hashCount) {
+        this.bits = new AtomicLongArray((int) ((bitCount + 63) >>> 6));
+        this.bitCount = bitCount;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * Creates a filter sized for the given number of values.
+     *
+     * @param expectedInsertions the expected number of values
+     * @param falsePositiveRate  the false positive rate at that number of values
+     * @return the bloom filter
+     */
+    public static BloomFilter create(int expectedInsertions, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+        }
+        long n = Math.max(1, expectedInsertions);
+        long bitCount = Math.max(64, (long) (-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+        int hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        return new BloomFilter(bitCount, hashCount);
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param digest the digest of the value, at least 16 bytes
+     */
+    public void put(byte[] digest) {
+        ByteBuffer buffer = ByteBuffer.wrap(digest);
+        long h1 = buffer.getLong();
+        long h2 = buffer.getLong();
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current;
+            do {
+                current = bits.get(word);
+            } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    /**
+     * Tells whether the value may have been added. {@code false} is exact;
+     * {@code true} is wrong with roughly the configured false positive rate.
+     *
+     * @param digest the digest of the value, at least 16 bytes
+     * @return whether the value may have been added
+     */
+    public boolean mightContain(byte[] digest) {
+        ByteBuffer buffer = ByteBuffer.wrap(digest);
+        long h1 = buffer.getLong();
+        long h2 = buffer.getLong();
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.bankcards.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+/**
+ * A thread-safe, size-bounded map that evicts the least recently used entry
+ * once the capacity is reached.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class BoundedLruCache<K, V> {
+
+    private final int capacity;
+    private final LinkedHashMap<K, V> entries;
+
+    /**
+     * Instantiates a new Bounded lru cache.
+     *
+     * @param capacity the maximum number of entries
+     */
+    public BoundedLruCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > BoundedLruCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Gets the value and marks it as recently used.
+     *
+     * @param key the key
+     * @return the value or null
+     */
+    public synchronized V get(K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Put.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    public synchronized void put(K key, V value) {
+        entries.put(key, value);
+    }
+
+    /**
+     * Remove.
+     *
+     * @param key the key
+     */
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Removes every entry matching the predicate. Walks the whole cache.
+     *
+     * @param predicate the predicate
+     */
+    public synchronized void removeIf(BiPredicate<? super K, ? super V> predicate) {
+        entries.entrySet().removeIf(entry -> predicate.test(entry.getKey(), entry.getValue()));
+    }
+
+    /**
+     * Size int.
+     *
+     * @return the int
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+}
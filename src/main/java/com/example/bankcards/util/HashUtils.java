@@ -0,0 +1,39 @@
+package com.example.bankcards.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 helpers.
+ */
+public final class HashUtils {
+
+    private HashUtils() {
+    }
+
+    /**
+     * Sha 256 digest of the UTF-8 bytes of the value.
+     *
+     * @param value the value
+     * @return the 32 byte digest
+     */
+    public static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Sha 256 digest as a lowercase hex string.
+     *
+     * @param value the value
+     * @return the 64 character hex string
+     */
+    public static String sha256Hex(String value) {
+        return HexFormat.of().formatHex(sha256(value));
+    }
+}
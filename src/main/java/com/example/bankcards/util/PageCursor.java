@@ -0,0 +1,67 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.exception.InvalidCursorException;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * The type Page cursor. It marks the last row of a keyset page: the listing
+ * it belongs to, the id that breaks ties and the value of the sort key, if
+ * the listing is not sorted by id alone. Clients receive it as an opaque
+ * Base64url string and pass it back unchanged to get the next page.
+ */
+@Getter
+public final class PageCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final String listing;
+    private final long id;
+    private final String sortValue;
+
+    /**
+     * Instantiates a new Page cursor.
+     *
+     * @param listing   the listing the cursor belongs to
+     * @param id        the id of the last row
+     * @param sortValue the sort key of the last row, or null for listings sorted by id
+     */
+    public PageCursor(String listing, long id, String sortValue) {
+        this.listing = listing;
+        this.id = id;
+        this.sortValue = sortValue;
+    }
+
+    /**
+     * Encodes the cursor.
+     *
+     * @return the opaque cursor
+     */
+    public String encode() {
+        String raw = listing + SEPARATOR + id + SEPARATOR + (sortValue != null ? sortValue : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor issued for a listing.
+     *
+     * @param cursor  the opaque cursor
+     * @param listing the listing it must belong to
+     * @return the cursor
+     * @throws InvalidCursorException if the cursor is malformed or belongs to another listing
+     */
+    public static PageCursor decode(String cursor, String listing) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, 3);
+            if (parts.length != 3 || !parts[0].equals(listing)) {
+                throw new InvalidCursorException(ApiMessages.INVALID_CURSOR.getMessage());
+            }
+            return new PageCursor(listing, Long.parseLong(parts[1]), parts[2].isEmpty() ? null : parts[2]);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(ApiMessages.INVALID_CURSOR.getMessage());
+        }
+    }
+}
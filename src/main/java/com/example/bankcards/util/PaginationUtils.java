@@ -1,11 +1,14 @@
 package com.example.bankcards.util;
 
+import com.example.bankcards.dto.response.CursorPage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -14,6 +17,50 @@ import java.util.Map;
 @Component
 public class PaginationUtils {
 
+    /**
+     * The pagination mode that pages by cursor instead of by page number.
+     */
+    public static final String KEYSET = "keyset";
+
+    /**
+     * The pagination mode that reports whether a next page exists instead of
+     * the total count.
+     */
+    public static final String SLICE = "slice";
+
+    private static final int DEFAULT_SIZE = 10;
+
+    /**
+     * Is keyset boolean. A cursor implies keyset pagination.
+     *
+     * @param pagination the pagination mode
+     * @param cursor     the cursor
+     * @return the boolean
+     */
+    public boolean isKeyset(String pagination, String cursor) {
+        return cursor != null || KEYSET.equalsIgnoreCase(pagination);
+    }
+
+    /**
+     * Is slice boolean.
+     *
+     * @param pagination the pagination mode
+     * @return the boolean
+     */
+    public boolean isSlice(String pagination) {
+        return SLICE.equalsIgnoreCase(pagination);
+    }
+
+    /**
+     * Resolve size int.
+     *
+     * @param size the size
+     * @return the size, or the default one
+     */
+    public int resolveSize(Integer size) {
+        return size == null || size < 1 ? DEFAULT_SIZE : size;
+    }
+
     /**
      * Create pageable pageable.
      *
@@ -24,8 +71,8 @@ public class PaginationUtils {
      * @return the pageable
      */
     public Pageable createPageable(Integer page, Integer size, String sortBy, String direction) {
-        if (page == null) page = 0;
-        if (size == null) size = 10;
+        if (page == null || page < 1) page = 1;
+        if (size == null) size = DEFAULT_SIZE;
         if (sortBy == null) sortBy = "id";
         
         Sort.Direction sortDirection = "desc".equalsIgnoreCase(direction) 
@@ -51,4 +98,38 @@ public class PaginationUtils {
             "last", page.isLast()
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * Build slice response map. Unlike a page, a slice is read without a
+     * count query, so it tells only whether a next page exists.
+     *
+     * @param slice the slice
+     * @return the map
+     */
+    public Map<String, Object> buildSliceResponse(Slice<?> slice) {
+        return Map.of(
+            "content", slice.getContent(),
+            "currentPage", slice.getNumber(),
+            "size", slice.getSize(),
+            "first", slice.isFirst(),
+            "last", slice.isLast(),
+            "hasNext", slice.hasNext()
+        );
+    }
+
+    /**
+     * Build cursor response map. There is no total count: the client pages
+     * on while {@code nextCursor} is present.
+     *
+     * @param page the page
+     * @return the map
+     */
+    public Map<String, Object> buildCursorResponse(CursorPage<?> page) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("content", page.getContent());
+        response.put("size", page.getContent().size());
+        response.put("hasNext", page.hasNext());
+        response.put("nextCursor", page.getNextCursor());
+        return response;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.bankcards.util;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The interface Pooled lo sequence. Generates the annotated id with
+ * {@link PooledLoSequenceGenerator} from the named sequence.
+ */
+@IdGeneratorType(PooledLoSequenceGenerator.class)
+@Target({ ElementType.FIELD })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PooledLoSequence {
+    /**
+     * Sequence name string.
+     *
+     * @return the string
+     */
+    String name();
+
+    /**
+     * Allocation size int, unless the {@code bank.id.allocation-size.<sequence name>}
+     * setting overrides it.
+     *
+     * @return the int
+     */
+    int allocationSize() default 50;
+}
@@ -0,0 +1,63 @@
+package com.example.bankcards.util;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.lang.reflect.Member;
+import java.util.Properties;
+
+/**
+ * Sequence generator with the pooled-lo optimizer whose allocation size is
+ * read from the {@code bank.id.allocation-size.<sequence name>} setting, so
+ * it can follow the sequence increment configured for the migrations. One
+ * nextval call reserves a whole block of ids, and because ids are known
+ * before the insert Hibernate can batch the inserts. Ids are mapped to it
+ * with {@link PooledLoSequence}.
+ */
+public class PooledLoSequenceGenerator extends SequenceStyleGenerator {
+
+    /**
+     * The prefix of the per sequence allocation size setting.
+     */
+    public static final String ALLOCATION_SIZE_SETTING_PREFIX = "bank.id.allocation-size.";
+
+    private final PooledLoSequence config;
+
+    /**
+     * Instantiates a new Pooled lo sequence generator.
+     *
+     * @param config  the annotation on the id
+     * @param member  the id field
+     * @param context the creation context
+     */
+    public PooledLoSequenceGenerator(PooledLoSequence config, Member member,
+                                     CustomIdGeneratorCreationContext context) {
+        this.config = config;
+    }
+
+    /**
+     * Configure.
+     *
+     * @param type            the type
+     * @param parameters      the parameters
+     * @param serviceRegistry the service registry
+     * @throws MappingException the mapping exception
+     */
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        String sequenceName = config.name();
+        Object allocationSize = serviceRegistry.requireService(ConfigurationService.class)
+                .getSettings()
+                .get(ALLOCATION_SIZE_SETTING_PREFIX + sequenceName);
+        parameters.setProperty(SEQUENCE_PARAM, sequenceName);
+        parameters.setProperty(INCREMENT_PARAM,
+                allocationSize != null ? allocationSize.toString() : String.valueOf(config.allocationSize()));
+        parameters.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, parameters, serviceRegistry);
+    }
+}
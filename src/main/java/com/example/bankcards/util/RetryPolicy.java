@@ -0,0 +1,123 @@
+package com.example.bankcards.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Bounded retry with exponential backoff and full jitter for operations that
+ * lose an optimistic version check or a row lock to a concurrent writer.
+ * Every call of the action must run in its own transaction.
+ */
+@Slf4j
+@Component
+public class RetryPolicy {
+
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Instantiates a new Retry policy.
+     *
+     * @param maxAttempts      the max attempts, including the first one
+     * @param initialBackoffMs the backoff cap before the second attempt
+     * @param maxBackoffMs     the upper bound of the backoff cap
+     * @param meterRegistry    the meter registry
+     */
+    @Autowired
+    public RetryPolicy(@Value("${transfer.retry.max-attempts:3}") int maxAttempts,
+                       @Value("${transfer.retry.initial-backoff-ms:10}") long initialBackoffMs,
+                       @Value("${transfer.retry.max-backoff-ms:200}") long maxBackoffMs,
+                       MeterRegistry meterRegistry) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("transfer.retry.max-attempts must be at least 1");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Runs the action, retrying it on concurrency failures until it succeeds
+     * or the attempts run out.
+     *
+     * @param <T>       the type parameter
+     * @param operation the operation name used as a metric tag
+     * @param action    the action
+     * @return the action result
+     */
+    public <T> T execute(String operation, Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = action.get();
+                if (attempt > 1) {
+                    counter(operation, "recovered").increment();
+                }
+                return result;
+            } catch (RuntimeException e) {
+                if (!isRetryable(e)) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    counter(operation, "exhausted").increment();
+                    log.warn("{} failed after {} attempts: {}", operation, attempt, e.getMessage());
+                    throw e;
+                }
+                counter(operation, "retried").increment();
+                log.debug("{} attempt {} lost a concurrent update, retrying", operation, attempt);
+                sleep(backoff(attempt));
+            }
+        }
+    }
+
+    /**
+     * Returns a random delay between zero and the exponential cap for the attempt.
+     *
+     * @param attempt the failed attempt number, starting at 1
+     * @return the delay in milliseconds
+     */
+    long backoff(int attempt) {
+        long cap = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+        return cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private boolean isRetryable(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ConcurrencyFailureException || t instanceof OptimisticLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Counter counter(String operation, String outcome) {
+        return Counter.builder("bank.retry")
+                .description("Retries of operations that lost a concurrent update")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private void sleep(long millis) {
+        if (millis == 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry", e);
+        }
+    }
+}
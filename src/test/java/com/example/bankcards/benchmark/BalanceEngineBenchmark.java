@@ -0,0 +1,119 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankingportalApplication;
+import com.example.bankcards.dto.request.TransactionRequest;
+import com.example.bankcards.dto.response.TransactionResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleEnum;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.BalanceEngine;
+import com.example.bankcards.service.TransactionService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfer throughput between a few hot cards with eight concurrent callers,
+ * for the JPA balance engine and the sharded in-memory one. The engine
+ * benchmark measures balance changes alone, the transfer benchmark the full
+ * transfer including the transaction row. Runs against the in-memory H2 of
+ * the test profile, so row lock waits on a networked PostgreSQL widen the gap.
+ *
+ * <p>Run with {@code mvn -Pbenchmark -DskipTests verify -Dbenchmark.include=BalanceEngineBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class BalanceEngineBenchmark {
+
+    private static final int HOT_CARDS = 4;
+
+    @Param({"jpa", "sharded"})
+    public String engine;
+
+    private ConfigurableApplicationContext context;
+    private BalanceEngine balanceEngine;
+    private TransactionService transactionService;
+    private Path journalDirectory;
+    private final List<Long> cardIds = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        journalDirectory = Files.createTempDirectory("balance-journal");
+        context = new SpringApplicationBuilder(BankingportalApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.example.bankcards=WARN",
+                        "--spring.datasource.url=jdbc:h2:mem:bench-" + engine + ";DB_CLOSE_ON_EXIT=FALSE;LOCK_TIMEOUT=10000",
+                        "--balance.engine=" + engine,
+                        "--balance.sharded.journal-dir=" + journalDirectory);
+        balanceEngine = context.getBean(BalanceEngine.class);
+        transactionService = context.getBean(TransactionService.class);
+
+        User user = context.getBean(UserRepository.class).save(User.builder()
+                .username("benchmark")
+                .password("password")
+                .email("benchmark@example.com")
+                .firstName("Benchmark")
+                .lastName("User")
+                .role(RoleEnum.ROLE_USER)
+                .build());
+        CardRepository cardRepository = context.getBean(CardRepository.class);
+        for (int i = 0; i < HOT_CARDS; i++) {
+            Card card = new Card();
+            card.setUser(user);
+            card.setCardNumber("420000000000000" + i);
+            card.setMaskedNumber("**** **** **** 000" + i);
+            card.setCurrency("RUB");
+            card.setExpiryDate(LocalDate.now().plusYears(3));
+            card.setStatus(CardStatus.ACTIVE);
+            card.setBalance(new BigDecimal("1000000000.00"));
+            cardIds.add(cardRepository.save(card).getId());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        FileSystemUtils.deleteRecursively(journalDirectory.toFile());
+    }
+
+    @Benchmark
+    public BalanceEngine.TransferResult engineTransfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(HOT_CARDS);
+        int to = (from + 1 + random.nextInt(HOT_CARDS - 1)) % HOT_CARDS;
+        return balanceEngine.transfer(cardIds.get(from), cardIds.get(to), BigDecimal.ONE);
+    }
+
+    @Benchmark
+    public TransactionResponse transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(HOT_CARDS);
+        int to = (from + 1 + random.nextInt(HOT_CARDS - 1)) % HOT_CARDS;
+        TransactionRequest request = new TransactionRequest();
+        request.setFromCardId(cardIds.get(from));
+        request.setToCardId(cardIds.get(to));
+        request.setAmount(BigDecimal.ONE);
+        return transactionService.transferBetweenCards(request);
+    }
+}
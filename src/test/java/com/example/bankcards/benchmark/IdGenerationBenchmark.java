@@ -0,0 +1,135 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankingportalApplication;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleEnum;
+import com.example.bankcards.entity.enums.TransactionStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Insert throughput of card creation and transaction logging for different
+ * id allocation and JDBC batch sizes, in rows per second. Allocation size 1
+ * with batch size 1 costs a round trip per row like the old IDENTITY ids,
+ * allocation size 50 with batch size 50 is the current configuration.
+ * Runs against the in-memory H2 of the test profile, so the gap on a
+ * networked PostgreSQL is larger.
+ *
+ * <p>Run with {@code mvn -Pbenchmark -DskipTests verify -Dbenchmark.include=IdGenerationBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdGenerationBenchmark {
+
+    private static final int ROWS_PER_OPERATION = 100;
+
+    @Param({"1", "50"})
+    public int allocationSize;
+
+    @Param({"1", "50"})
+    public int batchSize;
+
+    private final AtomicLong cardNumbers = new AtomicLong(4_000_000_000_000_000L);
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate transactionTemplate;
+    private CardRepository cardRepository;
+    private TransactionRepository transactionRepository;
+    private User user;
+    private Card fromCard;
+    private Card toCard;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BankingportalApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.example.bankcards=WARN",
+                        "--spring.datasource.url=jdbc:h2:mem:bench-" + allocationSize + "-" + batchSize + ";DB_CLOSE_ON_EXIT=FALSE",
+                        "--spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+                        "--id.allocation-size.card=" + allocationSize,
+                        "--id.allocation-size.transaction=" + allocationSize,
+                        "--id.allocation-size.user=" + allocationSize);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        cardRepository = context.getBean(CardRepository.class);
+        transactionRepository = context.getBean(TransactionRepository.class);
+
+        user = context.getBean(UserRepository.class).save(User.builder()
+                .username("benchmark")
+                .password("password")
+                .email("benchmark@example.com")
+                .firstName("Benchmark")
+                .lastName("User")
+                .role(RoleEnum.ROLE_USER)
+                .build());
+        fromCard = cardRepository.save(newCard());
+        toCard = cardRepository.save(newCard());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_OPERATION)
+    public List<Card> createCards() {
+        return transactionTemplate.execute(status -> {
+            List<Card> cards = new ArrayList<>(ROWS_PER_OPERATION);
+            for (int i = 0; i < ROWS_PER_OPERATION; i++) {
+                cards.add(newCard());
+            }
+            return cardRepository.saveAll(cards);
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_OPERATION)
+    public List<Transaction> logTransactions() {
+        return transactionTemplate.execute(status -> {
+            List<Transaction> transactions = new ArrayList<>(ROWS_PER_OPERATION);
+            for (int i = 0; i < ROWS_PER_OPERATION; i++) {
+                Transaction transaction = new Transaction();
+                transaction.setAmount(BigDecimal.TEN);
+                transaction.setFromCard(fromCard);
+                transaction.setToCard(toCard);
+                transaction.setStatus(TransactionStatus.COMPLETED);
+                transactions.add(transaction);
+            }
+            return transactionRepository.saveAll(transactions);
+        });
+    }
+
+    private Card newCard() {
+        String number = String.valueOf(cardNumbers.incrementAndGet());
+        Card card = new Card();
+        card.setUser(user);
+        card.setCardNumber(number);
+        card.setMaskedNumber("**** **** **** " + number.substring(12));
+        card.setCurrency("RUB");
+        card.setExpiryDate(LocalDate.now().plusYears(3));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(BigDecimal.ZERO);
+        return card;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.security.JwtKeySet;
+import com.example.bankcards.security.JwtTokenCodec;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token signatures and verifications per second for each supported
+ * algorithm. HS256 is the baseline; ES256 and EdDSA trade slower signing
+ * for keys that let other nodes verify without being able to sign.
+ *
+ * <p>Run with {@code mvn -Pbenchmark -DskipTests verify -Dbenchmark.include=JwtSigningBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JwtSigningBenchmark {
+
+    private static final String SECRET = "6L+Z5piv5LiN5Liq5Lq655qE5a+G56CB5LiN6KaB5rGC5L2P5ZCO5Y+w5LiN5Y+v5Lul";
+
+    @Param({JwtKeySet.HS256, JwtKeySet.ES256, JwtKeySet.EDDSA})
+    public String algorithm;
+
+    private JwtTokenCodec codec;
+    private Date expiry;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        codec = new JwtTokenCodec(keySet(algorithm));
+        expiry = new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+        token = sign();
+    }
+
+    @Benchmark
+    public String sign() {
+        return codec.sign("benchmark", Map.of("authorities", List.of("ROLE_USER")), expiry);
+    }
+
+    @Benchmark
+    public Claims verify() {
+        return codec.parse(token);
+    }
+
+    private static JwtKeySet keySet(String algorithm) throws Exception {
+        if (JwtKeySet.HS256.equals(algorithm)) {
+            Key key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+            return new JwtKeySet("primary", key, Map.of("primary", key));
+        }
+        KeyPairGenerator generator;
+        if (JwtKeySet.ES256.equals(algorithm)) {
+            generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+        } else {
+            generator = KeyPairGenerator.getInstance("Ed25519");
+        }
+        KeyPair pair = generator.generateKeyPair();
+        return new JwtKeySet("primary", pair.getPrivate(), Map.of("primary", pair.getPublic()));
+    }
+}
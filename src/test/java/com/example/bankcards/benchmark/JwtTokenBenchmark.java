@@ -0,0 +1,57 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.security.JwtTokenCodec;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token verifications per second. The rebuilt benchmark decodes the secret
+ * and builds a parser for every token as the token service used to, the
+ * codec benchmark reuses the key and parser built once by
+ * {@link JwtTokenCodec}.
+ *
+ * <p>Run with {@code mvn -Pbenchmark -DskipTests verify -Dbenchmark.include=JwtTokenBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JwtTokenBenchmark {
+
+    private static final String SECRET = "6L+Z5piv5LiN5Liq5Lq655qE5a+G56CB5LiN6KaB5rGC5L2P5ZCO5Y+w5LiN5Y+v5Lul";
+
+    private JwtTokenCodec codec;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        codec = new JwtTokenCodec(SECRET, "primary", List.of());
+        token = codec.sign("benchmark", Map.of("authorities", List.of("ROLE_USER")),
+                new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)));
+    }
+
+    @Benchmark
+    public Claims rebuilt() {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    @Benchmark
+    public Claims codec() {
+        return codec.parse(token);
+    }
+}
@@ -2,11 +2,17 @@ package com.example.bankcards.controller;
 
 import com.example.bankcards.config.CorsConfig;
 import com.example.bankcards.config.WebSecurityConfig;
+import com.example.bankcards.dto.request.RefreshTokenRequest;
 import com.example.bankcards.dto.request.SignInRequest;
 import com.example.bankcards.dto.request.UserRequest;
 import com.example.bankcards.dto.response.JwtAuthenticationResponse;
+import com.example.bankcards.exception.InvalidTokenException;
+import com.example.bankcards.exception.TooManyRequestsException;
 import com.example.bankcards.security.JwtAuthenticationEntryPoint;
 import com.example.bankcards.service.AuthService;
+import com.example.bankcards.security.TokenValidationCache;
+import com.example.bankcards.service.RateLimitStore;
+import com.example.bankcards.service.TokenRegistry;
 import com.example.bankcards.service.TokenService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -20,6 +26,9 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.startsWith;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -39,6 +48,15 @@ class AuthControllerTest {
     @MockBean
     private TokenService tokenService;
 
+    @MockBean
+    private TokenValidationCache tokenValidationCache;
+
+    @MockBean
+    private TokenRegistry tokenRegistry;
+
+    @MockBean
+    private RateLimitStore rateLimitStore;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -97,6 +115,55 @@ class AuthControllerTest {
         Mockito.verify(authService).signIn(any(SignInRequest.class));
     }
 
+    @Test
+    void refresh_ShouldReturnNewTokens() throws Exception {
+        Mockito.when(authService.refresh(any(RefreshTokenRequest.class)))
+                .thenReturn(new JwtAuthenticationResponse("new-token", "new-refresh"));
+
+        mockMvc.perform(post("/api/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RefreshTokenRequest("old-refresh"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").value("new-token"))
+                .andExpect(jsonPath("$.refreshToken").value("new-refresh"));
+    }
+
+    @Test
+    void refresh_WithRejectedToken_ShouldReturnUnauthorized() throws Exception {
+        Mockito.when(authService.refresh(any(RefreshTokenRequest.class)))
+                .thenThrow(new InvalidTokenException("Refresh token has already been used"));
+
+        mockMvc.perform(post("/api/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RefreshTokenRequest("used-refresh"))))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void signIn_WhenRateLimitIsExceeded_ShouldReturnTooManyRequestsWithoutSigningIn() throws Exception {
+        Mockito.when(rateLimitStore.tryAcquire(startsWith("sign-in:ip:"), anyInt(), anyLong())).thenReturn(1500L);
+
+        mockMvc.perform(post("/api/auth/sign-in")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(signInRequest)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"));
+
+        Mockito.verify(authService, Mockito.never()).signIn(any(SignInRequest.class));
+    }
+
+    @Test
+    void signIn_WhenPasswordHashingIsSaturated_ShouldReturnTooManyRequests() throws Exception {
+        Mockito.when(authService.signIn(any(SignInRequest.class)))
+                .thenThrow(new TooManyRequestsException("Too many sign-in requests, please retry later", 1));
+
+        mockMvc.perform(post("/api/auth/sign-in")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(signInRequest)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
     @Test
     void signIn_WithInvalidData_ShouldReturnBadRequest() throws Exception {
         SignInRequest invalidRequest = new SignInRequest();
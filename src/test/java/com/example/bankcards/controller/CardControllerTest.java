@@ -2,15 +2,26 @@ package com.example.bankcards.controller;
 
 import com.example.bankcards.config.CorsConfig;
 import com.example.bankcards.config.WebSecurityConfig;
+import com.example.bankcards.dto.request.BatchTransferItem;
+import com.example.bankcards.dto.request.BatchTransferRequest;
 import com.example.bankcards.dto.request.CardRequest;
 import com.example.bankcards.dto.request.TransactionRequest;
+import com.example.bankcards.dto.response.BatchTransferItemResult;
 import com.example.bankcards.dto.response.CardResponse;
 import com.example.bankcards.dto.response.TransactionResponse;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.exception.CardAccessDeniedException;
+import com.example.bankcards.exception.IdempotencyConflictException;
 import com.example.bankcards.security.JwtAuthenticationEntryPoint;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.IdempotencyService;
+import com.example.bankcards.service.LedgerService;
+import com.example.bankcards.security.JwtPrincipal;
+import com.example.bankcards.security.TokenValidationCache;
+import com.example.bankcards.service.RateLimitStore;
+import com.example.bankcards.service.TokenRegistry;
 import com.example.bankcards.service.TokenService;
 import com.example.bankcards.service.TransactionService;
 import com.example.bankcards.service.UserService;
@@ -28,10 +39,13 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.test.context.support.WithAnonymousUser;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -39,9 +53,13 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.anonymous;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -63,6 +81,12 @@ class CardControllerTest {
     @MockBean
     private TransactionService transactionService;
 
+    @MockBean
+    private IdempotencyService idempotencyService;
+
+    @MockBean
+    private LedgerService ledgerService;
+
     @MockBean
     private PaginationUtils paginationUtils;
 
@@ -72,6 +96,15 @@ class CardControllerTest {
     @MockBean
     private TokenService tokenService;
 
+    @MockBean
+    private TokenValidationCache tokenValidationCache;
+
+    @MockBean
+    private TokenRegistry tokenRegistry;
+
+    @MockBean
+    private RateLimitStore rateLimitStore;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -127,40 +160,38 @@ class CardControllerTest {
     }
 
     @Test
-    @WithMockUser(username = "testuser")
     void getUserCards_ShouldReturnCards() throws Exception {
         Page<CardResponse> page = new PageImpl<>(List.of(cardResponse));
-        Mockito.when(userService.getUserByUsername("testuser")).thenReturn(testUser);
-        Mockito.when(cardService.getUserCardsPaginated(eq(testUser), anyString(), any(Pageable.class)))
+        Mockito.when(cardService.getUserCardsPaginated(eq(1L), anyString(), any(Pageable.class)))
                 .thenReturn(page);
         Mockito.when(paginationUtils.createPageable(any(), any(), any(), any())).thenReturn(Pageable.unpaged());
         Mockito.when(paginationUtils.buildPaginationResponse(any())).thenReturn(Map.of("data", List.of(cardResponse)));
 
-        mockMvc.perform(get("/api/cards/my-cards"))
+        mockMvc.perform(get("/api/cards/my-cards").with(authentication(jwtAuthentication())))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.data").isArray())
                 .andExpect(jsonPath("$.data[0].maskedNumber").value("1234 **** **** 3456"));
+        Mockito.verifyNoInteractions(userService);
     }
 
     @Test
-    @WithMockUser(username = "testuser")
     void getUserCardsActive_ShouldReturnActiveCards() throws Exception {
-        Mockito.when(userService.getUserByUsername("testuser")).thenReturn(testUser);
-        Mockito.when(cardService.getCardsByUserAndStatus(eq(testUser), eq(CardStatus.ACTIVE)))
+        Mockito.when(cardService.getCardsByUserAndStatus(eq(1L), eq(CardStatus.ACTIVE)))
                 .thenReturn(List.of(cardResponse));
 
-        mockMvc.perform(get("/api/cards/my-cards/active"))
+        mockMvc.perform(get("/api/cards/my-cards/active").with(authentication(jwtAuthentication())))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].maskedNumber").value("1234 **** **** 3456"));
+        Mockito.verifyNoInteractions(userService);
     }
 
     @Test
-    @WithMockUser(username = "testuser")
     void createCard_ShouldCreateCard() throws Exception {
-        Mockito.when(userService.getUserByUsername("testuser")).thenReturn(testUser);
+        Mockito.when(userService.getUserById(1L)).thenReturn(Optional.of(testUser));
         Mockito.when(cardService.createCard(eq(testUser), eq("USD"))).thenReturn(cardResponse);
 
         mockMvc.perform(post("/api/cards/create")
+                        .with(authentication(jwtAuthentication()))
                         .with(csrf())
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(cardRequest)))
@@ -208,6 +239,98 @@ class CardControllerTest {
                 .andExpect(jsonPath("$.status").value("SUCCESS"));
     }
 
+    @Test
+    @WithMockUser(username = "testuser")
+    void transferCard_WithIdempotencyKey_ShouldUseIdempotencyService() throws Exception {
+        Mockito.when(idempotencyService.execute(eq("testuser"), eq("key-1"), any(TransactionRequest.class),
+                        eq(TransactionResponse.class), any()))
+                .thenReturn(transactionResponse);
+
+        mockMvc.perform(post("/api/cards/transfer")
+                        .with(csrf())
+                        .header("Idempotency-Key", "key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transactionRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1L));
+
+        Mockito.verify(transactionService, Mockito.never()).transferBetweenCards(any());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void transferCard_WithKeyInProgress_ShouldReturnConflict() throws Exception {
+        Mockito.when(idempotencyService.execute(anyString(), anyString(), any(), eq(TransactionResponse.class), any()))
+                .thenThrow(new IdempotencyConflictException("A request with this Idempotency-Key is still being processed"));
+
+        mockMvc.perform(post("/api/cards/transfer")
+                        .with(csrf())
+                        .header("Idempotency-Key", "key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transactionRequest)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void transferBatch_ShouldReturnPerItemResults() throws Exception {
+        Mockito.when(transactionService.transferBatch(eq(1L), any(BatchTransferRequest.class)))
+                .thenReturn(List.of(
+                        new BatchTransferItemResult(0, 2L, BigDecimal.valueOf(100), "COMPLETED", null, transactionResponse),
+                        new BatchTransferItemResult(1, 3L, BigDecimal.valueOf(50), "FAILED", "Destination account not found", null)));
+
+        BatchTransferItem item = new BatchTransferItem();
+        item.setToCardId(2L);
+        item.setAmount(BigDecimal.valueOf(100));
+        BatchTransferRequest request = new BatchTransferRequest();
+        request.setFromCardId(1L);
+        request.setTransfers(List.of(item));
+
+        mockMvc.perform(post("/api/cards/transfers/batch")
+                        .with(authentication(jwtAuthentication()))
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("COMPLETED"))
+                .andExpect(jsonPath("$[0].transaction.id").value(1L))
+                .andExpect(jsonPath("$[1].status").value("FAILED"))
+                .andExpect(jsonPath("$[1].error").value("Destination account not found"));
+    }
+
+    @Test
+    void transferBatch_FromCardOfAnotherUser_ShouldReturnForbidden() throws Exception {
+        Mockito.when(transactionService.transferBatch(eq(1L), any(BatchTransferRequest.class)))
+                .thenThrow(new CardAccessDeniedException("Card does not belong to the current user"));
+
+        BatchTransferItem item = new BatchTransferItem();
+        item.setToCardId(2L);
+        item.setAmount(BigDecimal.valueOf(100));
+        BatchTransferRequest request = new BatchTransferRequest();
+        request.setFromCardId(5L);
+        request.setTransfers(List.of(item));
+
+        mockMvc.perform(post("/api/cards/transfers/batch")
+                        .with(authentication(jwtAuthentication()))
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void transferBatch_WithEmptyTransfers_ShouldReturnBadRequest() throws Exception {
+        BatchTransferRequest request = new BatchTransferRequest();
+        request.setFromCardId(1L);
+        request.setTransfers(List.of());
+
+        mockMvc.perform(post("/api/cards/transfers/batch")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @WithMockUser(username = "testuser")
     void getBalance_ShouldReturnBalance() throws Exception {
@@ -219,20 +342,108 @@ class CardControllerTest {
                 .andExpect(content().string("1000"));
     }
 
+    @Test
+    void getBalanceAsOf_ShouldReturnBalanceFromLedger() throws Exception {
+        Mockito.when(cardService.getCardByNumber("1234567890123456"))
+                .thenReturn(Optional.ofNullable(testCard));
+        Mockito.when(ledgerService.getBalanceAsOf(testCard.getId(), LocalDateTime.of(2024, 1, 1, 12, 0)))
+                .thenReturn(new BigDecimal("250.00"));
+
+        mockMvc.perform(get("/api/cards/balance/as-of")
+                        .with(authentication(jwtAuthentication()))
+                        .param("cardNumber", "1234567890123456")
+                        .param("at", "2024-01-01T12:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("250.00"));
+    }
+
+    @Test
+    void getBalanceAsOf_WithForeignCard_ShouldReturnForbidden() throws Exception {
+        User otherUser = new User();
+        otherUser.setId(2L);
+        testCard.setUser(otherUser);
+        Mockito.when(cardService.getCardByNumber("1234567890123456"))
+                .thenReturn(Optional.ofNullable(testCard));
+
+        mockMvc.perform(get("/api/cards/balance/as-of")
+                        .with(authentication(jwtAuthentication()))
+                        .param("cardNumber", "1234567890123456")
+                        .param("at", "2024-01-01T12:00:00"))
+                .andExpect(status().isForbidden());
+        Mockito.verifyNoInteractions(ledgerService);
+    }
+
+    @Test
+    void getBalanceAsOf_AsAdmin_ShouldReturnBalanceOfAnyCard() throws Exception {
+        JwtPrincipal admin = new JwtPrincipal(2L, "admin", List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        Mockito.when(cardService.getCardByNumber("1234567890123456"))
+                .thenReturn(Optional.ofNullable(testCard));
+        Mockito.when(ledgerService.getBalanceAsOf(testCard.getId(), LocalDateTime.of(2024, 1, 1, 12, 0)))
+                .thenReturn(new BigDecimal("250.00"));
+
+        mockMvc.perform(get("/api/cards/balance/as-of")
+                        .with(authentication(new UsernamePasswordAuthenticationToken(admin, null, admin.getAuthorities())))
+                        .param("cardNumber", "1234567890123456")
+                        .param("at", "2024-01-01T12:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("250.00"));
+    }
+
     @Test
     @WithMockUser(roles = "ADMIN")
     void getAllCards_AsAdmin_ShouldReturnAllCards() throws Exception {
-        Mockito.when(cardService.getAllCards()).thenReturn(List.of(cardResponse));
+        streamCards(cardResponse, cardResponse);
 
-        mockMvc.perform(get("/api/cards/admin/all-cards"))
+        MvcResult result = mockMvc.perform(get("/api/cards/admin/all-cards"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(2))
                 .andExpect(jsonPath("$[0].maskedNumber").value("1234 **** **** 3456"));
     }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getAllCards_AcceptingNdjson_ShouldWriteOneCardPerLine() throws Exception {
+        streamCards(cardResponse, cardResponse);
+
+        MvcResult result = mockMvc.perform(get("/api/cards/admin/all-cards")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(body.endsWith("\n"));
+        assertTrue(lines[1].startsWith("{") && lines[1].contains("\"maskedNumber\":\"1234 **** **** 3456\""));
+    }
+
     @Test
     @WithMockUser(roles = "USER")
     void getAllCards_AsUser_ShouldReturnForbidden() throws Exception {
         mockMvc.perform(get("/api/cards/admin/all-cards"))
                 .andExpect(status().isForbidden());
     }
+
+    private void streamCards(CardResponse... cards) {
+        Mockito.when(cardService.forEachCard(any())).thenAnswer(invocation -> {
+            Consumer<CardResponse> action = invocation.getArgument(0);
+            for (CardResponse card : cards) {
+                action.accept(card);
+            }
+            return (long) cards.length;
+        });
+    }
+
+    private UsernamePasswordAuthenticationToken jwtAuthentication() {
+        JwtPrincipal principal = new JwtPrincipal(1L, "testuser", List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
 }
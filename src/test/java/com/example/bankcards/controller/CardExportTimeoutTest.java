@@ -0,0 +1,93 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.response.CardResponse;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.RoleEnum;
+import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.TokenService;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+
+/**
+ * Streams the card export through a real Tomcat whose default async timeout
+ * is cut to half a second, standing in for its 30 s default, to check that
+ * the export runs until the configured request timeout instead. Runs on a
+ * database of its own, so that its schema does not replace the one the
+ * other integration tests share.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:export-test;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+        "card.export.flush-every=1"
+})
+@ActiveProfiles("test")
+class CardExportTimeoutTest {
+
+    private static final int CARDS = 5;
+    private static final long CARD_DELAY_MS = 300;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @MockBean
+    private CardService cardService;
+
+    @TestConfiguration
+    static class ShortContainerAsyncTimeout {
+
+        @Bean
+        WebServerFactoryCustomizer<TomcatServletWebServerFactory> shortAsyncTimeout() {
+            return factory -> factory.addConnectorCustomizers(connector -> connector.setAsyncTimeout(500));
+        }
+    }
+
+    @Test
+    void allCards_SlowerThanContainerAsyncTimeout_ShouldStreamEveryCard() throws Exception {
+        Mockito.when(cardService.forEachCard(any())).thenAnswer(invocation -> {
+            Consumer<CardResponse> action = invocation.getArgument(0);
+            for (long id = 1; id <= CARDS; id++) {
+                Thread.sleep(CARD_DELAY_MS);
+                action.accept(new CardResponse(id, "**** **** **** 000" + id, "Admin", "RUB",
+                        LocalDate.now().plusYears(3), "ACTIVE", BigDecimal.TEN, true, false));
+            }
+            return (long) CARDS;
+        });
+        String token = tokenService.generateToken(User.builder()
+                .id(1L)
+                .username("admin")
+                .role(RoleEnum.ROLE_ADMIN)
+                .build());
+
+        HttpResponse<String> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder()
+                        .uri(URI.create("http://localhost:" + port + "/api/cards/admin/all-cards"))
+                        .header("Authorization", "Bearer " + token)
+                        .header("Accept", "application/x-ndjson")
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode(), response.body());
+        assertEquals(CARDS, response.body().lines().count());
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleEnum;
+import com.example.bankcards.entity.enums.TransactionStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.LedgerEntryRepository;
+import com.example.bankcards.repository.OutboxEventRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.JwtPrincipal;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Counts the SQL statements each listing endpoint runs and the cards a
+ * transfer loads, so that a mapping that starts loading owners or cards
+ * row by row fails here.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class StatementCountTest {
+
+    private static final int CARDS_PER_USER = 4;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    private User owner;
+    private final List<Card> ownerCards = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        owner = saveUser("owner");
+        User other = saveUser("other");
+        List<Card> otherCards = new ArrayList<>();
+        for (int i = 0; i < CARDS_PER_USER; i++) {
+            ownerCards.add(saveCard(owner, "40000000000001" + i + "0"));
+            otherCards.add(saveCard(other, "40000000000002" + i + "0"));
+        }
+        for (int i = 0; i < CARDS_PER_USER; i++) {
+            saveTransaction(ownerCards.get(i), otherCards.get(i));
+            saveTransaction(otherCards.get(i), ownerCards.get((i + 1) % CARDS_PER_USER));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        ledgerEntryRepository.deleteAll();
+        outboxEventRepository.deleteAll();
+        transactionRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+        ownerCards.clear();
+    }
+
+    @Test
+    void myCards_ShouldRunPageAndCountStatementsOnly() throws Exception {
+        assertStatements(2, myCardsPage("1"));
+    }
+
+    @Test
+    void myCards_WithCachedCount_ShouldRunPageStatementOnly() throws Exception {
+        assertStatements(2, myCardsPage("1"));
+        assertStatements(1, myCardsPage("2"));
+    }
+
+    @Test
+    void myCards_AfterCardCreated_ShouldCountAgain() throws Exception {
+        assertStatements(2, myCardsPage("1"));
+        mockMvc.perform(post("/api/cards/create")
+                        .with(authentication(as(owner, "ROLE_USER"))).with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"currency\":\"RUB\"}"))
+                .andExpect(status().isOk());
+
+        assertStatements(2, myCardsPage("1"));
+    }
+
+    @Test
+    void myCardsSlice_ShouldRunOneStatementWithoutCount() throws Exception {
+        assertStatements(1, get("/api/cards/my-cards").param("pagination", "slice").param("page", "1")
+                .param("size", "2").with(authentication(as(owner, "ROLE_USER"))));
+    }
+
+    @Test
+    void myCardsByCursor_ShouldRunOneStatementWithoutCount() throws Exception {
+        assertStatements(1, get("/api/cards/my-cards").param("pagination", "keyset").param("size", "2")
+                .with(authentication(as(owner, "ROLE_USER"))));
+    }
+
+    @Test
+    void myActiveCards_ShouldRunOneStatement() throws Exception {
+        assertStatements(1, get("/api/cards/my-cards/active")
+                .with(authentication(as(owner, "ROLE_USER"))));
+    }
+
+    @Test
+    void myTransactions_ShouldRunPageAndCountStatementsOnly() throws Exception {
+        assertStatements(2, get("/api/cards/my-transactions").param("page", "1").param("size", "3")
+                .with(authentication(as(owner, "ROLE_USER"))));
+    }
+
+    @Test
+    void myTransactionsByCursor_ShouldRunOneStatementWithoutCount() throws Exception {
+        assertStatements(1, get("/api/cards/my-transactions").param("pagination", "keyset").param("size", "3")
+                .with(authentication(as(owner, "ROLE_USER"))));
+    }
+
+    @Test
+    void allCards_ShouldRunOneStatement() throws Exception {
+        assertStatements(1, get("/api/cards/admin/all-cards")
+                .with(authentication(as(owner, "ROLE_ADMIN"))));
+    }
+
+    @Test
+    void allCardsAsNdjson_ShouldStreamEveryCardInOneStatement() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/cards/admin/all-cards")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .with(authentication(as(owner, "ROLE_ADMIN"))))
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(2 * CARDS_PER_USER, body.lines().count());
+    }
+
+    @Test
+    void transfer_ShouldNotLoadCards() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(post("/api/cards/transfer")
+                        .with(authentication(as(owner, "ROLE_USER"))).with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fromCardId\":" + ownerCards.get(0).getId() + ",\"toCardId\":"
+                                + ownerCards.get(1).getId() + ",\"amount\":10.00}"))
+                .andExpect(status().isOk());
+
+        assertEquals(0, statistics.getEntityStatistics(Card.class.getName()).getLoadCount());
+        assertEquals(0, statistics.getEntityStatistics(Card.class.getName()).getFetchCount());
+    }
+
+    private RequestBuilder myCardsPage(String page) {
+        return get("/api/cards/my-cards").param("page", page).param("size", "2")
+                .with(authentication(as(owner, "ROLE_USER")));
+    }
+
+    private void assertStatements(long expected, RequestBuilder request) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        MvcResult result = mockMvc.perform(request).andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            result = mockMvc.perform(asyncDispatch(result)).andReturn();
+        }
+        assertEquals(200, result.getResponse().getStatus());
+
+        assertEquals(expected, statistics.getPrepareStatementCount());
+    }
+
+    private static UsernamePasswordAuthenticationToken as(User user, String role) {
+        JwtPrincipal principal = new JwtPrincipal(user.getId(), user.getUsername(),
+                List.of(new SimpleGrantedAuthority(role)));
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+
+    private User saveUser(String username) {
+        return userRepository.save(User.builder()
+                .username(username)
+                .password("password")
+                .email(username + "@example.com")
+                .firstName(username)
+                .lastName("Test")
+                .role(RoleEnum.ROLE_USER)
+                .build());
+    }
+
+    private Card saveCard(User user, String cardNumber) {
+        Card card = new Card();
+        card.setUser(user);
+        card.setCardNumber(cardNumber);
+        card.setMaskedNumber("**** **** **** " + cardNumber.substring(12));
+        card.setCurrency("RUB");
+        card.setExpiryDate(LocalDate.now().plusYears(3));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(new BigDecimal("100.00"));
+        return cardRepository.save(card);
+    }
+
+    private void saveTransaction(Card from, Card to) {
+        Transaction transaction = new Transaction();
+        transaction.setFromCard(from);
+        transaction.setToCard(to);
+        transaction.setAmount(BigDecimal.TEN);
+        transaction.setStatus(TransactionStatus.COMPLETED);
+        transactionRepository.save(transaction);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.request.UserUpdateRequest;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.RoleEnum;
+import com.example.bankcards.repository.RevokedTokenRepository;
+import com.example.bankcards.repository.RevokedUserRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.TokenService;
+import com.example.bankcards.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that a live access token stops being accepted once it is revoked,
+ * in the revocation-list validation mode. Runs on a database of its own,
+ * so that its schema does not replace the one the other integration tests
+ * share.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:revocation-test;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+        "jwt.validation-mode=revocation-list"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class TokenRevocationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    private RevokedUserRepository revokedUserRepository;
+
+    private User user;
+
+    @BeforeEach
+    void setUp(TestInfo testInfo) {
+        // Отзыв пользователя остается в памяти реестра, поэтому у каждого теста свой пользователь
+        String username = testInfo.getTestMethod().orElseThrow().getName();
+        user = userRepository.save(User.builder()
+                .username(username)
+                .password("password")
+                .email(username + "@example.com")
+                .firstName("First")
+                .lastName("Last")
+                .role(RoleEnum.ROLE_USER)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        revokedTokenRepository.deleteAll();
+        revokedUserRepository.deleteAll();
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void logout_ShouldRejectTheLoggedOutToken() throws Exception {
+        String token = tokenService.generateToken(user);
+        mockMvc.perform(get("/api/cards/my-cards").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/logout").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/cards/my-cards").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void roleChange_ShouldRejectTokensIssuedBefore() throws Exception {
+        String token = tokenService.generateToken(user);
+        mockMvc.perform(get("/api/cards/my-cards").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isOk());
+
+        UserUpdateRequest update = new UserUpdateRequest();
+        update.setFirstName(user.getFirstName());
+        update.setLastName(user.getLastName());
+        update.setEmail(user.getEmail());
+        update.setRole(RoleEnum.ROLE_ADMIN);
+        userService.updateUser(user.getId(), update);
+
+        mockMvc.perform(get("/api/cards/my-cards").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void deleteUser_ShouldRejectTokensOfTheUser() throws Exception {
+        String token = tokenService.generateToken(user);
+        mockMvc.perform(get("/api/cards/my-cards").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isOk());
+
+        userService.deleteUser(user.getId());
+
+        mockMvc.perform(get("/api/cards/my-cards").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isUnauthorized());
+    }
+}
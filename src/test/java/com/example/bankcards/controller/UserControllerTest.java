@@ -6,6 +6,9 @@ import com.example.bankcards.dto.request.UserRequest;
 import com.example.bankcards.dto.request.UserUpdateRequest;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.security.JwtAuthenticationEntryPoint;
+import com.example.bankcards.security.TokenValidationCache;
+import com.example.bankcards.service.RateLimitStore;
+import com.example.bankcards.service.TokenRegistry;
 import com.example.bankcards.service.TokenService;
 import com.example.bankcards.service.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -45,6 +48,15 @@ class UserControllerTest {
     @MockBean
     private TokenService tokenService;
 
+    @MockBean
+    private TokenValidationCache tokenValidationCache;
+
+    @MockBean
+    private TokenRegistry tokenRegistry;
+
+    @MockBean
+    private RateLimitStore rateLimitStore;
+
     @Autowired
     private ObjectMapper objectMapper;
 
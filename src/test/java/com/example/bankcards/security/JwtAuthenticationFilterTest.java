@@ -0,0 +1,122 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.InvalidTokenException;
+import com.example.bankcards.service.TokenRegistry;
+import com.example.bankcards.service.TokenService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JwtAuthenticationFilterTest {
+
+    private static final String TOKEN = "header.payload.signature";
+
+    @Mock
+    private UserDetailsService userDetailsService;
+
+    @Mock
+    private TokenService tokenService;
+
+    @Mock
+    private TokenRegistry tokenRegistry;
+
+    private TokenValidationCache tokenValidationCache;
+    private JwtAuthenticationFilter filter;
+    private UserDetails userDetails;
+    private Claims claims;
+
+    @BeforeEach
+    void setUp() {
+        tokenValidationCache = new TokenValidationCache(100, 60_000, tokenRegistry);
+        filter = new JwtAuthenticationFilter(userDetailsService, tokenService, tokenValidationCache);
+        userDetails = User.withUsername("testuser").password("password").authorities("ROLE_USER").build();
+        claims = Jwts.claims()
+                .subject("testuser")
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_WithRepeatedToken_ShouldLookUpTokenAndUserOnce() throws Exception {
+        when(tokenService.verifyToken(TOKEN)).thenReturn(claims);
+        when(userDetailsService.loadUserByUsername("testuser")).thenReturn(userDetails);
+
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletRequest request = authorizedRequest();
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+            assertEquals("testuser", SecurityContextHolder.getContext().getAuthentication().getName());
+            assertSame(claims, request.getAttribute(JwtAuthenticationFilter.CLAIMS_ATTRIBUTE));
+            SecurityContextHolder.clearContext();
+        }
+
+        verify(tokenService, times(1)).verifyToken(TOKEN);
+        verify(userDetailsService, times(1)).loadUserByUsername("testuser");
+    }
+
+    @Test
+    void doFilter_WithUserIdClaim_ShouldBuildPrincipalWithoutLoadingUser() throws Exception {
+        Claims userIdClaims = Jwts.claims()
+                .subject("testuser")
+                .add(JwtPrincipal.USER_ID_CLAIM, 7)
+                .add(JwtPrincipal.AUTHORITIES_CLAIM, List.of("ROLE_ADMIN"))
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .build();
+        when(tokenService.verifyToken(TOKEN)).thenReturn(userIdClaims);
+
+        filter.doFilter(authorizedRequest(), new MockHttpServletResponse(), new MockFilterChain());
+
+        JwtPrincipal principal = (JwtPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        assertEquals(7L, principal.getUserId());
+        assertEquals("testuser", principal.getName());
+        assertEquals("ROLE_ADMIN", principal.getAuthorities().get(0).getAuthority());
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void doFilter_AfterEviction_ShouldValidateTokenAgain() throws Exception {
+        when(tokenService.verifyToken(TOKEN)).thenReturn(claims);
+        when(userDetailsService.loadUserByUsername("testuser")).thenReturn(userDetails);
+        filter.doFilter(authorizedRequest(), new MockHttpServletResponse(), new MockFilterChain());
+        SecurityContextHolder.clearContext();
+
+        tokenValidationCache.evict(TOKEN);
+        when(tokenService.verifyToken(TOKEN)).thenThrow(new InvalidTokenException("Token not found"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(authorizedRequest(), response, new MockFilterChain());
+
+        assertEquals(401, response.getStatus());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(tokenService, times(2)).verifyToken(TOKEN);
+    }
+
+    private MockHttpServletRequest authorizedRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cards");
+        request.addHeader("Authorization", "Bearer " + TOKEN);
+        return request;
+    }
+}
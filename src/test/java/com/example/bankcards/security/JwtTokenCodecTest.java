@@ -0,0 +1,156 @@
+package com.example.bankcards.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtTokenCodecTest {
+
+    private static final String OLD_SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+    private static final String NEW_SECRET = "6L+Z5piv5LiN5Liq5Lq655qE5a+G56CB5LiN6KaB5rGC5L2P5ZCO5Y+w5LiN5Y+v5Lul";
+    private static final String STORE_PASSWORD = "changeit";
+
+    private final JwtTokenCodec oldCodec = new JwtTokenCodec(OLD_SECRET, "2024-01", List.of());
+    private final JwtTokenCodec newCodec = new JwtTokenCodec(NEW_SECRET, "2024-02", List.of("2024-01:" + OLD_SECRET));
+
+    @Test
+    void sign_ShouldWriteKeyIdAndClaims() {
+        String token = newCodec.sign("testuser", Map.of("authorities", List.of("ROLE_USER")),
+                new Date(System.currentTimeMillis() + 60_000));
+
+        Claims claims = newCodec.parse(token);
+
+        assertEquals("testuser", claims.getSubject());
+        assertEquals(List.of("ROLE_USER"), claims.get("authorities"));
+        assertEquals("2024-02", Jwts.parser().verifyWith((SecretKey) newCodec.getSigningKey()).build()
+                .parseSignedClaims(token).getHeader().getKeyId());
+    }
+
+    @Test
+    void parse_AfterRotation_ShouldAcceptTokensSignedWithPreviousKey() {
+        String token = oldCodec.sign("testuser", Map.of(), new Date(System.currentTimeMillis() + 60_000));
+
+        assertEquals("testuser", newCodec.parse(token).getSubject());
+    }
+
+    @Test
+    void parse_WithRetiredKey_ShouldRejectToken() {
+        String token = newCodec.sign("testuser", Map.of(), new Date(System.currentTimeMillis() + 60_000));
+
+        assertThrows(SignatureException.class, () -> oldCodec.parse(token));
+    }
+
+    @Test
+    void parse_WithoutKeyId_ShouldVerifyWithCurrentKey() {
+        String token = Jwts.builder()
+                .subject("testuser")
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(newCodec.getSigningKey())
+                .compact();
+
+        assertEquals("testuser", newCodec.parse(token).getSubject());
+    }
+
+    @Test
+    void parse_WithExpiredToken_ShouldThrowExpiredJwtException() {
+        String token = newCodec.sign("testuser", Map.of(), new Date(System.currentTimeMillis() - 60_000));
+
+        assertThrows(ExpiredJwtException.class, () -> newCodec.parse(token));
+    }
+
+    @Test
+    void constructor_WithMalformedPreviousKey_ShouldFail() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new JwtTokenCodec(NEW_SECRET, "2024-02", List.of(OLD_SECRET)));
+    }
+
+    @Test
+    void es256_TokenSignedBySigner_ShouldBeVerifiedWithCertificatesOnly(@TempDir Path dir) throws Exception {
+        Path signerStore = dir.resolve("signer.p12");
+        Path verifierStore = dir.resolve("verifier.p12");
+        keytool("-genkeypair", "-alias", "k1", "-keyalg", "EC", "-groupname", "secp256r1",
+                "-sigalg", "SHA256withECDSA", "-dname", "CN=k1", "-validity", "30",
+                "-keystore", signerStore.toString(), "-storetype", "PKCS12",
+                "-storepass", STORE_PASSWORD, "-keypass", STORE_PASSWORD);
+        keytool("-exportcert", "-alias", "k1", "-keystore", signerStore.toString(),
+                "-storepass", STORE_PASSWORD, "-file", dir.resolve("k1.cer").toString());
+        keytool("-importcert", "-noprompt", "-alias", "k1", "-file", dir.resolve("k1.cer").toString(),
+                "-keystore", verifierStore.toString(), "-storetype", "PKCS12", "-storepass", STORE_PASSWORD);
+
+        JwtTokenCodec signer = keyStoreCodec("ES256", signerStore);
+        JwtTokenCodec verifier = keyStoreCodec("ES256", verifierStore);
+        String token = signer.sign("testuser", Map.of(), new Date(System.currentTimeMillis() + 60_000));
+
+        assertEquals("k1", signer.getKeyId());
+        assertEquals("testuser", verifier.parse(token).getSubject());
+        assertThrows(IllegalStateException.class,
+                () -> verifier.sign("testuser", Map.of(), new Date(System.currentTimeMillis() + 60_000)));
+        assertThrows(SignatureException.class, () -> verifier.parse(newCodec.sign("testuser", Map.of(),
+                new Date(System.currentTimeMillis() + 60_000))));
+    }
+
+    @Test
+    void reloadKeys_AfterKeyIsAdded_ShouldSignWithNewKeyAndVerifyOldTokens(@TempDir Path dir) throws Exception {
+        Path store = dir.resolve("jwt.p12");
+        generateEd25519(store, "k1", "-1d");
+        JwtTokenCodec codec = keyStoreCodec("EdDSA", store);
+        String oldToken = codec.sign("testuser", Map.of(), new Date(System.currentTimeMillis() + 60_000));
+
+        generateEd25519(store, "k2", "+1m");
+        Files.setLastModifiedTime(store, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        codec.reloadKeys();
+        String newToken = codec.sign("testuser", Map.of(), new Date(System.currentTimeMillis() + 60_000));
+
+        assertEquals("k2", codec.getKeyId());
+        assertEquals("testuser", codec.parse(oldToken).getSubject());
+        assertEquals("testuser", codec.parse(newToken).getSubject());
+    }
+
+    @Test
+    void reloadKeys_WithBrokenKeyStore_ShouldKeepCurrentKeys(@TempDir Path dir) throws Exception {
+        Path store = dir.resolve("jwt.p12");
+        generateEd25519(store, "k1", "-1d");
+        JwtTokenCodec codec = keyStoreCodec("EdDSA", store);
+
+        Files.write(store, new byte[]{1, 2, 3});
+        codec.reloadKeys();
+
+        assertEquals("k1", codec.getKeyId());
+        String token = codec.sign("testuser", Map.of(), new Date(System.currentTimeMillis() + 60_000));
+        assertEquals("testuser", codec.parse(token).getSubject());
+    }
+
+    private static JwtTokenCodec keyStoreCodec(String algorithm, Path store) {
+        return new JwtTokenCodec(algorithm, "", "primary", List.of(), store.toString(), STORE_PASSWORD, "");
+    }
+
+    private static void generateEd25519(Path store, String alias, String startDate) throws Exception {
+        keytool("-genkeypair", "-alias", alias, "-keyalg", "Ed25519", "-dname", "CN=" + alias,
+                "-startdate", startDate, "-validity", "30", "-keystore", store.toString(), "-storetype", "PKCS12",
+                "-storepass", STORE_PASSWORD, "-keypass", STORE_PASSWORD);
+    }
+
+    private static void keytool(String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "keytool").toString());
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes());
+        assertEquals(0, process.waitFor(), output);
+    }
+}
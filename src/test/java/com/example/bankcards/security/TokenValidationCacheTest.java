@@ -0,0 +1,124 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.InvalidTokenException;
+import com.example.bankcards.service.TokenRegistry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class TokenValidationCacheTest {
+
+    private final JwtPrincipal alice = new JwtPrincipal(1L, "alice", List.of(new SimpleGrantedAuthority("ROLE_USER")));
+    private final TokenRegistry tokenRegistry = mock(TokenRegistry.class);
+    private final JwtPrincipal bob = new JwtPrincipal(2L, "bob", List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+    @Test
+    void get_ShouldReturnCachedEntryUntilTokenExpires() throws InterruptedException {
+        TokenValidationCache cache = new TokenValidationCache(10, 60_000, tokenRegistry);
+        cache.put("fresh", claims("alice", 60_000), alice);
+        cache.put("expiring", claims("alice", 2_000), alice);
+
+        assertSame(alice, cache.get("fresh").getPrincipal());
+        assertEquals("alice", cache.get("fresh").getClaims().getSubject());
+        assertNotNull(cache.get("expiring"));
+        Thread.sleep(2_100);
+        assertNull(cache.get("expiring"));
+    }
+
+    @Test
+    void get_ShouldNotTrustEntryLongerThanMaxTtl() throws InterruptedException {
+        TokenValidationCache cache = new TokenValidationCache(10, 50, tokenRegistry);
+        cache.put("token", claims("alice", 60_000), alice);
+
+        Thread.sleep(100);
+
+        assertNull(cache.get("token"));
+    }
+
+    @Test
+    void evict_ShouldRemoveTokenImmediately() {
+        TokenValidationCache cache = new TokenValidationCache(10, 60_000, tokenRegistry);
+        cache.put("token", claims("alice", 60_000), alice);
+
+        cache.evict("token");
+
+        assertNull(cache.get("token"));
+    }
+
+    @Test
+    void evictUser_ShouldRemoveOnlyTokensOfThatUser() {
+        TokenValidationCache cache = new TokenValidationCache(10, 60_000, tokenRegistry);
+        cache.put("alice-1", claims("alice", 60_000), alice);
+        cache.put("alice-2", claims("alice", 60_000), alice);
+        cache.put("bob-1", claims("bob", 60_000), bob);
+
+        cache.evictUser("alice");
+
+        assertNull(cache.get("alice-1"));
+        assertNull(cache.get("alice-2"));
+        assertNotNull(cache.get("bob-1"));
+    }
+
+    @Test
+    void put_BeyondCapacity_ShouldDropExpiredEntriesFirst() throws InterruptedException {
+        TokenValidationCache cache = new TokenValidationCache(2, 60_000, tokenRegistry);
+        cache.put("expiring", claims("alice", 50), alice);
+        cache.put("first", claims("alice", 60_000), alice);
+        Thread.sleep(100);
+        cache.put("second", claims("alice", 60_000), alice);
+
+        assertNotNull(cache.get("first"));
+        assertNotNull(cache.get("second"));
+    }
+
+    @Test
+    void put_BeyondCapacity_ShouldStayWithinSize() {
+        TokenValidationCache cache = new TokenValidationCache(2, 60_000, tokenRegistry);
+        cache.put("first", claims("alice", 60_000), alice);
+        cache.put("second", claims("alice", 60_000), alice);
+        cache.put("third", claims("alice", 60_000), alice);
+
+        long cached = Stream.of("first", "second", "third").filter(token -> cache.get(token) != null).count();
+        assertEquals(2, cached);
+        assertNotNull(cache.get("third"));
+    }
+
+    @Test
+    void get_WhenRegistryInMemoryRevokedToken_ShouldDropEntry() throws Exception {
+        TokenValidationCache cache = new TokenValidationCache(10, 60_000, tokenRegistry);
+        Claims claims = claims("alice", 60_000);
+        cache.put("token", claims, alice);
+        when(tokenRegistry.isInMemory()).thenReturn(true);
+        assertNotNull(cache.get("token"));
+
+        doThrow(new InvalidTokenException("revoked")).when(tokenRegistry).check("token", claims);
+
+        assertNull(cache.get("token"));
+    }
+
+    @Test
+    void get_WhenRegistryNotInMemory_ShouldNotCheckToken() throws Exception {
+        TokenValidationCache cache = new TokenValidationCache(10, 60_000, tokenRegistry);
+        cache.put("token", claims("alice", 60_000), alice);
+
+        assertNotNull(cache.get("token"));
+        verify(tokenRegistry, never()).check(anyString(), any());
+    }
+
+    private Claims claims(String subject, long validForMs) {
+        return Jwts.claims()
+                .subject(subject)
+                .expiration(new Date(System.currentTimeMillis() + validForMs))
+                .build();
+    }
+}
@@ -1,12 +1,11 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.request.RefreshTokenRequest;
 import com.example.bankcards.dto.request.SignInRequest;
 import com.example.bankcards.dto.request.UserRequest;
 import com.example.bankcards.dto.response.JwtAuthenticationResponse;
-import com.example.bankcards.entity.Token;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.InvalidTokenException;
-import com.example.bankcards.repository.TokenRepository;
 import com.example.bankcards.service.implementation.AuthServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -40,7 +39,7 @@ class AuthServiceImplTest {
     private AuthenticationManager authenticationManager;
 
     @Mock
-    private TokenRepository tokenRepository;
+    private RefreshTokenService refreshTokenService;
 
     @InjectMocks
     private AuthServiceImpl authService;
@@ -48,7 +47,6 @@ class AuthServiceImplTest {
     private UserRequest userRequest;
     private SignInRequest signInRequest;
     private User user;
-    private Token token;
 
     @BeforeEach
     void setUp() {
@@ -71,11 +69,6 @@ class AuthServiceImplTest {
         user.setFirstName("John");
         user.setLastName("Doe");
         user.setRole(ROLE_USER);
-
-        token = new Token();
-        token.setId(1L);
-        token.setToken("valid.jwt.token");
-        token.setUser(user);
     }
 
     @Test
@@ -99,71 +92,24 @@ class AuthServiceImplTest {
     }
 
     @Test
-    void signIn_WithValidToken_ShouldReturnExistingToken() throws InvalidTokenException {
-        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
-                .thenReturn(null);
-        when(userService.getUserByUsername("testuser")).thenReturn(user);
-        when(tokenRepository.findByUser(user)).thenReturn(token);
-        doNothing().when(tokenService).validateToken("valid.jwt.token");
-
-        JwtAuthenticationResponse result = authService.signIn(signInRequest);
-
-        assertNotNull(result);
-        assertEquals("valid.jwt.token", result.getToken());
-
-        verify(authenticationManager, times(1)).authenticate(any(UsernamePasswordAuthenticationToken.class));
-        verify(userService, times(1)).getUserByUsername("testuser");
-        verify(tokenRepository, times(1)).findByUser(user);
-        verify(tokenService, times(1)).validateToken("valid.jwt.token");
-        verify(tokenService, never()).generateToken(any());
-        verify(tokenService, never()).saveToken(any());
-    }
-
-    @Test
-    void signIn_WithInvalidToken_ShouldGenerateNewToken() throws InvalidTokenException {
-        String newToken = "new.jwt.token";
-
-        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
-                .thenReturn(null);
-        when(userService.getUserByUsername("testuser")).thenReturn(user);
-        when(tokenRepository.findByUser(user)).thenReturn(token);
-        doThrow(new InvalidTokenException("Token expired"))
-                .when(tokenService).validateToken("valid.jwt.token");
-        when(tokenService.generateToken(user)).thenReturn(newToken);
-        doNothing().when(tokenService).saveToken(newToken);
-
-        JwtAuthenticationResponse result = authService.signIn(signInRequest);
-
-        assertNotNull(result);
-        assertEquals(newToken, result.getToken());
-
-        verify(authenticationManager, times(1)).authenticate(any(UsernamePasswordAuthenticationToken.class));
-        verify(userService, times(1)).getUserByUsername("testuser");
-        verify(tokenRepository, times(1)).findByUser(user);
-        verify(tokenService, times(1)).validateToken("valid.jwt.token");
-        verify(tokenService, times(1)).generateToken(user);
-        verify(tokenService, times(1)).saveToken(newToken);
-    }
-
-    @Test
-    void signIn_WithNoExistingToken_ShouldGenerateNewToken() throws InvalidTokenException {
+    void signIn_ShouldIssueAndSaveNewToken() throws InvalidTokenException {
         String newToken = "new.jwt.token";
 
         when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
                 .thenReturn(null);
         when(userService.getUserByUsername("testuser")).thenReturn(user);
-        when(tokenRepository.findByUser(user)).thenReturn(null);
         when(tokenService.generateToken(user)).thenReturn(newToken);
         doNothing().when(tokenService).saveToken(newToken);
+        when(refreshTokenService.issue(user)).thenReturn("refresh-token");
 
         JwtAuthenticationResponse result = authService.signIn(signInRequest);
 
         assertNotNull(result);
         assertEquals(newToken, result.getToken());
+        assertEquals("refresh-token", result.getRefreshToken());
 
         verify(authenticationManager, times(1)).authenticate(any(UsernamePasswordAuthenticationToken.class));
         verify(userService, times(1)).getUserByUsername("testuser");
-        verify(tokenRepository, times(1)).findByUser(user);
         verify(tokenService, never()).validateToken(any());
         verify(tokenService, times(1)).generateToken(user);
         verify(tokenService, times(1)).saveToken(newToken);
@@ -179,7 +125,6 @@ class AuthServiceImplTest {
 
         verify(authenticationManager, times(1)).authenticate(any(UsernamePasswordAuthenticationToken.class));
         verify(userService, never()).getUserByUsername(any());
-        verify(tokenRepository, never()).findByUser(any());
         verify(tokenService, never()).validateToken(any());
         verify(tokenService, never()).generateToken(any());
         verify(tokenService, never()).saveToken(any());
@@ -192,9 +137,6 @@ class AuthServiceImplTest {
         when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
                 .thenReturn(null);
         when(userService.getUserByUsername("testuser")).thenReturn(user);
-        when(tokenRepository.findByUser(user)).thenReturn(token);
-        doThrow(new InvalidTokenException("Token expired"))
-                .when(tokenService).validateToken("valid.jwt.token");
         when(tokenService.generateToken(user)).thenReturn(newToken);
         doThrow(new InvalidTokenException("Save failed"))
                 .when(tokenService).saveToken(newToken);
@@ -204,12 +146,35 @@ class AuthServiceImplTest {
 
         verify(authenticationManager, times(1)).authenticate(any(UsernamePasswordAuthenticationToken.class));
         verify(userService, times(1)).getUserByUsername("testuser");
-        verify(tokenRepository, times(1)).findByUser(user);
-        verify(tokenService, times(1)).validateToken("valid.jwt.token");
         verify(tokenService, times(1)).generateToken(user);
         verify(tokenService, times(1)).saveToken(newToken);
     }
 
+    @Test
+    void refresh_ShouldRotateRefreshTokenAndIssueAccessToken() throws InvalidTokenException {
+        when(refreshTokenService.rotate("old-refresh"))
+                .thenReturn(new RefreshTokenService.Rotation(user, "new-refresh"));
+        when(tokenService.generateToken(user)).thenReturn("new.jwt.token");
+
+        JwtAuthenticationResponse result = authService.refresh(new RefreshTokenRequest("old-refresh"));
+
+        assertEquals("new.jwt.token", result.getToken());
+        assertEquals("new-refresh", result.getRefreshToken());
+        verify(tokenService, times(1)).saveToken("new.jwt.token");
+        verify(authenticationManager, never()).authenticate(any());
+    }
+
+    @Test
+    void refresh_WhenRefreshTokenIsRejected_ShouldNotIssueAccessToken() throws InvalidTokenException {
+        when(refreshTokenService.rotate("used-refresh"))
+                .thenThrow(new InvalidTokenException("Refresh token has already been used"));
+
+        assertThrows(InvalidTokenException.class, () ->
+                authService.refresh(new RefreshTokenRequest("used-refresh")));
+
+        verify(tokenService, never()).generateToken(any());
+    }
+
     @Test
     void signUp_ShouldHandleUserCreationAndTokenGeneration() throws InvalidTokenException {
         String jwtToken = "generated.jwt.token";
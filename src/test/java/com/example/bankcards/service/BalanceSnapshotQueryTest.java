@@ -0,0 +1,85 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.BalanceSnapshot;
+import com.example.bankcards.entity.LedgerEntry;
+import com.example.bankcards.repository.BalanceSnapshotRepository;
+import com.example.bankcards.repository.LedgerEntryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BalanceSnapshotQueryTest {
+
+    // Моменты задолго до записей других тестов, чтобы запросы видели только записи этого теста
+    private static final LocalDateTime T0 = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    private static final List<Long> CARD_IDS = List.of(9001L, 9002L, 9003L, 9004L);
+
+    @Autowired
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @AfterEach
+    void tearDown() {
+        for (Long cardId : CARD_IDS) {
+            ledgerEntryRepository.deleteAll(ledgerEntryRepository.findByCardIdOrderById(cardId));
+        }
+        balanceSnapshotRepository.deleteAll(balanceSnapshotRepository.findAll().stream()
+                .filter(snapshot -> CARD_IDS.contains(snapshot.getCardId()))
+                .toList());
+    }
+
+    @Test
+    void insertSnapshotsBetween_ShouldAddChangesToNewestSnapshotOfChangedCards() {
+        balanceSnapshotRepository.save(new BalanceSnapshot(9001L, new BigDecimal("500.00"), T0));
+        balanceSnapshotRepository.save(new BalanceSnapshot(9003L, new BigDecimal("300.00"), T0));
+        saveEntry(9001L, "10.00", T0.minusHours(1));
+        saveEntry(9001L, "-120.00", T0.plusHours(1));
+        saveEntry(9001L, "20.00", T0.plusHours(2));
+        saveEntry(9001L, "1000.00", T0.plusHours(5));
+        saveEntry(9002L, "75.00", T0.plusHours(1));
+
+        LocalDateTime cutoff = T0.plusHours(3);
+        assertEquals(2, balanceSnapshotRepository.insertSnapshotsBetween(T0, cutoff));
+
+        assertEquals(new BigDecimal("400.00"), snapshotAt(9001L, cutoff).getBalance());
+        assertEquals(cutoff, snapshotAt(9001L, cutoff).getTakenAt());
+        assertEquals(new BigDecimal("75.00"), snapshotAt(9002L, cutoff).getBalance());
+        assertEquals(T0, snapshotAt(9003L, cutoff).getTakenAt());
+    }
+
+    @Test
+    void insertSnapshotsUpTo_ShouldSumAllEntriesOfEachCard() {
+        LocalDateTime start = LocalDateTime.of(2019, 1, 1, 0, 0);
+        saveEntry(9004L, "5.00", start);
+        saveEntry(9004L, "7.00", start.plusDays(1));
+
+        LocalDateTime cutoff = start.plusMonths(1);
+        assertEquals(1, balanceSnapshotRepository.insertSnapshotsUpTo(cutoff));
+
+        assertEquals(new BigDecimal("12.00"), snapshotAt(9004L, cutoff).getBalance());
+    }
+
+    private void saveEntry(Long cardId, String delta, LocalDateTime createdAt) {
+        LedgerEntry entry = new LedgerEntry(cardId, null, new BigDecimal(delta), BigDecimal.ZERO);
+        entry.setCreatedAt(createdAt);
+        ledgerEntryRepository.save(entry);
+    }
+
+    private BalanceSnapshot snapshotAt(Long cardId, LocalDateTime upTo) {
+        return balanceSnapshotRepository.findFirstByCardIdAndTakenAtLessThanEqualOrderByTakenAtDesc(cardId, upTo)
+                .orElseThrow();
+    }
+}
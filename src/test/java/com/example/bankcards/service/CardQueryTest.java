@@ -0,0 +1,174 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.response.CardResponse;
+import com.example.bankcards.dto.response.CursorPage;
+import com.example.bankcards.dto.response.TransactionResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleEnum;
+import com.example.bankcards.entity.enums.TransactionStatus;
+import com.example.bankcards.exception.InvalidCursorException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CardQueryTest {
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private User owner;
+    private final List<Card> ownerCards = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        owner = saveUser("owner");
+        User other = saveUser("other");
+        ownerCards.add(saveCard(owner, "4000000000000001", CardStatus.ACTIVE));
+        ownerCards.add(saveCard(owner, "4000000000000002", CardStatus.BLOCKED));
+        ownerCards.add(saveCard(owner, "4000000000000003", CardStatus.ACTIVE));
+        saveCard(other, "4000000000000004", CardStatus.ACTIVE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+        ownerCards.clear();
+    }
+
+    @Test
+    void getCardsByUserAndStatus_ShouldReturnOnlyMatchingCardsOfUser() {
+        List<CardResponse> cards = cardService.getCardsByUserAndStatus(owner.getId(), CardStatus.ACTIVE);
+
+        assertEquals(List.of("**** **** **** 0001", "**** **** **** 0003"),
+                cards.stream().map(CardResponse::getMaskedNumber).toList());
+        CardResponse first = cards.get(0);
+        assertEquals("Owner Test", first.getUserFullName());
+        assertEquals("ACTIVE", first.getStatus());
+        assertEquals("RUB", first.getCurrency());
+        assertEquals(0, new BigDecimal("100.00").compareTo(first.getBalance()));
+    }
+
+    @Test
+    void getCardsByUserAndStatus_WithNoMatchingCards_ShouldReturnEmptyList() {
+        assertTrue(cardService.getCardsByUserAndStatus(owner.getId(), CardStatus.EXPIRED).isEmpty());
+    }
+
+    @Test
+    void getUserCardsByCursor_ShouldWalkEveryCardOfUserOnceInIdOrder() {
+        CursorPage<CardResponse> first = cardService.getUserCardsByCursor(owner.getId(), null, 2);
+        CursorPage<CardResponse> second = cardService.getUserCardsByCursor(owner.getId(), first.getNextCursor(), 2);
+
+        assertEquals(2, first.getContent().size());
+        assertTrue(first.hasNext());
+        assertEquals(1, second.getContent().size());
+        assertFalse(second.hasNext());
+        assertEquals(ownerCards.stream().map(Card::getId).toList(),
+                List.of(first.getContent().get(0).getId(), first.getContent().get(1).getId(),
+                        second.getContent().get(0).getId()));
+    }
+
+    @Test
+    void getUserCardsByCursor_WithForeignOrMalformedCursor_ShouldThrow() {
+        String allCardsCursor = cardService.getAllCardsByCursor(null, 1).getNextCursor();
+
+        assertThrows(InvalidCursorException.class,
+                () -> cardService.getUserCardsByCursor(owner.getId(), allCardsCursor, 2));
+        assertThrows(InvalidCursorException.class,
+                () -> cardService.getUserCardsByCursor(owner.getId(), "not a cursor", 2));
+    }
+
+    @Test
+    void forEachCard_ShouldPassEveryCardInIdOrder() {
+        List<Long> ids = new ArrayList<>();
+
+        long count = cardService.forEachCard(card -> ids.add(card.getId()));
+
+        assertEquals(4, count);
+        assertEquals(cardRepository.findAll().stream().map(Card::getId).sorted().toList(), ids);
+    }
+
+    @Test
+    void getUserTransactionsByCursor_ShouldBreakCreatedAtTiesById() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 12, 0);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(saveTransaction(ownerCards.get(0), ownerCards.get(2), createdAt.plusMinutes(i / 2)));
+        }
+
+        List<Long> walked = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<TransactionResponse> page = transactionService.getUserTransactionsByCursor(owner.getId(), cursor, 2);
+            page.getContent().forEach(transaction -> walked.add(transaction.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(List.of(ids.get(4), ids.get(3), ids.get(2), ids.get(1), ids.get(0)), walked);
+    }
+
+    private Long saveTransaction(Card from, Card to, LocalDateTime createdAt) {
+        Transaction transaction = new Transaction();
+        transaction.setFromCard(from);
+        transaction.setToCard(to);
+        transaction.setAmount(BigDecimal.ONE);
+        transaction.setStatus(TransactionStatus.COMPLETED);
+        transaction.setCreatedAt(createdAt);
+        return transactionRepository.save(transaction).getId();
+    }
+
+    private User saveUser(String username) {
+        return userRepository.save(User.builder()
+                .username(username)
+                .password("password")
+                .email(username + "@example.com")
+                .firstName(Character.toUpperCase(username.charAt(0)) + username.substring(1))
+                .lastName("Test")
+                .role(RoleEnum.ROLE_USER)
+                .build());
+    }
+
+    private Card saveCard(User user, String cardNumber, CardStatus status) {
+        Card card = new Card();
+        card.setUser(user);
+        card.setCardNumber(cardNumber);
+        card.setMaskedNumber("**** **** **** " + cardNumber.substring(12));
+        card.setCurrency("RUB");
+        card.setExpiryDate(LocalDate.now().plusYears(3));
+        card.setStatus(status);
+        card.setBalance(new BigDecimal("100.00"));
+        return cardRepository.save(card);
+    }
+}
@@ -4,9 +4,11 @@ import com.example.bankcards.dto.response.CardResponse;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.exception.CardException;
 import com.example.bankcards.exception.InsufficientFundsException;
 import com.example.bankcards.mapper.Mapper;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.service.implementation.CardCountCache;
 import com.example.bankcards.service.implementation.CardServiceImpl;
 import com.example.bankcards.util.CardNumberEncryptor;
 import org.junit.jupiter.api.BeforeEach;
@@ -17,13 +19,16 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static com.example.bankcards.entity.enums.CardStatus.ACTIVE;
 import static org.junit.jupiter.api.Assertions.*;
@@ -42,6 +47,15 @@ class CardServiceImplTest {
     @Mock
     private Mapper mapper;
 
+    @Mock
+    private BalanceEngine balanceEngine;
+
+    @Mock
+    private LedgerService ledgerService;
+
+    @Mock
+    private CardCountCache cardCountCache;
+
     @InjectMocks
     private CardServiceImpl cardService;
 
@@ -92,10 +106,7 @@ class CardServiceImplTest {
 
     @Test
     void getAllCards_ShouldReturnAllCards() {
-        List<Card> cards = Arrays.asList(card, blockedCard);
-        when(cardRepository.findAll()).thenReturn(cards);
-        when(mapper.dtoToResponse(card)).thenReturn(cardResponse);
-        when(mapper.dtoToResponse(blockedCard)).thenReturn(new CardResponse(
+        when(cardRepository.findAllResponses()).thenReturn(Arrays.asList(cardResponse, new CardResponse(
                 "********5678",
                 "testuser",
                 "USD",
@@ -103,14 +114,15 @@ class CardServiceImplTest {
                 "BLOCKED",
                 new BigDecimal("500.00"),
                 true,
-                false));
+                false)));
 
         List<CardResponse> result = cardService.getAllCards();
 
         assertNotNull(result);
         assertEquals(2, result.size());
-        verify(cardRepository, times(1)).findAll();
-        verify(mapper, times(2)).dtoToResponse(any(Card.class));
+        verify(cardRepository, times(1)).findAllResponses();
+        verify(cardRepository, never()).findAll();
+        verifyNoInteractions(mapper);
     }
 
     @Test
@@ -159,10 +171,7 @@ class CardServiceImplTest {
 
     @Test
     void getUserCards_ByUser_ShouldReturnCardResponses() {
-        List<Card> cards = Arrays.asList(card, blockedCard);
-        when(cardRepository.findByUserId(1L)).thenReturn(cards);
-        when(mapper.dtoToResponse(card)).thenReturn(cardResponse);
-        when(mapper.dtoToResponse(blockedCard)).thenReturn(new CardResponse(
+        when(cardRepository.findResponsesByUserId(1L)).thenReturn(Arrays.asList(cardResponse, new CardResponse(
                 "********5678",
                 "testuser",
                 "USD",
@@ -171,44 +180,82 @@ class CardServiceImplTest {
                 new BigDecimal("500.00"),
                 true,
                 false
-        ));
+        )));
 
         List<CardResponse> result = cardService.getUserCards(user);
 
         assertNotNull(result);
         assertEquals(2, result.size());
-        verify(cardRepository, times(1)).findByUserId(1L);
-        verify(mapper, times(2)).dtoToResponse(any(Card.class));
+        verify(cardRepository, times(1)).findResponsesByUserId(1L);
+        verifyNoInteractions(mapper);
     }
 
     @Test
     void getUserCardsPaginated_WithoutSearch_ShouldReturnPaginatedCards() {
-        Page<Card> cardPage = new PageImpl<>(Arrays.asList(card));
+        Page<CardResponse> cardPage = new PageImpl<>(Arrays.asList(cardResponse));
         Pageable pageable = Pageable.ofSize(10);
-        when(cardRepository.findByUser(user, pageable)).thenReturn(cardPage);
-        when(mapper.dtoToResponse(card)).thenReturn(cardResponse);
+        when(cardRepository.findResponsesByUserId(user.getId(), pageable)).thenReturn(cardPage);
 
-        Page<CardResponse> result = cardService.getUserCardsPaginated(user, null, pageable);
+        Page<CardResponse> result = cardService.getUserCardsPaginated(user.getId(), null, pageable);
 
         assertNotNull(result);
         assertEquals(1, result.getContent().size());
-        verify(cardRepository, times(1)).findByUser(user, pageable);
-        verify(mapper, times(1)).dtoToResponse(card);
+        verify(cardRepository, times(1)).findResponsesByUserId(user.getId(), pageable);
+        verifyNoInteractions(mapper);
+    }
+
+    @Test
+    void getUserCardsPaginated_WithCountCache_ShouldReadSliceAndCachedTotal() {
+        Pageable pageable = PageRequest.of(0, 1);
+        when(cardCountCache.isEnabled()).thenReturn(true);
+        when(cardRepository.findSliceByUserId(user.getId(), pageable))
+                .thenReturn(new SliceImpl<>(List.of(cardResponse), pageable, true));
+        when(cardCountCache.get(eq(user.getId()), any())).thenReturn(5L);
+
+        Page<CardResponse> result = cardService.getUserCardsPaginated(user.getId(), null, pageable);
+
+        assertEquals(5, result.getTotalElements());
+        assertEquals(List.of(cardResponse), result.getContent());
+        verify(cardRepository, never()).findResponsesByUserId(any(), any(Pageable.class));
+    }
+
+    @Test
+    void getUserCardsPaginated_WithStaleCachedCount_ShouldNotReportFewerCardsThanSeen() {
+        Pageable pageable = PageRequest.of(1, 1);
+        when(cardCountCache.isEnabled()).thenReturn(true);
+        when(cardRepository.findSliceByUserId(user.getId(), pageable))
+                .thenReturn(new SliceImpl<>(List.of(cardResponse), pageable, true));
+        when(cardCountCache.get(eq(user.getId()), any())).thenReturn(1L);
+
+        Page<CardResponse> result = cardService.getUserCardsPaginated(user.getId(), null, pageable);
+
+        assertEquals(3, result.getTotalElements());
+        assertTrue(result.hasNext());
+    }
+
+    @Test
+    void deleteCard_WithCountCache_ShouldEvictOwnerCount() {
+        when(cardCountCache.isEnabled()).thenReturn(true);
+        when(cardRepository.findUserIdById(1L)).thenReturn(Optional.of(user.getId()));
+
+        cardService.deleteCard(1L);
+
+        verify(cardRepository, times(1)).deleteById(1L);
+        verify(cardCountCache, times(1)).evict(user.getId());
     }
 
     @Test
     void getUserCardsPaginated_WithSearch_ShouldReturnFilteredCards() {
-        Page<Card> cardPage = new PageImpl<>(Arrays.asList(card));
+        Page<CardResponse> cardPage = new PageImpl<>(Arrays.asList(cardResponse));
         Pageable pageable = Pageable.ofSize(10);
-        when(cardRepository.findByCardNumber("1234", pageable)).thenReturn(cardPage);
-        when(mapper.dtoToResponse(card)).thenReturn(cardResponse);
+        when(cardRepository.findResponsesByCardNumber("1234", pageable)).thenReturn(cardPage);
 
-        Page<CardResponse> result = cardService.getUserCardsPaginated(user, "1234", pageable);
+        Page<CardResponse> result = cardService.getUserCardsPaginated(user.getId(), "1234", pageable);
 
         assertNotNull(result);
         assertEquals(1, result.getContent().size());
-        verify(cardRepository, times(1)).findByCardNumber("1234", pageable);
-        verify(mapper, times(1)).dtoToResponse(card);
+        verify(cardRepository, times(1)).findResponsesByCardNumber("1234", pageable);
+        verifyNoInteractions(mapper);
     }
 
     @Test
@@ -226,16 +273,16 @@ class CardServiceImplTest {
 
     @Test
     void getCardsByUserAndStatus_ShouldReturnFilteredCardResponses() {
-        List<Card> userCards = Arrays.asList(card, blockedCard);
-        when(cardRepository.findByUser(user)).thenReturn(userCards);
-        when(mapper.dtoToResponse(card)).thenReturn(cardResponse);
+        when(cardRepository.streamResponsesByUserIdAndStatus(user.getId(), ACTIVE))
+                .thenReturn(Stream.of(cardResponse));
 
-        List<CardResponse> result = cardService.getCardsByUserAndStatus(user, ACTIVE);
+        List<CardResponse> result = cardService.getCardsByUserAndStatus(user.getId(), ACTIVE);
 
         assertNotNull(result);
         assertEquals(1, result.size());
-        verify(cardRepository, times(1)).findByUser(user);
-        verify(mapper, times(1)).dtoToResponse(card);
+        verify(cardRepository, times(1)).streamResponsesByUserIdAndStatus(user.getId(), ACTIVE);
+        verify(cardRepository, never()).findByUserId(any());
+        verifyNoInteractions(mapper);
     }
 
     @Test
@@ -253,6 +300,7 @@ class CardServiceImplTest {
         verify(cardNumberEncryptor, times(1)).maskCardNumber("1234567812345678");
         verify(cardRepository, times(1)).save(any(Card.class));
         verify(mapper, times(1)).dtoToResponse(any(Card.class));
+        verify(cardCountCache, times(1)).evict(user.getId());
     }
 
 
@@ -261,6 +309,7 @@ class CardServiceImplTest {
         cardService.deleteCard(1L);
 
         verify(cardRepository, times(1)).deleteById(1L);
+        verify(balanceEngine, times(1)).evict(1L);
     }
 
     @Test
@@ -274,6 +323,7 @@ class CardServiceImplTest {
         assertFalse(card.isActive());
         verify(cardRepository, times(1)).findById(1L);
         verify(cardRepository, times(1)).save(card);
+        verify(balanceEngine, times(1)).statusChanged(1L, CardStatus.BLOCKED);
     }
 
     @Test
@@ -297,6 +347,7 @@ class CardServiceImplTest {
         assertTrue(blockedCard.isActive());
         verify(cardRepository, times(1)).findById(2L);
         verify(cardRepository, times(1)).save(blockedCard);
+        verify(balanceEngine, times(1)).statusChanged(2L, ACTIVE);
     }
 
     @Test
@@ -309,61 +360,81 @@ class CardServiceImplTest {
     }
 
     @Test
-    void depositToCard_WhenCardExists_ShouldIncreaseBalance() {
-        BigDecimal initialBalance = card.getBalance();
+    void depositToCard_WhenCardActive_ShouldUseSingleUpdate() {
         BigDecimal depositAmount = new BigDecimal("100.00");
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(card));
-        when(cardRepository.save(card)).thenReturn(card);
+        when(balanceEngine.credit(1L, depositAmount)).thenReturn(Optional.of(new BigDecimal("1100.00")));
 
-        Card result = cardService.depositToCard(1L, depositAmount);
+        cardService.depositToCard(1L, depositAmount);
 
-        assertNotNull(result);
-        assertEquals(initialBalance.add(depositAmount), result.getBalance());
-        verify(cardRepository, times(1)).findById(1L);
-        verify(cardRepository, times(1)).save(card);
+        verify(balanceEngine, times(1)).credit(1L, depositAmount);
+        verify(ledgerService, times(1)).record(1L, depositAmount, new BigDecimal("1100.00"));
+        verify(cardRepository, never()).findById(any());
+        verify(cardRepository, never()).save(any());
     }
 
     @Test
     void depositToCard_WhenCardNotExists_ShouldThrowException() {
+        when(balanceEngine.credit(1L, new BigDecimal("100.00"))).thenReturn(Optional.empty());
         when(cardRepository.findById(1L)).thenReturn(Optional.empty());
 
-        assertThrows(RuntimeException.class, () ->
+        assertThrows(CardException.class, () ->
                 cardService.depositToCard(1L, new BigDecimal("100.00")));
         verify(cardRepository, times(1)).findById(1L);
         verify(cardRepository, never()).save(any());
     }
 
     @Test
-    void withdrawFromCard_WhenSufficientFunds_ShouldDecreaseBalance() {
-        BigDecimal initialBalance = card.getBalance();
+    void depositToCard_WhenCardBlocked_ShouldThrowException() {
+        when(balanceEngine.credit(2L, new BigDecimal("100.00"))).thenReturn(Optional.empty());
+        when(cardRepository.findById(2L)).thenReturn(Optional.of(blockedCard));
+
+        assertThrows(CardException.class, () ->
+                cardService.depositToCard(2L, new BigDecimal("100.00")));
+        verify(cardRepository, never()).save(any());
+    }
+
+    @Test
+    void withdrawFromCard_WhenSufficientFunds_ShouldUseSingleUpdate() {
         BigDecimal withdrawAmount = new BigDecimal("100.00");
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(card));
-        when(cardRepository.save(card)).thenReturn(card);
+        when(balanceEngine.debit(1L, withdrawAmount)).thenReturn(Optional.of(new BigDecimal("900.00")));
 
-        Card result = cardService.withdrawFromCard(1L, withdrawAmount);
+        cardService.withdrawFromCard(1L, withdrawAmount);
 
-        assertNotNull(result);
-        assertEquals(initialBalance.subtract(withdrawAmount), result.getBalance());
-        verify(cardRepository, times(1)).findById(1L);
-        verify(cardRepository, times(1)).save(card);
+        verify(balanceEngine, times(1)).debit(1L, withdrawAmount);
+        verify(ledgerService, times(1)).record(1L, withdrawAmount.negate(), new BigDecimal("900.00"));
+        verify(cardRepository, never()).findById(any());
+        verify(cardRepository, never()).save(any());
     }
 
     @Test
     void withdrawFromCard_WhenInsufficientFunds_ShouldThrowException() {
         BigDecimal withdrawAmount = new BigDecimal("600.00"); // Больше чем баланс
+        when(balanceEngine.debit(1L, withdrawAmount)).thenReturn(Optional.empty());
         when(cardRepository.findById(1L)).thenReturn(Optional.of(card));
 
-        assertThrows(InsufficientFundsException.class, () ->
+        InsufficientFundsException exception = assertThrows(InsufficientFundsException.class, () ->
                 cardService.withdrawFromCard(1L, withdrawAmount));
+        assertEquals(new BigDecimal("500.00"), exception.getAvailableBalance());
         verify(cardRepository, times(1)).findById(1L);
         verify(cardRepository, never()).save(any());
     }
 
+    @Test
+    void withdrawFromCard_WhenCardBlocked_ShouldThrowException() {
+        when(balanceEngine.debit(2L, new BigDecimal("100.00"))).thenReturn(Optional.empty());
+        when(cardRepository.findById(2L)).thenReturn(Optional.of(blockedCard));
+
+        assertThrows(CardException.class, () ->
+                cardService.withdrawFromCard(2L, new BigDecimal("100.00")));
+        verify(cardRepository, never()).save(any());
+    }
+
     @Test
     void withdrawFromCard_WhenCardNotExists_ShouldThrowException() {
+        when(balanceEngine.debit(1L, new BigDecimal("100.00"))).thenReturn(Optional.empty());
         when(cardRepository.findById(1L)).thenReturn(Optional.empty());
 
-        assertThrows(RuntimeException.class, () ->
+        assertThrows(CardException.class, () ->
                 cardService.withdrawFromCard(1L, new BigDecimal("100.00")));
         verify(cardRepository, times(1)).findById(1L);
         verify(cardRepository, never()).save(any());
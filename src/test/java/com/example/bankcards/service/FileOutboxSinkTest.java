@@ -0,0 +1,46 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.OutboxEvent;
+import com.example.bankcards.entity.enums.OutboxEventType;
+import com.example.bankcards.service.implementation.FileOutboxSink;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileOutboxSinkTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void publish_ShouldWriteOneParsableLinePerEvent() throws Exception {
+        Path file = directory.resolve("events.ndjson");
+        FileOutboxSink sink = new FileOutboxSink(file, objectMapper);
+        OutboxEvent event = new OutboxEvent(OutboxEventType.TRANSFER_COMPLETED, 7L,
+                "{\"description\":\"say \\\"hi\\\"\\nthen leave\"}");
+        event.setId(1L);
+        event.setCreatedAt(LocalDateTime.of(2024, 1, 1, 12, 0));
+
+        sink.publish(List.of(event, event));
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        JsonNode line = objectMapper.readTree(lines.get(0));
+        assertEquals(1L, line.get("id").asLong());
+        assertEquals("TRANSFER_COMPLETED", line.get("type").asText());
+        assertEquals(7L, line.get("aggregateId").asLong());
+        assertEquals("2024-01-01T12:00", line.get("createdAt").asText());
+        assertEquals("say \"hi\"\nthen leave", line.get("payload").get("description").asText());
+    }
+}
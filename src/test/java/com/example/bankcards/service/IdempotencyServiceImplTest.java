@@ -0,0 +1,291 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.request.TransactionRequest;
+import com.example.bankcards.dto.response.TransactionResponse;
+import com.example.bankcards.entity.IdempotencyRecord;
+import com.example.bankcards.entity.enums.IdempotencyStatus;
+import com.example.bankcards.exception.IdempotencyConflictException;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.repository.IdempotencyRecordRepository;
+import com.example.bankcards.service.implementation.IdempotencyServiceImpl;
+import com.example.bankcards.util.HashUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceImplTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Mock
+    private JobLockService jobLockService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private IdempotencyServiceImpl idempotencyService;
+    private TransactionRequest request;
+    private TransactionResponse response;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyServiceImpl(idempotencyRecordRepository, jobLockService, objectMapper,
+                100, 5000, 60000, 86400000, 600000, 2, 10);
+        lenient().when(idempotencyRecordRepository.complete(any(), anyString(), anyString(), any()))
+                .thenReturn(1);
+
+        request = new TransactionRequest();
+        request.setFromCardId(1L);
+        request.setToCardId(2L);
+        request.setAmount(BigDecimal.valueOf(100));
+
+        response = new TransactionResponse(1L, BigDecimal.valueOf(100), "**** 1111", "**** 2222",
+                null, "COMPLETED", LocalDateTime.of(2024, 1, 1, 12, 0));
+    }
+
+    @Test
+    void execute_FirstCall_ShouldRunActionAndStoreResponse() {
+        when(idempotencyRecordRepository.findByUsernameAndIdempotencyKey("user", "key"))
+                .thenReturn(Optional.empty());
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        TransactionResponse result = idempotencyService.execute("user", "key", request,
+                TransactionResponse.class, this::complete);
+
+        assertEquals(response, result);
+        verify(idempotencyRecordRepository).saveAndFlush(argThat(record ->
+                record.getClaimToken() != null && record.getLeaseExpiresAt() != null));
+        verify(idempotencyRecordRepository).complete(any(), anyString(), anyString(), any(LocalDateTime.class));
+        verify(idempotencyRecordRepository, never()).save(any());
+    }
+
+    @Test
+    void execute_Replay_ShouldReturnCachedResponseWithoutRunningAction() {
+        when(idempotencyRecordRepository.findByUsernameAndIdempotencyKey("user", "key"))
+                .thenReturn(Optional.empty());
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        AtomicInteger calls = new AtomicInteger();
+
+        idempotencyService.execute("user", "key", request, TransactionResponse.class,
+                done -> { calls.incrementAndGet(); return complete(done); });
+        TransactionResponse replayed = idempotencyService.execute("user", "key", request,
+                TransactionResponse.class, done -> { calls.incrementAndGet(); return complete(done); });
+
+        assertEquals(response, replayed);
+        assertEquals(1, calls.get());
+        verify(idempotencyRecordRepository, times(1)).findByUsernameAndIdempotencyKey("user", "key");
+    }
+
+    @Test
+    void execute_CompletedRecordInDatabase_ShouldReplayStoredResponse() throws Exception {
+        IdempotencyRecord record = new IdempotencyRecord("user", "key",
+                HashUtils.sha256Hex(objectMapper.writeValueAsString(request)));
+        record.setStatus(IdempotencyStatus.COMPLETED);
+        record.setResponse(objectMapper.writeValueAsString(response));
+        when(idempotencyRecordRepository.findByUsernameAndIdempotencyKey("user", "key"))
+                .thenReturn(Optional.of(record));
+
+        TransactionResponse result = idempotencyService.execute("user", "key", request,
+                TransactionResponse.class, done -> fail("action must not run on replay"));
+
+        assertEquals(response, result);
+        verify(idempotencyRecordRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void execute_KeyReusedForDifferentRequest_ShouldThrowConflict() throws Exception {
+        IdempotencyRecord record = new IdempotencyRecord("user", "key", "other-hash");
+        record.setStatus(IdempotencyStatus.COMPLETED);
+        record.setResponse(objectMapper.writeValueAsString(response));
+        when(idempotencyRecordRepository.findByUsernameAndIdempotencyKey("user", "key"))
+                .thenReturn(Optional.of(record));
+
+        assertThrows(IdempotencyConflictException.class, () -> idempotencyService.execute("user", "key",
+                request, TransactionResponse.class, this::complete));
+    }
+
+    @Test
+    void execute_RecordInProgressOnAnotherNode_ShouldThrowConflict() {
+        when(idempotencyRecordRepository.findByUsernameAndIdempotencyKey("user", "key"))
+                .thenReturn(Optional.empty());
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        assertThrows(IdempotencyConflictException.class, () -> idempotencyService.execute("user", "key",
+                request, TransactionResponse.class, this::complete));
+    }
+
+    @Test
+    void execute_ActionFails_ShouldReleaseKey() {
+        when(idempotencyRecordRepository.findByUsernameAndIdempotencyKey("user", "key"))
+                .thenReturn(Optional.empty());
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertThrows(InsufficientFundsException.class, () -> idempotencyService.execute("user", "key",
+                request, TransactionResponse.class, done -> {
+                    throw new InsufficientFundsException(BigDecimal.ZERO, BigDecimal.TEN);
+                }));
+
+        verify(idempotencyRecordRepository).release(any(), anyString());
+        verify(idempotencyRecordRepository, never()).complete(any(), anyString(), anyString(), any());
+    }
+
+    @Test
+    void execute_FailureAfterCommit_ShouldReplayStoredResponse() throws Exception {
+        IdempotencyRecord stored = new IdempotencyRecord("user", "key",
+                HashUtils.sha256Hex(objectMapper.writeValueAsString(request)));
+        stored.setStatus(IdempotencyStatus.COMPLETED);
+        stored.setResponse(objectMapper.writeValueAsString(response));
+        when(idempotencyRecordRepository.findByUsernameAndIdempotencyKey("user", "key"))
+                .thenReturn(Optional.empty(), Optional.of(stored));
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class)))
+                .thenAnswer(invocation -> {
+                    stored.setClaimToken(invocation.<IdempotencyRecord>getArgument(0).getClaimToken());
+                    return invocation.getArgument(0);
+                });
+        when(idempotencyRecordRepository.release(any(), anyString())).thenReturn(0);
+
+        TransactionResponse result = idempotencyService.execute("user", "key", request,
+                TransactionResponse.class, done -> {
+                    complete(done);
+                    throw new IllegalStateException("connection lost after commit");
+                });
+
+        assertEquals(response, result);
+    }
+
+    @Test
+    void execute_LeaseExpired_ShouldTakeOverKey() throws Exception {
+        IdempotencyRecord record = new IdempotencyRecord("user", "key",
+                HashUtils.sha256Hex(objectMapper.writeValueAsString(request)), "dead",
+                LocalDateTime.now().minusMinutes(1));
+        record.setId(7L);
+        when(idempotencyRecordRepository.findByUsernameAndIdempotencyKey("user", "key"))
+                .thenReturn(Optional.of(record));
+        when(idempotencyRecordRepository.takeOver(eq(7L), anyString(), any(), any())).thenReturn(1);
+
+        TransactionResponse result = idempotencyService.execute("user", "key", request,
+                TransactionResponse.class, this::complete);
+
+        assertEquals(response, result);
+        verify(idempotencyRecordRepository).complete(eq(7L), argThat(token -> !"dead".equals(token)),
+                anyString(), any());
+    }
+
+    @Test
+    void execute_LeaseStillHeld_ShouldThrowConflict() throws Exception {
+        IdempotencyRecord record = new IdempotencyRecord("user", "key",
+                HashUtils.sha256Hex(objectMapper.writeValueAsString(request)), "alive",
+                LocalDateTime.now().plusMinutes(1));
+        record.setId(7L);
+        when(idempotencyRecordRepository.findByUsernameAndIdempotencyKey("user", "key"))
+                .thenReturn(Optional.of(record));
+        when(idempotencyRecordRepository.takeOver(eq(7L), anyString(), any(), any())).thenReturn(0);
+
+        assertThrows(IdempotencyConflictException.class, () -> idempotencyService.execute("user", "key",
+                request, TransactionResponse.class, done -> fail("action must not run while leased")));
+    }
+
+    @Test
+    void execute_ClaimLostBeforeCompletion_ShouldFailInsideTheWork() {
+        when(idempotencyRecordRepository.findByUsernameAndIdempotencyKey("user", "key"))
+                .thenReturn(Optional.empty());
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(idempotencyRecordRepository.complete(any(), anyString(), anyString(), any())).thenReturn(0);
+        when(idempotencyRecordRepository.release(any(), anyString())).thenReturn(0);
+
+        assertThrows(IdempotencyConflictException.class, () -> idempotencyService.execute("user", "key",
+                request, TransactionResponse.class, this::complete));
+    }
+
+    @Test
+    void purgeExpired_ShouldDeleteInChunksUntilEmpty() {
+        when(jobLockService.tryAcquire("idempotency-purge", 600000)).thenReturn(true);
+        when(idempotencyRecordRepository.findExpiredIds(any(), any(), any()))
+                .thenReturn(List.of(1L, 2L), List.of(3L));
+        when(idempotencyRecordRepository.deleteByIdIn(anyList())).thenReturn(2, 1);
+
+        assertEquals(3, idempotencyService.purgeExpired());
+        verify(idempotencyRecordRepository, times(2)).deleteByIdIn(anyList());
+    }
+
+    @Test
+    void execute_BlankKey_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> idempotencyService.execute("user", " ",
+                request, TransactionResponse.class, this::complete));
+    }
+
+    @Test
+    void execute_ConcurrentDuplicates_ShouldRunActionOnce() throws Exception {
+        when(idempotencyRecordRepository.findByUsernameAndIdempotencyKey("user", "key"))
+                .thenReturn(Optional.empty());
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        Future<TransactionResponse> first = executor.submit(() -> idempotencyService.execute("user", "key",
+                request, TransactionResponse.class, done -> {
+                    calls.incrementAndGet();
+                    started.countDown();
+                    awaitQuietly(release);
+                    return complete(done);
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<TransactionResponse> duplicate = executor.submit(() -> idempotencyService.execute("user", "key",
+                request, TransactionResponse.class, done -> {
+                    calls.incrementAndGet();
+                    return complete(done);
+                }));
+        release.countDown();
+
+        assertEquals(response, first.get(5, TimeUnit.SECONDS));
+        assertEquals(response, duplicate.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        executor.shutdown();
+    }
+
+    private TransactionResponse complete(Consumer<TransactionResponse> done) {
+        done.accept(response);
+        return response;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.service.implementation.InMemoryRateLimitStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryRateLimitStoreTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @Test
+    void tryAcquire_OverLimit_ShouldRejectUntilWindowEnds() {
+        InMemoryRateLimitStore store = new InMemoryRateLimitStore(100, now::get);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, store.tryAcquire("sign-in:ip:1", 3, 1_000));
+        }
+        now.addAndGet(400);
+
+        assertEquals(600, store.tryAcquire("sign-in:ip:1", 3, 1_000));
+        assertEquals(0, store.tryAcquire("sign-in:ip:2", 3, 1_000));
+    }
+
+    @Test
+    void tryAcquire_AfterWindowRolls_ShouldWeightPreviousWindow() {
+        InMemoryRateLimitStore store = new InMemoryRateLimitStore(100, now::get);
+        for (int i = 0; i < 4; i++) {
+            store.tryAcquire("transfer:user:1", 4, 1_000);
+        }
+
+        now.addAndGet(1_250);
+        // Предыдущее окно весит 0.75: 4 * 0.75 + 1 <= 4
+        assertEquals(0, store.tryAcquire("transfer:user:1", 4, 1_000));
+        // 4 * 0.75 + 1 + 1 > 4: место появится, когда вес упадет до 0.5
+        assertEquals(250, store.tryAcquire("transfer:user:1", 4, 1_000));
+
+        now.addAndGet(250);
+        assertEquals(0, store.tryAcquire("transfer:user:1", 4, 1_000));
+    }
+
+    @Test
+    void tryAcquire_WhenFull_ShouldRejectNewKeysUntilIdleKeysAreEvicted() {
+        InMemoryRateLimitStore store = new InMemoryRateLimitStore(2, now::get);
+        store.tryAcquire("a", 1, 1_000);
+        store.tryAcquire("b", 1, 1_000);
+
+        assertEquals(1_000, store.tryAcquire("c", 1, 1_000));
+        assertEquals(2, store.size());
+
+        now.addAndGet(2_000);
+        assertEquals(1_000, store.tryAcquire("c", 1, 1_000));
+        store.evictIdle();
+
+        assertEquals(0, store.size());
+        assertEquals(0, store.tryAcquire("c", 1, 1_000));
+        assertTrue(store.tryAcquire("c", 1, 1_000) > 0);
+    }
+
+    @Test
+    void evictIdle_ShouldDropKeysIdleForTwoWindows() {
+        InMemoryRateLimitStore store = new InMemoryRateLimitStore(100, now::get);
+        store.tryAcquire("a", 1, 1_000);
+        now.addAndGet(1_500);
+        store.tryAcquire("b", 1, 1_000);
+
+        now.addAndGet(500);
+        store.evictIdle();
+
+        assertEquals(1, store.size());
+        assertTrue(store.tryAcquire("b", 1, 1_000) > 0);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.JobLockRepository;
+import com.example.bankcards.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class JobLockServiceTest {
+
+    @Autowired
+    private JobLockService jobLockService;
+
+    @Autowired
+    private JobLockRepository jobLockRepository;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @AfterEach
+    void tearDown() {
+        jobLockRepository.deleteAll();
+        revokedTokenRepository.deleteAll();
+    }
+
+    @Test
+    void tryAcquire_ShouldBeRefusedWhileHeldAndTakenAfterHold() throws InterruptedException {
+        assertTrue(jobLockService.tryAcquire("job", 200));
+        assertFalse(jobLockService.tryAcquire("job", 200));
+        assertTrue(jobLockService.tryAcquire("other-job", 200));
+
+        Thread.sleep(300);
+
+        assertTrue(jobLockService.tryAcquire("job", 200));
+    }
+
+    @Test
+    void revokedTokenInsertIfAbsent_ShouldInsertOnce() {
+        Date expiry = new Date(System.currentTimeMillis() + 60_000);
+
+        assertEquals(1, revokedTokenRepository.insertIfAbsent("hash", expiry, new Date()));
+        assertEquals(0, revokedTokenRepository.insertIfAbsent("hash", expiry, new Date()));
+        assertEquals(1, revokedTokenRepository.count());
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleEnum;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class JpaBalanceEngineTest {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("100.00");
+
+    @Autowired
+    private BalanceEngine balanceEngine;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Card first;
+    private Card second;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.save(User.builder()
+                .username("engine")
+                .password("password")
+                .email("engine@example.com")
+                .firstName("Engine")
+                .lastName("Test")
+                .role(RoleEnum.ROLE_USER)
+                .build());
+        first = saveCard(owner, "4000000000001111", CardStatus.ACTIVE);
+        second = saveCard(owner, "4000000000002222", CardStatus.ACTIVE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void transfer_ShouldReturnBalancesAndMaskedNumbers() {
+        BalanceEngine.TransferResult result = transactionTemplate.execute(status ->
+                balanceEngine.transfer(second.getId(), first.getId(), AMOUNT));
+
+        assertEquals(BalanceEngine.TransferOutcome.COMPLETED, result.getOutcome());
+        assertEquals(0, new BigDecimal("400.00").compareTo(result.getFromBalance()));
+        assertEquals(0, new BigDecimal("600.00").compareTo(result.getToBalance()));
+        assertEquals("**** **** **** 2222", result.getFromMaskedNumber());
+        assertEquals("**** **** **** 1111", result.getToMaskedNumber());
+        assertBalance(first, "600.00");
+        assertBalance(second, "400.00");
+    }
+
+    @Test
+    void transfer_WhenDebitRejected_ShouldLeaveBothBalances() {
+        BalanceEngine.TransferResult result = transactionTemplate.execute(status ->
+                balanceEngine.transfer(first.getId(), second.getId(), new BigDecimal("900.00")));
+
+        assertEquals(BalanceEngine.TransferOutcome.DEBIT_REJECTED, result.getOutcome());
+        assertBalance(first, "500.00");
+        assertBalance(second, "500.00");
+    }
+
+    @Test
+    void transfer_WhenCreditRejected_ShouldRollBackTheDebit() {
+        Card blocked = saveCard(first.getUser(), "4000000000003333", CardStatus.BLOCKED);
+
+        BalanceEngine.TransferResult result = balanceEngine.transfer(first.getId(), blocked.getId(), AMOUNT);
+
+        assertEquals(BalanceEngine.TransferOutcome.CREDIT_REJECTED, result.getOutcome());
+        assertBalance(first, "500.00");
+        assertBalance(blocked, "500.00");
+    }
+
+    @Test
+    void debit_ShouldBumpVersion() {
+        Long version = cardRepository.findById(first.getId()).orElseThrow().getVersion();
+
+        assertEquals(0, new BigDecimal("400.00").compareTo(
+                transactionTemplate.execute(status -> balanceEngine.debit(first.getId(), AMOUNT)).orElseThrow()));
+
+        assertEquals(version + 1, cardRepository.findById(first.getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void debit_ShouldKeepOtherPendingWritesAndReloadTheCard() {
+        BigDecimal reloaded = transactionTemplate.execute(status -> {
+            cardRepository.findById(first.getId()).orElseThrow();
+            userRepository.save(User.builder()
+                    .username("pending")
+                    .password("password")
+                    .email("pending@example.com")
+                    .firstName("Pending")
+                    .lastName("Write")
+                    .role(RoleEnum.ROLE_USER)
+                    .build());
+            balanceEngine.debit(first.getId(), AMOUNT).orElseThrow();
+            return cardRepository.findById(first.getId()).orElseThrow().getBalance();
+        });
+
+        assertEquals(0, new BigDecimal("400.00").compareTo(reloaded));
+        assertTrue(userRepository.findByUsername("pending").isPresent());
+    }
+
+    @Test
+    void credit_WhenCardMissing_ShouldReturnEmpty() {
+        assertTrue(transactionTemplate.execute(status -> balanceEngine.credit(-1L, AMOUNT)).isEmpty());
+    }
+
+    @Test
+    void isInMemory_ShouldBeFalse() {
+        assertFalse(balanceEngine.isInMemory());
+    }
+
+    private void assertBalance(Card card, String expected) {
+        assertEquals(0, new BigDecimal(expected).compareTo(
+                cardRepository.findById(card.getId()).orElseThrow().getBalance()));
+    }
+
+    private Card saveCard(User user, String cardNumber, CardStatus status) {
+        Card card = new Card();
+        card.setUser(user);
+        card.setCardNumber(cardNumber);
+        card.setMaskedNumber("**** **** **** " + cardNumber.substring(12));
+        card.setCurrency("RUB");
+        card.setExpiryDate(LocalDate.now().plusYears(3));
+        card.setStatus(status);
+        card.setBalance(new BigDecimal("500.00"));
+        return cardRepository.save(card);
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.BalanceSnapshot;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.LedgerEntry;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.repository.BalanceSnapshotRepository;
+import com.example.bankcards.repository.LedgerEntryRepository;
+import com.example.bankcards.service.implementation.LedgerServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerServiceImplTest {
+
+    private static final long INTERVAL_MS = 3_600_000;
+    private static final long LAG_MS = 60_000;
+
+    @Mock
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Mock
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+
+    @Mock
+    private JobLockService jobLockService;
+
+    private LedgerServiceImpl ledgerService;
+
+    @BeforeEach
+    void setUp() {
+        ledgerService = new LedgerServiceImpl(ledgerEntryRepository, balanceSnapshotRepository, jobLockService,
+                INTERVAL_MS, LAG_MS);
+        lenient().when(jobLockService.tryAcquire("ledger-snapshot", INTERVAL_MS)).thenReturn(true);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordTransfer_ShouldWriteDebitAndCreditEntries() {
+        Card fromCard = new Card();
+        fromCard.setId(1L);
+        Card toCard = new Card();
+        toCard.setId(2L);
+        Transaction transaction = new Transaction();
+        transaction.setId(10L);
+        transaction.setFromCard(fromCard);
+        transaction.setToCard(toCard);
+        transaction.setAmount(new BigDecimal("100.00"));
+
+        ledgerService.recordTransfer(transaction, new BigDecimal("400.00"), new BigDecimal("300.00"));
+
+        ArgumentCaptor<List<LedgerEntry>> captor = ArgumentCaptor.forClass(List.class);
+        verify(ledgerEntryRepository).saveAll(captor.capture());
+        LedgerEntry debit = captor.getValue().get(0);
+        LedgerEntry credit = captor.getValue().get(1);
+        assertEquals(1L, debit.getCardId());
+        assertEquals(10L, debit.getTransactionId());
+        assertEquals(new BigDecimal("-100.00"), debit.getDelta());
+        assertEquals(new BigDecimal("400.00"), debit.getRunningBalance());
+        assertEquals(2L, credit.getCardId());
+        assertEquals(new BigDecimal("100.00"), credit.getDelta());
+        assertEquals(new BigDecimal("300.00"), credit.getRunningBalance());
+    }
+
+    @Test
+    void getBalanceAsOf_ShouldAddLaterEntriesToLatestSnapshot() {
+        LocalDateTime takenAt = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime asOf = takenAt.plusHours(5);
+        when(balanceSnapshotRepository.findFirstByCardIdAndTakenAtLessThanEqualOrderByTakenAtDesc(1L, asOf))
+                .thenReturn(Optional.of(new BalanceSnapshot(1L, new BigDecimal("500.00"), takenAt)));
+        when(ledgerEntryRepository.sumDeltasBetween(1L, takenAt, asOf)).thenReturn(new BigDecimal("-120.00"));
+
+        assertEquals(new BigDecimal("380.00"), ledgerService.getBalanceAsOf(1L, asOf));
+        verify(ledgerEntryRepository, never()).sumDeltasUpTo(any(), any());
+    }
+
+    @Test
+    void getBalanceAsOf_WithoutSnapshot_ShouldSumAllEntries() {
+        LocalDateTime asOf = LocalDateTime.of(2024, 1, 1, 0, 0);
+        when(balanceSnapshotRepository.findFirstByCardIdAndTakenAtLessThanEqualOrderByTakenAtDesc(1L, asOf))
+                .thenReturn(Optional.empty());
+        when(ledgerEntryRepository.sumDeltasUpTo(1L, asOf)).thenReturn(new BigDecimal("75.00"));
+
+        assertEquals(new BigDecimal("75.00"), ledgerService.getBalanceAsOf(1L, asOf));
+    }
+
+    @Test
+    void takeSnapshots_ShouldSnapshotCardsChangedSincePreviousSnapshot() {
+        LocalDateTime previous = LocalDateTime.now().minusHours(2);
+        when(balanceSnapshotRepository.findLatestTakenAt()).thenReturn(previous);
+        ArgumentCaptor<LocalDateTime> cutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        when(balanceSnapshotRepository.insertSnapshotsBetween(eq(previous), cutoff.capture())).thenReturn(3);
+
+        assertEquals(3, ledgerService.takeSnapshots());
+
+        assertTrue(cutoff.getValue().isBefore(LocalDateTime.now().minusNanos((LAG_MS - 1_000) * 1_000_000)));
+        verify(balanceSnapshotRepository, never()).insertSnapshotsUpTo(any());
+        verifyNoInteractions(ledgerEntryRepository);
+    }
+
+    @Test
+    void takeSnapshots_WithoutSnapshots_ShouldSnapshotAllCards() {
+        when(balanceSnapshotRepository.findLatestTakenAt()).thenReturn(null);
+        when(balanceSnapshotRepository.insertSnapshotsUpTo(any())).thenReturn(2);
+
+        assertEquals(2, ledgerService.takeSnapshots());
+        verify(balanceSnapshotRepository, never()).insertSnapshotsBetween(any(), any());
+    }
+
+    @Test
+    void takeSnapshots_WhenPreviousSnapshotIsRecent_ShouldSkip() {
+        when(balanceSnapshotRepository.findLatestTakenAt()).thenReturn(LocalDateTime.now());
+
+        assertEquals(0, ledgerService.takeSnapshots());
+        verify(balanceSnapshotRepository, never()).insertSnapshotsBetween(any(), any());
+        verifyNoInteractions(ledgerEntryRepository);
+    }
+
+    @Test
+    void takeSnapshots_WhenLockIsHeldElsewhere_ShouldSkip() {
+        when(jobLockService.tryAcquire("ledger-snapshot", INTERVAL_MS)).thenReturn(false);
+
+        assertEquals(0, ledgerService.takeSnapshots());
+        verifyNoInteractions(balanceSnapshotRepository, ledgerEntryRepository);
+    }
+}
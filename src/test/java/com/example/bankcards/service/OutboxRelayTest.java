@@ -0,0 +1,166 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.request.TransactionRequest;
+import com.example.bankcards.dto.response.TransactionResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.OutboxEvent;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.OutboxEventType;
+import com.example.bankcards.entity.enums.RoleEnum;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.LedgerEntryRepository;
+import com.example.bankcards.repository.OutboxEventRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.implementation.InMemoryOutboxSink;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class OutboxRelayTest {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private InMemoryOutboxSink outboxSink;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<Long> cardIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        User user = userRepository.save(User.builder()
+                .username("outbox")
+                .password("password")
+                .email("outbox@example.com")
+                .firstName("Outbox")
+                .lastName("Test")
+                .role(RoleEnum.ROLE_USER)
+                .build());
+
+        for (int i = 0; i < 2; i++) {
+            Card card = new Card();
+            card.setUser(user);
+            card.setCardNumber("410000000000000" + i);
+            card.setMaskedNumber("**** **** **** 000" + i);
+            card.setCurrency("RUB");
+            card.setExpiryDate(LocalDate.now().plusYears(3));
+            card.setStatus(CardStatus.ACTIVE);
+            card.setBalance(new BigDecimal("1000.00"));
+            cardIds.add(cardRepository.save(card).getId());
+        }
+        outboxEventRepository.deleteAll();
+        outboxSink.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        outboxEventRepository.deleteAll();
+        ledgerEntryRepository.deleteAll();
+        transactionRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+        cardIds.clear();
+    }
+
+    @Test
+    void transfer_ShouldWriteEventThatRelayPublishesOnce() {
+        TransactionResponse response = transactionService.transferBetweenCards(request(new BigDecimal("100.00")));
+        assertThrows(InsufficientFundsException.class,
+                () -> transactionService.transferBetweenCards(request(new BigDecimal("5000.00"))));
+
+        assertEquals(1, outboxEventRepository.count());
+        assertEquals(1, outboxService.relay());
+        assertEquals(0, outboxService.relay());
+
+        List<OutboxEvent> published = outboxSink.getEvents();
+        assertEquals(1, published.size());
+        assertEquals(OutboxEventType.TRANSFER_COMPLETED, published.get(0).getEventType());
+        assertEquals(response.getId(), published.get(0).getAggregateId());
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    void claimBatch_ShouldSkipEventsClaimedByAnotherRelay() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            transactionService.transferBetweenCards(request(BigDecimal.ONE));
+        }
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<List<Long>> first = CompletableFuture.supplyAsync(() ->
+                transactionTemplate.execute(status -> {
+                    List<Long> ids = outboxEventRepository.claimBatch(2).stream().map(OutboxEvent::getId).toList();
+                    claimed.countDown();
+                    await(release);
+                    return ids;
+                }));
+        assertTrue(claimed.await(10, TimeUnit.SECONDS));
+        List<Long> second = transactionTemplate.execute(status ->
+                outboxEventRepository.claimBatch(4).stream().map(OutboxEvent::getId).toList());
+        release.countDown();
+
+        Set<Long> all = new HashSet<>(first.get(10, TimeUnit.SECONDS));
+        assertEquals(2, all.size());
+        assertEquals(2, second.size());
+        all.addAll(second);
+        assertEquals(4, all.size());
+    }
+
+    private TransactionRequest request(BigDecimal amount) {
+        TransactionRequest request = new TransactionRequest();
+        request.setFromCardId(cardIds.get(0));
+        request.setToCardId(cardIds.get(1));
+        request.setAmount(amount);
+        return request;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
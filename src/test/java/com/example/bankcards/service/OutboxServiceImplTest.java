@@ -0,0 +1,128 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.OutboxEvent;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.enums.OutboxEventType;
+import com.example.bankcards.repository.OutboxEventRepository;
+import com.example.bankcards.service.implementation.OutboxServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxServiceImplTest {
+
+    private static final int BATCH_SIZE = 2;
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private OutboxSink outboxSink;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private OutboxServiceImpl outboxService;
+
+    @BeforeEach
+    void setUp() {
+        outboxService = new OutboxServiceImpl(outboxEventRepository, outboxSink,
+                new ObjectMapper().registerModule(new JavaTimeModule()),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                meterRegistry, BATCH_SIZE);
+    }
+
+    @Test
+    void transferCompleted_ShouldSaveEventWithTransferPayload() {
+        Card fromCard = new Card();
+        fromCard.setId(1L);
+        Card toCard = new Card();
+        toCard.setId(2L);
+        Transaction transaction = new Transaction();
+        transaction.setId(10L);
+        transaction.setFromCard(fromCard);
+        transaction.setToCard(toCard);
+        transaction.setAmount(new BigDecimal("100.00"));
+
+        outboxService.transferCompleted(transaction);
+
+        ArgumentCaptor<OutboxEvent> captor = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxEventRepository).save(captor.capture());
+        OutboxEvent event = captor.getValue();
+        assertEquals(OutboxEventType.TRANSFER_COMPLETED, event.getEventType());
+        assertEquals(10L, event.getAggregateId());
+        assertTrue(event.getPayload().contains("\"transactionId\":10"));
+        assertTrue(event.getPayload().contains("\"fromCardId\":1"));
+        assertTrue(event.getPayload().contains("\"toCardId\":2"));
+        assertTrue(event.getPayload().contains("\"amount\":100.00"));
+    }
+
+    @Test
+    void relay_ShouldPublishAndDeleteBatchesUntilOutboxIsDrained() {
+        List<OutboxEvent> first = List.of(event(1L), event(2L));
+        List<OutboxEvent> second = List.of(event(3L));
+        when(outboxEventRepository.claimBatch(BATCH_SIZE)).thenReturn(first, second);
+        when(outboxEventRepository.findFirstByOrderByIdAsc()).thenReturn(Optional.empty());
+
+        assertEquals(3, outboxService.relay());
+
+        verify(outboxSink).publish(first);
+        verify(outboxSink).publish(second);
+        verify(outboxEventRepository).deleteAllInBatch(first);
+        verify(outboxEventRepository).deleteAllInBatch(second);
+        assertEquals(3, meterRegistry.get("bank.outbox.published").counter().count());
+        assertEquals(3, meterRegistry.get("bank.outbox.lag").timer().count());
+        assertEquals(0, meterRegistry.get("bank.outbox.oldest.pending").gauge().value());
+    }
+
+    @Test
+    void relay_WhenSinkFails_ShouldKeepEventsAndCountFailure() {
+        List<OutboxEvent> batch = List.of(event(1L));
+        when(outboxEventRepository.claimBatch(BATCH_SIZE)).thenReturn(batch);
+        doThrow(new IllegalStateException("sink is down")).when(outboxSink).publish(batch);
+        OutboxEvent oldest = event(1L);
+        oldest.setCreatedAt(LocalDateTime.now().minusMinutes(1));
+        when(outboxEventRepository.findFirstByOrderByIdAsc()).thenReturn(Optional.of(oldest));
+
+        assertEquals(0, outboxService.relay());
+
+        verify(outboxEventRepository, never()).deleteAllInBatch(any());
+        assertEquals(1, meterRegistry.get("bank.outbox.failures").counter().count());
+        assertEquals(0, meterRegistry.get("bank.outbox.published").counter().count());
+        assertTrue(meterRegistry.get("bank.outbox.oldest.pending").gauge().value() >= 60_000);
+    }
+
+    @Test
+    void relay_WhenOutboxIsEmpty_ShouldNotCallSink() {
+        when(outboxEventRepository.claimBatch(BATCH_SIZE)).thenReturn(List.of());
+        when(outboxEventRepository.findFirstByOrderByIdAsc()).thenReturn(Optional.empty());
+
+        assertEquals(0, outboxService.relay());
+
+        verifyNoInteractions(outboxSink);
+    }
+
+    private OutboxEvent event(Long id) {
+        OutboxEvent event = new OutboxEvent(OutboxEventType.TRANSFER_COMPLETED, id, "{}");
+        event.setId(id);
+        return event;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.LedgerEntry;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleEnum;
+import com.example.bankcards.entity.enums.TransactionStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.LedgerEntryRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bank-reconciler;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;LOCK_TIMEOUT=10000",
+        "reconciler.page-size=4",
+        "reconciler.chunk-size=3"
+})
+@ActiveProfiles("test")
+class PendingTransactionReconciliationTest {
+
+    @Autowired
+    private ReconciliationService reconciliationService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Card fromCard;
+    private Card toCard;
+
+    @BeforeEach
+    void setUp() {
+        User user = userRepository.save(User.builder()
+                .username("reconciler")
+                .password("password")
+                .email("reconciler@example.com")
+                .firstName("Reconciler")
+                .lastName("Test")
+                .role(RoleEnum.ROLE_USER)
+                .build());
+        fromCard = cardRepository.save(card(user, "4300000000000000"));
+        toCard = cardRepository.save(card(user, "4300000000000001"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ledgerEntryRepository.deleteAll();
+        transactionRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void reconcilePending_ShouldResolveOldPendingTransactionsAcrossPages() {
+        LocalDateTime old = LocalDateTime.now().minusHours(1);
+        List<Transaction> recorded = new ArrayList<>();
+        List<Transaction> unrecorded = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            // Equal timestamps in pairs exercise the id tie-break of the keyset.
+            Transaction transaction = transaction(TransactionStatus.PENDING, old.plusSeconds(i / 2));
+            (i % 3 == 0 ? recorded : unrecorded).add(transaction);
+        }
+        recorded.forEach(transaction -> ledgerEntryRepository.save(new LedgerEntry(fromCard.getId(),
+                transaction.getId(), transaction.getAmount().negate(), BigDecimal.ZERO)));
+        Transaction recent = transaction(TransactionStatus.PENDING, LocalDateTime.now());
+        Transaction done = transaction(TransactionStatus.COMPLETED, old);
+
+        assertEquals(10, reconciliationService.reconcilePending());
+        assertEquals(0, reconciliationService.reconcilePending());
+
+        recorded.forEach(transaction -> assertEquals(TransactionStatus.COMPLETED, statusOf(transaction)));
+        unrecorded.forEach(transaction -> assertEquals(TransactionStatus.FAILED, statusOf(transaction)));
+        assertEquals(TransactionStatus.PENDING, statusOf(recent));
+        assertEquals(TransactionStatus.COMPLETED, statusOf(done));
+    }
+
+    private TransactionStatus statusOf(Transaction transaction) {
+        return transactionRepository.findById(transaction.getId()).orElseThrow().getStatus();
+    }
+
+    private Transaction transaction(TransactionStatus status, LocalDateTime createdAt) {
+        Transaction transaction = new Transaction();
+        transaction.setAmount(BigDecimal.TEN);
+        transaction.setFromCard(fromCard);
+        transaction.setToCard(toCard);
+        transaction.setStatus(status);
+        transaction.setCreatedAt(createdAt);
+        return transactionRepository.save(transaction);
+    }
+
+    private Card card(User user, String number) {
+        Card card = new Card();
+        card.setUser(user);
+        card.setCardNumber(number);
+        card.setMaskedNumber("**** **** **** " + number.substring(12));
+        card.setCurrency("RUB");
+        card.setExpiryDate(LocalDate.now().plusYears(3));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(new BigDecimal("1000.00"));
+        return card;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.enums.TransactionStatus;
+import com.example.bankcards.repository.LedgerEntryRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.projection.TransactionKey;
+import com.example.bankcards.service.implementation.ReconciliationServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReconciliationServiceImplTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ReconciliationServiceImpl reconciliationService;
+
+    @BeforeEach
+    void setUp() {
+        reconciliationService = new ReconciliationServiceImpl(transactionRepository, ledgerEntryRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), meterRegistry,
+                60_000, 3, 2, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        reconciliationService.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reconcilePending_ShouldPageByKeysetAndResolveAgainstLedger() {
+        when(transactionRepository.findKeysByStatus(eq(TransactionStatus.PENDING), any(), eq(Limit.of(3))))
+                .thenReturn(List.of(key(1L), key(2L), key(3L)));
+        when(transactionRepository.findKeysByStatusAfter(eq(TransactionStatus.PENDING), any(),
+                eq(CREATED_AT), eq(3L), eq(Limit.of(3))))
+                .thenReturn(List.of(key(4L)));
+        when(ledgerEntryRepository.findRecordedTransactionIds(anyCollection()))
+                .thenAnswer(invocation -> ((Collection<Long>) invocation.getArgument(0)).stream()
+                        .filter(id -> id % 2 == 0)
+                        .toList());
+        when(transactionRepository.updateStatus(anyCollection(), eq(TransactionStatus.PENDING), any()))
+                .thenAnswer(invocation -> ((Collection<Long>) invocation.getArgument(0)).size());
+
+        assertEquals(4, reconciliationService.reconcilePending());
+
+        verify(transactionRepository).updateStatus(Set.of(2L), TransactionStatus.PENDING, TransactionStatus.COMPLETED);
+        verify(transactionRepository).updateStatus(List.of(1L), TransactionStatus.PENDING, TransactionStatus.FAILED);
+        verify(transactionRepository).updateStatus(List.of(3L), TransactionStatus.PENDING, TransactionStatus.FAILED);
+        verify(transactionRepository).updateStatus(Set.of(4L), TransactionStatus.PENDING, TransactionStatus.COMPLETED);
+        assertEquals(2, meterRegistry.get("bank.reconciler.resolved").tag("status", "COMPLETED").counter().count());
+        assertEquals(2, meterRegistry.get("bank.reconciler.resolved").tag("status", "FAILED").counter().count());
+    }
+
+    @Test
+    void reconcilePending_WithoutStuckTransactions_ShouldDoNothing() {
+        when(transactionRepository.findKeysByStatus(eq(TransactionStatus.PENDING), any(), eq(Limit.of(3))))
+                .thenReturn(List.of());
+
+        assertEquals(0, reconciliationService.reconcilePending());
+
+        verify(transactionRepository, never()).findKeysByStatusAfter(any(), any(), any(), any(), any());
+        verifyNoInteractions(ledgerEntryRepository);
+    }
+
+    private TransactionKey key(Long id) {
+        return new TransactionKey() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public LocalDateTime getCreatedAt() {
+                return CREATED_AT;
+            }
+        };
+    }
+}
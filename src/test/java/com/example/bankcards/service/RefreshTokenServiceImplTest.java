@@ -0,0 +1,106 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.InvalidTokenException;
+import com.example.bankcards.repository.RefreshTokenRepository;
+import com.example.bankcards.service.implementation.RefreshTokenServiceImpl;
+import com.example.bankcards.util.HashUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Date;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceImplTest {
+
+    private static final long REFRESH_EXPIRATION = 60_000;
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    private RefreshTokenServiceImpl refreshTokenService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        refreshTokenService = new RefreshTokenServiceImpl(refreshTokenRepository, REFRESH_EXPIRATION);
+        user = new User();
+        user.setId(1L);
+        user.setUsername("testuser");
+    }
+
+    @Test
+    void issue_ShouldStoreOnlyHashOfNewToken() {
+        String token = refreshTokenService.issue(user);
+
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(captor.capture());
+        RefreshToken saved = captor.getValue();
+        assertArrayEquals(HashUtils.sha256(token), saved.getTokenHash());
+        assertEquals(user, saved.getUser());
+        assertNotNull(saved.getFamilyId());
+        assertTrue(saved.getExpiryAt().after(new Date()));
+    }
+
+    @Test
+    void rotate_WithValidToken_ShouldMarkUsedAndIssueTokenOfSameFamily() throws InvalidTokenException {
+        RefreshToken current = new RefreshToken(HashUtils.sha256("old"), "family-1", user,
+                new Date(System.currentTimeMillis() + REFRESH_EXPIRATION));
+        when(refreshTokenRepository.findByTokenHash(HashUtils.sha256("old"))).thenReturn(Optional.of(current));
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate("old");
+
+        assertEquals(user, rotation.user());
+        assertNotEquals("old", rotation.refreshToken());
+        assertNotNull(current.getUsedAt());
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(captor.capture());
+        assertEquals("family-1", captor.getValue().getFamilyId());
+        assertArrayEquals(HashUtils.sha256(rotation.refreshToken()), captor.getValue().getTokenHash());
+    }
+
+    @Test
+    void rotate_WithUsedToken_ShouldRevokeFamily() {
+        RefreshToken used = new RefreshToken(HashUtils.sha256("old"), "family-1", user,
+                new Date(System.currentTimeMillis() + REFRESH_EXPIRATION));
+        used.setUsedAt(new Date());
+        when(refreshTokenRepository.findByTokenHash(HashUtils.sha256("old"))).thenReturn(Optional.of(used));
+
+        InvalidTokenException exception = assertThrows(InvalidTokenException.class,
+                () -> refreshTokenService.rotate("old"));
+
+        assertTrue(exception.getMessage().contains("already been used"));
+        verify(refreshTokenRepository).deleteByFamilyId("family-1");
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void rotate_WithExpiredToken_ShouldThrow() {
+        RefreshToken expired = new RefreshToken(HashUtils.sha256("old"), "family-1", user,
+                new Date(System.currentTimeMillis() - 1_000));
+        when(refreshTokenRepository.findByTokenHash(HashUtils.sha256("old"))).thenReturn(Optional.of(expired));
+
+        assertThrows(InvalidTokenException.class, () -> refreshTokenService.rotate("old"));
+
+        assertNull(expired.getUsedAt());
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void rotate_WithUnknownToken_ShouldThrow() {
+        when(refreshTokenRepository.findByTokenHash(any())).thenReturn(Optional.empty());
+
+        assertThrows(InvalidTokenException.class, () -> refreshTokenService.rotate("unknown"));
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.RevokedToken;
+import com.example.bankcards.entity.RevokedUser;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.InvalidTokenException;
+import com.example.bankcards.repository.RevokedTokenRepository;
+import com.example.bankcards.repository.RevokedUserRepository;
+import com.example.bankcards.security.JwtTokenCodec;
+import com.example.bankcards.service.implementation.RevocationListTokenRegistry;
+import com.example.bankcards.util.HashUtils;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RevocationListTokenRegistryTest {
+
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Mock
+    private RevokedUserRepository revokedUserRepository;
+
+    private final JwtTokenCodec jwtTokenCodec = new JwtTokenCodec(SECRET, "test", List.of());
+
+    private RevocationListTokenRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new RevocationListTokenRegistry(revokedTokenRepository, revokedUserRepository, jwtTokenCodec,
+                60_000, 4, 0.01, 5_000);
+    }
+
+    @Test
+    void revoke_ShouldRecordTokenAndRejectItWithoutQuery() throws InvalidTokenException {
+        String revoked = token("alice", 60_000);
+        String other = token("bob", 60_000);
+
+        registry.revoke(revoked);
+
+        verify(revokedTokenRepository).insertIfAbsent(eq(HashUtils.sha256Hex(revoked)), any(), any());
+        InvalidTokenException exception = assertThrows(InvalidTokenException.class, () -> check(revoked));
+        assertTrue(exception.getMessage().contains("revoked"));
+        check(other);
+        verifyNoMoreInteractions(revokedTokenRepository);
+    }
+
+    @Test
+    void revoke_WithExpiredToken_ShouldNotRecord() {
+        registry.revoke(token("alice", -60_000));
+
+        verify(revokedTokenRepository, never()).insertIfAbsent(any(), any(), any());
+    }
+
+    @Test
+    void load_ShouldRejectEveryStoredRevocationBeyondFilterCapacity() {
+        List<String> tokens = new ArrayList<>();
+        List<RevokedToken> rows = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            String token = token("user" + i, 60_000);
+            tokens.add(token);
+            rows.add(new RevokedToken(HashUtils.sha256Hex(token), new Date(System.currentTimeMillis() + 60_000)));
+        }
+        when(revokedTokenRepository.findByExpiryAtAfter(any())).thenReturn(rows);
+
+        registry.load();
+
+        tokens.forEach(token -> assertThrows(InvalidTokenException.class, () -> check(token)));
+    }
+
+    @Test
+    void refresh_ShouldPickUpRevocationsMadeByOtherInstances() {
+        String token = token("alice", 60_000);
+        when(revokedTokenRepository.findByRevokedAtAfterAndExpiryAtAfter(any(), any()))
+                .thenReturn(List.of(new RevokedToken(HashUtils.sha256Hex(token),
+                        new Date(System.currentTimeMillis() + 60_000))));
+
+        registry.refresh();
+
+        assertThrows(InvalidTokenException.class, () -> check(token));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void refresh_ShouldForgetRevocationsOfExpiredTokens() throws Exception {
+        String token = token("alice", 60_000);
+        when(revokedTokenRepository.findByExpiryAtAfter(any())).thenReturn(List.of(
+                new RevokedToken(HashUtils.sha256Hex(token), new Date(System.currentTimeMillis() + 50))));
+        registry.load();
+        Thread.sleep(100);
+
+        registry.refresh();
+
+        Map<String, Long> revoked = (Map<String, Long>) ReflectionTestUtils.getField(registry, "revoked");
+        assertTrue(revoked.isEmpty());
+        check(token);
+    }
+
+    @Test
+    void revokeUser_ShouldRejectTokensOfUserIssuedBefore() throws InvalidTokenException {
+        String alice = token("alice", 60_000);
+        String bob = token("bob", 60_000);
+        when(revokedUserRepository.save(any(RevokedUser.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        registry.revokeUser(User.builder().username("alice").build());
+
+        verify(revokedUserRepository).save(argThat(row -> "alice".equals(row.getUsername())
+                && row.getExpiryAt().getTime() - row.getRevokedAt().getTime() == 60_000));
+        assertThrows(InvalidTokenException.class, () -> check(alice));
+        check(bob);
+    }
+
+    @Test
+    void load_WithRevokedUser_ShouldAcceptOnlyTokensIssuedAfterRevocation() throws InvalidTokenException {
+        long now = System.currentTimeMillis();
+        when(revokedUserRepository.findByExpiryAtAfter(any())).thenReturn(List.of(
+                new RevokedUser("alice", new Date(now - 10_000), new Date(now + 50_000))));
+
+        registry.load();
+
+        assertThrows(InvalidTokenException.class, () -> registry.check("old", issuedAt("alice", now - 20_000)));
+        registry.check("new", issuedAt("alice", now - 5_000));
+        check(token("alice", 60_000));
+    }
+
+    @Test
+    void refresh_ShouldPickUpUserRevocationsMadeByOtherInstances() {
+        String token = token("alice", 60_000);
+        long now = System.currentTimeMillis();
+        when(revokedUserRepository.findByRevokedAtAfterAndExpiryAtAfter(any(), any())).thenReturn(List.of(
+                new RevokedUser("alice", new Date(now + 1_000), new Date(now + 61_000))));
+
+        registry.refresh();
+
+        assertThrows(InvalidTokenException.class, () -> check(token));
+    }
+
+    private void check(String token) throws InvalidTokenException {
+        registry.check(token, jwtTokenCodec.parse(token));
+    }
+
+    private Claims issuedAt(String subject, long issuedAt) {
+        return Jwts.claims().subject(subject).issuedAt(new Date(issuedAt)).build();
+    }
+
+    private String token(String subject, long validForMs) {
+        return jwtTokenCodec.sign(subject, Map.of(), new Date(System.currentTimeMillis() + validForMs));
+    }
+}
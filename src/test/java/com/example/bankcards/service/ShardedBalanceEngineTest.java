@@ -0,0 +1,274 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.request.TransactionRequest;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleEnum;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.LedgerEntryRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.implementation.ShardedBalanceEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bank-sharded;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;LOCK_TIMEOUT=10000",
+        "balance.engine=sharded",
+        "balance.sharded.shards=3",
+        "balance.sharded.journal-dir=target/balance-journal",
+        "balance.sharded.flush-interval-ms=50"
+})
+@ActiveProfiles("test")
+class ShardedBalanceEngineTest {
+
+    private static final int CARDS = 4;
+    private static final int THREADS = 8;
+    private static final int TRANSFERS_PER_THREAD = 50;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    @Autowired
+    private ShardedBalanceEngine balanceEngine;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path journalDirectory;
+
+    private final List<Long> cardIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        User user = userRepository.save(User.builder()
+                .username("sharded")
+                .password("password")
+                .email("sharded@example.com")
+                .firstName("Sharded")
+                .lastName("Test")
+                .role(RoleEnum.ROLE_USER)
+                .build());
+
+        for (int i = 0; i < CARDS; i++) {
+            Card card = new Card();
+            card.setUser(user);
+            card.setCardNumber("410000000000000" + i);
+            card.setMaskedNumber("**** **** **** 000" + i);
+            card.setCurrency("RUB");
+            card.setExpiryDate(LocalDate.now().plusYears(3));
+            card.setStatus(CardStatus.ACTIVE);
+            card.setBalance(INITIAL_BALANCE);
+            cardIds.add(cardRepository.save(card).getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        balanceEngine.flush();
+        ledgerEntryRepository.deleteAll();
+        transactionRepository.deleteAll();
+        cardIds.forEach(balanceEngine::evict);
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+        cardIds.clear();
+    }
+
+    @Test
+    void parallelTransfers_ShouldKeepTotalBalanceConstant() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    int from = random.nextInt(CARDS);
+                    int to = (from + 1 + random.nextInt(CARDS - 1)) % CARDS;
+
+                    TransactionRequest request = new TransactionRequest();
+                    request.setFromCardId(cardIds.get(from));
+                    request.setToCardId(cardIds.get(to));
+                    request.setAmount(BigDecimal.valueOf(random.nextInt(1, 200)));
+                    try {
+                        transactionService.transferBetweenCards(request);
+                        completed.incrementAndGet();
+                    } catch (InsufficientFundsException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        balanceEngine.flush();
+
+        List<Card> cards = cardRepository.findAllById(cardIds);
+        BigDecimal total = cards.stream()
+                .map(Card::getBalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        assertEquals(THREADS * TRANSFERS_PER_THREAD, completed.get() + rejected.get());
+        assertEquals(completed.get(), transactionRepository.count());
+        assertEquals(0, INITIAL_BALANCE.multiply(BigDecimal.valueOf(CARDS)).compareTo(total));
+        cards.forEach(card -> assertTrue(card.getBalance().signum() >= 0));
+    }
+
+    @Test
+    void transfer_ToBlockedCard_ShouldBeRejectedAndRefunded() {
+        Long from = cardIds.get(0);
+        Long to = cardIds.get(1);
+        assertEquals(BalanceEngine.TransferOutcome.COMPLETED,
+                balanceEngine.transfer(from, to, new BigDecimal("100.00")).getOutcome());
+
+        cardService.blockCard(to);
+
+        assertEquals(BalanceEngine.TransferOutcome.CREDIT_REJECTED,
+                balanceEngine.transfer(from, to, new BigDecimal("100.00")).getOutcome());
+        assertTrue(balanceEngine.debit(to, BigDecimal.ONE).isEmpty());
+        balanceEngine.flush();
+        assertEquals(0, new BigDecimal("900.00").compareTo(balanceOf(from)));
+        assertEquals(0, new BigDecimal("1100.00").compareTo(balanceOf(to)));
+    }
+
+    @Test
+    void transfer_WhenTransactionRollsBack_ShouldMoveBalancesBack() {
+        Long from = cardIds.get(0);
+        Long to = cardIds.get(1);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertEquals(BalanceEngine.TransferOutcome.COMPLETED,
+                    cardService.transferBalance(from, to, new BigDecimal("100.00")).getOutcome());
+            status.setRollbackOnly();
+        });
+
+        balanceEngine.flush();
+        assertEquals(0, INITIAL_BALANCE.compareTo(balanceOf(from)));
+        assertEquals(0, INITIAL_BALANCE.compareTo(balanceOf(to)));
+    }
+
+    @Test
+    void credit_SpentBeforeItsTransactionRollsBack_ShouldNotDriveTheCardBelowZero() {
+        Long from = cardIds.get(0);
+        Long to = cardIds.get(1);
+        assertEquals(0, BigDecimal.ZERO.compareTo(balanceEngine.debit(to, INITIAL_BALANCE).orElseThrow()));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertEquals(BalanceEngine.TransferOutcome.COMPLETED,
+                    cardService.transferBalance(from, to, new BigDecimal("100.00")).getOutcome());
+            assertTrue(balanceEngine.debit(to, new BigDecimal("100.00")).isEmpty());
+            assertEquals(BalanceEngine.TransferOutcome.DEBIT_REJECTED,
+                    balanceEngine.transfer(to, cardIds.get(2), new BigDecimal("100.00")).getOutcome());
+            status.setRollbackOnly();
+        });
+
+        balanceEngine.flush();
+        assertEquals(0, INITIAL_BALANCE.compareTo(balanceOf(from)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(balanceOf(to)));
+        assertEquals(0, INITIAL_BALANCE.compareTo(balanceOf(cardIds.get(2))));
+    }
+
+    @Test
+    void credit_AfterItsTransactionCommits_ShouldBeSpendable() {
+        Long cardId = cardIds.get(1);
+        assertEquals(0, BigDecimal.ZERO.compareTo(balanceEngine.debit(cardId, INITIAL_BALANCE).orElseThrow()));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                assertTrue(cardService.creditIfActive(cardId, new BigDecimal("100.00"))));
+
+        assertEquals(0, BigDecimal.ZERO.compareTo(
+                balanceEngine.debit(cardId, new BigDecimal("100.00")).orElseThrow()));
+    }
+
+    @Test
+    void debit_WithInsufficientFunds_ShouldBeRejected() {
+        Long cardId = cardIds.get(0);
+
+        assertEquals(new BigDecimal("400.00"), balanceEngine.debit(cardId, new BigDecimal("600.00")).orElseThrow());
+        assertTrue(balanceEngine.debit(cardId, new BigDecimal("600.00")).isEmpty());
+        assertTrue(balanceEngine.credit(Long.MAX_VALUE, BigDecimal.ONE).isEmpty());
+
+        balanceEngine.flush();
+        assertEquals(0, new BigDecimal("400.00").compareTo(balanceOf(cardId)));
+    }
+
+    @Test
+    void start_ShouldApplyJournalLeftByPreviousRun() throws Exception {
+        Long cardId = cardIds.get(2);
+        Files.write(journalDirectory.resolve("shard-0-00000000000000000001.log"), List.of(
+                "CREDIT," + cardId + ",50.00,1050.00,1",
+                "RESERVE," + cardId + ",20.00,1030.00,2",
+                "COMMIT," + cardId + ",20.00,0,2",
+                "DEBIT," + cardId + ",30.0"));
+
+        ShardedBalanceEngine recovered = new ShardedBalanceEngine(jdbcTemplate, transactionManager,
+                new SimpleMeterRegistry(), 2, journalDirectory.toString(), 1000, false);
+        recovered.start();
+        recovered.stop();
+
+        assertEquals(0, new BigDecimal("1030.00").compareTo(balanceOf(cardId)));
+        try (var files = Files.list(journalDirectory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private BigDecimal balanceOf(Long cardId) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM card WHERE id = ?", BigDecimal.class, cardId);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.RefreshTokenRepository;
+import com.example.bankcards.repository.RevokedTokenRepository;
+import com.example.bankcards.repository.RevokedUserRepository;
+import com.example.bankcards.repository.TokenRepository;
+import com.example.bankcards.service.implementation.TokenCleanupServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenCleanupServiceImplTest {
+
+    @Mock
+    private TokenRepository tokenRepository;
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Mock
+    private RevokedUserRepository revokedUserRepository;
+
+    @Mock
+    private JobLockService jobLockService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private TokenCleanupServiceImpl tokenCleanupService;
+
+    @BeforeEach
+    void setUp() {
+        tokenCleanupService = new TokenCleanupServiceImpl(tokenRepository, refreshTokenRepository,
+                revokedTokenRepository, revokedUserRepository, jobLockService, meterRegistry, 600_000, 2, 3);
+        lenient().when(jobLockService.tryAcquire("token-cleanup", 600_000)).thenReturn(true);
+    }
+
+    @Test
+    void purgeExpired_ShouldDeleteInChunksUntilLastPartialChunk() {
+        when(tokenRepository.findExpiredIds(any(Date.class), any(Pageable.class)))
+                .thenReturn(List.of(1L, 2L), List.of(3L));
+        when(tokenRepository.deleteByIdIn(anyList())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+
+        int purged = tokenCleanupService.purgeExpired();
+
+        assertEquals(3, purged);
+        verify(tokenRepository).deleteByIdIn(List.of(1L, 2L));
+        verify(tokenRepository).deleteByIdIn(List.of(3L));
+        assertEquals(3, meterRegistry.get("bank.token.purged").tag("table", "token").counter().count());
+        assertEquals(1, meterRegistry.get("bank.token.sweep").timer().count());
+    }
+
+    @Test
+    void purgeExpired_ShouldStopAfterMaxChunks() {
+        when(tokenRepository.findExpiredIds(any(Date.class), any(Pageable.class))).thenReturn(List.of(1L, 2L));
+        when(tokenRepository.deleteByIdIn(anyList())).thenReturn(2);
+
+        int purged = tokenCleanupService.purgeExpired();
+
+        assertEquals(6, purged);
+        verify(tokenRepository, times(3)).deleteByIdIn(anyList());
+    }
+
+    @Test
+    void purgeExpired_WithNothingExpired_ShouldNotDelete() {
+        when(tokenRepository.findExpiredIds(any(Date.class), any(Pageable.class))).thenReturn(List.of());
+
+        assertEquals(0, tokenCleanupService.purgeExpired());
+        verify(tokenRepository, never()).deleteByIdIn(anyList());
+    }
+
+    @Test
+    void purgeExpired_ShouldAlsoDeleteExpiredRefreshTokens() {
+        when(tokenRepository.findExpiredIds(any(Date.class), any(Pageable.class))).thenReturn(List.of());
+        when(refreshTokenRepository.findExpiredIds(any(Date.class), any(Pageable.class))).thenReturn(List.of(7L));
+        when(refreshTokenRepository.deleteByIdIn(List.of(7L))).thenReturn(1);
+
+        assertEquals(1, tokenCleanupService.purgeExpired());
+        assertEquals(1, meterRegistry.get("bank.token.purged").tag("table", "refresh_token").counter().count());
+    }
+
+    @Test
+    void purgeExpired_ShouldAlsoDeleteExpiredRevocations() {
+        when(revokedTokenRepository.findExpiredHashes(any(Date.class), any(Pageable.class)))
+                .thenReturn(List.of("a", "b"), List.of());
+        when(revokedTokenRepository.deleteByTokenHashIn(List.of("a", "b"))).thenReturn(2);
+
+        assertEquals(2, tokenCleanupService.purgeExpired());
+        assertEquals(2, meterRegistry.get("bank.token.purged").tag("table", "revoked_token").counter().count());
+    }
+
+    @Test
+    void purgeExpired_ShouldAlsoDeleteExpiredUserRevocations() {
+        when(revokedUserRepository.findExpiredIds(any(Date.class), any(Pageable.class))).thenReturn(List.of(5L));
+        when(revokedUserRepository.deleteByIdIn(List.of(5L))).thenReturn(1);
+
+        assertEquals(1, tokenCleanupService.purgeExpired());
+        assertEquals(1, meterRegistry.get("bank.token.purged").tag("table", "revoked_user").counter().count());
+    }
+
+    @Test
+    void purgeExpired_WhenAnotherInstanceHoldsLock_ShouldNotDelete() {
+        when(jobLockService.tryAcquire("token-cleanup", 600_000)).thenReturn(false);
+
+        assertEquals(0, tokenCleanupService.purgeExpired());
+        verifyNoInteractions(tokenRepository, refreshTokenRepository, revokedTokenRepository, revokedUserRepository);
+    }
+}
@@ -5,19 +5,24 @@ import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.InvalidTokenException;
 import com.example.bankcards.repository.TokenRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.JwtTokenCodec;
+import com.example.bankcards.security.TokenValidationCache;
 import com.example.bankcards.service.implementation.TokenServiceImpl;
+import com.example.bankcards.service.implementation.WhitelistTokenRegistry;
+import com.example.bankcards.util.HashUtils;
 import io.jsonwebtoken.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.test.util.ReflectionTestUtils;
 
-import java.security.Key;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -36,19 +41,27 @@ class TokenServiceImplTest {
     @Mock
     private TokenRepository tokenRepository;
 
-    @InjectMocks
+    @Mock
+    private TokenValidationCache tokenValidationCache;
+
+    private String secretKey = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+    private long expiration = 3600000;
+
+    @Spy
+    private JwtTokenCodec jwtTokenCodec = new JwtTokenCodec(secretKey, "test", List.of());
+
     private TokenServiceImpl tokenService;
 
     private User user;
     private UserDetails userDetails;
     private Token token;
     private String validToken;
-    private String secretKey = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
-    private long expiration = 3600000;
 
     @BeforeEach
     void setUp() {
-        ReflectionTestUtils.setField(tokenService, "secret", secretKey);
+        tokenService = new TokenServiceImpl(userRepository,
+                new WhitelistTokenRegistry(tokenRepository, userRepository),
+                jwtTokenCodec, tokenValidationCache);
         ReflectionTestUtils.setField(tokenService, "expiration", expiration);
 
         user = new User();
@@ -65,7 +78,7 @@ class TokenServiceImplTest {
 
         token = new Token();
         token.setId(1L);
-        token.setToken("valid.jwt.token");
+        token.setTokenHash(HashUtils.sha256("valid.jwt.token"));
         token.setUser(user);
 
         validToken = Jwts.builder()
@@ -76,7 +89,7 @@ class TokenServiceImplTest {
                 .compact();
     }
 
-    private Key getKey() {
+    private javax.crypto.SecretKey getKey() {
         byte[] keyBytes = java.util.Base64.getDecoder().decode(secretKey);
         return io.jsonwebtoken.security.Keys.hmacShaKeyFor(keyBytes);
     }
@@ -148,82 +161,93 @@ class TokenServiceImplTest {
         verify(userRepository, times(1)).findByUsername("unknown");
     }
 
+    @Test
+    void generateToken_ForUserEntity_ShouldIncludeUserId() throws InvalidTokenException {
+        String result = tokenService.generateToken(user);
+
+        Claims claims = tokenService.getAllClaimsFromToken(result);
+        assertEquals(1L, claims.get("uid", Long.class));
+        assertEquals(List.of("ROLE_USER"), claims.get("authorities", List.class));
+    }
+
     @Test
     void saveToken_WithValidToken_ShouldSaveToken() throws InvalidTokenException {
-        when(tokenRepository.findByToken(validToken)).thenReturn(null);
+        when(tokenRepository.existsByTokenHash(HashUtils.sha256(validToken))).thenReturn(false);
         when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
         when(tokenRepository.save(any(Token.class))).thenReturn(token);
 
         tokenService.saveToken(validToken);
 
-        verify(tokenRepository, times(1)).findByToken(validToken);
-        verify(userRepository, atLeastOnce()).findByUsername("testuser");
-        verify(tokenRepository, times(1)).save(any(Token.class));
+        verify(tokenRepository, times(1)).existsByTokenHash(HashUtils.sha256(validToken));
+        verify(userRepository, times(1)).findByUsername("testuser");
+        verify(jwtTokenCodec, times(1)).parse(validToken);
+        ArgumentCaptor<Token> captor = ArgumentCaptor.forClass(Token.class);
+        verify(tokenRepository, times(1)).save(captor.capture());
+        assertArrayEquals(HashUtils.sha256(validToken), captor.getValue().getTokenHash());
     }
 
     @Test
     void saveToken_WhenTokenAlreadyExists_ShouldThrowException() {
-        when(tokenRepository.findByToken(validToken)).thenReturn(token);
+        when(tokenRepository.existsByTokenHash(HashUtils.sha256(validToken))).thenReturn(true);
 
         InvalidTokenException exception = assertThrows(InvalidTokenException.class, () -> 
             tokenService.saveToken(validToken));
         
         assertTrue(exception.getMessage().contains("already exists"));
-        verify(tokenRepository, times(1)).findByToken(validToken);
+        verify(tokenRepository, times(1)).existsByTokenHash(HashUtils.sha256(validToken));
         verify(userRepository, never()).findByUsername(any());
         verify(tokenRepository, never()).save(any());
     }
 
     @Test
     void saveToken_WhenUserNotFound_ShouldNotSaveToken() throws InvalidTokenException {
-        when(tokenRepository.findByToken(validToken)).thenReturn(null);
+        when(tokenRepository.existsByTokenHash(HashUtils.sha256(validToken))).thenReturn(false);
         when(userRepository.findByUsername("testuser")).thenReturn(Optional.empty());
 
         tokenService.saveToken(validToken);
 
-        verify(tokenRepository, times(1)).findByToken(validToken);
+        verify(tokenRepository, times(1)).existsByTokenHash(HashUtils.sha256(validToken));
         verify(userRepository, times(1)).findByUsername("testuser");
         verify(tokenRepository, never()).save(any(Token.class));
     }
 
     @Test
     void validateToken_WithValidToken_ShouldNotThrowException() throws InvalidTokenException {
-        when(tokenRepository.findByToken(validToken)).thenReturn(token);
+        when(tokenRepository.existsByTokenHash(HashUtils.sha256(validToken))).thenReturn(true);
 
         assertDoesNotThrow(() -> tokenService.validateToken(validToken));
-        verify(tokenRepository, times(1)).findByToken(validToken);
+        verify(tokenRepository, times(1)).existsByTokenHash(HashUtils.sha256(validToken));
     }
 
     @Test
     void validateToken_WhenTokenNotFound_ShouldThrowException() {
-        when(tokenRepository.findByToken(validToken)).thenReturn(null);
+        when(tokenRepository.existsByTokenHash(HashUtils.sha256(validToken))).thenReturn(false);
 
         InvalidTokenException exception = assertThrows(InvalidTokenException.class, () -> 
             tokenService.validateToken(validToken));
         
         assertTrue(exception.getMessage().contains("not found"));
-        verify(tokenRepository, times(1)).findByToken(validToken);
+        verify(tokenRepository, times(1)).existsByTokenHash(HashUtils.sha256(validToken));
     }
 
     @Test
     void invalidateToken_WhenTokenExists_ShouldDeleteToken() {
-        when(tokenRepository.findByToken(validToken)).thenReturn(token);
-        doNothing().when(tokenRepository).deleteByToken(validToken);
+        when(tokenRepository.deleteByTokenHash(HashUtils.sha256(validToken))).thenReturn(1);
 
         tokenService.invalidateToken(validToken);
 
-        verify(tokenRepository, times(1)).findByToken(validToken);
-        verify(tokenRepository, times(1)).deleteByToken(validToken);
+        InOrder inOrder = inOrder(tokenRepository, tokenValidationCache);
+        inOrder.verify(tokenRepository, times(1)).deleteByTokenHash(HashUtils.sha256(validToken));
+        inOrder.verify(tokenValidationCache, times(1)).evict(validToken);
     }
 
     @Test
-    void invalidateToken_WhenTokenNotExists_ShouldDoNothing() {
-        when(tokenRepository.findByToken(validToken)).thenReturn(null);
+    void invalidateToken_WhenTokenNotExists_ShouldDeleteNothing() {
+        when(tokenRepository.deleteByTokenHash(HashUtils.sha256(validToken))).thenReturn(0);
 
-        tokenService.invalidateToken(validToken);
+        assertDoesNotThrow(() -> tokenService.invalidateToken(validToken));
 
-        verify(tokenRepository, times(1)).findByToken(validToken);
-        verify(tokenRepository, never()).deleteByToken(any());
+        verify(tokenRepository, times(1)).deleteByTokenHash(HashUtils.sha256(validToken));
     }
 
     @Test
@@ -235,13 +259,13 @@ class TokenServiceImplTest {
                 .signWith(getKey(), SignatureAlgorithm.HS256)
                 .compact();
 
-        when(tokenRepository.findByToken(expiredToken)).thenReturn(token);
-        doNothing().when(tokenRepository).deleteByToken(expiredToken);
+        when(tokenRepository.deleteByTokenHash(HashUtils.sha256(expiredToken))).thenReturn(1);
 
         assertThrows(InvalidTokenException.class, () -> 
             tokenService.getClaimFromToken(expiredToken, Claims::getSubject));
         
-        verify(tokenRepository, times(1)).deleteByToken(expiredToken);
+        verify(tokenRepository, times(1)).deleteByTokenHash(HashUtils.sha256(expiredToken));
+        verify(tokenValidationCache, times(1)).evict(expiredToken);
     }
 
     @Test
@@ -265,10 +289,11 @@ class TokenServiceImplTest {
     }
 
     @Test
-    void key_ShouldReturnValidKey() {
-        Key key = (Key) ReflectionTestUtils.invokeMethod(tokenService, "key");
+    void getAllClaimsFromToken_WithValidToken_ShouldReturnAllClaims() throws InvalidTokenException {
+        Claims claims = tokenService.getAllClaimsFromToken(validToken);
 
-        assertNotNull(key);
+        assertEquals("testuser", claims.getSubject());
+        assertTrue(claims.getExpiration().after(new Date()));
     }
 
     @Test
@@ -278,14 +303,14 @@ class TokenServiceImplTest {
 
         assertNotNull(token);
 
-        Key signingKey = (Key) ReflectionTestUtils.invokeMethod(tokenService, "key");
-
-        Claims claims = Jwts.parser()
-                .setSigningKey(signingKey)
+        Jws<Claims> jws = Jwts.parser()
+                .verifyWith(getKey())
                 .build()
-                .parseClaimsJws(token)
-                .getBody();
+                .parseSignedClaims(token);
+        Claims claims = jws.getPayload();
 
+        assertEquals("test", jws.getHeader().getKeyId());
+        assertFalse(claims.containsKey("uid"));
         assertEquals("testuser", claims.getSubject());
         assertTrue(claims.containsKey("authorities"));
         List<String> authorities = (List<String>) claims.get("authorities");
@@ -1,30 +1,52 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.request.BatchTransferItem;
+import com.example.bankcards.dto.request.BatchTransferRequest;
 import com.example.bankcards.dto.request.TransactionRequest;
+import com.example.bankcards.dto.response.BatchTransferItemResult;
 import com.example.bankcards.dto.response.TransactionResponse;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.User;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.entity.enums.TransactionStatus;
+import com.example.bankcards.exception.ActiveCardsException;
+import com.example.bankcards.exception.CardAccessDeniedException;
+import com.example.bankcards.exception.CardException;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.exception.TransferException;
 import com.example.bankcards.mapper.Mapper;
 import com.example.bankcards.repository.TransactionRepository;
 import com.example.bankcards.service.implementation.TransactionServiceImpl;
+import com.example.bankcards.util.RetryPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
+import org.mockito.Spy;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.quality.Strictness;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
@@ -38,9 +60,23 @@ class TransactionServiceImplTest {
     @Mock
     private CardService cardService;
 
+    @Mock
+    private LedgerService ledgerService;
+
+    @Mock
+    private OutboxService outboxService;
+
     @Mock
     private Mapper mapper;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private RetryPolicy retryPolicy = new RetryPolicy(3, 1, 5, meterRegistry);
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     @InjectMocks
     private TransactionServiceImpl transactionService;
 
@@ -63,6 +99,7 @@ class TransactionServiceImplTest {
 
         fromCard = new Card();
         fromCard.setId(1L);
+        fromCard.setUser(User.builder().id(1L).build());
         fromCard.setBalance(new BigDecimal("500.00"));
         fromCard.setStatus(CardStatus.ACTIVE);
 
@@ -118,6 +155,19 @@ class TransactionServiceImplTest {
                 .findByFromAccountUserIdOrToAccountUserId(1L, 1L);
     }
 
+    @Test
+    void getUserTransactionsPaginated_ShouldReturnProjectedResponses() {
+        Pageable pageable = Pageable.ofSize(10);
+        when(transactionRepository.findResponsesByUserId(1L, pageable))
+                .thenReturn(new PageImpl<>(List.of(transactionResponse)));
+
+        Page<TransactionResponse> result = transactionService.getUserTransactionsPaginated(1L, pageable);
+
+        assertEquals(List.of(transactionResponse), result.getContent());
+        verify(transactionRepository, times(1)).findResponsesByUserId(1L, pageable);
+        verifyNoInteractions(mapper);
+    }
+
     @Test
     void getPendingTransactions_ShouldReturnPendingTransactions() {
         List<Transaction> transactions = Arrays.asList(transaction);
@@ -135,11 +185,9 @@ class TransactionServiceImplTest {
 
     @Test
     void transferBetweenCards_ShouldCompleteSuccessfully() {
-        when(cardService.getCardById(1L)).thenReturn(Optional.of(fromCard));
-        when(cardService.getCardById(2L)).thenReturn(Optional.of(toCard));
         when(transactionRepository.save(any(Transaction.class))).thenReturn(transaction);
-        when(cardService.withdrawFromCard(anyLong(), any(BigDecimal.class))).thenReturn(fromCard);
-        when(cardService.depositToCard(anyLong(), any(BigDecimal.class))).thenReturn(toCard);
+        when(cardService.transferBalance(1L, 2L, new BigDecimal("100.00")))
+                .thenReturn(completed());
         when(mapper.dtoToResponse(any(Transaction.class))).thenReturn(transactionResponse);
 
         TransactionResponse result = transactionService.transferBetweenCards(transactionRequest);
@@ -147,98 +195,183 @@ class TransactionServiceImplTest {
         assertNotNull(result);
         assertEquals("COMPLETED", result.getStatus());
 
-        verify(cardService, times(1)).getCardById(1L);
-        verify(cardService, times(1)).getCardById(2L);
-        verify(transactionRepository, times(2)).save(any(Transaction.class));
-        verify(cardService, times(1)).withdrawFromCard(1L, new BigDecimal("100.00"));
-        verify(cardService, times(1)).depositToCard(2L, new BigDecimal("100.00"));
+        verify(cardService, times(1)).transferBalance(1L, 2L, new BigDecimal("100.00"));
+        verify(cardService, never()).getCardById(anyLong());
+        verify(transactionRepository, times(1)).save(any(Transaction.class));
+        verify(ledgerService, times(1)).recordTransfer(transaction, new BigDecimal("400.00"), new BigDecimal("300.00"));
+        verify(outboxService, times(1)).transferCompleted(transaction);
         verify(mapper, times(1)).dtoToResponse(any(Transaction.class));
     }
 
+    @Test
+    void transferBetweenCards_ShouldMoveBalancesBeforeSavingTransaction() {
+        when(transactionRepository.save(any(Transaction.class))).thenReturn(transaction);
+        when(cardService.transferBalance(1L, 2L, new BigDecimal("100.00")))
+                .thenReturn(completed());
+        when(mapper.dtoToResponse(any(Transaction.class))).thenReturn(transactionResponse);
+
+        transactionService.transferBetweenCards(transactionRequest);
+
+        InOrder inOrder = inOrder(transactionRepository, cardService);
+        inOrder.verify(cardService).transferBalance(1L, 2L, new BigDecimal("100.00"));
+        inOrder.verify(transactionRepository).save(any(Transaction.class));
+    }
+
+    @Test
+    void transferBetweenCards_WithCallback_ShouldPassResponseBeforeReturning() {
+        when(transactionRepository.save(any(Transaction.class))).thenReturn(transaction);
+        when(cardService.transferBalance(1L, 2L, new BigDecimal("100.00")))
+                .thenReturn(completed());
+        when(mapper.dtoToResponse(any(Transaction.class))).thenReturn(transactionResponse);
+        List<TransactionResponse> completions = new ArrayList<>();
+
+        TransactionResponse result = transactionService.transferBetweenCards(transactionRequest, completions::add);
+
+        assertEquals(List.of(result), completions);
+    }
+
+    @Test
+    void transferBetweenCards_WithMaskedNumbersFromEngine_ShouldNotLoadCards() {
+        when(cardService.getCardReference(1L)).thenReturn(fromCard);
+        when(cardService.getCardReference(2L)).thenReturn(toCard);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(cardService.transferBalance(1L, 2L, new BigDecimal("100.00")))
+                .thenReturn(new BalanceEngine.TransferResult(BalanceEngine.TransferOutcome.COMPLETED,
+                        new BigDecimal("400.00"), new BigDecimal("300.00"),
+                        "**** **** **** 1111", "**** **** **** 2222"));
+
+        TransactionResponse result = transactionService.transferBetweenCards(transactionRequest);
+
+        assertEquals("**** **** **** 1111", result.getFromCardNumber());
+        assertEquals("**** **** **** 2222", result.getToCardNumber());
+        assertEquals("COMPLETED", result.getStatus());
+        verify(cardService, never()).getCardById(anyLong());
+        verify(mapper, never()).dtoToResponse(any(Transaction.class));
+    }
+
+    @Test
+    void transferBetweenCards_WhenSameCard_ShouldThrowExceptionWithoutUpdating() {
+        transactionRequest.setToCardId(1L);
+
+        assertThrows(RuntimeException.class,
+                () -> transactionService.transferBetweenCards(transactionRequest));
+
+        verify(cardService, never()).transferBalance(anyLong(), anyLong(), any());
+        verify(transactionRepository, never()).save(any());
+    }
+
     @Test
     void transferBetweenCards_WhenFromCardNotFound_ShouldThrowException() {
+        when(cardService.transferBalance(1L, 2L, new BigDecimal("100.00")))
+                .thenReturn(BalanceEngine.TransferResult.rejected(BalanceEngine.TransferOutcome.DEBIT_REJECTED));
         when(cardService.getCardById(1L)).thenReturn(Optional.empty());
 
-        assertThrows(RuntimeException.class,
+        assertThrows(TransferException.class,
                 () -> transactionService.transferBetweenCards(transactionRequest));
 
-        verify(cardService, times(1)).getCardById(1L);
-        verify(cardService, never()).getCardById(2L);
         verify(transactionRepository, never()).save(any());
     }
 
     @Test
     void transferBetweenCards_WhenToCardNotFound_ShouldThrowException() {
+        when(cardService.transferBalance(1L, 2L, new BigDecimal("100.00")))
+                .thenReturn(BalanceEngine.TransferResult.rejected(BalanceEngine.TransferOutcome.CREDIT_REJECTED));
         when(cardService.getCardById(1L)).thenReturn(Optional.of(fromCard));
         when(cardService.getCardById(2L)).thenReturn(Optional.empty());
 
-        assertThrows(RuntimeException.class,
+        assertThrows(TransferException.class,
                 () -> transactionService.transferBetweenCards(transactionRequest));
 
-        verify(cardService, times(1)).getCardById(1L);
-        verify(cardService, times(1)).getCardById(2L);
         verify(transactionRepository, never()).save(any());
     }
 
     @Test
     void transferBetweenCards_WhenInsufficientFunds_ShouldThrowException() {
         fromCard.setBalance(new BigDecimal("50.00"));
+        when(cardService.transferBalance(1L, 2L, new BigDecimal("100.00")))
+                .thenReturn(BalanceEngine.TransferResult.rejected(BalanceEngine.TransferOutcome.DEBIT_REJECTED));
         when(cardService.getCardById(1L)).thenReturn(Optional.of(fromCard));
-        when(cardService.getCardById(2L)).thenReturn(Optional.of(toCard));
 
-        assertThrows(RuntimeException.class,
+        InsufficientFundsException exception = assertThrows(InsufficientFundsException.class,
                 () -> transactionService.transferBetweenCards(transactionRequest));
 
-        verify(transactionRepository, never()).save(any());
-        verify(cardService, never()).withdrawFromCard(anyLong(), any());
+        assertEquals(new BigDecimal("50.00"), exception.getAvailableBalance());
+        verify(ledgerService, never()).recordTransfer(any(), any(), any());
+        verify(mapper, never()).dtoToResponse(any(Transaction.class));
     }
 
     @Test
     void transferBetweenCards_WhenFromCardNotActive_ShouldThrowException() {
         fromCard.setStatus(CardStatus.BLOCKED);
+        when(cardService.transferBalance(1L, 2L, new BigDecimal("100.00")))
+                .thenReturn(BalanceEngine.TransferResult.rejected(BalanceEngine.TransferOutcome.DEBIT_REJECTED));
         when(cardService.getCardById(1L)).thenReturn(Optional.of(fromCard));
         when(cardService.getCardById(2L)).thenReturn(Optional.of(toCard));
 
-        assertThrows(RuntimeException.class,
+        ActiveCardsException exception = assertThrows(ActiveCardsException.class,
                 () -> transactionService.transferBetweenCards(transactionRequest));
 
-        verify(transactionRepository, never()).save(any());
-        verify(cardService, never()).withdrawFromCard(anyLong(), any());
+        assertEquals(CardStatus.BLOCKED, exception.getFirstCardStatus());
+        assertEquals(CardStatus.ACTIVE, exception.getSecondCardStatus());
     }
 
     @Test
     void transferBetweenCards_WhenToCardNotActive_ShouldThrowException() {
         toCard.setStatus(CardStatus.BLOCKED);
+        when(cardService.transferBalance(1L, 2L, new BigDecimal("100.00")))
+                .thenReturn(BalanceEngine.TransferResult.rejected(BalanceEngine.TransferOutcome.CREDIT_REJECTED));
         when(cardService.getCardById(1L)).thenReturn(Optional.of(fromCard));
         when(cardService.getCardById(2L)).thenReturn(Optional.of(toCard));
 
-        assertThrows(RuntimeException.class,
+        ActiveCardsException exception = assertThrows(ActiveCardsException.class,
                 () -> transactionService.transferBetweenCards(transactionRequest));
 
-        verify(transactionRepository, never()).save(any());
-        verify(cardService, never()).depositToCard(anyLong(), any());
+        assertEquals(CardStatus.BLOCKED, exception.getSecondCardStatus());
+        verify(ledgerService, never()).recordTransfer(any(), any(), any());
     }
 
     @Test
-    void transferBetweenCards_WhenTransferFails_ShouldMarkAsFailed() {
-        when(cardService.getCardById(1L)).thenReturn(Optional.of(fromCard));
-        when(cardService.getCardById(2L)).thenReturn(Optional.of(toCard));
-        doThrow(new RuntimeException("Bank error"))
-                .when(cardService).withdrawFromCard(1L, new BigDecimal("100.00"));
+    void transferBetweenCards_WhenOptimisticLockFails_ShouldRetryInNewTransaction() {
+        when(transactionRepository.save(any(Transaction.class))).thenReturn(transaction);
+        when(cardService.transferBalance(1L, 2L, new BigDecimal("100.00")))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Card.class, 1L))
+                .thenReturn(completed());
+        when(mapper.dtoToResponse(any(Transaction.class))).thenReturn(transactionResponse);
 
-        Transaction failedTransaction = new Transaction();
-        failedTransaction.setStatus(TransactionStatus.FAILED);
-        when(transactionRepository.save(any(Transaction.class)))
-                .thenReturn(transaction)
-                .thenReturn(failedTransaction);
+        TransactionResponse result = transactionService.transferBetweenCards(transactionRequest);
 
-        assertThrows(RuntimeException.class,
+        assertEquals("COMPLETED", result.getStatus());
+        verify(cardService, times(2)).transferBalance(1L, 2L, new BigDecimal("100.00"));
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(mapper, times(1)).dtoToResponse(any(Transaction.class));
+        assertEquals(1.0, meterRegistry.counter("bank.retry", "operation", "transfer", "outcome", "retried").count());
+        assertEquals(1.0, meterRegistry.counter("bank.retry", "operation", "transfer", "outcome", "recovered").count());
+    }
+
+    @Test
+    void transferBetweenCards_WhenOptimisticLockKeepsFailing_ShouldGiveUpAfterMaxAttempts() {
+        when(cardService.transferBalance(1L, 2L, new BigDecimal("100.00")))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Card.class, 1L));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
                 () -> transactionService.transferBetweenCards(transactionRequest));
 
-        verify(transactionRepository, times(2)).save(any(Transaction.class));
-        verify(cardService, times(1)).withdrawFromCard(1L, new BigDecimal("100.00"));
-        verify(cardService, never()).depositToCard(anyLong(), any());
+        verify(cardService, times(3)).transferBalance(1L, 2L, new BigDecimal("100.00"));
         verify(mapper, never()).dtoToResponse(any(Transaction.class));
+        assertEquals(1.0, meterRegistry.counter("bank.retry", "operation", "transfer", "outcome", "exhausted").count());
+    }
+
+    @Test
+    void transferBetweenCards_WhenBusinessRuleFails_ShouldNotRetry() {
+        fromCard.setBalance(new BigDecimal("50.00"));
+        when(cardService.transferBalance(1L, 2L, new BigDecimal("100.00")))
+                .thenReturn(BalanceEngine.TransferResult.rejected(BalanceEngine.TransferOutcome.DEBIT_REJECTED));
+        when(cardService.getCardById(1L)).thenReturn(Optional.of(fromCard));
+
+        assertThrows(InsufficientFundsException.class,
+                () -> transactionService.transferBetweenCards(transactionRequest));
+
+        verify(cardService, times(1)).transferBalance(1L, 2L, new BigDecimal("100.00"));
     }
 
     @Test
@@ -264,19 +397,142 @@ class TransactionServiceImplTest {
 
     @Test
     void transferBetweenCards_ShouldSetCorrectTransactionDetails() {
-        when(cardService.getCardById(1L)).thenReturn(Optional.of(fromCard));
-        when(cardService.getCardById(2L)).thenReturn(Optional.of(toCard));
+        when(cardService.getCardReference(1L)).thenReturn(fromCard);
+        when(cardService.getCardReference(2L)).thenReturn(toCard);
+        when(cardService.transferBalance(1L, 2L, new BigDecimal("100.00")))
+                .thenReturn(completed());
         when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
             Transaction savedTransaction = invocation.getArgument(0);
             savedTransaction.setId(1L);
             return savedTransaction;
         });
-        when(cardService.withdrawFromCard(anyLong(), any(BigDecimal.class))).thenReturn(fromCard);
-        when(cardService.depositToCard(anyLong(), any(BigDecimal.class))).thenReturn(toCard);
         when(mapper.dtoToResponse(any(Transaction.class))).thenReturn(transactionResponse);
 
         transactionService.transferBetweenCards(transactionRequest);
 
-        verify(transactionRepository, times(2)).save(any(Transaction.class));
+        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+        verify(transactionRepository, times(1)).save(captor.capture());
+        Transaction saved = captor.getValue();
+        assertEquals(new BigDecimal("100.00"), saved.getAmount());
+        assertEquals(fromCard, saved.getFromCard());
+        assertEquals(toCard, saved.getToCard());
+        assertEquals("Test transfer", saved.getDescription());
+        assertEquals(TransactionStatus.COMPLETED, saved.getStatus());
+    }
+
+    @Test
+    void transferBatch_ShouldApplyValidItemsAndRejectTheRest() {
+        Card blockedCard = new Card();
+        blockedCard.setId(3L);
+        blockedCard.setBalance(BigDecimal.ZERO);
+        blockedCard.setStatus(CardStatus.BLOCKED);
+        when(cardService.getCardsByIdsForUpdate(anyCollection()))
+                .thenReturn(List.of(fromCard, toCard, blockedCard));
+        when(mapper.dtoToResponse(any(Transaction.class))).thenReturn(transactionResponse);
+
+        BatchTransferRequest request = new BatchTransferRequest();
+        request.setFromCardId(1L);
+        request.setTransfers(List.of(
+                batchItem(2L, "300.00"),
+                batchItem(3L, "10.00"),
+                batchItem(4L, "10.00"),
+                batchItem(2L, "300.00"),
+                batchItem(2L, "200.00")));
+
+        List<BatchTransferItemResult> results = transactionService.transferBatch(1L, request);
+
+        assertEquals(5, results.size());
+        assertEquals(List.of("COMPLETED", "FAILED", "FAILED", "FAILED", "COMPLETED"),
+                results.stream().map(BatchTransferItemResult::getStatus).toList());
+        assertNotNull(results.get(0).getTransaction());
+        assertNull(results.get(1).getTransaction());
+        assertNotNull(results.get(3).getError());
+        assertEquals(0, BigDecimal.ZERO.compareTo(fromCard.getBalance()));
+        assertEquals(0, new BigDecimal("700.00").compareTo(toCard.getBalance()));
+
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
+        verify(transactionRepository, times(1)).saveAll(captor.capture());
+        assertEquals(2, captor.getValue().size());
+        verify(transactionRepository, never()).save(any());
+        verify(ledgerService, times(1)).recordTransfer(captor.getValue().get(0),
+                new BigDecimal("200.00"), new BigDecimal("500.00"));
+        verify(ledgerService, times(1)).recordTransfer(captor.getValue().get(1),
+                new BigDecimal("0.00"), new BigDecimal("700.00"));
+        verify(outboxService, times(1)).transferCompleted(captor.getValue().get(0));
+        verify(outboxService, times(1)).transferCompleted(captor.getValue().get(1));
+    }
+
+    @Test
+    void transferBatch_WithMissingSourceCard_ShouldThrowException() {
+        when(cardService.getCardsByIdsForUpdate(anyCollection())).thenReturn(List.of(toCard));
+
+        BatchTransferRequest request = new BatchTransferRequest();
+        request.setFromCardId(1L);
+        request.setTransfers(List.of(batchItem(2L, "10.00")));
+
+        assertThrows(TransferException.class, () -> transactionService.transferBatch(1L, request));
+        verify(transactionRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void transferBatch_WithBlockedSourceCard_ShouldThrowException() {
+        fromCard.setStatus(CardStatus.BLOCKED);
+        when(cardService.getCardsByIdsForUpdate(anyCollection())).thenReturn(List.of(fromCard, toCard));
+
+        BatchTransferRequest request = new BatchTransferRequest();
+        request.setFromCardId(1L);
+        request.setTransfers(List.of(batchItem(2L, "10.00")));
+
+        assertThrows(CardException.class, () -> transactionService.transferBatch(1L, request));
+        verify(transactionRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void transferBatch_WithSourceCardOfAnotherUser_ShouldThrowException() {
+        when(cardService.getCardsByIdsForUpdate(anyCollection())).thenReturn(List.of(fromCard, toCard));
+
+        BatchTransferRequest request = new BatchTransferRequest();
+        request.setFromCardId(1L);
+        request.setTransfers(List.of(batchItem(2L, "10.00")));
+
+        assertThrows(CardAccessDeniedException.class, () -> transactionService.transferBatch(2L, request));
+        verify(transactionRepository, never()).saveAll(any());
+        assertEquals(0, new BigDecimal("500.00").compareTo(fromCard.getBalance()));
+    }
+
+    @Test
+    void transferBatch_WithBalancesInMemory_ShouldTransferEachItemOnItsOwn() {
+        when(cardService.balancesInMemory()).thenReturn(true);
+        when(cardService.getCardById(1L)).thenReturn(Optional.of(fromCard));
+        when(transactionRepository.save(any(Transaction.class))).thenReturn(transaction);
+        when(cardService.transferBalance(1L, 2L, new BigDecimal("300.00")))
+                .thenReturn(completed());
+        when(cardService.transferBalance(1L, 2L, new BigDecimal("900.00")))
+                .thenReturn(BalanceEngine.TransferResult.rejected(BalanceEngine.TransferOutcome.DEBIT_REJECTED));
+        when(mapper.dtoToResponse(any(Transaction.class))).thenReturn(transactionResponse);
+
+        BatchTransferRequest request = new BatchTransferRequest();
+        request.setFromCardId(1L);
+        request.setTransfers(List.of(batchItem(2L, "300.00"), batchItem(2L, "900.00")));
+
+        List<BatchTransferItemResult> results = transactionService.transferBatch(1L, request);
+
+        assertEquals(List.of("COMPLETED", "FAILED"),
+                results.stream().map(BatchTransferItemResult::getStatus).toList());
+        assertNotNull(results.get(1).getError());
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(cardService, never()).getCardsByIdsForUpdate(anyCollection());
+    }
+
+    private BalanceEngine.TransferResult completed() {
+        return new BalanceEngine.TransferResult(BalanceEngine.TransferOutcome.COMPLETED,
+                new BigDecimal("400.00"), new BigDecimal("300.00"));
+    }
+
+    private BatchTransferItem batchItem(Long toCardId, String amount) {
+        BatchTransferItem item = new BatchTransferItem();
+        item.setToCardId(toCardId);
+        item.setAmount(new BigDecimal(amount));
+        return item;
     }
 }
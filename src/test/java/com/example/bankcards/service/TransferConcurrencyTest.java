@@ -0,0 +1,187 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.request.BatchTransferItem;
+import com.example.bankcards.dto.request.BatchTransferRequest;
+import com.example.bankcards.dto.request.TransactionRequest;
+import com.example.bankcards.dto.response.BatchTransferItemResult;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.LedgerEntry;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleEnum;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.LedgerEntryRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TransferConcurrencyTest {
+
+    private static final int CARDS = 4;
+    private static final int THREADS = 8;
+    private static final int TRANSFERS_PER_THREAD = 50;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    private final List<Long> cardIds = new ArrayList<>();
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        User user = userRepository.save(User.builder()
+                .username("concurrency")
+                .password("password")
+                .email("concurrency@example.com")
+                .firstName("Concurrency")
+                .lastName("Test")
+                .role(RoleEnum.ROLE_USER)
+                .build());
+        userId = user.getId();
+
+        for (int i = 0; i < CARDS; i++) {
+            Card card = new Card();
+            card.setUser(user);
+            card.setCardNumber("400000000000000" + i);
+            card.setMaskedNumber("**** **** **** 000" + i);
+            card.setCurrency("RUB");
+            card.setExpiryDate(LocalDate.now().plusYears(3));
+            card.setStatus(CardStatus.ACTIVE);
+            card.setBalance(INITIAL_BALANCE);
+            cardIds.add(cardRepository.save(card).getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        ledgerEntryRepository.deleteAll();
+        transactionRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+        cardIds.clear();
+    }
+
+    @Test
+    void parallelTransfers_ShouldKeepTotalBalanceConstant() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    int from = random.nextInt(CARDS);
+                    int to = (from + 1 + random.nextInt(CARDS - 1)) % CARDS;
+
+                    TransactionRequest request = new TransactionRequest();
+                    request.setFromCardId(cardIds.get(from));
+                    request.setToCardId(cardIds.get(to));
+                    request.setAmount(BigDecimal.valueOf(random.nextInt(1, 200)));
+                    try {
+                        transactionService.transferBetweenCards(request);
+                        completed.incrementAndGet();
+                    } catch (InsufficientFundsException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        List<Card> cards = cardRepository.findAllById(cardIds);
+        BigDecimal total = cards.stream()
+                .map(Card::getBalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        assertEquals(THREADS * TRANSFERS_PER_THREAD, completed.get() + rejected.get());
+        assertEquals(completed.get(), transactionRepository.count());
+        assertEquals(0, INITIAL_BALANCE.multiply(BigDecimal.valueOf(CARDS)).compareTo(total));
+        cards.forEach(card -> assertTrue(card.getBalance().signum() >= 0));
+        assertEquals(completed.get() * 2L, ledgerEntryRepository.count());
+        cards.forEach(this::assertLedgerMatches);
+    }
+
+    @Test
+    void batchTransfer_ShouldMoveFundsAndKeepTotalBalanceConstant() {
+        BatchTransferRequest request = new BatchTransferRequest();
+        request.setFromCardId(cardIds.get(0));
+        List<BatchTransferItem> items = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            BatchTransferItem item = new BatchTransferItem();
+            item.setToCardId(cardIds.get(1 + i % (CARDS - 1)));
+            item.setAmount(new BigDecimal("40.00"));
+            items.add(item);
+        }
+        request.setTransfers(items);
+
+        List<BatchTransferItemResult> results = transactionService.transferBatch(userId, request);
+
+        long completedItems = results.stream().filter(r -> "COMPLETED".equals(r.getStatus())).count();
+        assertEquals(25, completedItems);
+        assertEquals(25, transactionRepository.count());
+        List<Card> cards = cardRepository.findAllById(cardIds);
+        BigDecimal total = cards.stream()
+                .map(Card::getBalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, INITIAL_BALANCE.multiply(BigDecimal.valueOf(CARDS)).compareTo(total));
+        assertEquals(0, BigDecimal.ZERO.compareTo(cardRepository.findById(cardIds.get(0)).orElseThrow().getBalance()));
+        assertEquals(50, ledgerEntryRepository.count());
+        cards.forEach(this::assertLedgerMatches);
+    }
+
+    private void assertLedgerMatches(Card card) {
+        List<LedgerEntry> entries = ledgerEntryRepository.findByCardIdOrderById(card.getId());
+        BigDecimal deltas = entries.stream()
+                .map(LedgerEntry::getDelta)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, card.getBalance().subtract(INITIAL_BALANCE).compareTo(deltas));
+        if (!entries.isEmpty()) {
+            assertEquals(0, card.getBalance().compareTo(entries.get(entries.size() - 1).getRunningBalance()));
+        }
+    }
+}
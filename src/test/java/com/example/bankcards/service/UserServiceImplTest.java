@@ -6,6 +6,7 @@ import com.example.bankcards.dto.response.UserResponse;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.mapper.Mapper;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.TokenValidationCache;
 import com.example.bankcards.service.implementation.UserServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -38,6 +39,15 @@ class UserServiceImplTest {
     @Mock
     private Mapper mapper;
 
+    @Mock
+    private TokenValidationCache tokenValidationCache;
+
+    @Mock
+    private TokenRegistry tokenRegistry;
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -190,6 +200,9 @@ class UserServiceImplTest {
         assertEquals("ROLE_ADMIN", result.getRole().toString());
         verify(userRepository, times(1)).findById(1L);
         verify(userRepository, times(1)).save(user);
+        verify(tokenValidationCache, times(1)).evictUser("testuser");
+        verify(tokenRegistry, times(1)).revokeUser(user);
+        verify(refreshTokenService, times(1)).revokeUser(user);
     }
 
     @Test
@@ -205,8 +218,13 @@ class UserServiceImplTest {
 
     @Test
     void deleteUser_ShouldCallRepositoryDelete() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
         userService.deleteUser(1L);
 
+        verify(tokenRegistry, times(1)).revokeUser(user);
+        verify(refreshTokenService, times(1)).revokeUser(user);
+        verify(tokenValidationCache, times(1)).evictUser("testuser");
         verify(userRepository, times(1)).deleteById(1L);
     }
 